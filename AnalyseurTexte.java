@@ -0,0 +1,191 @@
+package service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Analyse des textes français pour la recherche et les recommandations.
+ *
+ * Un texte est normalisé (forme Unicode décomposée, accents et ligatures
+ * retirés, minuscules), découpé en mots, puis chaque mot est réduit par une
+ * racinisation légère (pluriels, féminins, -ement, e final) et remplacé par le
+ * premier mot de son groupe de synonymes. "Développements", "developpement" et
+ * "développeur" donnent ainsi le même terme, et "stages" le même que "stage".
+ *
+ * Les synonymes sont lus dans le fichier désigné par hecrecruit.synonymes
+ * (une ligne par groupe de mots séparés par des virgules, # pour les
+ * commentaires) ; à défaut, une table intégrée est utilisée.
+ *
+ * L'analyse est faite une fois, à l'indexation d'une offre ou d'un profil :
+ * les recherches comparent ensuite les termes obtenus. Immuable une fois
+ * construit, l'analyseur peut être partagé entre threads.
+ */
+public class AnalyseurTexte {
+
+    private static final String FICHIER_SYNONYMES = System.getProperty("hecrecruit.synonymes");
+
+    /** Groupes de synonymes utilisés sans fichier de configuration */
+    private static final String[] SYNONYMES_DEFAUT = {
+        "développement, développeur, développer, dev",
+        "logiciel, software",
+        "informatique, informaticien",
+        "comptabilité, comptable",
+        "finance, financier",
+        "gestion, management",
+        "recrutement, recruteur, recruter",
+        "commercial, vente, vendeur",
+        "cybersécurité, cybersecurity",
+    };
+
+    private static final Pattern SEPARATEURS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    private static AnalyseurTexte instance;
+
+    /** Terme racinisé -> terme du premier mot de son groupe */
+    private final Map<String, String> synonymes;
+
+    /**
+     * Construit un analyseur avec des groupes de synonymes.
+     *
+     * @param groupes Lignes "mot, mot, mot" ; le premier mot représente le groupe
+     */
+    public AnalyseurTexte(List<String> groupes) {
+        Map<String, String> table = new HashMap<>();
+        for (String groupe : groupes) {
+            String ligne = groupe.trim();
+            if (ligne.isEmpty() || ligne.startsWith("#")) {
+                continue;
+            }
+            String representant = null;
+            for (String mot : ligne.split(",")) {
+                List<String> termes = decouper(mot);
+                if (termes.size() != 1) {
+                    if (!termes.isEmpty()) {
+                        System.out.println("⚠️ Synonyme ignoré (un seul mot par entrée) : " + mot.trim());
+                    }
+                    continue;
+                }
+                String terme = raciner(termes.get(0));
+                if (representant == null) {
+                    representant = terme;
+                }
+                table.putIfAbsent(terme, representant);
+            }
+        }
+        this.synonymes = table;
+    }
+
+    /**
+     * @return L'analyseur partagé, avec les synonymes configurés
+     */
+    public static synchronized AnalyseurTexte getInstance() {
+        if (instance == null) {
+            instance = new AnalyseurTexte(chargerSynonymes());
+        }
+        return instance;
+    }
+
+    private static List<String> chargerSynonymes() {
+        if (FICHIER_SYNONYMES == null) {
+            return Arrays.asList(SYNONYMES_DEFAUT);
+        }
+        try {
+            return Files.readAllLines(Paths.get(FICHIER_SYNONYMES), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("❌ Lecture des synonymes impossible (" + e.getMessage()
+                + "), table intégrée utilisée");
+            return Arrays.asList(SYNONYMES_DEFAUT);
+        }
+    }
+
+    // ========== ANALYSE ==========
+
+    /**
+     * Termes d'un texte, dans l'ordre, doublons compris.
+     */
+    public String[] analyser(String texte) {
+        List<String> mots = decouper(texte);
+        String[] termes = new String[mots.size()];
+        for (int i = 0; i < termes.length; i++) {
+            termes[i] = terme(mots.get(i));
+        }
+        return termes;
+    }
+
+    /**
+     * Terme d'un mot déjà normalisé : racine, puis représentant de ses synonymes.
+     */
+    public String terme(String mot) {
+        String racine = raciner(mot);
+        return synonymes.getOrDefault(racine, racine);
+    }
+
+    /**
+     * Texte en minuscules, sans accents ni ligatures. La longueur peut changer.
+     */
+    public static String normaliser(String texte) {
+        String decompose = Normalizer.normalize(texte, Normalizer.Form.NFKD);
+        String sansAccents = ACCENTS.matcher(decompose).replaceAll("").toLowerCase(Locale.ROOT);
+        if (sansAccents.indexOf('œ') >= 0 || sansAccents.indexOf('æ') >= 0) {
+            sansAccents = sansAccents.replace("œ", "oe").replace("æ", "ae");
+        }
+        return sansAccents;
+    }
+
+    /**
+     * Mots normalisés d'un texte, sans racinisation.
+     */
+    public static List<String> decouper(String texte) {
+        if (texte == null || texte.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> mots = new ArrayList<>();
+        for (String mot : SEPARATEURS.split(normaliser(texte))) {
+            if (!mot.isEmpty()) {
+                mots.add(mot);
+            }
+        }
+        return mots;
+    }
+
+    /**
+     * Racinisation légère d'un mot normalisé : ne retire que les flexions
+     * (pluriel, féminin) et quelques suffixes sûrs, sans descendre sous trois lettres.
+     */
+    static String raciner(String mot) {
+        int n = mot.length();
+        if (n <= 3 || !Character.isLetter(mot.charAt(n - 1))) {
+            return mot;
+        }
+        // Pluriels : journaux -> journal, stages -> stage
+        if (n > 5 && mot.endsWith("aux")) {
+            mot = mot.substring(0, n - 3) + "al";
+        } else if (mot.endsWith("s") || mot.endsWith("x")) {
+            mot = mot.substring(0, n - 1);
+        }
+        // Féminins et suffixe -ement
+        if (mot.length() > 5 && mot.endsWith("euse")) {
+            mot = mot.substring(0, mot.length() - 4) + "eur";
+        } else if (mot.length() > 6 && mot.endsWith("trice")) {
+            mot = mot.substring(0, mot.length() - 5) + "teur";
+        } else if (mot.length() > 4 && mot.endsWith("ive")) {
+            mot = mot.substring(0, mot.length() - 3) + "if";
+        } else if (mot.length() > 5 && mot.endsWith("iere")) {
+            mot = mot.substring(0, mot.length() - 4) + "ier";
+        } else if (mot.length() > 5 && (mot.endsWith("enne") || mot.endsWith("elle"))) {
+            mot = mot.substring(0, mot.length() - 2);
+        } else if (mot.length() > 7 && mot.endsWith("ement")) {
+            mot = mot.substring(0, mot.length() - 5);
+        }
+        // e final : stage -> stag, qualité -> qualit
+        if (mot.length() > 3 && mot.endsWith("e")) {
+            mot = mot.substring(0, mot.length() - 1);
+        }
+        return mot;
+    }
+}
@@ -0,0 +1,201 @@
+package service;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import models.*;
+
+/**
+ * Archives froides des offres expirées, dans data/archives/.
+ *
+ * Un fichier compressé par année d'expiration (offres-AAAA.txt.gz). Chaque
+ * ligne reprend le format de offres.txt, précédé des CIN des candidats :
+ *   cin,cin,...|id|type|titre|description|email|datePub|dateExp|spec1|spec2
+ * ("-" s'il n'y a pas de candidature).
+ *
+ * Un archivage réécrit les fichiers des années concernées (fichier temporaire,
+ * fsync, renommage) sous le verrou du dossier ; une offre déjà présente est
+ * remplacée, ce qui rend l'archivage rejouable après une interruption ou par
+ * une autre instance.
+ */
+public class ArchiveOffres {
+
+    private static final String ARCHIVE_DIR = "data/archives";
+    private static final String PREFIXE = "offres-";
+    private static final String EXTENSION = ".txt.gz";
+
+    private final FileManager fileManager;
+    private final Path dossier;
+
+    public ArchiveOffres(FileManager fileManager) {
+        this(fileManager, Paths.get(ARCHIVE_DIR));
+    }
+
+    public ArchiveOffres(FileManager fileManager, Path dossier) {
+        this.fileManager = fileManager;
+        this.dossier = dossier;
+    }
+
+    // ========== ÉCRITURE ==========
+
+    /**
+     * Ajoute des offres aux archives, avec leurs candidatures.
+     * Les offres doivent avoir une date d'expiration.
+     *
+     * @return true si toutes les archives concernées sont écrites et durables
+     */
+    public boolean archiver(List<Offre> offres) {
+        return fileManager.getVerrou().executer(() -> archiverVerrouille(offres));
+    }
+
+    private synchronized boolean archiverVerrouille(List<Offre> offres) {
+        Map<Integer, List<Offre>> parAnnee = new TreeMap<>();
+        for (Offre o : offres) {
+            parAnnee.computeIfAbsent(o.getDateExpiration().getYear(), a -> new ArrayList<>()).add(o);
+        }
+        try {
+            Files.createDirectories(dossier);
+            for (Map.Entry<Integer, List<Offre>> e : parAnnee.entrySet()) {
+                // Lignes existantes, par identifiant d'offre
+                Map<String, String> lignes = new LinkedHashMap<>();
+                for (String ligne : lireLignes(e.getKey())) {
+                    lignes.put(identifiant(ligne), ligne);
+                }
+                for (Offre o : e.getValue()) {
+                    String ligne = formater(o);
+                    lignes.put(identifiant(ligne), ligne);
+                }
+                ecrire(e.getKey(), lignes.values());
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("Erreur écriture archives: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void ecrire(int annee, Collection<String> lignes) throws IOException {
+        Path cible = fichier(annee);
+        Path tmp = cible.resolveSibling(cible.getFileName() + ".tmp");
+        try (FileOutputStream sortie = new FileOutputStream(tmp.toFile())) {
+            GZIPOutputStream gz = new GZIPOutputStream(sortie, 1 << 16);
+            Writer w = new BufferedWriter(new OutputStreamWriter(gz, Charset.defaultCharset()));
+            for (String ligne : lignes) {
+                w.write(ligne);
+                w.write('\n');
+            }
+            w.flush();
+            gz.finish();
+            sortie.getFD().sync();
+        }
+        Files.move(tmp, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileManager.synchroniserDossier(cible);
+    }
+
+    private String formater(Offre o) {
+        StringBuilder cins = new StringBuilder();
+        for (Candidat c : o.getCandidatures()) {
+            if (cins.length() > 0) {
+                cins.append(',');
+            }
+            cins.append(c.getId());
+        }
+        return (cins.length() > 0 ? cins : "-") + "|" + fileManager.formaterOffre(o);
+    }
+
+    // ========== LECTURE ==========
+
+    /**
+     * @return Les années d'expiration archivées, dans l'ordre croissant
+     */
+    public synchronized List<Integer> getAnnees() {
+        List<Integer> annees = new ArrayList<>();
+        if (!Files.isDirectory(dossier)) {
+            return annees;
+        }
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(dossier, PREFIXE + "*" + EXTENSION)) {
+            for (Path p : fichiers) {
+                String nom = p.getFileName().toString();
+                try {
+                    annees.add(Integer.parseInt(nom.substring(PREFIXE.length(), nom.length() - EXTENSION.length())));
+                } catch (NumberFormatException e) {
+                    // Fichier étranger aux archives
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Erreur lecture archives: " + e.getMessage());
+        }
+        Collections.sort(annees);
+        return annees;
+    }
+
+    /**
+     * Reconstruit les offres archivées d'une année. Les offres ne sont pas
+     * rattachées aux listes des entreprises ni des candidats ; leurs
+     * candidatures sont reconstituées à partir des candidats connus.
+     *
+     * @param entreprisesParEmail Entreprises actuelles, par email
+     * @param candidatsParCin Candidats actuels, par CIN
+     */
+    public synchronized List<Offre> lire(int annee, Map<String, Entreprise> entreprisesParEmail,
+                                         Map<Integer, Candidat> candidatsParCin) {
+        List<Offre> offres = new ArrayList<>();
+        try {
+            for (String ligne : lireLignes(annee)) {
+                ChampsLigne champs = ChampsLigne.de(ligne.split("\\|"));
+                Offre offre;
+                try {
+                    offre = fileManager.parserOffre(champs.decaler(1), entreprisesParEmail);
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                if (offre == null) {
+                    continue;
+                }
+                if (!champs.egal(0, "-")) {
+                    for (String cin : champs.texte(0).split(",")) {
+                        Candidat c = candidatsParCin.get(Integer.parseInt(cin));
+                        if (c != null) {
+                            offre.getCandidatures().add(c);
+                        }
+                    }
+                }
+                offres.add(offre);
+            }
+        } catch (IOException e) {
+            System.out.println("Erreur lecture archives " + annee + ": " + e.getMessage());
+        }
+        return offres;
+    }
+
+    private List<String> lireLignes(int annee) throws IOException {
+        List<String> lignes = new ArrayList<>();
+        Path p = fichier(annee);
+        if (!Files.exists(p)) {
+            return lignes;
+        }
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(p), 1 << 16), Charset.defaultCharset()))) {
+            String ligne;
+            while ((ligne = br.readLine()) != null) {
+                if (!ligne.isEmpty()) {
+                    lignes.add(ligne);
+                }
+            }
+        }
+        return lignes;
+    }
+
+    private Path fichier(int annee) {
+        return dossier.resolve(PREFIXE + annee + EXTENSION);
+    }
+
+    private static String identifiant(String ligne) {
+        int debut = ligne.indexOf('|') + 1;
+        int fin = ligne.indexOf('|', debut);
+        return fin < 0 ? ligne.substring(debut) : ligne.substring(debut, fin);
+    }
+}
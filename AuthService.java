@@ -12,10 +12,17 @@ public class AuthService {
     private List<Candidat> candidats;
     private Entreprise entrepriseConnectee;
     private Candidat candidatConnecte;
+    private EnregistreurMutations mutations;
 
     public AuthService(List<Entreprise> entreprises, List<Candidat> candidats) {
+        this(entreprises, candidats, new EnregistreurMutations());
+    }
+
+    public AuthService(List<Entreprise> entreprises, List<Candidat> candidats,
+                       EnregistreurMutations mutations) {
         this.entreprises = entreprises;
         this.candidats = candidats;
+        this.mutations = mutations;
         this.entrepriseConnectee = null;
         this.candidatConnecte = null;
     }
@@ -78,6 +85,10 @@ public class AuthService {
         try {
             // Créer la nouvelle entreprise
             Entreprise nouvelle = new Entreprise(nom, secteur, adresse, email, telephone, mdp);
+            // Journalisée avant d'être ajoutée : un échec d'écriture ne laisse rien en mémoire
+            if (!mutations.entrepriseInscrite(nouvelle)) {
+                return false;
+            }
             entreprises.add(nouvelle);
             
             // Connexion automatique après inscription
@@ -153,7 +164,10 @@ public class AuthService {
                 nouveau = new Candidat(id, nom, prenom, email, telephone, mdp, candidats);
             }
 
-            // Ajouter à la liste et connecter automatiquement
+            // Journaliser, puis ajouter à la liste et connecter automatiquement
+            if (!mutations.candidatInscrit(nouveau)) {
+                return false;
+            }
             candidats.add(nouveau);
             candidatConnecte = nouveau;
             return true;
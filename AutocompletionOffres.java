@@ -0,0 +1,508 @@
+package service;
+
+import java.time.LocalDate;
+import java.util.*;
+import models.*;
+
+/**
+ * Suggestions pour le champ de recherche des offres : titres, noms
+ * d'entreprises, domaines des stages et technologies des projets de fin
+ * d'études, les plus fréquents d'abord.
+ *
+ * Chaque texte suggéré a un poids, le nombre d'offres non expirées qui le
+ * portent. Sa clé normalisée (AnalyseurTexte : sans casse ni accents), ainsi
+ * que la fin de la clé à partir de chacun de ses premiers mots, est rangée dans
+ * un arbre de préfixes compact (une arête porte une suite de caractères, un
+ * nœud n'existe qu'à un embranchement ou en fin de clé). Chaque nœud garde les
+ * K meilleures suggestions de son sous-arbre : une suggestion se lit donc en
+ * descendant le préfixe saisi, sans parcourir le sous-arbre.
+ *
+ * Mise à jour incrémentale : une offre créée, retirée ou dont la date
+ * d'expiration change modifie le poids de ses textes, puis les K meilleures
+ * sont recalculées de bas en haut sur les seuls chemins de leurs clés. Les
+ * offres qui expirent sont retirées à la première suggestion du jour suivant
+ * leur date. L'arbre n'est construit qu'à la première suggestion demandée ;
+ * reconstruire() l'oublie après un rechargement des données.
+ *
+ * Utilisé sur le thread de l'interface, comme le service des offres.
+ */
+public class AutocompletionOffres {
+
+    /** Suggestions gardées par nœud, nombre maximal rendu */
+    public static final int K = 10;
+
+    /** Nombre de mots d'un texte à partir desquels il peut être suggéré */
+    private static final int MOTS_INDEXES = 6;
+
+    private static final int[] AUCUN = new int[0];
+
+    private static class Noeud {
+        String etiquette;
+        char[] lettres = new char[0];
+        Noeud[] enfants = new Noeud[0];
+        int[] terminales = AUCUN;
+        int[] meilleures = AUCUN;
+
+        Noeud(String etiquette) {
+            this.etiquette = etiquette;
+        }
+
+        Noeud enfant(char c) {
+            int i = Arrays.binarySearch(lettres, c);
+            return i >= 0 ? enfants[i] : null;
+        }
+
+        void placer(Noeud enfant) {
+            char c = enfant.etiquette.charAt(0);
+            int i = Arrays.binarySearch(lettres, c);
+            if (i >= 0) {
+                enfants[i] = enfant;
+                return;
+            }
+            i = -i - 1;
+            char[] l = new char[lettres.length + 1];
+            Noeud[] e = new Noeud[enfants.length + 1];
+            System.arraycopy(lettres, 0, l, 0, i);
+            System.arraycopy(enfants, 0, e, 0, i);
+            l[i] = c;
+            e[i] = enfant;
+            System.arraycopy(lettres, i, l, i + 1, lettres.length - i);
+            System.arraycopy(enfants, i, e, i + 1, enfants.length - i);
+            lettres = l;
+            enfants = e;
+        }
+
+        void enlever(char c) {
+            int i = Arrays.binarySearch(lettres, c);
+            if (i < 0) {
+                return;
+            }
+            char[] l = new char[lettres.length - 1];
+            Noeud[] e = new Noeud[enfants.length - 1];
+            System.arraycopy(lettres, 0, l, 0, i);
+            System.arraycopy(enfants, 0, e, 0, i);
+            System.arraycopy(lettres, i + 1, l, i, lettres.length - i - 1);
+            System.arraycopy(enfants, i + 1, e, i, enfants.length - i - 1);
+            lettres = l;
+            enfants = e;
+        }
+    }
+
+    private static class Suggestion {
+        final String texte;
+        final String cle;
+        int poids;
+
+        Suggestion(String texte, String cle) {
+            this.texte = texte;
+            this.cle = cle;
+        }
+    }
+
+    private final List<Offre> offres;
+
+    private Noeud racine = new Noeud("");
+    private final List<Suggestion> suggestions = new ArrayList<>();
+    private final Deque<Integer> numerosLibres = new ArrayDeque<>();
+    private final Map<String, Integer> parCle = new HashMap<>();
+
+    /** Clés comptées pour chaque offre non expirée */
+    private final Map<Offre, String[]> comptees = new IdentityHashMap<>();
+
+    /** Offres comptées, par date d'expiration connue à leur ajout */
+    private final TreeMap<LocalDate, List<Offre>> echeances = new TreeMap<>();
+
+    private boolean construit;
+    private LocalDate verifieLe;
+
+    public AutocompletionOffres(List<Offre> offres) {
+        this.offres = offres;
+    }
+
+    /**
+     * Suggestions pour le début de saisie, les plus portées d'abord.
+     *
+     * @param debut Texte saisi
+     * @param nombre Nombre maximal de suggestions (au plus K)
+     * @return Les textes suggérés
+     */
+    public List<String> suggerer(String debut, int nombre) {
+        if (!construit) {
+            construire();
+        }
+        expirer();
+        String prefixe = cle(debut);
+        List<String> trouvees = new ArrayList<>();
+        if (prefixe.isEmpty()) {
+            return trouvees;
+        }
+        Noeud n = racine;
+        int i = 0;
+        while (i < prefixe.length()) {
+            Noeud e = n.enfant(prefixe.charAt(i));
+            if (e == null) {
+                return trouvees;
+            }
+            int commun = longueurCommune(e.etiquette, prefixe, i);
+            if (commun < e.etiquette.length() && i + commun < prefixe.length()) {
+                return trouvees; // le préfixe quitte l'arête
+            }
+            n = e;
+            i += commun;
+        }
+        for (int s : n.meilleures) {
+            if (trouvees.size() >= nombre) {
+                break;
+            }
+            trouvees.add(suggestions.get(s).texte);
+        }
+        return trouvees;
+    }
+
+    /**
+     * Compte une offre créée ou importée.
+     */
+    public void ajouter(Offre offre) {
+        if (!construit || comptees.containsKey(offre) || offre.estExpiree()) {
+            return;
+        }
+        String[] cles = textes(offre);
+        comptees.put(offre, cles);
+        for (int i = 0; i < cles.length; i += 2) {
+            changerPoids(cles[i], cles[i + 1], 1);
+        }
+        if (offre.getDateExpiration() != null) {
+            echeances.computeIfAbsent(offre.getDateExpiration(), d -> new ArrayList<>()).add(offre);
+        }
+    }
+
+    /**
+     * Ne compte plus une offre supprimée ou archivée.
+     */
+    public void retirer(Offre offre) {
+        if (!construit) {
+            return;
+        }
+        String[] cles = comptees.remove(offre);
+        if (cles == null) {
+            return;
+        }
+        for (int i = 0; i < cles.length; i += 2) {
+            changerPoids(cles[i], cles[i + 1], -1);
+        }
+    }
+
+    /**
+     * Prend en compte une nouvelle date d'expiration (une offre expirée peut revivre).
+     */
+    public void expirationModifiee(Offre offre) {
+        if (!construit) {
+            return;
+        }
+        if (!comptees.containsKey(offre)) {
+            ajouter(offre);
+        } else if (offre.estExpiree()) {
+            retirer(offre);
+        } else if (offre.getDateExpiration() != null) {
+            echeances.computeIfAbsent(offre.getDateExpiration(), d -> new ArrayList<>()).add(offre);
+        }
+    }
+
+    /**
+     * Oublie l'arbre, reconstruit à la suggestion suivante (après un
+     * rechargement qui a pu modifier des titres ou des noms d'entreprises).
+     */
+    public void reconstruire() {
+        construit = false;
+    }
+
+    // ========== CONSTRUCTION ==========
+
+    private void construire() {
+        racine = new Noeud("");
+        suggestions.clear();
+        numerosLibres.clear();
+        parCle.clear();
+        comptees.clear();
+        echeances.clear();
+        verifieLe = LocalDate.now();
+        construit = true;
+        for (Offre offre : offres) {
+            ajouter(offre);
+        }
+    }
+
+    /**
+     * Retire les offres expirées depuis la dernière vérification.
+     */
+    private void expirer() {
+        LocalDate aujourdhui = LocalDate.now();
+        if (aujourdhui.equals(verifieLe)) {
+            return;
+        }
+        verifieLe = aujourdhui;
+        // Une offre expire le lendemain de sa date d'expiration
+        SortedMap<LocalDate, List<Offre>> echues = echeances.headMap(aujourdhui);
+        List<Offre> aVerifier = new ArrayList<>();
+        for (List<Offre> liste : echues.values()) {
+            aVerifier.addAll(liste);
+        }
+        echues.clear();
+        for (Offre offre : aVerifier) {
+            if (!comptees.containsKey(offre)) {
+                continue;
+            }
+            if (offre.estExpiree()) {
+                retirer(offre);
+            } else if (offre.getDateExpiration() != null) {
+                // Date repoussée depuis son ajout
+                echeances.computeIfAbsent(offre.getDateExpiration(), d -> new ArrayList<>()).add(offre);
+            }
+        }
+    }
+
+    /**
+     * Clés et textes suggérés d'une offre, par paires, sans doublon de clé.
+     */
+    private static String[] textes(Offre offre) {
+        List<String> sources = new ArrayList<>();
+        sources.add(offre.getTitre());
+        sources.add(offre.getEntreprise().getNom());
+        if (offre instanceof Stage) {
+            sources.add(((Stage) offre).getDomaine());
+        } else if (offre instanceof ProjetFinEtudes) {
+            String technologies = ((ProjetFinEtudes) offre).getTechnologies();
+            if (technologies != null) {
+                sources.addAll(Arrays.asList(technologies.split("[,;/]")));
+            }
+        }
+        Map<String, String> parCle = new LinkedHashMap<>();
+        for (String source : sources) {
+            if (source == null) {
+                continue;
+            }
+            String texte = source.trim();
+            String cle = cle(texte);
+            if (!cle.isEmpty()) {
+                parCle.putIfAbsent(cle, texte);
+            }
+        }
+        String[] paires = new String[parCle.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, String> e : parCle.entrySet()) {
+            paires[i++] = e.getKey();
+            paires[i++] = e.getValue();
+        }
+        return paires;
+    }
+
+    private static String cle(String texte) {
+        return String.join(" ", AnalyseurTexte.decouper(texte));
+    }
+
+    // ========== ARBRE ==========
+
+    private void changerPoids(String cle, String texte, int delta) {
+        Integer numero = parCle.get(cle);
+        if (numero == null) {
+            if (delta <= 0) {
+                return;
+            }
+            Suggestion s = new Suggestion(texte, cle);
+            numero = numerosLibres.isEmpty() ? suggestions.size() : numerosLibres.pop();
+            if (numero == suggestions.size()) {
+                suggestions.add(s);
+            } else {
+                suggestions.set(numero, s);
+            }
+            parCle.put(cle, numero);
+            s.poids = delta;
+            for (String fin : fins(cle)) {
+                Noeud n = inserer(fin);
+                n.terminales = avec(n.terminales, numero);
+                recalculer(fin);
+            }
+            return;
+        }
+        Suggestion s = suggestions.get(numero);
+        s.poids += delta;
+        if (s.poids > 0) {
+            for (String fin : fins(cle)) {
+                recalculer(fin);
+            }
+            return;
+        }
+        for (String fin : fins(cle)) {
+            enleverTerminale(fin, numero);
+            recalculer(fin);
+        }
+        parCle.remove(cle);
+        suggestions.set(numero, null);
+        numerosLibres.push(numero);
+    }
+
+    /**
+     * Fins de la clé à partir de chacun de ses premiers mots.
+     */
+    private static List<String> fins(String cle) {
+        List<String> fins = new ArrayList<>();
+        fins.add(cle);
+        int i = cle.indexOf(' ');
+        while (i >= 0 && fins.size() < MOTS_INDEXES) {
+            fins.add(cle.substring(i + 1));
+            i = cle.indexOf(' ', i + 1);
+        }
+        return fins;
+    }
+
+    /**
+     * Descend la clé en créant ou coupant les arêtes nécessaires.
+     *
+     * @return Le nœud où finit la clé
+     */
+    private Noeud inserer(String cle) {
+        Noeud n = racine;
+        int i = 0;
+        while (i < cle.length()) {
+            Noeud e = n.enfant(cle.charAt(i));
+            if (e == null) {
+                Noeud feuille = new Noeud(cle.substring(i));
+                n.placer(feuille);
+                return feuille;
+            }
+            int commun = longueurCommune(e.etiquette, cle, i);
+            if (commun < e.etiquette.length()) {
+                // Couper l'arête au point de divergence
+                Noeud milieu = new Noeud(e.etiquette.substring(0, commun));
+                e.etiquette = e.etiquette.substring(commun);
+                milieu.placer(e);
+                milieu.meilleures = e.meilleures;
+                n.placer(milieu);
+                e = milieu;
+            }
+            n = e;
+            i += commun;
+        }
+        return n;
+    }
+
+    /**
+     * Retire la suggestion du nœud de la clé, puis supprime ou fusionne les
+     * nœuds devenus inutiles pour garder l'arbre compact.
+     */
+    private void enleverTerminale(String cle, int numero) {
+        List<Noeud> chemin = chemin(cle);
+        Noeud n = chemin.get(chemin.size() - 1);
+        n.terminales = sans(n.terminales, numero);
+        for (int k = chemin.size() - 1; k > 0; k--) {
+            Noeud noeud = chemin.get(k);
+            Noeud parent = chemin.get(k - 1);
+            if (noeud.terminales.length > 0 || noeud.enfants.length > 1) {
+                break;
+            }
+            if (noeud.enfants.length == 0) {
+                parent.enlever(noeud.etiquette.charAt(0));
+            } else {
+                Noeud seul = noeud.enfants[0];
+                seul.etiquette = noeud.etiquette + seul.etiquette;
+                parent.placer(seul);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Recalcule de bas en haut les K meilleures des nœuds du chemin de la clé.
+     */
+    private void recalculer(String cle) {
+        List<Noeud> chemin = chemin(cle);
+        for (int k = chemin.size() - 1; k >= 0; k--) {
+            Noeud n = chemin.get(k);
+            int total = n.terminales.length;
+            for (Noeud e : n.enfants) {
+                total += e.meilleures.length;
+            }
+            int[] candidates = new int[total];
+            int c = 0;
+            for (int s : n.terminales) {
+                candidates[c++] = s;
+            }
+            for (Noeud e : n.enfants) {
+                for (int s : e.meilleures) {
+                    candidates[c++] = s;
+                }
+            }
+            n.meilleures = meilleures(candidates);
+        }
+    }
+
+    /**
+     * Nœuds traversés par la clé depuis la racine, tant que l'arbre la suit.
+     */
+    private List<Noeud> chemin(String cle) {
+        List<Noeud> chemin = new ArrayList<>();
+        Noeud n = racine;
+        chemin.add(n);
+        int i = 0;
+        while (i < cle.length()) {
+            Noeud e = n.enfant(cle.charAt(i));
+            if (e == null || !cle.startsWith(e.etiquette, i)) {
+                break;
+            }
+            chemin.add(e);
+            n = e;
+            i += e.etiquette.length();
+        }
+        return chemin;
+    }
+
+    private int[] meilleures(int[] candidates) {
+        Integer[] tries = new Integer[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            tries[i] = candidates[i];
+        }
+        Arrays.sort(tries, (a, b) -> {
+            Suggestion sa = suggestions.get(a);
+            Suggestion sb = suggestions.get(b);
+            if (sa.poids != sb.poids) {
+                return Integer.compare(sb.poids, sa.poids);
+            }
+            return sa.cle.compareTo(sb.cle);
+        });
+        int[] resultat = new int[Math.min(K, tries.length)];
+        int n = 0;
+        for (int i = 0; i < tries.length && n < resultat.length; i++) {
+            // Une suggestion peut remonter par plusieurs de ses fins
+            if (i == 0 || !tries[i].equals(tries[i - 1])) {
+                resultat[n++] = tries[i];
+            }
+        }
+        return n == resultat.length ? resultat : Arrays.copyOf(resultat, n);
+    }
+
+    private static int longueurCommune(String etiquette, String cle, int debut) {
+        int max = Math.min(etiquette.length(), cle.length() - debut);
+        int i = 0;
+        while (i < max && etiquette.charAt(i) == cle.charAt(debut + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int[] avec(int[] numeros, int numero) {
+        int[] r = Arrays.copyOf(numeros, numeros.length + 1);
+        r[numeros.length] = numero;
+        return r;
+    }
+
+    private static int[] sans(int[] numeros, int numero) {
+        int[] r = new int[numeros.length];
+        int n = 0;
+        for (int s : numeros) {
+            if (s != numero) {
+                r[n++] = s;
+            }
+        }
+        return Arrays.copyOf(r, n);
+    }
+}
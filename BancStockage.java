@@ -0,0 +1,200 @@
+package application;
+
+import java.nio.file.*;
+import java.util.*;
+import models.*;
+import service.*;
+
+/**
+ * Mesure des temps d'écriture et de lecture des deux backends de stockage,
+ * sur un jeu de données généré (graine fixe : mêmes données à chaque exécution).
+ *
+ *   java application.BancStockage [url-jdbc] [nombre-candidats] [repetitions]
+ *   ex: java -cp .:h2.jar application.BancStockage jdbc:h2:./banc/base 20000 5
+ *
+ * Le backend texte écrit dans le dossier data du répertoire courant : à lancer
+ * depuis un dossier vide (refusé si data existe déjà). Sans URL, seul le
+ * backend texte est mesuré ; le pilote JDBC doit être au classpath.
+ *
+ * Scénarios, chacun répété (après un tour de chauffe) et résumé par sa médiane :
+ *   ecriture-initiale      report complet des collections dans un stockage vide (une fois)
+ *   modification-profil    100 modifications de candidats, comme CandidatService
+ *                          (texte : ligne de journal forcée sur disque ; base : UPDATE)
+ *   creation-suppression   100 offres créées puis supprimées, comme OffreService
+ *   compaction             report des collections modifiées (texte : réécriture des
+ *                          fichiers ; base : lignes différentes seulement)
+ *   chargement             lecture des entreprises, candidats, offres et relations
+ *
+ * Les recherches des services se font en mémoire quel que soit le backend :
+ * seul le chargement dépend du stockage.
+ */
+public class BancStockage {
+
+    private static final long GRAINE = 42;
+    private static final int OPERATIONS = 100;
+
+    private final int nombreCandidats;
+    private final int repetitions;
+
+    public BancStockage(int nombreCandidats, int repetitions) {
+        this.nombreCandidats = nombreCandidats;
+        this.repetitions = repetitions;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 && args[0].startsWith("jdbc:") ? args[0] : null;
+        int debut = url != null ? 1 : 0;
+        int nombre = args.length > debut ? Integer.parseInt(args[debut]) : 10000;
+        int repetitions = args.length > debut + 1 ? Integer.parseInt(args[debut + 1]) : 5;
+        if (Files.exists(Paths.get("data"))) {
+            System.out.println("❌ Le dossier data existe déjà : lancer le banc depuis un dossier vide");
+            System.exit(2);
+        }
+
+        BancStockage banc = new BancStockage(nombre, repetitions);
+        System.out.println("Banc de stockage : " + nombre + " candidats, " + repetitions + " répétitions");
+        System.out.println("Java " + System.getProperty("java.version") + ", " + System.getProperty("os.name"));
+        FileManager fileManager = new FileManager();
+        banc.mesurer("texte", new StockageTexte(fileManager),
+            new Journal(fileManager, Paths.get("data/journal-banc.txt")));
+        if (url != null) {
+            banc.mesurer("base", new StockageJdbc(url), null);
+        }
+    }
+
+    /**
+     * Déroule les scénarios sur un backend vide et affiche leurs médianes.
+     *
+     * @param journal Journal des mutations (backend journalisé), ou null
+     */
+    public void mesurer(String nom, Stockage stockage, Journal journal) {
+        Donnees d = new Donnees(nombreCandidats);
+        SuiviModifications suivi = new SuiviModifications();
+        EnregistreurMutations mutations = new EnregistreurMutations(journal, stockage, suivi);
+        Map<String, Double> resultats = new LinkedHashMap<>();
+
+        long t0 = System.nanoTime();
+        stockage.sauvegarderEntreprises(d.entreprises);
+        stockage.sauvegarderCandidats(d.candidats);
+        stockage.sauvegarderOffres(d.offres);
+        stockage.getRelations().reecrire(stockage.getRelations().capturer(d.entreprises, d.offres));
+        resultats.put("ecriture-initiale", (System.nanoTime() - t0) / 1e6);
+
+        Random hasard = new Random(GRAINE);
+        resultats.put("modification-profil", mediane(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                Candidat c = d.candidats.get(hasard.nextInt(d.candidats.size()));
+                c.setTelephone(String.format("%08d", hasard.nextInt(100000000)));
+                mutations.candidatModifie(c);
+            }
+        }));
+        resultats.put("creation-suppression", mediane(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                Entreprise e = d.entreprises.get(hasard.nextInt(d.entreprises.size()));
+                Offre o = new Stage("Banc " + i, "Offre temporaire", e, 6, "Informatique");
+                mutations.offreCreee(o);
+                mutations.offreSupprimee(o);
+            }
+        }));
+        resultats.put("compaction", mediane(() -> {
+            // Collections modifiées par les scénarios précédents (toutes pour une base)
+            if (journal == null || suivi.estModifiee(SuiviModifications.Collection.CANDIDATS)) {
+                stockage.sauvegarderCandidats(new ArrayList<>(d.candidats));
+            }
+            if (journal == null || suivi.estModifiee(SuiviModifications.Collection.OFFRES)) {
+                stockage.sauvegarderOffres(new ArrayList<>(d.offres));
+            }
+        }));
+        resultats.put("chargement", mediane(() -> {
+            RapportChargement rapport = new RapportChargement();
+            List<Entreprise> entreprises = stockage.chargerEntreprises();
+            List<Candidat> candidats = stockage.chargerCandidats(rapport);
+            List<Offre> offres = stockage.chargerOffres(entreprises, rapport);
+            stockage.getRelations().charger(entreprises, candidats, offres);
+        }));
+
+        System.out.println("--- " + nom + " (" + stockage.getDescription() + ")");
+        for (Map.Entry<String, Double> r : resultats.entrySet()) {
+            System.out.println(String.format(Locale.ROOT, "  %-22s %10.1f ms", r.getKey(), r.getValue()));
+        }
+        if (journal != null) {
+            journal.fermer();
+        }
+        stockage.fermer();
+    }
+
+    /**
+     * @return La durée médiane du scénario (ms), après un tour de chauffe
+     */
+    private double mediane(Runnable scenario) {
+        scenario.run();
+        double[] durees = new double[repetitions];
+        for (int i = 0; i < repetitions; i++) {
+            long debut = System.nanoTime();
+            scenario.run();
+            durees[i] = (System.nanoTime() - debut) / 1e6;
+        }
+        Arrays.sort(durees);
+        return durees[repetitions / 2];
+    }
+
+    /**
+     * Jeu de données généré : une entreprise pour 10 candidats, une offre pour
+     * 2 candidats, 3 candidatures par candidat et 5 candidats par wishlist.
+     */
+    private static class Donnees {
+        final List<Entreprise> entreprises = new ArrayList<>();
+        final List<Candidat> candidats = new ArrayList<>();
+        final List<Offre> offres = new ArrayList<>();
+
+        Donnees(int nombreCandidats) {
+            Random hasard = new Random(GRAINE);
+            for (int i = 0; i < Math.max(1, nombreCandidats / 10); i++) {
+                entreprises.add(new Entreprise("Entreprise " + i, "Informatique", "Tunis",
+                    "contact" + i + "@entreprise.tn", "71000000", "motdepasse"));
+            }
+            for (int i = 0; i < nombreCandidats; i++) {
+                int cin = 10000000 + i;
+                String email = "candidat" + i + "@etudiant.tn";
+                candidats.add(i % 3 == 0
+                    ? new Candidat(cin, "Nom" + i, "Prenom" + i, email, "20000000", "motdepasse", null)
+                    : new Etudiant(cin, "Nom" + i, "Prenom" + i, email, "20000000", "motdepasse",
+                        "Master", "Informatique", "HEC", null));
+            }
+            for (int i = 0; i < Math.max(1, nombreCandidats / 2); i++) {
+                Entreprise e = entreprises.get(hasard.nextInt(entreprises.size()));
+                Offre o;
+                switch (i % 3) {
+                    case 0:
+                        o = new Stage("Stage " + i, "Description du stage " + i, e, 6, "Développement");
+                        break;
+                    case 1:
+                        o = new Alternance("Alternance " + i, "Description " + i, e, "3 jours / 2 jours", 12);
+                        break;
+                    default:
+                        o = new Offre("Poste " + i, "Description du poste " + i, "CDI", e);
+                        break;
+                }
+                e.getOffresPubliees().add(o);
+                offres.add(o);
+            }
+            for (Candidat c : candidats) {
+                for (int k = 0; k < 3; k++) {
+                    Offre o = offres.get(hasard.nextInt(offres.size()));
+                    if (!o.getCandidatures().contains(c)) {
+                        o.getCandidatures().add(c);
+                        c.getCandidaturesEnCours().add(o);
+                    }
+                }
+            }
+            for (Entreprise e : entreprises) {
+                for (int k = 0; k < 5; k++) {
+                    Candidat c = candidats.get(hasard.nextInt(candidats.size()));
+                    if (!e.getWishlist().contains(c)) {
+                        e.getWishlist().add(c);
+                    }
+                }
+            }
+        }
+    }
+}
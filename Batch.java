@@ -0,0 +1,412 @@
+package application;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+import models.*;
+import service.*;
+import service.RecommendationService.OffreRecommandee;
+import utils.DataManager;
+
+/**
+ * Point d'entrée sans interface graphique, pour les traitements par lots (cron).
+ *
+ * Démarre DataManager et les services sans JavaFX, exécute les commandes
+ * données dans l'ordre puis sauvegarde et s'arrête :
+ *   java application.Batch importer-offres nouvelles.txt expirer statistiques
+ *
+ * Commandes :
+ *   importer-offres <fichier|->      lignes au format de offres.txt, en CSV (.csv)
+ *                                    ou en JSON Lines (.json, .jsonl) : voir FormatImport
+ *   importer-candidats <fichier|->   idem, colonnes de candidats.txt
+ *   expirer                          archive les offres expirées depuis plus que le délai de grâce
+ *   statistiques                     compteurs, une ligne cle=valeur par statistique
+ *   recommandations <fichier|->      recommandations de chaque candidat :
+ *                                    cin|idOffre:score,idOffre:score,...
+ *   migrer                           convertit les anciens formats des fichiers texte
+ *                                    (voir MigrationDonnees), avant le chargement
+ *   migrer-simulation                compte les lignes à convertir sans rien écrire
+ *   verifier                         contrôle l'intégrité du dossier data (voir
+ *                                    VerificationDonnees), avant le chargement
+ *   verifier-reparer                 idem, en retirant les lignes et liens en défaut
+ *   sauvegarde                       sauvegarde incrémentale du dossier data
+ *                                    (voir SauvegardeIncrementale), à tout moment
+ *   sauvegardes                      liste des sauvegardes
+ *   restaurer <date|nom|derniere>    restaure l'état à une date (AAAA-MM-JJTHH:MM[:SS]),
+ *                                    ou une sauvegarde telle quelle, avant le chargement
+ * ("-" : entrée ou sortie standard ; propriété hecrecruit.batch.format pour
+ * imposer le format d'un import)
+ *
+ * La sortie standard ne porte que les résultats des commandes (lignes cle=valeur,
+ * recommandations, liste des sauvegardes) : la progression, les messages de
+ * DataManager et des services et les erreurs vont sur la sortie d'erreur.
+ *
+ * La surveillance du dossier et l'archivage au démarrage sont désactivés
+ * (sauf propriété hecrecruit.surveillance explicite) pour démarrer plus vite.
+ * Code de sortie : 0 si tout a réussi, 1 si des lignes ont été rejetées ou
+ * si une commande a échoué, 2 si la ligne de commande est invalide.
+ */
+public class Batch {
+
+    // Nombre de recommandations par candidat, configurable
+    private static final int NB_RECOMMANDATIONS =
+        Integer.getInteger("hecrecruit.batch.recommandations", 10);
+
+    // Format des fichiers importés (texte, csv, json), d'après l'extension par défaut
+    private static final String FORMAT = System.getProperty("hecrecruit.batch.format");
+
+    // Candidats traités (en parallèle) entre deux écritures de recommandations
+    private static final int BLOC_RECOMMANDATIONS = 1000;
+
+    // Sortie standard d'origine, réservée aux résultats (System.out est redirigé vers System.err)
+    private static final PrintStream SORTIE = System.out;
+
+    private final DataManager dataManager;
+    private boolean echec;
+
+    public Batch(DataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    public static void main(String[] args) {
+        // Tous les messages de diagnostic (y compris ceux de DataManager) vers stderr
+        System.setOut(System.err);
+        List<String[]> commandes = analyser(args);
+        if (commandes == null) {
+            usage();
+            System.exit(2);
+        }
+
+        if (System.getProperty("hecrecruit.surveillance") == null) {
+            System.setProperty("hecrecruit.surveillance", "false");
+        }
+        long debut = System.currentTimeMillis();
+        DataManager dataManager = DataManager.getInstance();
+        Batch batch = new Batch(dataManager);
+
+        // Les migrations et vérifications s'exécutent avant le chargement des données
+        int suivante = 0;
+        while (suivante < commandes.size() && (estAvantChargement(commandes.get(suivante)[0])
+                || estSansDonnees(commandes.get(suivante)[0]))) {
+            batch.executer(commandes.get(suivante++));
+        }
+        if (suivante == commandes.size()) {
+            System.exit(batch.echec ? 1 : 0);
+        }
+
+        dataManager.setArchivageAuDemarrage(false);
+        dataManager.initialiser();
+        System.out.println("✅ Démarrage en " + (System.currentTimeMillis() - debut) + " ms");
+
+        for (String[] commande : commandes.subList(suivante, commandes.size())) {
+            batch.executer(commande);
+        }
+        if (!dataManager.arreter()) {
+            batch.echec = true;
+        }
+        System.exit(batch.echec ? 1 : 0);
+    }
+
+    /**
+     * Découpe les arguments en commandes, chacune suivie de ses paramètres.
+     *
+     * @return Les commandes, ou null si une commande est inconnue ou incomplète
+     */
+    static List<String[]> analyser(String[] args) {
+        List<String[]> commandes = new ArrayList<>();
+        int i = 0;
+        while (i < args.length) {
+            int nbParametres;
+            switch (args[i]) {
+                case "importer-offres":
+                case "importer-candidats":
+                case "recommandations":
+                case "restaurer":
+                    nbParametres = 1;
+                    break;
+                case "expirer":
+                case "statistiques":
+                case "migrer":
+                case "migrer-simulation":
+                case "verifier":
+                case "verifier-reparer":
+                case "sauvegarde":
+                case "sauvegardes":
+                    nbParametres = 0;
+                    break;
+                default:
+                    System.out.println("❌ Commande inconnue: " + args[i]);
+                    return null;
+            }
+            if (estAvantChargement(args[i]) && commandes.size() > 0
+                    && !estAvantChargement(commandes.get(commandes.size() - 1)[0])) {
+                System.out.println("❌ " + args[i] + " doit précéder les autres commandes");
+                return null;
+            }
+            if (i + nbParametres >= args.length) {
+                System.out.println("❌ Paramètre manquant pour " + args[i]);
+                return null;
+            }
+            commandes.add(Arrays.copyOfRange(args, i, i + 1 + nbParametres));
+            i += 1 + nbParametres;
+        }
+        return commandes.isEmpty() ? null : commandes;
+    }
+
+    private static boolean estAvantChargement(String commande) {
+        return commande.equals("migrer") || commande.equals("migrer-simulation")
+            || commande.equals("verifier") || commande.equals("verifier-reparer")
+            || commande.equals("restaurer");
+    }
+
+    /**
+     * Commandes qui n'utilisent pas les données en mémoire : en tête, elles
+     * s'exécutent sans chargement, ailleurs après les commandes précédentes.
+     */
+    private static boolean estSansDonnees(String commande) {
+        return commande.equals("sauvegarde") || commande.equals("sauvegardes");
+    }
+
+    private static void usage() {
+        System.out.println("Usage: java application.Batch <commande> [paramètre] ...");
+        System.out.println("  importer-offres <fichier|->");
+        System.out.println("  importer-candidats <fichier|->");
+        System.out.println("  expirer");
+        System.out.println("  statistiques");
+        System.out.println("  recommandations <fichier|->");
+        System.out.println("  migrer | migrer-simulation   (avant les autres commandes)");
+        System.out.println("  verifier | verifier-reparer  (avant les autres commandes)");
+        System.out.println("  sauvegarde | sauvegardes");
+        System.out.println("  restaurer <AAAA-MM-JJTHH:MM[:SS]|nom|derniere>   (avant les autres commandes)");
+    }
+
+    /**
+     * Exécute une commande ; une erreur est signalée sans interrompre les suivantes.
+     */
+    void executer(String[] commande) {
+        long debut = System.currentTimeMillis();
+        System.out.println("▶ " + String.join(" ", commande));
+        try {
+            switch (commande[0]) {
+                case "importer-offres":
+                    importer(commande[1], true);
+                    break;
+                case "importer-candidats":
+                    importer(commande[1], false);
+                    break;
+                case "expirer":
+                    System.out.println("📦 Offres archivées: " + dataManager.archiverOffresExpirees());
+                    break;
+                case "statistiques":
+                    statistiques();
+                    break;
+                case "recommandations":
+                    recommandations(commande[1]);
+                    break;
+                case "migrer":
+                    migrer(false);
+                    break;
+                case "migrer-simulation":
+                    migrer(true);
+                    break;
+                case "verifier":
+                    verifier(false);
+                    break;
+                case "verifier-reparer":
+                    verifier(true);
+                    break;
+                case "sauvegarde":
+                    sauvegarder();
+                    break;
+                case "sauvegardes":
+                    listerSauvegardes();
+                    break;
+                case "restaurer":
+                    restaurer(commande[1]);
+                    break;
+            }
+            System.out.println("✅ " + commande[0] + " terminé en "
+                + (System.currentTimeMillis() - debut) + " ms");
+        } catch (IOException | RuntimeException e) {
+            echec = true;
+            System.out.println("❌ " + commande[0] + ": " + e.getMessage());
+        }
+    }
+
+    // ========== COMMANDES ==========
+
+    private void importer(String fichier, boolean offres) throws IOException {
+        FormatImport format = FORMAT != null ? FormatImport.valueOf(FORMAT.toUpperCase())
+            : FormatImport.depuisNom(fichier);
+        try (BufferedReader lecteur = ouvrir(fichier)) {
+            RapportChargement rapport = offres
+                ? dataManager.importerOffres(lecteur, format, fichier)
+                : dataManager.importerCandidats(lecteur, format, fichier);
+            System.out.println("✅ " + rapport.getAcceptees() + " ligne(s) importée(s), "
+                + rapport.getRejets().size() + " rejetée(s), "
+                + Math.round(rapport.getLignesParSeconde()) + " ligne(s)/s");
+            FileManager.afficherRejets(rapport);
+            if (!rapport.estComplet()) {
+                echec = true;
+            }
+        }
+    }
+
+    private void migrer(boolean simulation) throws IOException {
+        MigrationDonnees migration = dataManager.getMigration();
+        if (migration == null) {
+            System.out.println("ℹ️ Base JDBC : aucun fichier texte à migrer");
+            return;
+        }
+        System.out.println("Format du dossier data: " + migration.lireVersion()
+            + " (actuel: " + MigrationDonnees.FORMAT_ACTUEL + ")" + (simulation ? ", simulation" : ""));
+        for (MigrationDonnees.RapportFichier r : migration.migrer(simulation)) {
+            System.out.println("  - " + r);
+        }
+    }
+
+    private void verifier(boolean reparer) throws IOException {
+        VerificationDonnees verification = dataManager.getVerification();
+        if (verification == null) {
+            System.out.println("ℹ️ Base JDBC : aucun fichier texte à vérifier");
+            return;
+        }
+        VerificationDonnees.RapportVerification rapport = verification.verifier(reparer);
+        for (VerificationDonnees.Anomalie a : rapport.getAnomalies()) {
+            System.out.println("  - " + a);
+        }
+        for (Map.Entry<String, Long> e : rapport.getLignes().entrySet()) {
+            SORTIE.println(e.getKey() + "=" + e.getValue());
+        }
+        for (Map.Entry<VerificationDonnees.Categorie, Integer> e : rapport.getParCategorie().entrySet()) {
+            SORTIE.println("anomalies." + e.getKey().name().toLowerCase() + "=" + e.getValue());
+        }
+        System.out.println((rapport.estSain() ? "✅ Aucune anomalie" : "⚠️ " + rapport.getAnomalies().size() + " anomalie(s)")
+            + (reparer ? ", " + rapport.getReparees() + " retirée(s)" : "")
+            + String.format(", %.1f Mo/s", rapport.getOctetsParSeconde() / (1 << 20)));
+        if (!rapport.estSain() && !reparer) {
+            echec = true;
+        }
+    }
+
+    private SauvegardeIncrementale sauvegardes() {
+        SauvegardeIncrementale sauvegardes = dataManager.getSauvegardes();
+        if (sauvegardes == null) {
+            throw new IllegalStateException("Base JDBC : sauvegardes à faire avec les outils de la base");
+        }
+        return sauvegardes;
+    }
+
+    private void sauvegarder() throws IOException {
+        SauvegardeIncrementale.RapportSauvegarde rapport = sauvegardes().sauvegarder();
+        System.out.println("💾 Sauvegarde " + rapport);
+        if (rapport.getSupprimees() > 0) {
+            System.out.println("🗑️ " + rapport.getSupprimees() + " ancienne(s) sauvegarde(s) supprimée(s)");
+        }
+    }
+
+    private void listerSauvegardes() throws IOException {
+        for (SauvegardeIncrementale.Sauvegarde s : sauvegardes().lister()) {
+            SORTIE.println(s.getNom() + "|" + s.getFichiers() + " fichier(s)|" + s.getTaille() + " octets");
+        }
+    }
+
+    private void restaurer(String cible) throws IOException {
+        SauvegardeIncrementale.RapportRestauration rapport;
+        if (cible.equals("derniere")) {
+            rapport = sauvegardes().restaurer((String) null);
+        } else {
+            LocalDateTime date;
+            try {
+                date = LocalDateTime.parse(cible);
+            } catch (DateTimeParseException e) {
+                date = null;
+            }
+            rapport = date != null
+                ? sauvegardes().restaurer(date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                : sauvegardes().restaurer(cible);
+        }
+        System.out.println("♻️ Restauration " + rapport);
+    }
+
+    private void statistiques() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entreprises", dataManager.getEntreprises().size());
+        stats.put("candidats", dataManager.getCandidats().size());
+        int candidatures = 0;
+        for (Offre o : dataManager.getOffres()) {
+            candidatures += o.getCandidatures().size();
+        }
+        stats.put("candidatures", candidatures);
+        for (Map.Entry<String, Integer> e : new TreeMap<>(dataManager.getOffreService().getStatistiques()).entrySet()) {
+            stats.put("offres." + e.getKey(), e.getValue());
+        }
+        for (Map.Entry<String, Integer> e : new TreeMap<>(dataManager.getForumService().getStatistiquesForum()).entrySet()) {
+            stats.put("forum." + e.getKey(), e.getValue());
+        }
+        stats.put("archives.annees", dataManager.getHistoriqueService().getAnneesArchivees().size());
+        for (Map.Entry<String, Object> e : stats.entrySet()) {
+            SORTIE.println(e.getKey() + "=" + e.getValue());
+        }
+    }
+
+    /**
+     * Calcule les recommandations de tous les candidats, par blocs traités en
+     * parallèle, et écrit chaque bloc dès qu'il est prêt (dans l'ordre des candidats).
+     * Un fichier est écrit à côté puis renommé : il n'est jamais lu à moitié écrit.
+     */
+    private void recommandations(String fichier) throws IOException {
+        RecommendationService service = dataManager.getRecommendationService();
+        List<Candidat> candidats = dataManager.getCandidats();
+        boolean standard = fichier.equals("-");
+        Path cible = standard ? null : Paths.get(fichier);
+        Path tmp = standard ? null : cible.resolveSibling(cible.getFileName() + ".tmp");
+
+        Writer sortie = standard
+            ? new BufferedWriter(new OutputStreamWriter(SORTIE, Charset.defaultCharset()))
+            : Files.newBufferedWriter(tmp, Charset.defaultCharset());
+        try {
+            for (int debut = 0; debut < candidats.size(); debut += BLOC_RECOMMANDATIONS) {
+                List<Candidat> bloc = candidats.subList(debut, Math.min(candidats.size(), debut + BLOC_RECOMMANDATIONS));
+                List<String> lignes = bloc.parallelStream()
+                    .map(c -> formater(c, service.getRecommandations(c, NB_RECOMMANDATIONS)))
+                    .collect(Collectors.toList());
+                for (String ligne : lignes) {
+                    sortie.write(ligne);
+                    sortie.write('\n');
+                }
+                sortie.flush();
+            }
+        } finally {
+            if (!standard) {
+                sortie.close();
+            }
+        }
+        if (!standard) {
+            Files.move(tmp, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("✅ Recommandations de " + candidats.size() + " candidat(s) écrites dans " + cible);
+        }
+    }
+
+    private static String formater(Candidat c, List<OffreRecommandee> recommandations) {
+        StringBuilder sb = new StringBuilder().append(c.getId()).append('|');
+        for (int i = 0; i < recommandations.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            OffreRecommandee r = recommandations.get(i);
+            sb.append(r.getOffre().getId()).append(':').append(Math.round(r.getScore()));
+        }
+        return sb.toString();
+    }
+
+    private static BufferedReader ouvrir(String fichier) throws IOException {
+        InputStream entree = fichier.equals("-") ? System.in : Files.newInputStream(Paths.get(fichier));
+        return new BufferedReader(new InputStreamReader(entree, Charset.defaultCharset()), 1 << 16);
+    }
+}
@@ -2,6 +2,8 @@ package models;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
 
 /**
  * Classe représentant un candidat (étudiant ou alumni) dans le système de gestion des offres.
@@ -12,6 +14,9 @@ import java.util.List;
  */
 public class Candidat {
 
+    /** Format d'email accepté (compilé une seule fois) */
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[\\w.-]+@[\\w.-]+\\.[a-z]{2,}$");
+
     // ----------------------------- Attributs -----------------------------
     
     /** Identifiant unique du candidat (CIN - 8 chiffres) */
@@ -70,7 +75,7 @@ public class Candidat {
         if (email == null || email.trim().isEmpty()) {
             throw new IllegalArgumentException("L'email est obligatoire");
         }
-        if (!email.matches("^[\\w.-]+@[\\w.-]+\\.[a-z]{2,}$")) {
+        if (!EMAIL_PATTERN.matcher(email).matches()) {
             throw new IllegalArgumentException("Format d'email invalide");
         }
         
@@ -158,6 +163,18 @@ public class Candidat {
         return false; // Email non trouvé
     }
 
+    /**
+     * Forme normalisée d'un email pour les contrôles d'unicité : sans espaces
+     * autour et en minuscules (même égalité que equalsIgnoreCase pour les
+     * emails valides, qui sont en ASCII).
+     * 
+     * @param email L'email à normaliser
+     * @return L'email normalisé
+     */
+    public static String normaliserEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
     // ----------------------------- Getters & Setters -----------------------------
     
     /**
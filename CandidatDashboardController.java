@@ -104,19 +104,15 @@ public class CandidatDashboardController {
         colEntreprise.setCellValueFactory(new PropertyValueFactory<>("entreprise"));
         colDate.setCellValueFactory(new PropertyValueFactory<>("date"));
         
-        List<Offre> offres = offreService.getOffresDisponibles();
         ObservableList<OffreDisplay> offresList = FXCollections.observableArrayList();
         
-        int count = 0;
-        for (int i = offres.size() - 1; i >= 0 && count < 5; i--) {
-            Offre offre = offres.get(i);
+        for (Offre offre : offreService.getDernieresOffres(5)) {
             offresList.add(new OffreDisplay(
                 offre.getTitre(),
                 offre.getTypeOffre(),
                 offre.getEntreprise().getNom(),
                 offre.getDatePublication().toString()
             ));
-            count++;
         }
         
         tableDernieresOffres.setItems(offresList);
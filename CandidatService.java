@@ -1,6 +1,7 @@
 package service;
 
 import java.util.*;
+import java.util.function.Function;
 import models.*;
 
 /**
@@ -9,9 +10,26 @@ import models.*;
  */
 public class CandidatService {
     private List<Candidat> candidats;
+    private EnregistreurMutations mutations;
+
+    /** Index de trigrammes des champs cherchés par sous-chaîne */
+    private IndexTrigrammes<Candidat> index;
 
     public CandidatService(List<Candidat> candidats) {
+        this(candidats, new EnregistreurMutations());
+    }
+
+    public CandidatService(List<Candidat> candidats, EnregistreurMutations mutations) {
         this.candidats = candidats;
+        this.mutations = mutations;
+        LinkedHashMap<String, Function<Candidat, String>> champs = new LinkedHashMap<>();
+        champs.put("nom", Candidat::getNom);
+        champs.put("prenom", Candidat::getPrenom);
+        champs.put("email", Candidat::getEmail);
+        champs.put("filiere", c -> c instanceof Etudiant ? ((Etudiant) c).getFiliere() : null);
+        champs.put("etablissement", c -> c instanceof Etudiant ? ((Etudiant) c).getEtablissement() : null);
+        champs.put("entrepriseActuelle", c -> c instanceof Alumni ? ((Alumni) c).getEntrepriseActuelle() : null);
+        this.index = new IndexTrigrammes<>(candidats, champs, "nom");
     }
 
     /**
@@ -25,58 +43,54 @@ public class CandidatService {
      * Recherche des candidats selon différents critères.
      * Critères supportés : nom, email, etudiant (filière/établissement), 
      * alumni (entreprise actuelle), toutes (recherche globale).
+     * Hors email (exact), les critères cherchent une sous-chaîne sans tenir
+     * compte de la casse ni des accents, par l'index de trigrammes. Un nom
+     * sans résultat est cherché à nouveau en tolérant des fautes de frappe.
      */
     public List<Candidat> rechercherCandidats(String critere, String valeur) {
-        List<Candidat> resultats = new ArrayList<>();
-        
-        // Parcourir tous les candidats
-        for (Candidat c : candidats) {
-            boolean match = false;
-            
-            // Vérifier selon le critère de recherche
-            switch (critere.toLowerCase()) {
-                case "nom":
-                    // Recherche par nom (insensible à la casse)
-                    match = c.getNom().toLowerCase().contains(valeur.toLowerCase());
-                    break;
-                    
-                case "email":
-                    // Recherche par email (exact, insensible à la casse)
-                    match = c.getEmail().equalsIgnoreCase(valeur);
-                    break;
-                    
-                case "etudiant":
-                    // Recherche dans filière ou établissement (uniquement pour étudiants)
-                    if (c instanceof Etudiant) {
-                        Etudiant etud = (Etudiant) c;
-                        match = etud.getFiliere().toLowerCase().contains(valeur.toLowerCase()) ||
-                               etud.getEtablissement().toLowerCase().contains(valeur.toLowerCase());
-                    }
-                    break;
-                    
-                case "alumni":
-                    // Recherche dans entreprise actuelle (uniquement pour alumni)
-                    if (c instanceof Alumni) {
-                        Alumni alumni = (Alumni) c;
-                        match = alumni.getEntrepriseActuelle().toLowerCase().contains(valeur.toLowerCase());
+        switch (critere.toLowerCase()) {
+            case "nom":
+                List<Candidat> exacts = index.rechercher(valeur, "nom");
+                if (!exacts.isEmpty()) {
+                    return exacts;
+                }
+                // Aucun nom ne contient la valeur : noms à une ou deux fautes
+                // près, les plus proches puis ceux qui ont le plus de candidatures d'abord
+                return index.rechercherApproche(valeur, "nom", c -> c.getCandidaturesEnCours().size());
+                
+            case "email":
+                // Recherche par email (exact, insensible à la casse)
+                List<Candidat> resultats = new ArrayList<>();
+                for (Candidat c : candidats) {
+                    if (c.getEmail().equalsIgnoreCase(valeur)) {
+                        resultats.add(c);
                     }
-                    break;
-                    
-                case "toutes":
-                    // Recherche globale dans nom, prénom et email
-                    match = c.getNom().toLowerCase().contains(valeur.toLowerCase()) ||
-                           c.getPrenom().toLowerCase().contains(valeur.toLowerCase()) ||
-                           c.getEmail().toLowerCase().contains(valeur.toLowerCase());
-                    break;
-            }
-            
-            // Ajouter aux résultats si correspond
-            if (match) {
-                resultats.add(c);
-            }
+                }
+                return resultats;
+                
+            case "etudiant":
+                // Filière ou établissement (uniquement pour étudiants)
+                return index.rechercher(valeur, "filiere", "etablissement");
+                
+            case "alumni":
+                // Entreprise actuelle (uniquement pour alumni)
+                return index.rechercher(valeur, "entrepriseActuelle");
+                
+            case "toutes":
+                // Recherche globale dans nom, prénom et email
+                return index.rechercher(valeur, "nom", "prenom", "email");
+                
+            default:
+                return new ArrayList<>();
         }
-        
-        return resultats;
+    }
+
+    /**
+     * Reconstruit l'index de recherche après un rechargement des données
+     * d'une autre instance, qui a pu modifier des candidats.
+     */
+    public void reindexer() {
+        index.reconstruire();
     }
 
     /**
@@ -84,42 +98,89 @@ public class CandidatService {
      * Permet de mettre à jour les informations selon le type de candidat.
      */
     public boolean modifierProfil(Candidat candidat, Map<String, String> nouvellesInfos) {
+        Map<String, String> anciennesInfos = infosModifiables(candidat);
         try {
-            // Modification du téléphone (commun à tous)
-            if (nouvellesInfos.containsKey("telephone")) {
-                candidat.setTelephone(nouvellesInfos.get("telephone"));
-            }
-            
-            // Modifications spécifiques aux étudiants
-            if (candidat instanceof Etudiant) {
-                Etudiant etud = (Etudiant) candidat;
-                
-                if (nouvellesInfos.containsKey("niveau")) {
-                    etud.setNiveau(nouvellesInfos.get("niveau"));
-                }
-                if (nouvellesInfos.containsKey("filiere")) {
-                    etud.setFiliere(nouvellesInfos.get("filiere"));
-                }
-                if (nouvellesInfos.containsKey("etablissement")) {
-                    etud.setEtablissement(nouvellesInfos.get("etablissement"));
-                }
-            } 
-            // Modifications spécifiques aux alumni
-            else if (candidat instanceof Alumni) {
-                Alumni alumni = (Alumni) candidat;
-                
-                if (nouvellesInfos.containsKey("posteActuel")) {
-                    alumni.setPosteActuel(nouvellesInfos.get("posteActuel"));
-                }
-                if (nouvellesInfos.containsKey("entrepriseActuelle")) {
-                    alumni.setEntrepriseActuelle(nouvellesInfos.get("entrepriseActuelle"));
-                }
+            appliquerInfos(candidat, nouvellesInfos);
+            if (!mutations.candidatModifie(candidat)) {
+                // Modification non durable : retour au profil précédent
+                appliquerInfos(candidat, anciennesInfos);
+                return false;
             }
-            
+            index.actualiser(candidat);
             return true;
         } catch (Exception e) {
             System.out.println("Erreur modification profil: " + e.getMessage());
+            appliquerInfos(candidat, anciennesInfos);
+            return false;
+        }
+    }
+
+    private void appliquerInfos(Candidat candidat, Map<String, String> nouvellesInfos) {
+        // Modification du téléphone (commun à tous)
+        if (nouvellesInfos.containsKey("telephone")) {
+            candidat.setTelephone(nouvellesInfos.get("telephone"));
+        }
+        
+        // Modifications spécifiques aux étudiants
+        if (candidat instanceof Etudiant) {
+            Etudiant etud = (Etudiant) candidat;
+            
+            if (nouvellesInfos.containsKey("niveau")) {
+                etud.setNiveau(nouvellesInfos.get("niveau"));
+            }
+            if (nouvellesInfos.containsKey("filiere")) {
+                etud.setFiliere(nouvellesInfos.get("filiere"));
+            }
+            if (nouvellesInfos.containsKey("etablissement")) {
+                etud.setEtablissement(nouvellesInfos.get("etablissement"));
+            }
+        } 
+        // Modifications spécifiques aux alumni
+        else if (candidat instanceof Alumni) {
+            Alumni alumni = (Alumni) candidat;
+            
+            if (nouvellesInfos.containsKey("posteActuel")) {
+                alumni.setPosteActuel(nouvellesInfos.get("posteActuel"));
+            }
+            if (nouvellesInfos.containsKey("entrepriseActuelle")) {
+                alumni.setEntrepriseActuelle(nouvellesInfos.get("entrepriseActuelle"));
+            }
+        }
+    }
+
+    /**
+     * Valeurs actuelles des champs que modifierProfil peut changer,
+     * pour revenir en arrière si la modification échoue.
+     */
+    private Map<String, String> infosModifiables(Candidat candidat) {
+        Map<String, String> infos = new HashMap<>();
+        infos.put("telephone", candidat.getTelephone());
+        if (candidat instanceof Etudiant) {
+            Etudiant etud = (Etudiant) candidat;
+            infos.put("niveau", etud.getNiveau());
+            infos.put("filiere", etud.getFiliere());
+            infos.put("etablissement", etud.getEtablissement());
+        } else if (candidat instanceof Alumni) {
+            Alumni alumni = (Alumni) candidat;
+            infos.put("posteActuel", alumni.getPosteActuel());
+            infos.put("entrepriseActuelle", alumni.getEntrepriseActuelle());
+        }
+        return infos;
+    }
+
+    /**
+     * Ajoute un candidat lu par un import en masse (ImportDonnees), qui a déjà
+     * vérifié l'unicité du CIN et de l'email. Le candidat n'est pas journalisé :
+     * l'import réécrit les candidats en une fois à la fin (avec une base, il
+     * est écrit tout de suite, comme une inscription).
+     *
+     * @return false si le candidat n'a pas pu être écrit
+     */
+    public boolean importerCandidat(Candidat candidat) {
+        if (!mutations.candidatImporte(candidat)) {
             return false;
         }
+        candidats.add(candidat);
+        return true;
     }
 }
\ No newline at end of file
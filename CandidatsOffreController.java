@@ -180,6 +180,17 @@ public class CandidatsOffreController {
         }
     }
 
+    /**
+     * Exporter les candidats de l'offre (CSV ou JSON Lines) en arrière-plan
+     */
+    @FXML
+    private void handleExporter() {
+        ExportDonnees export = DataManager.getInstance().getExportDonnees();
+        ExportTache.lancer(tableCandidats.getScene().getWindow(), "candidats",
+                (canal, format, progression) ->
+                        export.exporterCandidatsOffre(offreId, canal, format, progression));
+    }
+
     /**
      * Retour à la vue "Mes Offres"
      */
@@ -10,10 +10,17 @@ import models.*;
 public class CandidatureService {
     private List<Offre> offres;
     private List<Candidat> candidats;
+    private EnregistreurMutations mutations;
 
     public CandidatureService(List<Offre> offres, List<Candidat> candidats) {
+        this(offres, candidats, new EnregistreurMutations());
+    }
+
+    public CandidatureService(List<Offre> offres, List<Candidat> candidats,
+                              EnregistreurMutations mutations) {
         this.offres = offres;
         this.candidats = candidats;
+        this.mutations = mutations;
     }
 
     // ========== GESTION DES CANDIDATURES ==========
@@ -43,6 +50,12 @@ public class CandidatureService {
             return false;
         }
         
+        // Enregistrer avant de modifier la mémoire
+        if (!mutations.candidatureAjoutee(candidat, offre)) {
+            System.out.println("❌ Candidature non enregistrée (écriture impossible)");
+            return false;
+        }
+        
         // Ajouter la candidature des deux côtés (bidirectionnel)
         candidat.getCandidaturesEnCours().add(offre);
         offre.ajouterCandidature(candidat);
@@ -67,6 +80,12 @@ public class CandidatureService {
             return false;
         }
         
+        // Enregistrer avant de modifier la mémoire
+        if (!mutations.candidatureRetiree(candidat, offre)) {
+            System.out.println("❌ Retrait de candidature non enregistré (écriture impossible)");
+            return false;
+        }
+        
         // Retirer la candidature des deux côtés (bidirectionnel)
         candidat.getCandidaturesEnCours().remove(offre);
         offre.getCandidatures().remove(candidat);
@@ -156,6 +175,12 @@ public class CandidatureService {
             return false;
         }
         
+        // Enregistrer avant de modifier la mémoire
+        if (!mutations.candidatureRetiree(candidat, offre)) {
+            System.out.println("❌ Suppression de candidature non enregistrée (écriture impossible)");
+            return false;
+        }
+        
         // Retirer des deux côtés (bidirectionnel)
         offre.getCandidatures().remove(candidat);
         candidat.getCandidaturesEnCours().remove(offre);
@@ -192,6 +217,10 @@ public class CandidatureService {
         
         // Vérifier que le candidat existe et n'est pas déjà dans la wishlist
         if (candidat != null && !entreprise.getWishlist().contains(candidat)) {
+            if (!mutations.wishlistAjout(entreprise, candidat)) {
+                System.out.println("❌ Ajout à la wishlist non enregistré (écriture impossible)");
+                return false;
+            }
             entreprise.getWishlist().add(candidat);
             return true;
         }
@@ -210,6 +239,10 @@ public class CandidatureService {
             // Parcourir la wishlist pour trouver le candidat
             for (int i = 0; i < entreprise.getWishlist().size(); i++) {
                 if (entreprise.getWishlist().get(i).getId() == id) {
+                    if (!mutations.wishlistRetrait(entreprise, entreprise.getWishlist().get(i))) {
+                        System.out.println("❌ Retrait de la wishlist non enregistré (écriture impossible)");
+                        return false;
+                    }
                     entreprise.getWishlist().remove(i);
                     return true;
                 }
@@ -0,0 +1,95 @@
+package service;
+
+import java.time.LocalDate;
+
+/**
+ * Accès aux champs d'une ligne de fichier de données (séparateur '|').
+ *
+ * Les méthodes de conversion reproduisent exactement le comportement de
+ * line.split("\\|") suivi de Integer.parseInt / LocalDate.parse : une
+ * implémentation peut les accélérer mais doit lever les mêmes exceptions.
+ */
+public interface ChampsLigne {
+
+    /**
+     * @return Le nombre de champs (les champs vides en fin de ligne ne comptent pas)
+     */
+    int taille();
+
+    /**
+     * @return Le champ i sous forme de chaîne
+     */
+    String texte(int i);
+
+    default int entier(int i) {
+        return Integer.parseInt(texte(i));
+    }
+
+    default LocalDate date(int i) {
+        return LocalDate.parse(texte(i));
+    }
+
+    default boolean booleen(int i) {
+        return Boolean.parseBoolean(texte(i));
+    }
+
+    default boolean egal(int i, String valeur) {
+        return texte(i).equals(valeur);
+    }
+
+    /**
+     * Vue sur les champs à partir du n-ième (ex: ligne précédée d'un identifiant).
+     * Les conversions restent déléguées à l'implémentation d'origine.
+     */
+    default ChampsLigne decaler(int n) {
+        ChampsLigne origine = this;
+        return new ChampsLigne() {
+            @Override
+            public int taille() {
+                return origine.taille() - n;
+            }
+
+            @Override
+            public String texte(int i) {
+                return origine.texte(i + n);
+            }
+
+            @Override
+            public int entier(int i) {
+                return origine.entier(i + n);
+            }
+
+            @Override
+            public LocalDate date(int i) {
+                return origine.date(i + n);
+            }
+
+            @Override
+            public boolean booleen(int i) {
+                return origine.booleen(i + n);
+            }
+
+            @Override
+            public boolean egal(int i, String valeur) {
+                return origine.egal(i + n, valeur);
+            }
+        };
+    }
+
+    /**
+     * Champs issus d'un split classique.
+     */
+    static ChampsLigne de(String[] parts) {
+        return new ChampsLigne() {
+            @Override
+            public int taille() {
+                return parts.length;
+            }
+
+            @Override
+            public String texte(int i) {
+                return parts[i];
+            }
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package service;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Validation groupée (group commit) des ajouts à un fichier.
+ *
+ * Chaque ajout reçoit un numéro. Pour le rendre durable, un seul thread à la
+ * fois force le fichier sur disque ; pendant ce fsync, les autres threads
+ * continuent d'écrire puis attendent leur tour. Le thread suivant force alors
+ * en une fois tous les ajouts accumulés, et ceux déjà couverts par un fsync
+ * précédent repartent sans attendre. Chaque appelant ne retourne donc qu'une
+ * fois son ajout durable, mais un fsync couvre plusieurs ajouts concurrents.
+ *
+ * Le mode groupé peut être désactivé (propriété hecrecruit.commitGroupe=false) :
+ * chaque ajout fait alors son propre fsync.
+ */
+public class CommitGroupe {
+
+    /** Mode groupé activé par défaut */
+    public static final boolean ACTIF_PAR_DEFAUT =
+        Boolean.parseBoolean(System.getProperty("hecrecruit.commitGroupe", "true"));
+
+    /**
+     * Fournit le canal courant du fichier (il peut changer après une compaction).
+     */
+    public interface Source {
+        FileChannel canal();
+    }
+
+    private final Source source;
+    private final boolean actif;
+    private final MesuresDurabilite mesures;
+
+    /** Un seul fsync à la fois */
+    private final Object verrou = new Object();
+
+    /** Numéro du dernier ajout écrit, et du dernier ajout durable */
+    private final AtomicLong ecrits = new AtomicLong();
+    private final AtomicLong durables = new AtomicLong();
+
+    public CommitGroupe(Source source, MesuresDurabilite mesures) {
+        this(source, ACTIF_PAR_DEFAUT, mesures);
+    }
+
+    public CommitGroupe(Source source, boolean actif, MesuresDurabilite mesures) {
+        this.source = source;
+        this.actif = actif;
+        this.mesures = mesures;
+    }
+
+    /**
+     * Enregistre un ajout écrit dans le canal. À appeler sous le verrou du
+     * propriétaire du fichier, juste après l'écriture.
+     *
+     * @return Le numéro de l'ajout, à passer à attendre()
+     */
+    public long noterEcrit() {
+        return ecrits.incrementAndGet();
+    }
+
+    /**
+     * Signale que tout ce qui a été écrit est durable (ex: canal forcé avant
+     * sa fermeture). À appeler sous le verrou du propriétaire du fichier.
+     */
+    public void noterToutDurable() {
+        durables.accumulateAndGet(ecrits.get(), Math::max);
+    }
+
+    /**
+     * Attend que l'ajout soit durable, en forçant le fichier si aucun fsync
+     * en cours ou passé ne le couvre. À appeler hors du verrou du propriétaire,
+     * pour que les autres threads puissent écrire pendant le fsync.
+     *
+     * @param numero Numéro renvoyé par noterEcrit()
+     * @param debut Instant de la demande (System.nanoTime), pour la latence
+     */
+    public void attendre(long numero, long debut) throws IOException {
+        synchronized (verrou) {
+            if (!actif || durables.get() < numero) {
+                // Tous les ajouts écrits jusqu'ici seront couverts par ce fsync
+                long cible = ecrits.get();
+                FileChannel canal = source.canal();
+                try {
+                    if (canal != null) {
+                        canal.force(false);
+                        mesures.noterSynchronisation();
+                    }
+                } catch (ClosedChannelException e) {
+                    // Canal fermé entre-temps : sa fermeture l'a forcé
+                    if (durables.get() < numero) {
+                        throw e;
+                    }
+                }
+                durables.accumulateAndGet(cible, Math::max);
+            }
+        }
+        mesures.noterEcriture(System.nanoTime() - debut);
+    }
+
+    public boolean isActif() {
+        return actif;
+    }
+
+    public MesuresDurabilite getMesures() {
+        return mesures;
+    }
+}
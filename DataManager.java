@@ -1,12 +1,36 @@
 package utils;
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import service.*;
+import service.SuiviModifications.Collection;
 import models.*;
 
 public class DataManager {
     private static DataManager instance;
     
+    // Nombre de mutations journalisées au-delà duquel sauvegarder() compacte
+    private static final int SEUIL_COMPACTION = 500;
+    
+    // Délai minimal entre deux écritures en arrière-plan (ms), configurable
+    private static final long INTERVALLE_SAUVEGARDE =
+        Long.getLong("hecrecruit.intervalleSauvegarde", 2000);
+    
+    // Délai maximal d'attente de la dernière écriture à la fermeture (s)
+    private static final long DELAI_ARRET = 10;
+    
+    // Délai de grâce avant l'archivage d'une offre expirée (jours), configurable
+    private static final int DELAI_ARCHIVAGE =
+        Integer.getInteger("hecrecruit.archivage.delaiJours", 90);
+    
+    // Délai minimal entre deux archivages (ms), configurable
+    private static final long INTERVALLE_ARCHIVAGE =
+        Long.getLong("hecrecruit.archivage.intervalle", 24 * 3600 * 1000L);
+    
     // Données en mémoire
     private List<Entreprise> entreprises = new ArrayList<>();
     private List<Candidat> candidats = new ArrayList<>();
@@ -15,6 +39,27 @@ public class DataManager {
     
     // Services
     private FileManager fileManager;
+    private Stockage stockage;
+    private Journal journal;
+    private DepotRelations relations;
+    private SuiviModifications suivi;
+    private SauvegardeAsynchrone<Instantane> persistance;
+    private ArchiveOffres archive;
+    private MigrationDonnees migration; // null pour la base JDBC
+    private VerificationDonnees verification; // null pour la base JDBC
+    private SauvegardeIncrementale sauvegardes; // null pour la base JDBC
+    private long prochainArchivage;
+    private boolean archivageAuDemarrage = true;
+    
+    // Rechargement des modifications des autres instances (null si désactivé)
+    private RechargementDonnees rechargement;
+    private Executor executeurInterface = Runnable::run;
+    
+    // Durée de chaque phase du chargement (ms), dans l'ordre de fin
+    private final Map<String, Long> tempsChargement = Collections.synchronizedMap(new LinkedHashMap<>());
+    
+    // Lignes acceptées et rejetées lors du dernier chargement des fichiers texte
+    private RapportChargement rapportChargement = new RapportChargement();
     private AuthService authService;
     private OffreService offreService;
     private CandidatService candidatService;
@@ -22,10 +67,57 @@ public class DataManager {
     private CandidatureService candidatureService;
     private ForumService forumService;
     private RecommendationService recommendationService; // ✅ NOUVEAU
+    private HistoriqueService historiqueService;
+    private ImportDonnees importDonnees;
+    private ExportDonnees exportDonnees;
     
     // Constructeur privé (Singleton)
     private DataManager() {
         fileManager = new FileManager();
+        stockage = creerStockage(fileManager);
+        journal = new Journal(fileManager);
+        relations = stockage.getRelations();
+        archive = new ArchiveOffres(fileManager);
+        if (stockage instanceof StockageTexte) {
+            migration = new MigrationDonnees(fileManager);
+            verification = new VerificationDonnees(fileManager, migration);
+            sauvegardes = new SauvegardeIncrementale(fileManager);
+            // Lignes compactées conservées pour la restauration à une date, dès la première sauvegarde
+            journal.setArchives(sauvegardes.getDossierJournaux());
+        }
+        suivi = new SuiviModifications();
+        persistance = new SauvegardeAsynchrone<>(this::ecrire, INTERVALLE_SAUVEGARDE);
+        // Surveillance du dossier partagé, désactivable (hecrecruit.surveillance=false)
+        if (stockage instanceof StockageTexte
+                && Boolean.parseBoolean(System.getProperty("hecrecruit.surveillance", "true"))) {
+            rechargement = new RechargementDonnees(fileManager, journal, stockage, suivi);
+        }
+    }
+    
+    // Backend choisi par la propriété hecrecruit.jdbc (URL JDBC), fichiers texte sinon
+    private static Stockage creerStockage(FileManager fileManager) {
+        String url = System.getProperty("hecrecruit.jdbc");
+        if (url != null && !url.isEmpty()) {
+            try {
+                return new StockageJdbc(url);
+            } catch (java.sql.SQLException e) {
+                System.out.println("❌ Base " + url + " inaccessible (" + e.getMessage()
+                    + "), utilisation des fichiers texte");
+            }
+        }
+        return new StockageTexte(fileManager);
+    }
+    
+    // Exécuteur des rechargements à chaud (ex: Platform::runLater), à poser avant initialiser()
+    // Par défaut, ils s'exécutent sur le thread de surveillance
+    public void setExecuteurInterface(Executor executeurInterface) {
+        this.executeurInterface = executeurInterface;
+    }
+    
+    // Archiver les offres expirées dès le chargement (par défaut), à poser avant initialiser()
+    // Les traitements par lots le désactivent pour démarrer plus vite
+    public void setArchivageAuDemarrage(boolean archivageAuDemarrage) {
+        this.archivageAuDemarrage = archivageAuDemarrage;
     }
     
     // Obtenir l'instance unique
@@ -40,45 +132,412 @@ public class DataManager {
     public void initialiser() {
         System.out.println("Chargement des données...");
         
-        // Charger dans l'ordre
-        entreprises = fileManager.chargerEntreprises();
-        candidats = fileManager.chargerCandidats();
-        offres = fileManager.chargerOffres(entreprises);
-        commentaires = fileManager.chargerCommentaires();
+        // Utiliser le cache binaire s'il correspond encore aux fichiers texte
+        long debut = System.currentTimeMillis();
+        tempsChargement.clear();
+        rapportChargement = new RapportChargement();
+        migrerSiNecessaire();
+        if (rechargement != null) {
+            rechargement.releverSignatures();
+        }
+        InstantaneBinaire binaire = stockage.getInstantaneBinaire();
+        InstantaneBinaire.Contenu cache = binaire == null ? null
+            : chronometrer("cache binaire", binaire::charger);
+        if (cache != null) {
+            entreprises = cache.entreprises;
+            candidats = cache.candidats;
+            offres = cache.offres;
+            // Le forum n'est pas dans le cache : seuls ses segments récents sont lus
+            commentaires = chronometrer("commentaires", stockage::chargerCommentaires);
+        } else {
+            chargerStockage();
+        }
+        long duree = System.currentTimeMillis() - debut;
+        if (rechargement != null) {
+            // Version de base des fichiers pour fusionner les modifications des autres instances
+            rechargement.noterBases(entreprises, candidats, offres);
+        }
+        
+        // Rejouer les mutations enregistrées depuis la dernière compaction
+        int rejouees = chronometrer("journal",
+            () -> journal.rejouer(entreprises, candidats, offres, commentaires));
+        if (rejouees > 0) {
+            // Les fichiers ne reflètent pas encore ces mutations
+            suivi.marquerTout();
+        }
+        boolean compacterRejeu = rejouees > 0 && stockage.enregistreChaqueMutation();
+        
+        // Poser les candidatures et wishlists (après le rejeu, qui peut créer des offres)
+        int liens = chronometrer("relations",
+            () -> relations.charger(entreprises, candidats, offres));
+        
+        // Offres de l'ancien format : leurs identifiants n'existent qu'en mémoire,
+        // on les fige tout de suite pour que journal et relations restent valides
+        int sansIdentifiant = fileManager.getOffresSansIdentifiant();
+        if (sansIdentifiant > 0) {
+            System.out.println("Migration de " + sansIdentifiant + " offre(s) sans identifiant...");
+            suivi.marquerTout();
+            compacterRejeu = true;
+        }
+        // Une base écrite ligne par ligne ne compacte plus ensuite : le rejeu y est
+        // reporté tout de suite, avant que les services n'écrivent leurs propres lignes
+        if (compacterRejeu) {
+            try {
+                compacter();
+            } catch (IllegalStateException e) {
+                System.out.println("❌ Compaction au démarrage: " + e.getMessage());
+            }
+        }
         
         // Initialiser les services
-        authService = new AuthService(entreprises, candidats);
-        offreService = new OffreService(offres);
-        candidatService = new CandidatService(candidats);
-        entrepriseService = new EntrepriseService(entreprises);
-        candidatureService = new CandidatureService(offres, candidats);
-        forumService = new ForumService(commentaires);
+        // Un seul enregistreur : journal, stockage, dépôt des relations et suivi restent cohérents
+        EnregistreurMutations mutations = new EnregistreurMutations(journal, stockage, suivi);
+        authService = new AuthService(entreprises, candidats, mutations);
+        offreService = new OffreService(offres, mutations, archive);
+        candidatService = new CandidatService(candidats, mutations);
+        entrepriseService = new EntrepriseService(entreprises, mutations);
+        candidatureService = new CandidatureService(offres, candidats, mutations);
+        forumService = new ForumService(commentaires, mutations, stockage);
+        historiqueService = new HistoriqueService(archive, entreprises, candidats);
         recommendationService = new RecommendationService(offres); 
+        importDonnees = new ImportDonnees(fileManager, entreprises, candidats, offreService, candidatService);
+        exportDonnees = new ExportDonnees(candidatureService, offreService);
         
         System.out.println("✅ Données chargées!");
         System.out.println("- Entreprises: " + entreprises.size());
         System.out.println("- Candidats: " + candidats.size());
         System.out.println("- Offres: " + offres.size());
+        System.out.println("- Candidatures et wishlists: " + liens);
+        System.out.println("- Mutations rejouées: " + rejouees);
+        System.out.println("- Source: " + (cache != null ? "cache binaire" : stockage.getDescription())
+            + " (" + duree + " ms)");
+        for (Map.Entry<String, Long> phase : tempsChargement.entrySet()) {
+            System.out.println("  - " + phase.getKey() + ": " + phase.getValue() + " ms");
+        }
+        FileManager.afficherRejets(rapportChargement);
+        
+        if (archivageAuDemarrage) {
+            prochainArchivage = 0;
+            archiverSiNecessaire();
+        } else {
+            prochainArchivage = System.currentTimeMillis() + INTERVALLE_ARCHIVAGE;
+        }
+        
+        if (rechargement != null) {
+            rechargement.demarrer(entreprises, candidats, offres, commentaires,
+                this::apresRechargement, executeurInterface);
+        }
+    }
+    
+    // Convertir une fois les anciens formats des fichiers texte, que les chargeurs ne lisent plus
+    // En cas d'échec, on s'arrête : les lignes non converties seraient perdues à la sauvegarde
+    private void migrerSiNecessaire() {
+        if (migration == null) {
+            return;
+        }
+        if (!migration.estNecessaire()) {
+            migrer(); // note seulement la version d'un dossier neuf
+            return;
+        }
+        System.out.println("Migration des fichiers vers le format " + MigrationDonnees.FORMAT_ACTUEL + "...");
+        for (MigrationDonnees.RapportFichier r : chronometrer("migration", () -> migrer())) {
+            System.out.println("  - " + r);
+        }
+    }
+    
+    private List<MigrationDonnees.RapportFichier> migrer() {
+        try {
+            return migration.migrer(false);
+        } catch (IOException e) {
+            throw new IllegalStateException("Migration des fichiers de données impossible: " + e.getMessage(), e);
+        }
+    }
+    
+    // Les offres, candidats et entreprises ont pu être ajoutés, retirés ou modifiés hors des services
+    private void apresRechargement() {
+        offreService.reindexer();
+        candidatService.reindexer();
+        entrepriseService.reindexer();
+    }
+    
+    /**
+     * Charge les collections du backend en parallèle selon leurs dépendances :
+     * entreprises, candidats et commentaires sont indépendants ; les offres
+     * attendent seulement les entreprises (résolution par email).
+     */
+    private void chargerStockage() {
+        ExecutorService executeur = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "chargement");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            CompletableFuture<List<Entreprise>> fEntreprises = CompletableFuture.supplyAsync(
+                () -> chronometrer("entreprises", stockage::chargerEntreprises), executeur);
+            CompletableFuture<List<Candidat>> fCandidats = CompletableFuture.supplyAsync(
+                () -> chronometrer("candidats", () -> stockage.chargerCandidats(rapportChargement)), executeur);
+            CompletableFuture<List<Forum>> fCommentaires = CompletableFuture.supplyAsync(
+                () -> chronometrer("commentaires", stockage::chargerCommentaires), executeur);
+            CompletableFuture<List<Offre>> fOffres = fEntreprises.thenApplyAsync(
+                liste -> chronometrer("offres", () -> stockage.chargerOffres(liste, rapportChargement)), executeur);
+            
+            entreprises = attendre(fEntreprises);
+            candidats = attendre(fCandidats);
+            offres = attendre(fOffres);
+            commentaires = attendre(fCommentaires);
+        } finally {
+            executeur.shutdown();
+        }
+    }
+    
+    private <T> T chronometrer(String phase, Supplier<T> chargement) {
+        long debut = System.currentTimeMillis();
+        T resultat = chargement.get();
+        tempsChargement.put(phase, System.currentTimeMillis() - debut);
+        return resultat;
+    }
+    
+    /**
+     * Attend un chargement et relance telle quelle l'exception d'origine,
+     * comme lors d'un chargement séquentiel.
+     */
+    private static <T> T attendre(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * @return Durée (ms) de chaque phase du dernier chargement depuis les fichiers texte
+     */
+    public Map<String, Long> getTempsChargement() {
+        return Collections.unmodifiableMap(tempsChargement);
+    }
+    
+    public RapportChargement getRapportChargement() {
+        return rapportChargement;
+    }
+    
+    // Latence de durabilité et écritures par seconde (journal, fichiers, relations)
+    public List<MesuresDurabilite> getMesuresDurabilite() {
+        List<MesuresDurabilite> mesures = new ArrayList<>();
+        mesures.add(journal.getMesures());
+        mesures.addAll(stockage.getMesures());
+        return mesures;
     }
     
     // Sauvegarder les données
-    public void sauvegarder() {
+    // Chaque mutation est déjà durable dans le journal : on ne réécrit
+    // les fichiers que lorsque le journal devient trop long, en arrière-plan.
+    public Future<Void> sauvegarder() {
+        archiverSiNecessaire();
+        if (journal.getNombreEntrees() >= SEUIL_COMPACTION) {
+            return persistance.demander(capturer());
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+    
+    // Réécrire les fichiers .txt modifiés et vider le journal (synchrone)
+    // Lève IllegalStateException si un fichier n'a pas pu être écrit
+    public void compacter() {
+        ecrire(capturer());
+    }
+    
+    // Importer des offres en masse (voir FormatImport pour les formats), puis réécrire
+    // les offres en une fois : les lignes importées ne passent pas par le journal
+    public RapportChargement importerOffres(BufferedReader lecteur, FormatImport format, String source)
+            throws IOException {
+        RapportChargement rapport = new RapportChargement();
+        if (importDonnees.importerOffres(lecteur, format, source, rapport, pointDeReprise()) > 0) {
+            compacter();
+        }
+        return rapport;
+    }
+    
+    // Importer des candidats en masse, même principe
+    public RapportChargement importerCandidats(BufferedReader lecteur, FormatImport format, String source)
+            throws IOException {
+        RapportChargement rapport = new RapportChargement();
+        if (importDonnees.importerCandidats(lecteur, format, source, rapport, pointDeReprise()) > 0) {
+            compacter();
+        }
+        return rapport;
+    }
+    
+    // Après un lot importé : demander une écriture en arrière-plan, au plus une fois par
+    // intervalle (la capture copie les listes), pour qu'un import interrompu puisse reprendre
+    private Runnable pointDeReprise() {
+        long[] prochaine = {System.currentTimeMillis() + INTERVALLE_SAUVEGARDE};
+        return () -> {
+            if (System.currentTimeMillis() >= prochaine[0]) {
+                prochaine[0] = System.currentTimeMillis() + INTERVALLE_SAUVEGARDE;
+                persistance.demander(capturer());
+            }
+        };
+    }
+    
+    // Archiver les offres expirées depuis plus que le délai de grâce
+    // (sur le thread qui modifie les données), puis réécrire les offres en arrière-plan
+    public int archiverOffresExpirees() {
+        prochainArchivage = System.currentTimeMillis() + INTERVALLE_ARCHIVAGE;
+        int archivees = offreService.archiverOffresExpirees(DELAI_ARCHIVAGE);
+        if (archivees > 0) {
+            persistance.demander(capturer());
+        }
+        return archivees;
+    }
+    
+    // Archivage périodique : au démarrage puis au plus une fois par intervalle,
+    // déclenché par les sauvegardes de l'interface
+    private void archiverSiNecessaire() {
+        if (System.currentTimeMillis() >= prochainArchivage) {
+            archiverOffresExpirees();
+        }
+    }
+    
+    // Compacter une dernière fois et attendre la fin des écritures en cours
+    public boolean arreter() {
+        if (rechargement != null) {
+            // Intégrer les dernières modifications des autres instances avant d'écrire
+            rechargement.arreter();
+            rechargement.rechargerTout();
+        }
+        Future<Void> derniere = persistance.demander(capturer());
+        boolean termine = persistance.arreter(DELAI_ARRET, TimeUnit.SECONDS) && reussie(derniere);
+        journal.fermer();
+        if (termine && stockage.getInstantaneBinaire() != null) {
+            // Les fichiers texte sont à jour : on peut figer le cache de démarrage
+            stockage.getInstantaneBinaire().ecrire(entreprises, candidats, offres);
+        }
+        stockage.fermer();
+        if (!termine) {
+            System.out.println("❌ Sauvegarde finale non terminée (le journal reste à jour)");
+        }
+        System.out.print("Écritures de la session:\n" + suivi.resume());
+        System.out.print("Durabilité:\n");
+        for (MesuresDurabilite m : getMesuresDurabilite()) {
+            System.out.print(m.resume());
+        }
+        if (rechargement != null) {
+            System.out.print("Rechargements:\n" + rechargement.resume());
+        }
+        return termine;
+    }
+    
+    private static boolean reussie(Future<Void> f) {
+        if (!f.isDone()) {
+            return false;
+        }
+        try {
+            f.get();
+            return true;
+        } catch (InterruptedException | ExecutionException e) {
+            return false;
+        }
+    }
+    
+    // Copier les listes sur le thread appelant : l'écriture peut ensuite
+    // se faire en parallèle des modifications de l'interface.
+    // Seules les collections modifiées sont copiées (null sinon).
+    private Instantane capturer() {
+        Instantane i = new Instantane();
+        i.positionJournal = journal.marquer();
+        if (rechargement != null) {
+            i.signatures = rechargement.getSignatures();
+        }
+        for (Collection c : Collection.values()) {
+            i.versions[c.ordinal()] = suivi.getVersion(c);
+        }
+        if (suivi.estModifiee(Collection.ENTREPRISES)) i.entreprises = new ArrayList<>(entreprises);
+        if (suivi.estModifiee(Collection.CANDIDATS)) i.candidats = new ArrayList<>(candidats);
+        if (suivi.estModifiee(Collection.OFFRES)) i.offres = new ArrayList<>(offres);
+        if (suivi.estModifiee(Collection.COMMENTAIRES)) i.commentaires = new ArrayList<>(commentaires);
+        if (suivi.estModifiee(Collection.RELATIONS)) i.relations = relations.capturer(entreprises, offres);
+        return i;
+    }
+    
+    private synchronized void ecrire(Instantane i) {
         System.out.println("Sauvegarde des données...");
-        fileManager.sauvegarderEntreprises(entreprises);
-        fileManager.sauvegarderCandidats(candidats);
-        fileManager.sauvegarderOffres(offres);
-        fileManager.sauvegarderCommentaires(commentaires);
+        boolean ok = true;
+        if (i.entreprises != null) {
+            ok &= noterEcriture(Collection.ENTREPRISES, i,
+                ecrireFichier(Collection.ENTREPRISES, i, i.entreprises, stockage::sauvegarderEntreprises));
+        }
+        if (i.candidats != null) {
+            ok &= noterEcriture(Collection.CANDIDATS, i,
+                ecrireFichier(Collection.CANDIDATS, i, i.candidats, stockage::sauvegarderCandidats));
+        }
+        if (i.offres != null) {
+            ok &= noterEcriture(Collection.OFFRES, i,
+                ecrireFichier(Collection.OFFRES, i, i.offres, stockage::sauvegarderOffres));
+        }
+        if (i.commentaires != null) {
+            ok &= noterEcriture(Collection.COMMENTAIRES, i, stockage.sauvegarderCommentaires(i.commentaires));
+        }
+        if (i.relations != null) {
+            ok &= noterEcriture(Collection.RELATIONS, i, relations.reecrire(i.relations));
+        }
+        
+        // Le journal n'est vidé que si tous les fichiers sont à jour
+        if (!ok) {
+            throw new IllegalStateException("Sauvegarde incomplète, journal conservé");
+        }
+        journal.reinitialiser(i.positionJournal);
         System.out.println("✅ Données sauvegardées!");
     }
     
+    // Avec la surveillance, un fichier modifié par une autre instance depuis la capture
+    // n'est pas écrasé : l'écriture échoue et sera refaite après le rechargement
+    private <T> long ecrireFichier(Collection c, Instantane i, List<T> elements,
+                                   ToLongFunction<List<T>> ecriture) {
+        if (rechargement == null || i.signatures == null) {
+            return ecriture.applyAsLong(elements);
+        }
+        return rechargement.ecrire(c, i.signatures.get(c), elements, ecriture);
+    }
+    
+    private boolean noterEcriture(Collection c, Instantane i, long octets) {
+        if (octets < 0) {
+            return false;
+        }
+        suivi.marquerEcrite(c, i.versions[c.ordinal()], octets);
+        return true;
+    }
+    
+    // État figé des données à écrire
+    private static class Instantane {
+        long positionJournal;
+        Map<Collection, RechargementDonnees.Signature> signatures;
+        long[] versions = new long[Collection.values().length];
+        List<Entreprise> entreprises;
+        List<Candidat> candidats;
+        List<Offre> offres;
+        List<Forum> commentaires;
+        DepotRelations.Liens relations;
+    }
+    
     // Getters pour les services
     public AuthService getAuthService() { return authService; }
     public OffreService getOffreService() { return offreService; }
     public CandidatService getCandidatService() { return candidatService; }
     public EntrepriseService getEntrepriseService() { return entrepriseService; }
     public CandidatureService getCandidatureService() { return candidatureService; }
+    public HistoriqueService getHistoriqueService() { return historiqueService; }
     public ForumService getForumService() { return forumService; }
     public RecommendationService getRecommendationService() { return recommendationService; } 
+    public ExportDonnees getExportDonnees() { return exportDonnees; }
+    public MigrationDonnees getMigration() { return migration; }
+    public VerificationDonnees getVerification() { return verification; }
+    public SauvegardeIncrementale getSauvegardes() { return sauvegardes; }
+    public SuiviModifications getSuiviModifications() { return suivi; }
     
     // Getters pour les listes
     public List<Entreprise> getEntreprises() { return entreprises; }
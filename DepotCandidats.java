@@ -0,0 +1,39 @@
+package service;
+
+import java.util.List;
+import models.Candidat;
+
+/**
+ * Dépôt des candidats (étudiants, alumni et candidats simples).
+ */
+public interface DepotCandidats {
+
+    /**
+     * @param rapport Rapport complété avec les candidats acceptés et rejetés
+     */
+    List<Candidat> chargerCandidats(RapportChargement rapport);
+
+    /**
+     * @return Le volume écrit (octets pour les fichiers, lignes pour une base), ou -1 en cas d'erreur
+     */
+    long sauvegarderCandidats(List<Candidat> candidats);
+
+    /**
+     * Écrit un candidat inscrit ou importé. Par défaut, rien n'est écrit : la
+     * mutation est journalisée et la collection réécrite à la compaction.
+     *
+     * @return false si l'écriture a échoué
+     */
+    default boolean candidatAjoute(Candidat c) {
+        return true;
+    }
+
+    /**
+     * Écrit un candidat modifié (même principe).
+     *
+     * @return false si l'écriture a échoué
+     */
+    default boolean candidatModifie(Candidat c) {
+        return true;
+    }
+}
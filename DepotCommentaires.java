@@ -0,0 +1,55 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import models.Forum;
+
+/**
+ * Dépôt des commentaires du forum.
+ *
+ * Un dépôt peut ne charger au démarrage que les commentaires récents et
+ * fournir les plus anciens à la demande ; par défaut tout est chargé.
+ */
+public interface DepotCommentaires {
+
+    List<Forum> chargerCommentaires();
+
+    /**
+     * Charge le lot de commentaires précédant les plus anciens déjà chargés.
+     *
+     * @return Les commentaires du lot, ou une liste vide s'il n'y en a plus
+     */
+    default List<Forum> chargerCommentairesAnterieurs() {
+        return new ArrayList<>();
+    }
+
+    /**
+     * @return true s'il reste des commentaires plus anciens à charger
+     */
+    default boolean aCommentairesAnterieurs() {
+        return false;
+    }
+
+    /**
+     * Charge les commentaires enregistrés par d'autres instances depuis la
+     * dernière lecture. Par défaut, le dépôt n'est pas partagé.
+     */
+    default List<Forum> chargerCommentairesExternes() {
+        return new ArrayList<>();
+    }
+
+    /**
+     * @return Le volume écrit (octets pour les fichiers, lignes pour une base), ou -1 en cas d'erreur
+     */
+    long sauvegarderCommentaires(List<Forum> commentaires);
+
+    /**
+     * Écrit un commentaire publié. Par défaut, rien n'est écrit : la mutation
+     * est journalisée et les nouveaux commentaires ajoutés à la compaction.
+     *
+     * @return false si l'écriture a échoué
+     */
+    default boolean commentaireAjoute(Forum f) {
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+package service;
+
+import java.util.List;
+import models.Entreprise;
+
+/**
+ * Dépôt des entreprises : lecture complète au démarrage et réécriture
+ * de la collection lorsqu'elle a été modifiée.
+ *
+ * Un dépôt qui enregistre chaque mutation (voir Stockage.enregistreChaqueMutation)
+ * écrit en plus chaque inscription et modification dès l'appel du service.
+ */
+public interface DepotEntreprises {
+
+    List<Entreprise> chargerEntreprises();
+
+    /**
+     * @return Le volume écrit (octets pour les fichiers, lignes pour une base), ou -1 en cas d'erreur
+     */
+    long sauvegarderEntreprises(List<Entreprise> entreprises);
+
+    /**
+     * Écrit une entreprise inscrite. Par défaut, rien n'est écrit : la
+     * mutation est journalisée et la collection réécrite à la compaction.
+     *
+     * @return false si l'écriture a échoué
+     */
+    default boolean entrepriseAjoutee(Entreprise e) {
+        return true;
+    }
+
+    /**
+     * Écrit une entreprise modifiée (même principe).
+     *
+     * @return false si l'écriture a échoué
+     */
+    default boolean entrepriseModifiee(Entreprise e) {
+        return true;
+    }
+}
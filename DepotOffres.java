@@ -0,0 +1,51 @@
+package service;
+
+import java.util.List;
+import models.Entreprise;
+import models.Offre;
+
+/**
+ * Dépôt des offres. Chaque offre est rattachée à son entreprise au chargement.
+ */
+public interface DepotOffres {
+
+    /**
+     * @param entreprises Entreprises déjà chargées (résolution par email)
+     * @param rapport Rapport complété avec les offres acceptées et rejetées
+     */
+    List<Offre> chargerOffres(List<Entreprise> entreprises, RapportChargement rapport);
+
+    /**
+     * @return Le volume écrit (octets pour les fichiers, lignes pour une base), ou -1 en cas d'erreur
+     */
+    long sauvegarderOffres(List<Offre> offres);
+
+    /**
+     * Écrit une offre créée ou importée. Par défaut, rien n'est écrit : la
+     * mutation est journalisée et la collection réécrite à la compaction.
+     *
+     * @return false si l'écriture a échoué
+     */
+    default boolean offreAjoutee(Offre o) {
+        return true;
+    }
+
+    /**
+     * Écrit une offre modifiée (date d'expiration), même principe.
+     *
+     * @return false si l'écriture a échoué
+     */
+    default boolean offreModifiee(Offre o) {
+        return true;
+    }
+
+    /**
+     * Retire des offres et leurs candidatures, en une fois (suppression,
+     * archivage), même principe.
+     *
+     * @return false si l'écriture a échoué (aucune offre retirée)
+     */
+    default boolean offresSupprimees(List<Offre> offres) {
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import models.*;
+
+/**
+ * Dépôt des liens candidatures (offre, CIN, date) et wishlists (entreprise, CIN).
+ *
+ * Chaque ajout ou retrait est enregistré immédiatement ; s'il n'a pas pu
+ * l'être, la méthode retourne false et l'appelant annule sa modification.
+ * La compaction remplace ensuite le contenu par les liens vivants capturés
+ * en mémoire.
+ */
+public interface DepotRelations {
+
+    /**
+     * Arête : clé d'offre (ou email d'entreprise), CIN et date de création (ms).
+     */
+    class Arete {
+        public final String valeur;
+        public final int cin;
+        public final long horodatage;
+
+        public Arete(String valeur, int cin, long horodatage) {
+            this.valeur = valeur;
+            this.cin = cin;
+            this.horodatage = horodatage;
+        }
+    }
+
+    /**
+     * Liens figés pour une compaction.
+     */
+    class Liens {
+        /** Position propre à l'implémentation au moment de la capture */
+        public long position;
+        public final List<Arete> candidatures = new ArrayList<>();
+        public final List<Arete> wishlists = new ArrayList<>();
+    }
+
+    /**
+     * Pose les liens enregistrés dans les listes en mémoire.
+     *
+     * @return Le nombre de liens chargés
+     */
+    int charger(List<Entreprise> entreprises, List<Candidat> candidats, List<Offre> offres);
+
+    /**
+     * Pose ou retire les liens enregistrés par d'autres instances depuis le
+     * dernier chargement. Par défaut, le dépôt n'est pas partagé.
+     *
+     * @return Le nombre de liens posés ou retirés
+     */
+    default int synchroniser(List<Entreprise> entreprises, List<Candidat> candidats, List<Offre> offres) {
+        return 0;
+    }
+
+    // false : le lien n'a pas été enregistré
+
+    boolean candidatureAjoutee(Candidat c, Offre o);
+
+    boolean candidatureRetiree(Candidat c, Offre o);
+
+    boolean wishlistAjout(Entreprise e, Candidat c);
+
+    boolean wishlistRetrait(Entreprise e, Candidat c);
+
+    /**
+     * Fige les liens actuels. À appeler sur le thread qui modifie les données.
+     */
+    Liens capturer(List<Entreprise> entreprises, List<Offre> offres);
+
+    /**
+     * Remplace le contenu par les liens figés, en conservant les
+     * modifications enregistrées depuis la capture.
+     *
+     * @return Le volume écrit (octets pour les fichiers, lignes pour une base), ou -1 en cas d'erreur
+     */
+    long reecrire(Liens liens);
+
+    void fermer();
+}
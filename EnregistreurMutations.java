@@ -0,0 +1,182 @@
+package service;
+
+import java.util.Collections;
+import java.util.List;
+import models.*;
+import service.SuiviModifications.Collection;
+
+/**
+ * Point de passage unique des modifications faites par les services.
+ *
+ * Chaque méthode écrit la mutation là où elle doit être durable puis marque
+ * les collections touchées pour la prochaine compaction :
+ * - backend journalisé (fichiers texte) : journal pour les entités, dépôt des
+ *   relations pour les liens ; les imports et l'archivage ne sont que marqués
+ *   et réécrits en une fois à la compaction ;
+ * - backend qui enregistre chaque mutation (base SQL) : écriture unitaire dans
+ *   le dépôt de l'entité, une transaction par appel, sans journal ni marquage
+ *   des entités (la compaction n'a rien à réécrire).
+ * Une mutation écrite est toujours marquée si besoin, et une mutation non
+ * écrite ne l'est jamais.
+ *
+ * Construit par DataManager et partagé par tous les services. Sans journal,
+ * stockage ni suivi (services utilisés seuls), les méthodes réussissent sans rien écrire.
+ */
+public class EnregistreurMutations {
+
+    private final Journal journal;
+    private final Stockage stockage;
+    private final DepotRelations relations;
+    private final SuiviModifications suivi;
+
+    /** Entités écrites ligne par ligne dans le stockage, sans journal */
+    private final boolean parLigne;
+
+    /**
+     * Enregistreur sans persistance, pour les services construits seuls.
+     */
+    public EnregistreurMutations() {
+        this(null, null, null);
+    }
+
+    /**
+     * @param journal Journal des mutations d'entités (null : non journalisées)
+     * @param stockage Backend des entités et des relations (null : non écrites)
+     * @param suivi Suivi des collections à réécrire (null : non suivies)
+     */
+    public EnregistreurMutations(Journal journal, Stockage stockage, SuiviModifications suivi) {
+        this.journal = journal;
+        this.stockage = stockage;
+        this.relations = stockage == null ? null : stockage.getRelations();
+        this.suivi = suivi;
+        this.parLigne = stockage != null && stockage.enregistreChaqueMutation();
+    }
+
+    // ========== ENTITÉS ==========
+    // false : la mutation n'a pas pu être écrite, l'appelant annule sa modification
+
+    public boolean entrepriseInscrite(Entreprise e) {
+        if (parLigne) {
+            return stockage.entrepriseAjoutee(e);
+        }
+        return marquerSi(journal == null || journal.entrepriseInscrite(e), Collection.ENTREPRISES);
+    }
+
+    public boolean entrepriseModifiee(Entreprise e) {
+        if (parLigne) {
+            return stockage.entrepriseModifiee(e);
+        }
+        return marquerSi(journal == null || journal.entrepriseModifiee(e), Collection.ENTREPRISES);
+    }
+
+    public boolean candidatInscrit(Candidat c) {
+        if (parLigne) {
+            return stockage.candidatAjoute(c);
+        }
+        return marquerSi(journal == null || journal.candidatInscrit(c), Collection.CANDIDATS);
+    }
+
+    public boolean candidatModifie(Candidat c) {
+        if (parLigne) {
+            return stockage.candidatModifie(c);
+        }
+        return marquerSi(journal == null || journal.candidatModifie(c), Collection.CANDIDATS);
+    }
+
+    public boolean offreCreee(Offre o) {
+        if (parLigne) {
+            return stockage.offreAjoutee(o);
+        }
+        return marquerSi(journal == null || journal.offreCreee(o), Collection.OFFRES);
+    }
+
+    /**
+     * Les candidatures de l'offre disparaissent avec elle : les relations sont aussi marquées.
+     */
+    public boolean offreSupprimee(Offre o) {
+        if (parLigne) {
+            return stockage.offresSupprimees(Collections.singletonList(o));
+        }
+        return marquerSi(journal == null || journal.offreSupprimee(o), Collection.OFFRES, Collection.RELATIONS);
+    }
+
+    public boolean expirationModifiee(Offre o) {
+        if (parLigne) {
+            return stockage.offreModifiee(o);
+        }
+        return marquerSi(journal == null || journal.expirationModifiee(o), Collection.OFFRES);
+    }
+
+    public boolean commentairePublie(Forum f) {
+        if (parLigne) {
+            return stockage.commentaireAjoute(f);
+        }
+        return marquerSi(journal == null || journal.commentairePublie(f), Collection.COMMENTAIRES);
+    }
+
+    // ========== IMPORTS ET ARCHIVAGE (NON JOURNALISÉS) ==========
+    // Backend journalisé : la collection est réécrite en une fois à la compaction
+
+    public boolean candidatImporte(Candidat c) {
+        if (parLigne) {
+            return stockage.candidatAjoute(c);
+        }
+        marquer(Collection.CANDIDATS);
+        return true;
+    }
+
+    public boolean offreImportee(Offre o) {
+        if (parLigne) {
+            return stockage.offreAjoutee(o);
+        }
+        marquer(Collection.OFFRES);
+        return true;
+    }
+
+    /**
+     * Offres retirées avec leurs candidatures (déjà copiées dans les archives).
+     */
+    public boolean offresArchivees(List<Offre> offres) {
+        if (parLigne) {
+            return stockage.offresSupprimees(offres);
+        }
+        marquer(Collection.OFFRES, Collection.RELATIONS);
+        return true;
+    }
+
+    // ========== LIENS (DÉPÔT DES RELATIONS) ==========
+    // false : le lien n'a pas pu être écrit, l'appelant annule sa modification
+
+    public boolean candidatureAjoutee(Candidat c, Offre o) {
+        return marquerSi(relations == null || relations.candidatureAjoutee(c, o), Collection.RELATIONS);
+    }
+
+    public boolean candidatureRetiree(Candidat c, Offre o) {
+        return marquerSi(relations == null || relations.candidatureRetiree(c, o), Collection.RELATIONS);
+    }
+
+    public boolean wishlistAjout(Entreprise e, Candidat c) {
+        return marquerSi(relations == null || relations.wishlistAjout(e, c), Collection.RELATIONS);
+    }
+
+    public boolean wishlistRetrait(Entreprise e, Candidat c) {
+        return marquerSi(relations == null || relations.wishlistRetrait(e, c), Collection.RELATIONS);
+    }
+
+    /**
+     * Marque des collections modifiées sans entrée de journal : elles seront
+     * réécrites en une fois à la compaction.
+     */
+    public void marquer(Collection... collections) {
+        if (suivi != null) {
+            suivi.marquer(collections);
+        }
+    }
+
+    private boolean marquerSi(boolean ecrite, Collection... collections) {
+        if (ecrite) {
+            marquer(collections);
+        }
+        return ecrite;
+    }
+}
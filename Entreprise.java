@@ -3,6 +3,7 @@ package models;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 /**
  * Classe représentant une entreprise dans le système de gestion des offres.
@@ -14,6 +15,9 @@ import java.util.UUID;
  */
 public class Entreprise {
     
+    /** Format d'email accepté (compilé une seule fois) */
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[\\w.-]+@[\\w.-]+\\.[a-z]{2,}$");
+    
     // ----------------------------- Attributs privés -----------------------------
     
     /** Identifiant unique de l'entreprise (généré automatiquement) */
@@ -75,7 +79,7 @@ public class Entreprise {
             throw new IllegalArgumentException("L'email est obligatoire");
         }
         // Vérification du format de l'email avec une expression régulière
-        if (!email.matches("^[\\w.-]+@[\\w.-]+\\.[a-z]{2,}$")) {
+        if (!EMAIL_PATTERN.matcher(email).matches()) {
             throw new IllegalArgumentException("Format d'email invalide");
         }
         
@@ -1,6 +1,7 @@
 package service;
 
 import java.util.*;
+import java.util.function.Function;
 import models.*;
 
 /**
@@ -9,9 +10,23 @@ import models.*;
  */
 public class EntrepriseService {
     private List<Entreprise> entreprises;
+    private EnregistreurMutations mutations;
+
+    /** Index de trigrammes des champs cherchés par sous-chaîne */
+    private IndexTrigrammes<Entreprise> index;
 
     public EntrepriseService(List<Entreprise> entreprises) {
+        this(entreprises, new EnregistreurMutations());
+    }
+
+    public EntrepriseService(List<Entreprise> entreprises, EnregistreurMutations mutations) {
         this.entreprises = entreprises;
+        this.mutations = mutations;
+        LinkedHashMap<String, Function<Entreprise, String>> champs = new LinkedHashMap<>();
+        champs.put("nom", Entreprise::getNom);
+        champs.put("secteur", Entreprise::getSecteur);
+        champs.put("adresse", Entreprise::getAdresse);
+        this.index = new IndexTrigrammes<>(entreprises, champs, "nom");
     }
 
     /**
@@ -24,46 +39,49 @@ public class EntrepriseService {
     /**
      * Recherche des entreprises selon différents critères.
      * Critères supportés : nom, secteur, email, toutes (recherche globale).
+     * Hors email (exact), les critères cherchent une sous-chaîne sans tenir
+     * compte de la casse ni des accents, par l'index de trigrammes. Un nom
+     * sans résultat est cherché à nouveau en tolérant des fautes de frappe.
      */
     public List<Entreprise> rechercherEntreprises(String critere, String valeur) {
-        List<Entreprise> resultats = new ArrayList<>();
-        
-        // Parcourir toutes les entreprises
-        for (Entreprise e : entreprises) {
-            boolean match = false;
-            
-            // Vérifier selon le critère de recherche
-            switch (critere.toLowerCase()) {
-                case "nom":
-                    // Recherche par nom (insensible à la casse)
-                    match = e.getNom().toLowerCase().contains(valeur.toLowerCase());
-                    break;
-                    
-                case "secteur":
-                    // Recherche par secteur d'activité
-                    match = e.getSecteur().toLowerCase().contains(valeur.toLowerCase());
-                    break;
-                    
-                case "email":
-                    // Recherche par email (exact, insensible à la casse)
-                    match = e.getEmail().equalsIgnoreCase(valeur);
-                    break;
-                    
-                case "toutes":
-                    // Recherche globale dans nom, secteur et adresse
-                    match = e.getNom().toLowerCase().contains(valeur.toLowerCase()) ||
-                           e.getSecteur().toLowerCase().contains(valeur.toLowerCase()) ||
-                           e.getAdresse().toLowerCase().contains(valeur.toLowerCase());
-                    break;
-            }
-            
-            // Ajouter aux résultats si correspond
-            if (match) {
-                resultats.add(e);
-            }
+        switch (critere.toLowerCase()) {
+            case "nom":
+                List<Entreprise> exacts = index.rechercher(valeur, "nom");
+                if (!exacts.isEmpty()) {
+                    return exacts;
+                }
+                // Aucun nom ne contient la valeur : noms à une ou deux fautes
+                // près, les plus proches puis ceux qui ont le plus d'offres d'abord
+                return index.rechercherApproche(valeur, "nom", e -> e.getOffresPubliees().size());
+                
+            case "secteur":
+                return index.rechercher(valeur, "secteur");
+                
+            case "email":
+                // Recherche par email (exact, insensible à la casse)
+                List<Entreprise> resultats = new ArrayList<>();
+                for (Entreprise e : entreprises) {
+                    if (e.getEmail().equalsIgnoreCase(valeur)) {
+                        resultats.add(e);
+                    }
+                }
+                return resultats;
+                
+            case "toutes":
+                // Recherche globale dans nom, secteur et adresse
+                return index.rechercher(valeur, "nom", "secteur", "adresse");
+                
+            default:
+                return new ArrayList<>();
         }
-        
-        return resultats;
+    }
+
+    /**
+     * Reconstruit l'index de recherche après un rechargement des données
+     * d'une autre instance, qui a pu modifier des entreprises.
+     */
+    public void reindexer() {
+        index.reconstruire();
     }
 
     /**
@@ -71,26 +89,40 @@ public class EntrepriseService {
      * Permet de mettre à jour secteur, adresse et téléphone.
      */
     public boolean modifierProfil(Entreprise entreprise, Map<String, String> nouvellesInfos) {
+        Map<String, String> anciennesInfos = new HashMap<>();
+        anciennesInfos.put("secteur", entreprise.getSecteur());
+        anciennesInfos.put("adresse", entreprise.getAdresse());
+        anciennesInfos.put("telephone", entreprise.getTelephone());
         try {
-            // Modification du secteur
-            if (nouvellesInfos.containsKey("secteur")) {
-                entreprise.setSecteur(nouvellesInfos.get("secteur"));
-            }
-            
-            // Modification de l'adresse
-            if (nouvellesInfos.containsKey("adresse")) {
-                entreprise.setAdresse(nouvellesInfos.get("adresse"));
-            }
-            
-            // Modification du téléphone
-            if (nouvellesInfos.containsKey("telephone")) {
-                entreprise.setTelephone(nouvellesInfos.get("telephone"));
+            appliquerInfos(entreprise, nouvellesInfos);
+            if (!mutations.entrepriseModifiee(entreprise)) {
+                // Modification non durable : retour au profil précédent
+                appliquerInfos(entreprise, anciennesInfos);
+                return false;
             }
-            
+            index.actualiser(entreprise);
             return true;
         } catch (Exception e) {
             System.out.println("Erreur modification profil: " + e.getMessage());
+            appliquerInfos(entreprise, anciennesInfos);
             return false;
         }
     }
+
+    private void appliquerInfos(Entreprise entreprise, Map<String, String> nouvellesInfos) {
+        // Modification du secteur
+        if (nouvellesInfos.containsKey("secteur")) {
+            entreprise.setSecteur(nouvellesInfos.get("secteur"));
+        }
+        
+        // Modification de l'adresse
+        if (nouvellesInfos.containsKey("adresse")) {
+            entreprise.setAdresse(nouvellesInfos.get("adresse"));
+        }
+        
+        // Modification du téléphone
+        if (nouvellesInfos.containsKey("telephone")) {
+            entreprise.setTelephone(nouvellesInfos.get("telephone"));
+        }
+    }
 }
\ No newline at end of file
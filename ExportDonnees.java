@@ -0,0 +1,253 @@
+package service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Callable;
+import models.*;
+
+/**
+ * Export des candidats d'une offre, des offres d'une entreprise et de sa
+ * wishlist, en CSV (avec une ligne d'en-tête) ou en JSON Lines (un objet par ligne).
+ *
+ * Chaque export est préparé sur le thread qui modifie les données : seules
+ * les références des éléments à exporter sont copiées, comme pour une
+ * sauvegarde. Le Callable retourné s'exécute ensuite en arrière-plan et
+ * écrit les lignes une à une dans le canal (encodage UTF-8) : aucune ligne
+ * formatée n'est conservée en mémoire. Le mot de passe n'est jamais exporté.
+ *
+ * Le Callable ferme le canal, s'arrête entre deux lignes si son thread est
+ * interrompu (InterruptedException) et retourne le nombre de lignes écrites.
+ */
+public class ExportDonnees {
+
+    /** Nombre de lignes entre deux vidages du tampon et deux avancements */
+    private static final int INTERVALLE_PROGRESSION = 1000;
+
+    private static final List<String> COLONNES_CANDIDAT = Arrays.asList(
+        "cin", "type", "nom", "prenom", "email", "telephone",
+        "niveau", "filiere", "etablissement", "anneeDiplome", "posteActuel", "entrepriseActuelle");
+
+    private static final List<String> COLONNES_OFFRE = Arrays.asList(
+        "id", "type", "titre", "description", "datePublication", "dateExpiration",
+        "duree", "domaine", "rythme", "sujet", "technologies", "candidatures");
+
+    /**
+     * Format du fichier exporté.
+     */
+    public enum Format {
+        CSV, JSON;
+
+        /**
+         * Format d'après l'extension du fichier (.json, .jsonl, .ndjson), CSV par défaut.
+         */
+        public static Format depuisNom(String fichier) {
+            String nom = fichier.toLowerCase();
+            if (nom.endsWith(".json") || nom.endsWith(".jsonl") || nom.endsWith(".ndjson")) {
+                return JSON;
+            }
+            return CSV;
+        }
+    }
+
+    /**
+     * Avancement d'un export, appelé depuis le thread de l'export.
+     */
+    public interface Progression {
+        void avancer(int ecrites, int total);
+    }
+
+    private final CandidatureService candidatureService;
+    private final OffreService offreService;
+
+    public ExportDonnees(CandidatureService candidatureService, OffreService offreService) {
+        this.candidatureService = candidatureService;
+        this.offreService = offreService;
+    }
+
+    /**
+     * Prépare l'export des candidats ayant postulé à une offre.
+     */
+    public Callable<Integer> exporterCandidatsOffre(String idOffre, WritableByteChannel canal,
+                                                    Format format, Progression progression) {
+        List<Candidat> candidats = new ArrayList<>(candidatureService.getCandidatsOffre(idOffre));
+        return () -> ecrire(candidats, COLONNES_CANDIDAT, ExportDonnees::champsCandidat, canal, format, progression);
+    }
+
+    /**
+     * Prépare l'export des offres publiées par une entreprise.
+     */
+    public Callable<Integer> exporterOffresEntreprise(Entreprise entreprise, WritableByteChannel canal,
+                                                      Format format, Progression progression) {
+        List<Offre> offres = offreService.getOffresEntreprise(entreprise);
+        return () -> ecrire(offres, COLONNES_OFFRE, ExportDonnees::champsOffre, canal, format, progression);
+    }
+
+    /**
+     * Prépare l'export de la wishlist d'une entreprise.
+     */
+    public Callable<Integer> exporterWishlist(Entreprise entreprise, WritableByteChannel canal,
+                                              Format format, Progression progression) {
+        List<Candidat> candidats = new ArrayList<>(entreprise.getWishlist());
+        return () -> ecrire(candidats, COLONNES_CANDIDAT, ExportDonnees::champsCandidat, canal, format, progression);
+    }
+
+    // ========== ÉCRITURE ==========
+
+    private interface Champs<T> {
+        void remplir(T element, Map<String, String> champs);
+    }
+
+    private static <T> int ecrire(List<T> elements, List<String> colonnes, Champs<T> extraction,
+                                  WritableByteChannel canal, Format format, Progression progression)
+            throws IOException, InterruptedException {
+        int total = elements.size();
+        Map<String, String> champs = new HashMap<>();
+        StringBuilder ligne = new StringBuilder();
+        try (Writer sortie = new BufferedWriter(Channels.newWriter(canal, StandardCharsets.UTF_8.newEncoder(), -1))) {
+            if (format == Format.CSV) {
+                ecrireCsv(colonnes, ligne);
+                sortie.append(ligne).append('\n');
+            }
+            int ecrites = 0;
+            for (T element : elements) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Export interrompu après " + ecrites + " ligne(s)");
+                }
+                champs.clear();
+                extraction.remplir(element, champs);
+                ligne.setLength(0);
+                if (format == Format.CSV) {
+                    List<String> valeurs = new ArrayList<>(colonnes.size());
+                    for (String colonne : colonnes) {
+                        valeurs.add(champs.getOrDefault(colonne, ""));
+                    }
+                    ecrireCsv(valeurs, ligne);
+                } else {
+                    ecrireJson(colonnes, champs, ligne);
+                }
+                sortie.append(ligne).append('\n');
+                ecrites++;
+                if (ecrites % INTERVALLE_PROGRESSION == 0) {
+                    sortie.flush();
+                    progression.avancer(ecrites, total);
+                }
+            }
+            sortie.flush();
+            progression.avancer(ecrites, total);
+            return ecrites;
+        }
+    }
+
+    private static void champsCandidat(Candidat c, Map<String, String> champs) {
+        champs.put("cin", String.valueOf(c.getId()));
+        champs.put("nom", c.getNom());
+        champs.put("prenom", c.getPrenom());
+        champs.put("email", c.getEmail());
+        champs.put("telephone", c.getTelephone());
+        if (c instanceof Etudiant) {
+            Etudiant e = (Etudiant) c;
+            champs.put("type", "etudiant");
+            champs.put("niveau", e.getNiveau());
+            champs.put("filiere", e.getFiliere());
+            champs.put("etablissement", e.getEtablissement());
+        } else if (c instanceof Alumni) {
+            Alumni a = (Alumni) c;
+            champs.put("type", "alumni");
+            champs.put("anneeDiplome", String.valueOf(a.getAnneeDiplome()));
+            champs.put("posteActuel", a.getPosteActuel());
+            champs.put("entrepriseActuelle", a.getEntrepriseActuelle());
+        } else {
+            champs.put("type", "simple");
+        }
+    }
+
+    private static void champsOffre(Offre o, Map<String, String> champs) {
+        champs.put("id", o.getId().toString());
+        champs.put("type", o.getTypeOffre());
+        champs.put("titre", o.getTitre());
+        champs.put("description", o.getDescription());
+        champs.put("datePublication", String.valueOf(o.getDatePublication()));
+        if (o.getDateExpiration() != null) {
+            champs.put("dateExpiration", o.getDateExpiration().toString());
+        }
+        if (o instanceof Stage) {
+            Stage s = (Stage) o;
+            champs.put("duree", String.valueOf(s.getDureeEnMois()));
+            champs.put("domaine", s.getDomaine());
+        } else if (o instanceof Alternance) {
+            Alternance a = (Alternance) o;
+            champs.put("rythme", a.getRythme());
+            champs.put("duree", String.valueOf(a.getDureeEnMois()));
+        } else if (o instanceof ProjetFinEtudes) {
+            ProjetFinEtudes p = (ProjetFinEtudes) o;
+            champs.put("sujet", p.getSujet());
+            champs.put("technologies", p.getTechnologies());
+        }
+        champs.put("candidatures", String.valueOf(o.getCandidatures().size()));
+    }
+
+    /**
+     * Valeurs séparées par ',' ; une valeur contenant ',', '"' ou une fin de
+     * ligne est entourée de guillemets, comme le lit FormatImport.
+     */
+    private static void ecrireCsv(List<String> valeurs, StringBuilder ligne) {
+        for (int i = 0; i < valeurs.size(); i++) {
+            if (i > 0) {
+                ligne.append(',');
+            }
+            String v = valeurs.get(i) == null ? "" : valeurs.get(i);
+            if (v.indexOf(',') >= 0 || v.indexOf('"') >= 0 || v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0) {
+                ligne.append('"').append(v.replace("\"", "\"\"")).append('"');
+            } else {
+                ligne.append(v);
+            }
+        }
+    }
+
+    /**
+     * Objet JSON des champs présents, dans l'ordre des colonnes, valeurs en chaînes.
+     */
+    private static void ecrireJson(List<String> colonnes, Map<String, String> champs, StringBuilder ligne) {
+        ligne.append('{');
+        boolean premier = true;
+        for (String colonne : colonnes) {
+            String v = champs.get(colonne);
+            if (v == null) {
+                continue;
+            }
+            if (!premier) {
+                ligne.append(',');
+            }
+            premier = false;
+            ligne.append('"').append(colonne).append("\":");
+            chaineJson(v, ligne);
+        }
+        ligne.append('}');
+    }
+
+    private static void chaineJson(String v, StringBuilder ligne) {
+        ligne.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '"': ligne.append("\\\""); break;
+                case '\\': ligne.append("\\\\"); break;
+                case '\n': ligne.append("\\n"); break;
+                case '\r': ligne.append("\\r"); break;
+                case '\t': ligne.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        ligne.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        ligne.append(c);
+                    }
+            }
+        }
+        ligne.append('"');
+    }
+}
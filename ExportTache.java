@@ -0,0 +1,130 @@
+package controllers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import javafx.concurrent.Task;
+import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Window;
+import service.ExportDonnees;
+
+/**
+ * Lance un export (ExportDonnees) depuis un écran entreprise : choix du
+ * fichier, écriture en arrière-plan avec une fenêtre de progression
+ * qui permet d'annuler, puis message de fin.
+ */
+public class ExportTache {
+
+    /**
+     * Prépare l'export vers le canal (appelé sur le thread JavaFX).
+     */
+    public interface Preparation {
+        Callable<Integer> preparer(WritableByteChannel canal, ExportDonnees.Format format,
+                                   ExportDonnees.Progression progression);
+    }
+
+    private ExportTache() {
+    }
+
+    /**
+     * @param fenetre Fenêtre de l'écran appelant
+     * @param nomParDefaut Nom proposé pour le fichier (sans extension)
+     * @param preparation Export à préparer une fois le fichier choisi
+     */
+    public static void lancer(Window fenetre, String nomParDefaut, Preparation preparation) {
+        FileChooser choix = new FileChooser();
+        choix.setTitle("Exporter");
+        choix.setInitialFileName(nomParDefaut + ".csv");
+        choix.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("CSV", "*.csv"),
+            new FileChooser.ExtensionFilter("JSON Lines", "*.jsonl", "*.json"));
+        File fichier = choix.showSaveDialog(fenetre);
+        if (fichier == null) {
+            return;
+        }
+
+        FileChannel canal;
+        try {
+            canal = FileChannel.open(fichier.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            afficher(Alert.AlertType.ERROR, "Impossible de créer " + fichier + " : " + e.getMessage());
+            return;
+        }
+        ExportDonnees.Format format = ExportDonnees.Format.depuisNom(fichier.getName());
+
+        Task<Integer> tache = new Task<Integer>() {
+            // Préparé ici, sur le thread JavaFX : copie des références à exporter
+            private final Callable<Integer> export = preparation.preparer(canal, format, (ecrites, total) -> {
+                updateProgress(ecrites, total);
+                updateMessage(ecrites + " / " + total + " ligne(s)");
+            });
+
+            @Override
+            protected Integer call() throws Exception {
+                return export.call();
+            }
+        };
+
+        ProgressBar barre = new ProgressBar();
+        barre.setPrefWidth(320);
+        barre.progressProperty().bind(tache.progressProperty());
+        Label message = new Label();
+        message.textProperty().bind(tache.messageProperty());
+        Alert progression = new Alert(Alert.AlertType.NONE, "", ButtonType.CANCEL);
+        progression.setTitle("Export en cours");
+        progression.setHeaderText("Export vers " + fichier.getName());
+        progression.getDialogPane().setContent(new VBox(10, barre, message));
+        progression.initOwner(fenetre);
+        progression.resultProperty().addListener((obs, ancien, bouton) -> tache.cancel());
+
+        tache.setOnSucceeded(e -> {
+            progression.close();
+            afficher(Alert.AlertType.INFORMATION,
+                tache.getValue() + " ligne(s) exportée(s) dans " + fichier);
+        });
+        tache.setOnFailed(e -> {
+            progression.close();
+            supprimer(fichier);
+            afficher(Alert.AlertType.ERROR, "Échec de l'export : " + tache.getException().getMessage());
+        });
+        tache.setOnCancelled(e -> {
+            progression.close();
+            fermer(canal);
+            supprimer(fichier);
+        });
+
+        Thread thread = new Thread(tache, "export");
+        thread.setDaemon(true);
+        thread.start();
+        progression.show();
+    }
+
+    private static void fermer(FileChannel canal) {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            // Le fichier est supprimé ensuite
+        }
+    }
+
+    private static void supprimer(File fichier) {
+        try {
+            Files.deleteIfExists(fichier.toPath());
+        } catch (IOException e) {
+            System.out.println("Erreur suppression " + fichier + ": " + e.getMessage());
+        }
+    }
+
+    private static void afficher(Alert.AlertType type, String msg) {
+        Alert a = new Alert(type);
+        a.setContentText(msg);
+        a.show();
+    }
+}
@@ -1,9 +1,18 @@
 package service;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import models.*;
 
 /**
@@ -17,11 +26,51 @@ public class FileManager {
     private static final String CANDIDATS_FILE = DATA_DIR + "candidats.txt";
     private static final String OFFRES_FILE = DATA_DIR + "offres.txt";
     private static final String FORUM_FILE = DATA_DIR + "commentaires.txt";
+    private static final String CACHE_FILE = DATA_DIR + "instantane.bin";
+    private static final String VERSION_FILE = DATA_DIR + "version.txt";
+
+    /**
+     * Mode de chargement par projection mémoire (voir LecteurMappe).
+     * Désactivé par défaut : sous Windows, un fichier projeté ne peut pas être
+     * réécrit tant que la projection n'a pas été libérée par le ramasse-miettes.
+     */
+    private boolean chargementMappe = Boolean.getBoolean("hecrecruit.chargementMappe");
+
+    /** Durabilité des réécritures de fichiers (chacune fsync puis renommage) */
+    private final MesuresDurabilite mesures = new MesuresDurabilite("fichiers");
+
+    /** Offres lues dans l'ancien format, sans identifiant (à réécrire) */
+    private final AtomicInteger offresSansIdentifiant = new AtomicInteger();
+
+    /** Verrou partagé avec les autres instances utilisant le même dossier data */
+    private final VerrouDonnees verrou = new VerrouDonnees();
 
     public FileManager() {
         createDataDirectory();
     }
 
+    public boolean isChargementMappe() {
+        return chargementMappe;
+    }
+
+    public void setChargementMappe(boolean chargementMappe) {
+        this.chargementMappe = chargementMappe;
+    }
+
+    /**
+     * @return Le verrou à prendre autour des écritures dans le dossier data
+     */
+    public VerrouDonnees getVerrou() {
+        return verrou;
+    }
+
+    /**
+     * @return Le nombre d'offres lues sans identifiant (fichier ou journal)
+     */
+    public int getOffresSansIdentifiant() {
+        return offresSansIdentifiant.get();
+    }
+
     /**
      * Crée le dossier data s'il n'existe pas.
      */
@@ -33,7 +82,59 @@ public class FileManager {
         }
     }
 
+    /**
+     * Retourne les fichiers texte des entités, dans l'ordre de chargement.
+     * Le forum est stocké à part, en segments (StockageForum).
+     */
+    public List<Path> getFichiersDonnees() {
+        return Arrays.asList(
+            Paths.get(ENTERPRISES_FILE),
+            Paths.get(CANDIDATS_FILE),
+            Paths.get(OFFRES_FILE)
+        );
+    }
+
+    /**
+     * Retourne le dossier des données (fichiers texte, journal, relations, forum, archives).
+     */
+    public Path getDossierDonnees() {
+        return Paths.get(DATA_DIR);
+    }
+
+    /**
+     * Retourne le fichier indiquant la version du format des fichiers texte (voir MigrationDonnees).
+     */
+    public Path getFichierVersion() {
+        return Paths.get(VERSION_FILE);
+    }
+
+    /**
+     * Retourne le cache binaire associé aux fichiers texte.
+     */
+    public InstantaneBinaire getInstantaneBinaire() {
+        return new InstantaneBinaire(Paths.get(CACHE_FILE), getFichiersDonnees());
+    }
+
     // ========== CHARGEMENT DES DONNÉES ==========
+
+    /**
+     * Parcourt les lignes d'un fichier de données, avec le lecteur texte
+     * ou le lecteur par projection mémoire selon le mode choisi.
+     * Les deux lecteurs découpent les lignes de la même façon.
+     */
+    private void lireLignes(String fichier, Consumer<ChampsLigne> traitement) throws IOException {
+        if (chargementMappe) {
+            // Même encodage que FileReader/FileWriter
+            LecteurMappe.lire(Paths.get(fichier), Charset.defaultCharset(), traitement);
+            return;
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(fichier))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                traitement.accept(ChampsLigne.de(line.split("\\|")));
+            }
+        }
+    }
     
     /**
      * Charge les entreprises depuis le fichier.
@@ -42,35 +143,15 @@ public class FileManager {
     public List<Entreprise> chargerEntreprises() {
         List<Entreprise> entreprises = new ArrayList<>();
         
-        try (BufferedReader br = new BufferedReader(new FileReader(ENTERPRISES_FILE))) {
-            String line;
-            
+        try {
             // Lire ligne par ligne
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                
-                // Format avec mot de passe (6 champs)
-                if (parts.length >= 6) {
-                    Entreprise e = new Entreprise(
-                        parts[0], // nom
-                        parts[1], // secteur
-                        parts[2], // adresse
-                        parts[3], // email
-                        parts[4], // telephone
-                        parts[5]  // mdp
-                    );
-                    entreprises.add(e);
-                } 
-                // Ancien format sans mot de passe (5 champs) - Compatibilité
-                else if (parts.length >= 5) {
-                    Entreprise e = new Entreprise(
-                        parts[0], parts[1], parts[2], parts[3], parts[4],
-                        "default123" // Mot de passe par défaut
-                    );
+            lireLignes(ENTERPRISES_FILE, champs -> {
+                Entreprise e = parserEntreprise(champs);
+                if (e != null) {
                     entreprises.add(e);
                 }
-            }
-        } catch (FileNotFoundException e) {
+            });
+        } catch (FileNotFoundException | NoSuchFileException e) {
             System.out.println("Fichier entreprises non trouvé, création...");
         } catch (IOException e) {
             System.out.println("Erreur lecture entreprises: " + e.getMessage());
@@ -81,81 +162,58 @@ public class FileManager {
 
     /**
      * Charge les candidats depuis le fichier.
-     * Format nouveau : id|type|nom|prenom|email|telephone|mdp|...infos spécifiques
-     * Supporte aussi l'ancien format pour compatibilité.
+     * Format : id|type|nom|prenom|email|telephone|mdp|...infos spécifiques
+     * Les anciens formats sont convertis au préalable par MigrationDonnees.
      */
     public List<Candidat> chargerCandidats() {
+        RapportChargement rapport = new RapportChargement();
+        List<Candidat> candidats = chargerCandidats(rapport);
+        afficherRejets(rapport);
+        return candidats;
+    }
+
+    /**
+     * Chargement en masse des candidats : l'unicité du CIN et de l'email
+     * (normalisé) est vérifiée en une passe avec des ensembles de hachage,
+     * au lieu d'un parcours de la liste à chaque construction.
+     * Les lignes invalides ou en doublon sont ignorées et consignées dans le rapport.
+     *
+     * @param rapport Rapport complété avec les lignes acceptées et rejetées
+     */
+    public List<Candidat> chargerCandidats(RapportChargement rapport) {
         List<Candidat> candidats = new ArrayList<>();
+        Set<Integer> cins = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        int[] numero = {0};
         
-        try (BufferedReader br = new BufferedReader(new FileReader(CANDIDATS_FILE))) {
-            String line;
-            
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                
-                // Nouveau format avec ID et mot de passe
-                if (parts.length >= 9) {
-                    int id = Integer.parseInt(parts[0]);
-                    String type = parts[1];
-                    String nom = parts[2];
-                    String prenom = parts[3];
-                    String email = parts[4];
-                    String telephone = parts[5];
-                    String mdp = parts[6];
-                    
-                    // Créer selon le type
-                    if (type.equals("etudiant") && parts.length >= 10) {
-                        Etudiant etud = new Etudiant(
-                            id, nom, prenom, email, telephone, mdp,
-                            parts[7], // niveau
-                            parts[8], // filiere
-                            parts[9], // etablissement
-                            candidats
-                        );
-                        candidats.add(etud);
-                    } else if (type.equals("alumni") && parts.length >= 10) {
-                        Alumni alumni = new Alumni(
-                            id, nom, prenom, email, telephone, mdp,
-                            Integer.parseInt(parts[7]), // anneeDiplome
-                            parts[8], // posteActuel
-                            parts[9], // entrepriseActuelle
-                            candidats
-                        );
-                        candidats.add(alumni);
-                    } else if (parts.length >= 7) {
-                        Candidat c = new Candidat(
-                            id, nom, prenom, email, telephone, mdp, candidats
-                        );
-                        candidats.add(c);
-                    }
+        try {
+            lireLignes(CANDIDATS_FILE, champs -> {
+                numero[0]++;
+                Candidat c;
+                try {
+                    // Liste nulle : l'unicité est contrôlée ici par les ensembles
+                    c = parserCandidat(champs, null);
+                } catch (IllegalArgumentException e) {
+                    rapport.rejeter(CANDIDATS_FILE, numero[0], e.getMessage());
+                    return;
                 }
-                // Ancien format (sans ID et mdp) - Compatibilité
-                else if (parts.length >= 4) {
-                    // Générer un ID temporaire
-                    int id = 10000000 + candidats.size();
-                    String mdp = "default123";
-                    
-                    if (parts.length == 7) { // Étudiant ancien format
-                        Etudiant etud = new Etudiant(
-                            id, parts[0], parts[1], parts[2], parts[3], mdp,
-                            parts[4], parts[5], parts[6], candidats
-                        );
-                        candidats.add(etud);
-                    } else if (parts.length == 6) { // Alumni ancien format
-                        Alumni alumni = new Alumni(
-                            id, parts[0], parts[1], parts[2], parts[3], mdp,
-                            Integer.parseInt(parts[4]), parts[5], "", candidats
-                        );
-                        candidats.add(alumni);
-                    } else { // Candidat simple ancien format
-                        Candidat c = new Candidat(
-                            id, parts[0], parts[1], parts[2], parts[3], mdp, candidats
-                        );
-                        candidats.add(c);
-                    }
+                if (c == null) {
+                    return;
                 }
-            }
-        } catch (FileNotFoundException e) {
+                
+                String email = Candidat.normaliserEmail(c.getEmail());
+                if (cins.contains(c.getId())) {
+                    rapport.rejeter(CANDIDATS_FILE, numero[0], "Ce CIN est déjà utilisé par un autre candidat");
+                } else if (emails.contains(email)) {
+                    rapport.rejeter(CANDIDATS_FILE, numero[0], "Un candidat avec cet email existe déjà");
+                } else {
+                    cins.add(c.getId());
+                    emails.add(email);
+                    candidats.add(c);
+                    rapport.accepter();
+                }
+            });
+        } catch (FileNotFoundException | NoSuchFileException e) {
             System.out.println("Fichier candidats non trouvé, création...");
         } catch (IOException e) {
             System.out.println("Erreur lecture candidats: " + e.getMessage());
@@ -164,90 +222,67 @@ public class FileManager {
         return candidats;
     }
 
+    /**
+     * Affiche les lignes rejetées d'un rapport de chargement.
+     */
+    public static void afficherRejets(RapportChargement rapport) {
+        List<RapportChargement.Rejet> rejets = rapport.getRejets();
+        if (!rejets.isEmpty()) {
+            System.out.println("❌ " + rejets.size() + " ligne(s) rejetée(s) au chargement:");
+            for (RapportChargement.Rejet r : rejets) {
+                System.out.println("  - " + r);
+            }
+        }
+    }
+
     /**
      * Charge les offres depuis le fichier.
-     * Format : type|titre|description|emailEntreprise|datePublication|dateExpiration|...infos spécifiques
+     * Format : id|type|titre|description|emailEntreprise|datePublication|dateExpiration|...infos spécifiques
+     * Supporte aussi l'ancien format sans id.
      */
     public List<Offre> chargerOffres(List<Entreprise> entreprises) {
+        RapportChargement rapport = new RapportChargement();
+        List<Offre> offres = chargerOffres(entreprises, rapport);
+        afficherRejets(rapport);
+        return offres;
+    }
+
+    /**
+     * Une offre d'une entreprise inconnue, incomplète ou dont une date ou un
+     * nombre est illisible est ignorée et consignée dans le rapport, au lieu
+     * d'interrompre le chargement.
+     *
+     * @param rapport Rapport complété avec les lignes acceptées et rejetées
+     */
+    public List<Offre> chargerOffres(List<Entreprise> entreprises, RapportChargement rapport) {
         List<Offre> offres = new ArrayList<>();
+        // Index construit une seule fois au lieu d'un parcours par ligne
+        Map<String, Entreprise> parEmail = indexerParEmail(entreprises);
+        int[] numero = {0};
         
-        try (BufferedReader br = new BufferedReader(new FileReader(OFFRES_FILE))) {
-            String line;
-            
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                
-                if (parts.length >= 6) {
-                    String typeOffre = parts[0];
-                    String titre = parts[1];
-                    String description = parts[2];
-                    String emailEntreprise = parts[3];
-                    String datePublication = parts[4];
-                    String dateExpiration = parts[5];
-
-                    // Trouver l'entreprise correspondante
-                    Entreprise entreprise = null;
-                    for (Entreprise e : entreprises) {
-                        if (e.getEmail().equals(emailEntreprise)) {
-                            entreprise = e;
-                            break;
-                        }
-                    }
-
-                    // Créer l'offre si entreprise trouvée
-                    if (entreprise != null) {
-                        Offre offre = null;
-
-                        switch (typeOffre.toLowerCase()) {
-                            case "stage":
-                                if (parts.length >= 8) {
-                                    offre = new Stage(
-                                        titre, description, entreprise,
-                                        Integer.parseInt(parts[6]), // durée
-                                        parts[7] // domaine
-                                    );
-                                }
-                                break;
-
-                            case "alternance":
-                                if (parts.length >= 8) {
-                                    offre = new Alternance(
-                                        titre, description, entreprise,
-                                        parts[6], // rythme
-                                        Integer.parseInt(parts[7]) // durée
-                                    );
-                                }
-                                break;
-
-                            case "projet fin d'etudes":
-                                if (parts.length >= 8) {
-                                    offre = new ProjetFinEtudes(
-                                        titre, description, entreprise,
-                                        parts[6], // sujet
-                                        parts[7]  // technologies
-                                    );
-                                }
-                                break;
-
-                            default:
-                                offre = new Offre(titre, description, typeOffre, entreprise);
-                                break;
-                        }
-
-                        if (offre != null) {
-                            // Définir la date d'expiration si présente
-                            if (!dateExpiration.equals("null")) {
-                                offre.setDateExpiration(LocalDate.parse(dateExpiration));
-                            }
-                            offres.add(offre);
-
-                            // Rattacher l'offre à l'entreprise
-                            entreprise.getOffresPubliees().add(offre);
-                        }
+        try {
+            lireLignes(OFFRES_FILE, champs -> {
+                numero[0]++;
+                Offre offre;
+                try {
+                    offre = parserOffre(champs, parEmail);
+                } catch (RuntimeException e) {
+                    rapport.rejeter(OFFRES_FILE, numero[0], "Ligne invalide: " + e.getMessage());
+                    return;
+                }
+                if (offre == null) {
+                    if (champs.taille() > 1 || !champs.texte(0).isEmpty()) {
+                        rapport.rejeter(OFFRES_FILE, numero[0], "Entreprise inconnue ou ligne incomplète");
                     }
+                    return;
                 }
-            }
-        } catch (FileNotFoundException e) {
+                offres.add(offre);
+                rapport.accepter();
+
+                // Rattacher l'offre à l'entreprise
+                offre.getEntreprise().getOffresPubliees().add(offre);
+            });
+        } catch (FileNotFoundException | NoSuchFileException e) {
             System.out.println("Fichier offres non trouvé, création...");
         } catch (IOException e) {
             System.out.println("Erreur lecture offres: " + e.getMessage());
@@ -263,23 +298,14 @@ public class FileManager {
     public List<Forum> chargerCommentaires() {
         List<Forum> commentaires = new ArrayList<>();
         
-        try (BufferedReader br = new BufferedReader(new FileReader(FORUM_FILE))) {
-            String line;
-            
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split("\\|");
-                
-                if (parts.length >= 5) {
-                    Forum forum = new Forum(
-                        parts[0], // auteur
-                        parts[1], // email
-                        parts[2], // message
-                        Boolean.parseBoolean(parts[3]) // estEtudiant
-                    );
+        try {
+            lireLignes(FORUM_FILE, champs -> {
+                Forum forum = parserCommentaire(champs);
+                if (forum != null) {
                     commentaires.add(forum);
                 }
-            }
-        } catch (FileNotFoundException e) {
+            });
+        } catch (FileNotFoundException | NoSuchFileException e) {
             System.out.println("Fichier commentaires non trouvé, création...");
         } catch (IOException e) {
             System.out.println("Erreur lecture commentaires: " + e.getMessage());
@@ -292,130 +318,474 @@ public class FileManager {
     
     /**
      * Sauvegarde les entreprises dans le fichier.
+     * 
+     * @return Le nombre d'octets écrits, ou -1 en cas d'erreur
      */
-    public void sauvegarderEntreprises(List<Entreprise> entreprises) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(ENTERPRISES_FILE))) {
-            // Écrire chaque entreprise
-            for (Entreprise e : entreprises) {
-                pw.println(String.join("|",
-                    e.getNom(),
-                    e.getSecteur(),
-                    e.getAdresse(),
-                    e.getEmail(),
-                    e.getTelephone(),
-                    e.getMdp()
-                ));
-            }
-        } catch (IOException e) {
-            System.out.println("Erreur sauvegarde entreprises: " + e.getMessage());
-        }
+    public long sauvegarderEntreprises(List<Entreprise> entreprises) {
+        return ecrireAtomique(ENTERPRISES_FILE, "entreprises", entreprises, this::formaterEntreprise);
     }
 
     /**
      * Sauvegarde les candidats dans le fichier.
+     * 
+     * @return Le nombre d'octets écrits, ou -1 en cas d'erreur
      */
-    public void sauvegarderCandidats(List<Candidat> candidats) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(CANDIDATS_FILE))) {
-            // Écrire chaque candidat selon son type
-            for (Candidat c : candidats) {
-                if (c instanceof Etudiant) {
-                    Etudiant etud = (Etudiant) c;
-                    pw.println(String.join("|",
-                        String.valueOf(etud.getId()),
-                        "etudiant",
-                        etud.getNom(),
-                        etud.getPrenom(),
-                        etud.getEmail(),
-                        etud.getTelephone(),
-                        etud.getMdp(),
-                        etud.getNiveau(),
-                        etud.getFiliere(),
-                        etud.getEtablissement()
-                    ));
-                } else if (c instanceof Alumni) {
-                    Alumni alumni = (Alumni) c;
-                    pw.println(String.join("|",
-                        String.valueOf(alumni.getId()),
-                        "alumni",
-                        alumni.getNom(),
-                        alumni.getPrenom(),
-                        alumni.getEmail(),
-                        alumni.getTelephone(),
-                        alumni.getMdp(),
-                        String.valueOf(alumni.getAnneeDiplome()),
-                        alumni.getPosteActuel(),
-                        alumni.getEntrepriseActuelle()
-                    ));
-                } else {
-                    pw.println(String.join("|",
-                        String.valueOf(c.getId()),
-                        "simple",
-                        c.getNom(),
-                        c.getPrenom(),
-                        c.getEmail(),
-                        c.getTelephone(),
-                        c.getMdp()
-                    ));
+    public long sauvegarderCandidats(List<Candidat> candidats) {
+        return ecrireAtomique(CANDIDATS_FILE, "candidats", candidats, this::formaterCandidat);
+    }
+
+    /**
+     * Sauvegarde les offres dans le fichier.
+     * 
+     * @return Le nombre d'octets écrits, ou -1 en cas d'erreur
+     */
+    public long sauvegarderOffres(List<Offre> offres) {
+        return ecrireAtomique(OFFRES_FILE, "offres", offres, this::formaterOffre);
+    }
+
+    /**
+     * Sauvegarde les commentaires du forum dans le fichier.
+     * 
+     * @return Le nombre d'octets écrits, ou -1 en cas d'erreur
+     */
+    public long sauvegarderCommentaires(List<Forum> commentaires) {
+        return ecrireAtomique(FORUM_FILE, "commentaires", commentaires, this::formaterCommentaire);
+    }
+
+    /**
+     * Réécrit un fichier de données sans jamais exposer de version partielle :
+     * les lignes sont écrites dans un fichier temporaire, forcé sur disque,
+     * qui remplace ensuite l'original par un renommage atomique. Un arrêt
+     * brutal ou un disque plein laisse l'ancienne version intacte.
+     * L'écriture se fait sous le verrou du dossier (autres instances comprises).
+     *
+     * @return La taille du fichier écrit en octets, ou -1 en cas d'erreur
+     */
+    private <T> long ecrireAtomique(String fichier, String nom, List<T> elements, Function<T, String> format) {
+        return verrou.executer(() -> ecrireAtomiqueVerrouille(fichier, nom, elements, format));
+    }
+
+    private <T> long ecrireAtomiqueVerrouille(String fichier, String nom, List<T> elements,
+                                              Function<T, String> format) {
+        long debut = System.nanoTime();
+        Path cible = Paths.get(fichier);
+        Path tmp = cible.resolveSibling(cible.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream sortie = new FileOutputStream(tmp.toFile());
+                 PrintWriter pw = new PrintWriter(new BufferedWriter(
+                         new OutputStreamWriter(sortie, Charset.defaultCharset())))) {
+                for (T element : elements) {
+                    pw.println(format.apply(element));
                 }
+                pw.flush();
+                // PrintWriter ne lève pas les erreurs d'écriture (ex: disque plein)
+                if (pw.checkError()) {
+                    throw new IOException("écriture incomplète de " + tmp);
+                }
+                sortie.getFD().sync();
             }
+            Files.move(tmp, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchroniserDossier(cible);
+            mesures.noterSynchronisation();
+            mesures.noterEcriture(System.nanoTime() - debut);
+            return Files.size(cible);
         } catch (IOException e) {
-            System.out.println("Erreur sauvegarde candidats: " + e.getMessage());
+            System.out.println("Erreur sauvegarde " + nom + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignoree) {
+                // Le fichier temporaire sera remplacé à la prochaine sauvegarde
+            }
+            return -1;
         }
     }
 
     /**
-     * Sauvegarde les offres dans le fichier.
+     * Force sur disque l'entrée de dossier d'un fichier renommé, pour que le
+     * renommage survive lui aussi à une coupure. Sans effet là où un dossier
+     * ne peut pas être ouvert (Windows) : le renommage y reste atomique.
      */
-    public void sauvegarderOffres(List<Offre> offres) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(OFFRES_FILE))) {
-            // Écrire chaque offre
-            for (Offre o : offres) {
-                String type = o.getTypeOffre();
-                
-                // Ligne de base commune
-                String ligne = type + "|" +
-                    o.getTitre() + "|" +
-                    o.getDescription() + "|" +
-                    o.getEntreprise().getEmail() + "|" +
-                    o.getDatePublication().toString() + "|" +
-                    (o.getDateExpiration() != null ? o.getDateExpiration().toString() : "null");
-
-                // Ajouter attributs spécifiques selon le type
-                if (o instanceof Stage) {
-                    Stage s = (Stage) o;
-                    ligne += "|" + s.getDureeEnMois() + "|" + s.getDomaine();
-                } else if (o instanceof Alternance) {
-                    Alternance a = (Alternance) o;
-                    ligne += "|" + a.getRythme() + "|" + a.getDureeEnMois();
-                } else if (o instanceof ProjetFinEtudes) {
-                    ProjetFinEtudes p = (ProjetFinEtudes) o;
-                    ligne += "|" + p.getSujet() + "|" + p.getTechnologies();
-                }
-
-                pw.println(ligne);
-            }
+    public static void synchroniserDossier(Path fichier) {
+        Path dossier = fichier.toAbsolutePath().getParent();
+        try (FileChannel canal = FileChannel.open(dossier, StandardOpenOption.READ)) {
+            canal.force(true);
         } catch (IOException e) {
-            System.out.println("Erreur sauvegarde offres: " + e.getMessage());
+            // Non supporté par le système
         }
     }
 
     /**
-     * Sauvegarde les commentaires du forum dans le fichier.
+     * @return Les mesures de durabilité des sauvegardes de fichiers
      */
-    public void sauvegarderCommentaires(List<Forum> commentaires) {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(FORUM_FILE))) {
-            // Écrire chaque commentaire
-            for (Forum f : commentaires) {
-                pw.println(String.join("|",
-                    f.getAuteur(),
-                    f.getEmailAuteur(),
-                    f.getMessage(),
-                    String.valueOf(f.isEstEtudiant()),
-                    f.getDatePublication().toString()
-                ));
+    public MesuresDurabilite getMesures() {
+        return mesures;
+    }
+
+    // ========== CONVERSION LIGNE <-> OBJET ==========
+
+    /**
+     * Construit une entreprise à partir des champs d'une ligne.
+     * Format : nom|secteur|adresse|email|telephone|mdp
+     *
+     * @return L'entreprise, ou null si la ligne est trop courte
+     */
+    public Entreprise parserEntreprise(String[] parts) {
+        return parserEntreprise(ChampsLigne.de(parts));
+    }
+
+    public Entreprise parserEntreprise(ChampsLigne parts) {
+        if (parts.taille() < 6) {
+            return null;
+        }
+        return new Entreprise(
+            parts.texte(0), // nom
+            parts.texte(1), // secteur
+            parts.texte(2), // adresse
+            parts.texte(3), // email
+            parts.texte(4), // telephone
+            parts.texte(5)  // mdp
+        );
+    }
+
+    /**
+     * Construit un candidat à partir des champs d'une ligne.
+     * Format : id|type|nom|prenom|email|telephone|mdp, suivi pour un étudiant
+     * de niveau|filiere|etablissement et pour un alumni de
+     * anneeDiplome|posteActuel|entrepriseActuelle.
+     *
+     * @param parts Champs de la ligne
+     * @param candidats Candidats déjà chargés (unicité du CIN et de l'email),
+     *                  ou null pour le chargement en masse
+     * @return Le candidat, ou null si la ligne est trop courte
+     */
+    public Candidat parserCandidat(String[] parts, List<Candidat> candidats) {
+        return parserCandidat(ChampsLigne.de(parts), candidats);
+    }
+
+    public Candidat parserCandidat(ChampsLigne parts, List<Candidat> candidats) {
+        if (parts.taille() < 7) {
+            return null;
+        }
+        int id = parts.entier(0);
+        String nom = parts.texte(2);
+        String prenom = parts.texte(3);
+        String email = parts.texte(4);
+        String telephone = parts.texte(5);
+        String mdp = parts.texte(6);
+
+        // Créer selon le type
+        if (parts.egal(1, "etudiant") && parts.taille() >= 10) {
+            return new Etudiant(
+                id, nom, prenom, email, telephone, mdp,
+                parts.texte(7), // niveau
+                parts.texte(8), // filiere
+                parts.texte(9), // etablissement
+                candidats
+            );
+        } else if (parts.egal(1, "alumni") && parts.taille() >= 9) {
+            return new Alumni(
+                id, nom, prenom, email, telephone, mdp,
+                parts.entier(7), // anneeDiplome
+                parts.texte(8), // posteActuel
+                // Vide en fin de ligne, le champ n'est pas compté par split
+                parts.taille() >= 10 ? parts.texte(9) : "", // entrepriseActuelle
+                candidats
+            );
+        }
+        return new Candidat(id, nom, prenom, email, telephone, mdp, candidats);
+    }
+
+    /**
+     * Construit une offre à partir des champs d'une ligne.
+     * L'offre n'est pas rattachée à l'entreprise : c'est à l'appelant de le faire.
+     * Une ligne de l'ancien format (sans id) reçoit un identifiant dérivé de sa
+     * date de publication, pour rester à sa place dans l'ordre chronologique.
+     *
+     * @param parts Champs de la ligne
+     * @param entreprises Entreprises connues (résolution par email)
+     * @return L'offre, ou null si l'entreprise est inconnue ou la ligne incomplète
+     */
+    public Offre parserOffre(String[] parts, List<Entreprise> entreprises) {
+        return parserOffre(ChampsLigne.de(parts), entreprises);
+    }
+
+    public Offre parserOffre(ChampsLigne parts, List<Entreprise> entreprises) {
+        return parserOffre(parts, email -> {
+            for (Entreprise e : entreprises) {
+                if (e.getEmail().equals(email)) {
+                    return e;
+                }
             }
-        } catch (IOException e) {
-            System.out.println("Erreur sauvegarde commentaires: " + e.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Variante utilisée au chargement : l'entreprise est résolue par l'index
+     * construit avec indexerParEmail().
+     */
+    public Offre parserOffre(ChampsLigne parts, Map<String, Entreprise> entreprisesParEmail) {
+        return parserOffre(parts, entreprisesParEmail::get);
+    }
+
+    private Offre parserOffre(ChampsLigne ligne, Function<String, Entreprise> trouverEntreprise) {
+        UUID id = null;
+        ChampsLigne parts = ligne;
+        if (ligne.taille() >= 7 && estIdentifiant(ligne.texte(0))) {
+            id = UUID.fromString(ligne.texte(0));
+            parts = ligne.decaler(1);
+        }
+        if (parts.taille() < 6) {
+            return null;
+        }
+
+        String typeOffre = parts.texte(0);
+        String titre = parts.texte(1);
+        String description = parts.texte(2);
+        String emailEntreprise = parts.texte(3);
+
+        // Trouver l'entreprise correspondante
+        Entreprise entreprise = trouverEntreprise.apply(emailEntreprise);
+        if (entreprise == null) {
+            return null;
+        }
+
+        Offre offre = null;
+        switch (typeOffre.toLowerCase()) {
+            case "stage":
+                if (parts.taille() >= 8) {
+                    offre = new Stage(
+                        titre, description, entreprise,
+                        parts.entier(6), // durée
+                        parts.texte(7) // domaine
+                    );
+                }
+                break;
+
+            case "alternance":
+                if (parts.taille() >= 8) {
+                    offre = new Alternance(
+                        titre, description, entreprise,
+                        parts.texte(6), // rythme
+                        parts.entier(7) // durée
+                    );
+                }
+                break;
+
+            case "projet fin d'etudes":
+                if (parts.taille() >= 8) {
+                    offre = new ProjetFinEtudes(
+                        titre, description, entreprise,
+                        parts.texte(6), // sujet
+                        parts.texte(7)  // technologies
+                    );
+                }
+                break;
+
+            default:
+                offre = new Offre(titre, description, typeOffre, entreprise);
+                break;
+        }
+
+        if (offre == null) {
+            return null;
+        }
+
+        // Restaurer la date de publication et l'identifiant
+        offre.setDatePublication(parts.date(4));
+        if (id == null) {
+            offresSansIdentifiant.incrementAndGet();
+            id = UuidTemporel.pourInstant(offre.getDatePublication()
+                .atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        offre.setId(id);
+
+        // Définir la date d'expiration si présente
+        if (!parts.egal(5, "null")) {
+            offre.setDateExpiration(parts.date(5));
+        }
+        return offre;
+    }
+
+    /**
+     * Construit un commentaire du forum à partir des champs d'une ligne.
+     * La date de publication et l'identifiant enregistrés sont conservés ;
+     * une ligne d'avant l'identifiant en reçoit un tiré de son contenu, le
+     * même à chaque lecture.
+     *
+     * @return Le commentaire, ou null si la ligne est incomplète
+     */
+    public Forum parserCommentaire(String[] parts) {
+        return parserCommentaire(ChampsLigne.de(parts));
+    }
+
+    public Forum parserCommentaire(ChampsLigne parts) {
+        if (parts.taille() < 5) {
+            return null;
+        }
+        Forum forum;
+        try {
+            forum = new Forum(
+                parts.texte(0), // auteur
+                parts.texte(1), // email
+                parts.texte(2), // message
+                parts.booleen(3), // estEtudiant
+                LocalDateTime.parse(parts.texte(4))   // datePublication
+            );
+        } catch (DateTimeParseException e) {
+            // Date illisible : le commentaire est daté du chargement
+            return new Forum(parts.texte(0), parts.texte(1), parts.texte(2), parts.booleen(3));
+        }
+        if (parts.taille() >= 6 && estIdentifiant(parts.texte(5))) {
+            forum.setId(UUID.fromString(parts.texte(5)));
+        } else {
+            forum.setId(idCommentaireAncien(forum));
+        }
+        return forum;
+    }
+
+    /**
+     * Identifiant d'un commentaire enregistré sans identifiant, tiré de ses
+     * champs : les copies d'une même ligne (segment, journal) le partagent.
+     */
+    public static UUID idCommentaireAncien(Forum f) {
+        String contenu = String.join("|", f.getAuteur(), f.getEmailAuteur(), f.getMessage(),
+            String.valueOf(f.isEstEtudiant()), f.getDatePublication().toString());
+        return UUID.nameUUIDFromBytes(contenu.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Format : nom|secteur|adresse|email|telephone|mdp
+     */
+    public String formaterEntreprise(Entreprise e) {
+        return String.join("|",
+            e.getNom(),
+            e.getSecteur(),
+            e.getAdresse(),
+            e.getEmail(),
+            e.getTelephone(),
+            e.getMdp()
+        );
+    }
+
+    /**
+     * Format : id|type|nom|prenom|email|telephone|mdp|...infos spécifiques
+     */
+    public String formaterCandidat(Candidat c) {
+        if (c instanceof Etudiant) {
+            Etudiant etud = (Etudiant) c;
+            return String.join("|",
+                String.valueOf(etud.getId()),
+                "etudiant",
+                etud.getNom(),
+                etud.getPrenom(),
+                etud.getEmail(),
+                etud.getTelephone(),
+                etud.getMdp(),
+                etud.getNiveau(),
+                etud.getFiliere(),
+                etud.getEtablissement()
+            );
+        } else if (c instanceof Alumni) {
+            Alumni alumni = (Alumni) c;
+            return String.join("|",
+                String.valueOf(alumni.getId()),
+                "alumni",
+                alumni.getNom(),
+                alumni.getPrenom(),
+                alumni.getEmail(),
+                alumni.getTelephone(),
+                alumni.getMdp(),
+                String.valueOf(alumni.getAnneeDiplome()),
+                alumni.getPosteActuel(),
+                alumni.getEntrepriseActuelle()
+            );
+        }
+        return String.join("|",
+            String.valueOf(c.getId()),
+            "simple",
+            c.getNom(),
+            c.getPrenom(),
+            c.getEmail(),
+            c.getTelephone(),
+            c.getMdp()
+        );
+    }
+
+    /**
+     * Format : id|type|titre|description|emailEntreprise|datePublication|dateExpiration|...infos spécifiques
+     */
+    public String formaterOffre(Offre o) {
+        // Ligne de base commune
+        String ligne = o.getId() + "|" +
+            o.getTypeOffre() + "|" +
+            o.getTitre() + "|" +
+            o.getDescription() + "|" +
+            o.getEntreprise().getEmail() + "|" +
+            o.getDatePublication().toString() + "|" +
+            (o.getDateExpiration() != null ? o.getDateExpiration().toString() : "null");
+
+        // Ajouter attributs spécifiques selon le type
+        if (o instanceof Stage) {
+            Stage s = (Stage) o;
+            ligne += "|" + s.getDureeEnMois() + "|" + s.getDomaine();
+        } else if (o instanceof Alternance) {
+            Alternance a = (Alternance) o;
+            ligne += "|" + a.getRythme() + "|" + a.getDureeEnMois();
+        } else if (o instanceof ProjetFinEtudes) {
+            ProjetFinEtudes p = (ProjetFinEtudes) o;
+            ligne += "|" + p.getSujet() + "|" + p.getTechnologies();
+        }
+        return ligne;
+    }
+
+    /**
+     * Format : auteur|email|message|estEtudiant|datePublication|id
+     */
+    public String formaterCommentaire(Forum f) {
+        return String.join("|",
+            f.getAuteur(),
+            f.getEmailAuteur(),
+            f.getMessage(),
+            String.valueOf(f.isEstEtudiant()),
+            f.getDatePublication().toString(),
+            f.getId().toString()
+        );
+    }
+
+    /**
+     * Clé stable d'une offre, utilisée pour la référencer dans le journal
+     * et le stockage des relations : son identifiant, persisté avec l'offre.
+     */
+    public static String cleOffre(Offre o) {
+        return o.getId().toString();
+    }
+
+    /**
+     * Clé utilisée avant la persistance des identifiants (email de l'entreprise
+     * et titre), pour relire les anciens journaux et fichiers de relations.
+     */
+    public static String cleOffreAncienne(Offre o) {
+        return o.getEntreprise().getEmail() + "|" + o.getTitre();
+    }
+
+    /**
+     * @return true si le champ a la forme d'un UUID (premier champ d'une ligne d'offre)
+     */
+    public static boolean estIdentifiant(String champ) {
+        return champ.length() == 36 && champ.charAt(8) == '-' && champ.charAt(13) == '-'
+            && champ.charAt(18) == '-' && champ.charAt(23) == '-';
+    }
+
+    /**
+     * Index des entreprises par email. En cas de doublon, la première
+     * entreprise est conservée, comme avec un parcours de la liste.
+     */
+    public static Map<String, Entreprise> indexerParEmail(List<Entreprise> entreprises) {
+        Map<String, Entreprise> index = new HashMap<>(entreprises.size() * 2);
+        for (Entreprise e : entreprises) {
+            index.putIfAbsent(e.getEmail(), e);
         }
+        return index;
     }
 }
\ No newline at end of file
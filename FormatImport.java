@@ -0,0 +1,251 @@
+package service;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Formats acceptés par l'import en masse (ImportDonnees), une ligne par enregistrement.
+ *
+ *   TEXTE : format des fichiers de données, champs séparés par '|'
+ *   CSV   : mêmes colonnes dans le même ordre, séparées par ',' ; un champ
+ *           peut être entouré de guillemets ("" pour un guillemet)
+ *   JSON  : un objet par ligne (JSON Lines), champs nommés
+ *
+ * Chaque ligne est convertie en champs positionnels, comme ceux du format
+ * texte, pour être construite par les mêmes méthodes de FileManager.
+ * Les champs vides en fin de ligne sont ignorés, comme avec split("\\|").
+ */
+public enum FormatImport {
+    TEXTE, CSV, JSON;
+
+    /**
+     * Format d'après l'extension du fichier (.csv, .json, .jsonl, .ndjson),
+     * texte par défaut (y compris pour l'entrée standard).
+     */
+    public static FormatImport depuisNom(String fichier) {
+        String nom = fichier.toLowerCase();
+        if (nom.endsWith(".csv")) {
+            return CSV;
+        }
+        if (nom.endsWith(".json") || nom.endsWith(".jsonl") || nom.endsWith(".ndjson")) {
+            return JSON;
+        }
+        return TEXTE;
+    }
+
+    /**
+     * Découpe une ligne en champs positionnels.
+     *
+     * @param ligne Ligne lue (non vide)
+     * @param colonnes Ordre des champs d'un objet JSON (ignoré pour les autres formats)
+     * @throws IllegalArgumentException si la ligne est mal formée
+     */
+    public String[] decouper(String ligne, Function<Map<String, String>, String[]> colonnes) {
+        switch (this) {
+            case CSV:
+                return sansChampsVidesFinaux(decouperCsv(ligne));
+            case JSON:
+                return sansChampsVidesFinaux(colonnes.apply(lireObjetJson(ligne)));
+            default:
+                return ligne.split("\\|");
+        }
+    }
+
+    /**
+     * Retire les champs vides finaux. Un champ ne peut pas contenir '|' ni de
+     * fin de ligne : il ne pourrait pas être réécrit dans les fichiers de données.
+     */
+    private static String[] sansChampsVidesFinaux(List<String> champs) {
+        int n = champs.size();
+        while (n > 0 && champs.get(n - 1).isEmpty()) {
+            n--;
+        }
+        for (int i = 0; i < n; i++) {
+            String champ = champs.get(i);
+            if (champ.indexOf('|') >= 0 || champ.indexOf('\n') >= 0 || champ.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException("Caractère interdit ('|' ou fin de ligne) dans le champ " + (i + 1));
+            }
+        }
+        return champs.subList(0, n).toArray(new String[0]);
+    }
+
+    private static String[] sansChampsVidesFinaux(String[] champs) {
+        return sansChampsVidesFinaux(Arrays.asList(champs));
+    }
+
+    // ========== CSV ==========
+
+    static List<String> decouperCsv(String ligne) {
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        int i = 0;
+        int n = ligne.length();
+        while (true) {
+            if (i < n && ligne.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= n) {
+                        throw new IllegalArgumentException("Guillemet non fermé");
+                    }
+                    char c = ligne.charAt(i++);
+                    if (c == '"') {
+                        if (i < n && ligne.charAt(i) == '"') {
+                            champ.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        champ.append(c);
+                    }
+                }
+                if (i < n && ligne.charAt(i) != ',') {
+                    throw new IllegalArgumentException("Caractère inattendu après un guillemet (colonne " + (i + 1) + ")");
+                }
+            } else {
+                while (i < n && ligne.charAt(i) != ',') {
+                    champ.append(ligne.charAt(i++));
+                }
+            }
+            champs.add(champ.toString());
+            champ.setLength(0);
+            if (i >= n) {
+                return champs;
+            }
+            i++; // ','
+        }
+    }
+
+    // ========== JSON ==========
+
+    /**
+     * Lit un objet JSON plat : les valeurs sont des chaînes, des nombres,
+     * des booléens ou null (rendu comme champ absent).
+     */
+    static Map<String, String> lireObjetJson(String ligne) {
+        LecteurJson lecteur = new LecteurJson(ligne);
+        Map<String, String> objet = new HashMap<>();
+        lecteur.attendre('{');
+        if (!lecteur.suivant('}')) {
+            do {
+                String cle = lecteur.chaine();
+                lecteur.attendre(':');
+                String valeur = lecteur.valeur();
+                if (valeur != null) {
+                    objet.put(cle, valeur);
+                }
+            } while (lecteur.suivant(','));
+            lecteur.attendre('}');
+        }
+        lecteur.fin();
+        return objet;
+    }
+
+    private static class LecteurJson {
+        private final String texte;
+        private int pos;
+
+        LecteurJson(String texte) {
+            this.texte = texte;
+        }
+
+        private void espaces() {
+            while (pos < texte.length() && Character.isWhitespace(texte.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException erreur(String attendu) {
+            return new IllegalArgumentException("JSON invalide: " + attendu + " attendu (colonne " + (pos + 1) + ")");
+        }
+
+        void attendre(char c) {
+            if (!suivant(c)) {
+                throw erreur("'" + c + "'");
+            }
+        }
+
+        boolean suivant(char c) {
+            espaces();
+            if (pos < texte.length() && texte.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void fin() {
+            espaces();
+            if (pos < texte.length()) {
+                throw erreur("fin de ligne");
+            }
+        }
+
+        String valeur() {
+            espaces();
+            if (pos >= texte.length()) {
+                throw erreur("valeur");
+            }
+            char c = texte.charAt(pos);
+            if (c == '"') {
+                return chaine();
+            }
+            int debut = pos;
+            while (pos < texte.length() && "-+.0123456789eEtrufalsn".indexOf(texte.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String brut = texte.substring(debut, pos);
+            if (brut.equals("null")) {
+                return null;
+            }
+            if (brut.isEmpty() || (!brut.equals("true") && !brut.equals("false")
+                    && !brut.matches("-?\\d+(\\.\\d+)?([eE][-+]?\\d+)?"))) {
+                pos = debut;
+                throw erreur("valeur");
+            }
+            return brut;
+        }
+
+        String chaine() {
+            attendre('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= texte.length()) {
+                    throw erreur("'\"'");
+                }
+                char c = texte.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= texte.length()) {
+                    throw erreur("échappement");
+                }
+                char e = texte.charAt(pos++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > texte.length()) {
+                            throw erreur("échappement \\u");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(texte.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw erreur("échappement \\u");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(e); // '"', '\\', '/'
+                }
+            }
+        }
+    }
+}
@@ -75,6 +75,22 @@ public class Forum {
         this.estEtudiant = estEtudiant;
     }
 
+    /**
+     * Construit un message de forum avec une date de publication connue.
+     * Utilisé lors du rechargement des messages déjà enregistrés.
+     * 
+     * @param auteur Nom complet de l'auteur du message
+     * @param emailAuteur Email de l'auteur
+     * @param message Contenu du message
+     * @param estEtudiant true si l'auteur est un étudiant/alumni, false si c'est une entreprise
+     * @param datePublication Date et heure de publication d'origine
+     */
+    public Forum(String auteur, String emailAuteur, String message, boolean estEtudiant,
+                 LocalDateTime datePublication) {
+        this(auteur, emailAuteur, message, estEtudiant);
+        this.datePublication = datePublication;
+    }
+
     // ----------------------------- Getters -----------------------------
     
     /**
@@ -85,6 +101,15 @@ public class Forum {
     public UUID getId() { 
         return id; 
     }
+
+    /**
+     * Définit l'identifiant du message (rechargement d'un message enregistré).
+     * 
+     * @param id L'UUID enregistré avec le message
+     */
+    public void setId(UUID id) {
+        this.id = id;
+    }
     
     /**
      * Retourne le nom de l'auteur du message.
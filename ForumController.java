@@ -1,12 +1,15 @@
 package controllers;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 import javafx.stage.Screen;
+import javafx.geometry.Orientation;
 import javafx.geometry.Rectangle2D;
 import models.*;
 import service.*;
@@ -28,6 +31,9 @@ public class ForumController {
     // Longueurs min/max pour les messages
     private static final int MIN_MESSAGE_LENGTH = 5;
     private static final int MAX_MESSAGE_LENGTH = 500;
+    
+    // Nombre minimal de messages affichés à l'ouverture (remplit la liste)
+    private static final int MIN_MESSAGES_AFFICHES = 20;
 
     /* ===================== COMPOSANTS FXML ===================== */
 
@@ -48,10 +54,46 @@ public class ForumController {
         forumService = DataManager.getInstance().getForumService();
         authService = DataManager.getInstance().getAuthService();
 
+        // Les messages anciens ne sont chargés qu'à la demande
+        while (forumService.getAllCommentaires().size() < MIN_MESSAGES_AFFICHES
+                && forumService.aCommentairesAnterieurs()) {
+            forumService.chargerCommentairesAnterieurs();
+        }
         loadMessages();
         
         // ✅ AJOUT : Listeners pour validation en temps réel
         setupValidationListeners();
+        
+        // La barre de défilement n'existe qu'une fois la liste affichée
+        Platform.runLater(this::setupScrollListener);
+    }
+    
+    /**
+     * Charge les messages plus anciens quand on défile jusqu'en bas de la liste
+     * (les messages sont affichés du plus récent au plus ancien).
+     */
+    private void setupScrollListener() {
+        for (Node n : listMessages.lookupAll(".scroll-bar")) {
+            if (n instanceof ScrollBar && ((ScrollBar) n).getOrientation() == Orientation.VERTICAL) {
+                ScrollBar barre = (ScrollBar) n;
+                barre.valueProperty().addListener((obs, old, newVal) -> {
+                    if (newVal.doubleValue() >= barre.getMax() && forumService.aCommentairesAnterieurs()) {
+                        loadOlderMessages();
+                    }
+                });
+            }
+        }
+    }
+    
+    /**
+     * Ajoute le segment de messages précédent et garde la position de lecture.
+     */
+    private void loadOlderMessages() {
+        int affiches = listMessages.getItems().size();
+        if (forumService.chargerCommentairesAnterieurs() > 0) {
+            loadMessages();
+            listMessages.scrollTo(Math.max(0, affiches - 1));
+        }
     }
     
     /**
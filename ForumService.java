@@ -7,9 +7,20 @@ import models.*;
  * Permet aux étudiants et entreprises d'échanger des messages.*/
 public class ForumService {
     private List<Forum> commentaires;
+    private EnregistreurMutations mutations;
+    private DepotCommentaires depot;
 
     public ForumService(List<Forum> commentaires) {
+        this(commentaires, new EnregistreurMutations(), null);
+    }
+
+    /* Le dépôt fournit à la demande les commentaires plus anciens
+     * que ceux chargés au démarrage.*/
+    public ForumService(List<Forum> commentaires, EnregistreurMutations mutations,
+                        DepotCommentaires depot) {
         this.commentaires = commentaires;
+        this.mutations = mutations;
+        this.depot = depot;
     }
 
     /* Ajoute un nouveau commentaire au forum.
@@ -24,6 +35,9 @@ public class ForumService {
         
         // Créer et ajouter le commentaire
         Forum nouveau = new Forum(auteur, email, message, estEtudiant);
+        if (!mutations.commentairePublie(nouveau)) {
+            return false;
+        }
         commentaires.add(nouveau);
         return true;
     }
@@ -36,10 +50,36 @@ public class ForumService {
         return commentaires;
     }
 
+    /* Charge les commentaires précédant les plus anciens chargés
+     * (l'utilisateur remonte dans le forum).
+     * Retourne le nombre de commentaires ajoutés, 0 s'il n'y en a plus.*/
+    public int chargerCommentairesAnterieurs() {
+        if (depot == null) {
+            return 0;
+        }
+        // Déjà enregistrés : pas de marquage pour la sauvegarde
+        List<Forum> anciens = depot.chargerCommentairesAnterieurs();
+        commentaires.addAll(anciens);
+        return anciens.size();
+    }
+
+    /* Indique s'il reste des commentaires plus anciens à charger.*/
+    public boolean aCommentairesAnterieurs() {
+        return depot != null && depot.aCommentairesAnterieurs();
+    }
+
+    /* Charge tout l'historique (recherche et statistiques portent sur tout le forum).*/
+    private void chargerTout() {
+        while (aCommentairesAnterieurs()) {
+            chargerCommentairesAnterieurs();
+        }
+    }
+
     /* Recherche des commentaires selon différents critères.
      * Critères supportés : auteur, message, etudiant, entreprise.*/
     public List<Forum> rechercherCommentaires(String critere, String valeur) {
         List<Forum> resultats = new ArrayList<>();
+        chargerTout();
         
         // Parcourir tous les commentaires
         for (Forum f : commentaires) {
@@ -104,6 +144,7 @@ public class ForumService {
      */
     public Map<String, Integer> getStatistiquesForum() {
         Map<String, Integer> stats = new HashMap<>();
+        chargerTout();
         
         int total = commentaires.size();
         int etudiants = 0;
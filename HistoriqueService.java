@@ -0,0 +1,74 @@
+package service;
+
+import java.util.*;
+import models.*;
+
+/* Service d'historique : consultation des offres archivées.
+ * 
+ * Les offres expirées depuis plus que le délai de grâce sont déplacées dans
+ * les archives (voir OffreService.archiverOffresExpirees). Elles sont relues
+ * à la demande depuis les fichiers compressés et ne reviennent jamais dans
+ * la liste des offres actives.*/
+public class HistoriqueService {
+
+    private ArchiveOffres archive;
+    private List<Entreprise> entreprises;
+    private List<Candidat> candidats;
+
+    public HistoriqueService(ArchiveOffres archive, List<Entreprise> entreprises, List<Candidat> candidats) {
+        this.archive = archive;
+        this.entreprises = entreprises;
+        this.candidats = candidats;
+    }
+
+    /* Retourne les années d'expiration présentes dans les archives.*/
+    public List<Integer> getAnneesArchivees() {
+        return archive.getAnnees();
+    }
+
+    /* Retourne les offres archivées ayant expiré une année donnée.*/
+    public List<Offre> getOffresArchivees(int annee) {
+        return archive.lire(annee, FileManager.indexerParEmail(entreprises), indexerCandidats());
+    }
+
+    /* Retourne toutes les offres archivées, de la plus ancienne à la plus récente expiration.*/
+    public List<Offre> getOffresArchivees() {
+        Map<String, Entreprise> parEmail = FileManager.indexerParEmail(entreprises);
+        Map<Integer, Candidat> parCin = indexerCandidats();
+        List<Offre> resultats = new ArrayList<>();
+        for (int annee : archive.getAnnees()) {
+            resultats.addAll(archive.lire(annee, parEmail, parCin));
+        }
+        return resultats;
+    }
+
+    /* Retourne les offres archivées d'une entreprise.*/
+    public List<Offre> getOffresArchiveesEntreprise(Entreprise entreprise) {
+        List<Offre> resultats = new ArrayList<>();
+        for (Offre offre : getOffresArchivees()) {
+            if (offre.getEntreprise().equals(entreprise)) {
+                resultats.add(offre);
+            }
+        }
+        return resultats;
+    }
+
+    /* Retourne les offres archivées auxquelles un candidat avait postulé.*/
+    public List<Offre> getCandidaturesArchivees(Candidat candidat) {
+        List<Offre> resultats = new ArrayList<>();
+        for (Offre offre : getOffresArchivees()) {
+            if (offre.getCandidatures().contains(candidat)) {
+                resultats.add(offre);
+            }
+        }
+        return resultats;
+    }
+
+    private Map<Integer, Candidat> indexerCandidats() {
+        Map<Integer, Candidat> parCin = new HashMap<>();
+        for (Candidat c : candidats) {
+            parCin.put(c.getId(), c);
+        }
+        return parCin;
+    }
+}
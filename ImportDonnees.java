@@ -0,0 +1,286 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import models.*;
+
+/**
+ * Import en masse d'offres et de candidats, pour les traitements par lots.
+ *
+ * Les lignes (voir FormatImport) sont lues par lots : le fichier importé n'est
+ * jamais chargé en entier. Les lignes d'un lot sont découpées et construites
+ * en parallèle sur tous les cœurs pendant la lecture du lot suivant, puis
+ * appliquées dans l'ordre du fichier, sur le thread appelant : l'unicité et
+ * les ajouts aux collections restent séquentiels.
+ *
+ * Elles ne sont pas journalisées une à une ; les collections sont marquées
+ * modifiées, l'appelant est prévenu après chaque lot appliqué (point de
+ * reprise) et réécrit les collections en une fois à la fin (DataManager.compacter()).
+ *
+ * Une ligne invalide, d'une entreprise inconnue ou en doublon est ignorée et
+ * consignée dans le rapport, comme au chargement des fichiers de données.
+ */
+public class ImportDonnees {
+
+    /** Nombre de lignes validées ensemble, configurable */
+    private static final int TAILLE_LOT = Integer.getInteger("hecrecruit.import.lot", 10000);
+
+    /** Nombre de lignes entre deux messages de progression */
+    private static final int INTERVALLE_PROGRESSION = 100000;
+
+    private final FileManager fileManager;
+    private final List<Entreprise> entreprises;
+    private final List<Candidat> candidats;
+    private final OffreService offreService;
+    private final CandidatService candidatService;
+
+    public ImportDonnees(FileManager fileManager, List<Entreprise> entreprises, List<Candidat> candidats,
+                         OffreService offreService, CandidatService candidatService) {
+        this.fileManager = fileManager;
+        this.entreprises = entreprises;
+        this.candidats = candidats;
+        this.offreService = offreService;
+        this.candidatService = candidatService;
+    }
+
+    /**
+     * Importe des offres, avec ou sans identifiant. L'entreprise est résolue
+     * par un index des emails construit une fois pour tout l'import.
+     * Une offre dont l'identifiant existe déjà est rejetée : un import
+     * interrompu peut être relancé sur le même fichier.
+     *
+     * @param lecteur Lignes à importer
+     * @param format Format des lignes
+     * @param source Nom de la source dans le rapport
+     * @param rapport Rapport complété avec les lignes acceptées et rejetées, et la durée
+     * @param apresLot Appelé après chaque lot appliqué
+     * @return Le nombre d'offres importées
+     */
+    public int importerOffres(BufferedReader lecteur, FormatImport format, String source,
+                              RapportChargement rapport, Runnable apresLot) throws IOException {
+        Map<String, Entreprise> parEmail = FileManager.indexerParEmail(entreprises);
+        return importer(lecteur, "offres", source, rapport, apresLot,
+            ligne -> {
+                Offre offre = fileManager.parserOffre(
+                    ChampsLigne.de(format.decouper(ligne, ImportDonnees::colonnesOffre)), parEmail);
+                if (offre == null) {
+                    throw new IllegalArgumentException("Entreprise inconnue ou ligne incomplète");
+                }
+                return offre;
+            },
+            offre -> offreService.importerOffre(offre) ? null
+                : "Offre déjà présente ou non enregistrée: " + offre.getId());
+    }
+
+    /**
+     * Importe des candidats. L'unicité du CIN et de l'email (normalisé) est
+     * vérifiée avec des ensembles de hachage, contre les candidats existants
+     * et les lignes déjà importées.
+     *
+     * @return Le nombre de candidats importés
+     */
+    public int importerCandidats(BufferedReader lecteur, FormatImport format, String source,
+                                 RapportChargement rapport, Runnable apresLot) throws IOException {
+        Set<Integer> cins = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (Candidat c : candidats) {
+            cins.add(c.getId());
+            emails.add(Candidat.normaliserEmail(c.getEmail()));
+        }
+        return importer(lecteur, "candidats", source, rapport, apresLot,
+            ligne -> {
+                // Liste nulle : l'unicité est contrôlée à l'application, par les ensembles
+                Candidat c = fileManager.parserCandidat(
+                    ChampsLigne.de(format.decouper(ligne, ImportDonnees::colonnesCandidat)), null);
+                if (c == null) {
+                    throw new IllegalArgumentException("Ligne incomplète");
+                }
+                return c;
+            },
+            c -> {
+                String email = Candidat.normaliserEmail(c.getEmail());
+                if (cins.contains(c.getId())) {
+                    return "Ce CIN est déjà utilisé par un autre candidat";
+                }
+                if (emails.contains(email)) {
+                    return "Un candidat avec cet email existe déjà";
+                }
+                if (!candidatService.importerCandidat(c)) {
+                    return "Candidat non enregistré (écriture impossible)";
+                }
+                cins.add(c.getId());
+                emails.add(email);
+                return null;
+            });
+    }
+
+    /**
+     * Ligne validée : l'élément construit, ou le motif de son rejet.
+     */
+    private static class Validation<T> {
+        final T valeur;
+        final String motif;
+
+        Validation(T valeur, String motif) {
+            this.valeur = valeur;
+            this.motif = motif;
+        }
+    }
+
+    /**
+     * @param valider Construit l'élément d'une ligne (exécuté en parallèle),
+     *                ou lève IllegalArgumentException avec le motif du rejet
+     * @param appliquer Ajoute l'élément (exécuté dans l'ordre du fichier) ;
+     *                  retourne null si l'élément est accepté, le motif du rejet sinon
+     */
+    private <T> int importer(BufferedReader lecteur, String quoi, String source, RapportChargement rapport,
+                             Runnable apresLot, Function<String, T> valider,
+                             Function<T, String> appliquer) throws IOException {
+        long debut = System.currentTimeMillis();
+        int numero = 0;
+        int importes = 0;
+        List<String> lot = lireLot(lecteur);
+        while (!lot.isEmpty()) {
+            List<String> courant = lot;
+            CompletableFuture<List<Validation<T>>> validation = CompletableFuture.supplyAsync(
+                () -> courant.parallelStream()
+                    .map(ligne -> ligne.isEmpty() ? null : valider(valider, ligne))
+                    .collect(Collectors.toList()));
+            // Le lot suivant est lu pendant la validation du lot courant
+            lot = lireLot(lecteur);
+
+            List<Validation<T>> resultats = attendre(validation);
+            for (int i = 0; i < resultats.size(); i++) {
+                Validation<T> v = resultats.get(i);
+                if (v == null) {
+                    continue;
+                }
+                String motif = v.motif != null ? v.motif : appliquer.apply(v.valeur);
+                if (motif != null) {
+                    rapport.rejeter(source, numero + i + 1, motif);
+                } else {
+                    rapport.accepter();
+                    importes++;
+                }
+            }
+            int precedent = numero;
+            numero += resultats.size();
+            apresLot.run();
+            if (numero / INTERVALLE_PROGRESSION > precedent / INTERVALLE_PROGRESSION) {
+                long ecoule = Math.max(1, System.currentTimeMillis() - debut);
+                System.out.println("🔄 Import " + quoi + ": " + numero + " ligne(s) lue(s), "
+                    + (numero * 1000L / ecoule) + " ligne(s)/s");
+            }
+        }
+        rapport.setDuree(System.currentTimeMillis() - debut);
+        return importes;
+    }
+
+    private static <T> Validation<T> valider(Function<String, T> valider, String ligne) {
+        try {
+            return new Validation<>(valider.apply(ligne), null);
+        } catch (IllegalArgumentException e) {
+            return new Validation<>(null, e.getMessage());
+        } catch (RuntimeException e) {
+            return new Validation<>(null, "Ligne invalide: " + e.getMessage());
+        }
+    }
+
+    private static List<String> lireLot(BufferedReader lecteur) throws IOException {
+        List<String> lot = new ArrayList<>(TAILLE_LOT);
+        String ligne;
+        while (lot.size() < TAILLE_LOT && (ligne = lecteur.readLine()) != null) {
+            lot.add(ligne);
+        }
+        return lot;
+    }
+
+    /**
+     * Attend la validation d'un lot et relance telle quelle l'erreur d'origine.
+     */
+    private static <T> T attendre(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // ========== COLONNES DES OBJETS JSON ==========
+
+    /**
+     * Champs d'une offre dans l'ordre de offres.txt :
+     * id (facultatif), type, titre, description, emailEntreprise,
+     * datePublication (aujourd'hui si absente), dateExpiration (facultative),
+     * puis duree|domaine (stage), rythme|duree (alternance) ou
+     * sujet|technologies (projet fin d'etudes).
+     */
+    static String[] colonnesOffre(Map<String, String> objet) {
+        List<String> champs = new ArrayList<>();
+        if (objet.containsKey("id")) {
+            champs.add(objet.get("id"));
+        }
+        String type = objet.getOrDefault("type", "");
+        champs.add(type);
+        champs.add(objet.getOrDefault("titre", ""));
+        champs.add(objet.getOrDefault("description", ""));
+        champs.add(objet.getOrDefault("emailEntreprise", ""));
+        champs.add(objet.getOrDefault("datePublication", LocalDate.now().toString()));
+        champs.add(objet.getOrDefault("dateExpiration", "null"));
+        switch (type.toLowerCase()) {
+            case "stage":
+                champs.add(objet.getOrDefault("duree", ""));
+                champs.add(objet.getOrDefault("domaine", ""));
+                break;
+            case "alternance":
+                champs.add(objet.getOrDefault("rythme", ""));
+                champs.add(objet.getOrDefault("duree", ""));
+                break;
+            case "projet fin d'etudes":
+                champs.add(objet.getOrDefault("sujet", ""));
+                champs.add(objet.getOrDefault("technologies", ""));
+                break;
+        }
+        return champs.toArray(new String[0]);
+    }
+
+    /**
+     * Champs d'un candidat dans l'ordre de candidats.txt :
+     * id (CIN), type, nom, prenom, email, telephone, mdp, puis
+     * niveau|filiere|etablissement (etudiant) ou
+     * anneeDiplome|posteActuel|entrepriseActuelle (alumni).
+     */
+    static String[] colonnesCandidat(Map<String, String> objet) {
+        List<String> champs = new ArrayList<>();
+        String type = objet.getOrDefault("type", "simple");
+        champs.add(objet.getOrDefault("id", ""));
+        champs.add(type);
+        champs.add(objet.getOrDefault("nom", ""));
+        champs.add(objet.getOrDefault("prenom", ""));
+        champs.add(objet.getOrDefault("email", ""));
+        champs.add(objet.getOrDefault("telephone", ""));
+        champs.add(objet.getOrDefault("mdp", ""));
+        if (type.equals("etudiant")) {
+            champs.add(objet.getOrDefault("niveau", ""));
+            champs.add(objet.getOrDefault("filiere", ""));
+            champs.add(objet.getOrDefault("etablissement", ""));
+        } else if (type.equals("alumni")) {
+            champs.add(objet.getOrDefault("anneeDiplome", ""));
+            champs.add(objet.getOrDefault("posteActuel", ""));
+            champs.add(objet.getOrDefault("entrepriseActuelle", ""));
+        }
+        return champs.toArray(new String[0]);
+    }
+}
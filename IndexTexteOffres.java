@@ -0,0 +1,268 @@
+package service;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import models.*;
+
+/**
+ * Index inversé des offres pour la recherche plein texte.
+ *
+ * Chaque terme (mot analysé par AnalyseurTexte : sans casse ni accents,
+ * racinisé, remplacé par son synonyme de référence) mène à la liste triée des
+ * numéros des offres qui le contiennent dans leur titre, leur description,
+ * leur type, le nom de leur entreprise, le domaine d'un stage, ou le sujet
+ * et les technologies d'un projet de fin d'études. Les textes ne sont
+ * découpés qu'à l'ajout d'une offre : une requête ne parcourt pas les offres.
+ *
+ * Les numéros sont attribués dans l'ordre d'ajout, si bien qu'une offre
+ * ajoutée prolonge ses listes sans tri. Une offre retirée est enlevée des
+ * listes de ses termes (conservés avec elle) et son numéro n'est pas
+ * réutilisé ; l'index est renuméroté quand plus de la moitié des numéros sont libres.
+ *
+ * Requête : des termes tous requis (ET), "OU", "OR" ou "|" séparant des
+ * alternatives. Un terme désigne les mots qui commencent par lui (recherche
+ * pendant la saisie) : l'union de leurs listes est intersectée avec celles
+ * des autres termes, de la plus courte à la plus longue.
+ *
+ * Comme les listes du service, l'index n'est pas synchronisé : il est utilisé
+ * sur le thread qui modifie les offres.
+ */
+public class IndexTexteOffres {
+
+    private static final Pattern ALTERNATIVES = Pattern.compile("\\s+(?:OU|OR)\\s+|\\|");
+
+    /** Liste triée de numéros d'offres */
+    private static class Liste {
+        int[] numeros = new int[4];
+        int taille;
+
+        void ajouter(int numero) {
+            if (taille == numeros.length) {
+                numeros = Arrays.copyOf(numeros, taille * 2);
+            }
+            numeros[taille++] = numero;
+        }
+
+        void retirer(int numero) {
+            int i = Arrays.binarySearch(numeros, 0, taille, numero);
+            if (i >= 0) {
+                System.arraycopy(numeros, i + 1, numeros, i, taille - i - 1);
+                taille--;
+            }
+        }
+    }
+
+    private final AnalyseurTexte analyseur = AnalyseurTexte.getInstance();
+    private final TreeMap<String, Liste> termes = new TreeMap<>();
+
+    /** Offre et termes de chaque numéro (null une fois l'offre retirée) */
+    private final List<Offre> offres = new ArrayList<>();
+    private final List<String[]> termesOffres = new ArrayList<>();
+    private final Map<UUID, Integer> numeros = new HashMap<>();
+    private int libres;
+
+    public IndexTexteOffres(Collection<Offre> offres) {
+        reconstruire(offres);
+    }
+
+    /**
+     * Reconstruit l'index (offres modifiées hors du service, rechargement).
+     */
+    public void reconstruire(Collection<Offre> offres) {
+        termes.clear();
+        this.offres.clear();
+        termesOffres.clear();
+        numeros.clear();
+        libres = 0;
+        for (Offre o : offres) {
+            ajouter(o);
+        }
+    }
+
+    public void ajouter(Offre offre) {
+        if (numeros.containsKey(offre.getId())) {
+            retirer(offre);
+        }
+        int numero = offres.size();
+        Set<String> mots = new LinkedHashSet<>();
+        mots.addAll(analyser(offre.getTitre()));
+        mots.addAll(analyser(offre.getDescription()));
+        mots.addAll(analyser(offre.getTypeOffre()));
+        mots.addAll(analyser(offre.getEntreprise().getNom()));
+        if (offre instanceof Stage) {
+            mots.addAll(analyser(((Stage) offre).getDomaine()));
+        } else if (offre instanceof ProjetFinEtudes) {
+            ProjetFinEtudes p = (ProjetFinEtudes) offre;
+            mots.addAll(analyser(p.getSujet()));
+            mots.addAll(analyser(p.getTechnologies()));
+        }
+        String[] conserves = new String[mots.size()];
+        int i = 0;
+        for (String mot : mots) {
+            Liste liste = termes.get(mot);
+            if (liste == null) {
+                liste = new Liste();
+                termes.put(mot, liste);
+            } else {
+                // Une seule chaîne par terme, partagée par les offres qui le contiennent
+                mot = termes.ceilingKey(mot);
+            }
+            liste.ajouter(numero);
+            conserves[i++] = mot;
+        }
+        offres.add(offre);
+        termesOffres.add(conserves);
+        numeros.put(offre.getId(), numero);
+    }
+
+    public void retirer(Offre offre) {
+        Integer numero = numeros.remove(offre.getId());
+        if (numero == null) {
+            return;
+        }
+        for (String mot : termesOffres.get(numero)) {
+            Liste liste = termes.get(mot);
+            liste.retirer(numero);
+            if (liste.taille == 0) {
+                termes.remove(mot);
+            }
+        }
+        offres.set(numero, null);
+        termesOffres.set(numero, null);
+        libres++;
+        if (libres > 64 && libres * 2 > offres.size()) {
+            List<Offre> vivantes = new ArrayList<>(numeros.size());
+            for (Offre o : offres) {
+                if (o != null) {
+                    vivantes.add(o);
+                }
+            }
+            reconstruire(vivantes);
+        }
+    }
+
+    /**
+     * @return Les offres correspondant à la requête, dans l'ordre d'ajout
+     */
+    public List<Offre> rechercher(String requete) {
+        int[] resultat = null;
+        int tailleResultat = 0;
+        for (String alternative : ALTERNATIVES.split(requete)) {
+            List<String> mots = analyser(alternative);
+            if (mots.isEmpty()) {
+                continue;
+            }
+            int[] trouves = intersection(mots);
+            if (resultat == null) {
+                resultat = trouves;
+                tailleResultat = trouves.length;
+            } else {
+                resultat = union(resultat, tailleResultat, trouves);
+                tailleResultat = resultat.length;
+            }
+        }
+        List<Offre> trouvees = new ArrayList<>();
+        if (resultat != null) {
+            for (int i = 0; i < tailleResultat; i++) {
+                trouvees.add(offres.get(resultat[i]));
+            }
+        }
+        return trouvees;
+    }
+
+    /**
+     * @return Le nombre de termes distincts indexés
+     */
+    public int getNombreTermes() {
+        return termes.size();
+    }
+
+    // ========== LISTES ==========
+
+    /**
+     * Numéros des offres contenant un mot commençant par chacun des termes.
+     */
+    private int[] intersection(List<String> mots) {
+        List<int[]> listes = new ArrayList<>(mots.size());
+        for (String mot : new LinkedHashSet<>(mots)) {
+            int[] liste = prefixe(mot);
+            if (liste.length == 0) {
+                return liste;
+            }
+            listes.add(liste);
+        }
+        listes.sort(Comparator.comparingInt(l -> l.length));
+        int[] resultat = listes.get(0);
+        int taille = resultat.length;
+        for (int k = 1; k < listes.size() && taille > 0; k++) {
+            int[] autre = listes.get(k);
+            int[] communs = new int[taille];
+            int n = 0;
+            if (autre.length > taille * 8) {
+                // Liste beaucoup plus longue : recherche dichotomique de chaque numéro
+                for (int i = 0; i < taille; i++) {
+                    if (Arrays.binarySearch(autre, resultat[i]) >= 0) {
+                        communs[n++] = resultat[i];
+                    }
+                }
+            } else {
+                int i = 0;
+                int j = 0;
+                while (i < taille && j < autre.length) {
+                    if (resultat[i] < autre[j]) {
+                        i++;
+                    } else if (resultat[i] > autre[j]) {
+                        j++;
+                    } else {
+                        communs[n++] = resultat[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            resultat = communs;
+            taille = n;
+        }
+        return Arrays.copyOf(resultat, taille);
+    }
+
+    /**
+     * Union triée des listes des mots qui commencent par le terme.
+     */
+    private int[] prefixe(String debut) {
+        SortedMap<String, Liste> correspondants = termes.subMap(debut, debut + Character.MAX_VALUE);
+        if (correspondants.size() == 1) {
+            Liste seule = correspondants.values().iterator().next();
+            return Arrays.copyOf(seule.numeros, seule.taille);
+        }
+        BitSet numerosTrouves = new BitSet(offres.size());
+        for (Liste liste : correspondants.values()) {
+            for (int i = 0; i < liste.taille; i++) {
+                numerosTrouves.set(liste.numeros[i]);
+            }
+        }
+        return numerosTrouves.stream().toArray();
+    }
+
+    private static int[] union(int[] a, int tailleA, int[] b) {
+        int[] resultat = new int[tailleA + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < tailleA || j < b.length) {
+            if (j >= b.length || (i < tailleA && a[i] < b[j])) {
+                resultat[n++] = a[i++];
+            } else if (i >= tailleA || b[j] < a[i]) {
+                resultat[n++] = b[j++];
+            } else {
+                resultat[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(resultat, n);
+    }
+
+    private List<String> analyser(String texte) {
+        return texte == null ? Collections.emptyList() : Arrays.asList(analyseur.analyser(texte));
+    }
+}
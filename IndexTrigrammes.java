@@ -0,0 +1,557 @@
+package service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Index de trigrammes pour la recherche de sous-chaînes sur quelques champs
+ * texte d'une liste (offres, candidats, entreprises).
+ *
+ * Les valeurs sont normalisées une fois, à l'indexation
+ * (AnalyseurTexte.normaliser : minuscules, sans accents), et conservées. Pour
+ * chaque champ, chaque suite de trois caractères de la valeur normalisée mène
+ * à la liste triée des numéros des éléments qui la contiennent. Une valeur
+ * recherchée d'au moins trois caractères ne peut se trouver que dans un
+ * élément qui contient tous ses trigrammes : l'intersection de leurs listes
+ * donne les candidats, vérifiés ensuite par contains() sur les valeurs
+ * conservées. Les résultats sont donc ceux d'un parcours, dans l'ordre de la
+ * liste ; en dessous de trois caractères, les valeurs conservées sont
+ * simplement parcourues.
+ *
+ * Les numéros suivent l'ordre de la liste indexée, qui n'est modifiée que par
+ * ajouts en fin et retraits. Les éléments ajoutés (inscription, import,
+ * création d'offre) sont indexés à la recherche suivante, sans appel
+ * explicite ; la première recherche indexe donc toute la liste. Un retrait ou
+ * un champ modifié doit être signalé (retirer, actualiser), et reconstruire()
+ * suit un rechargement des données.
+ *
+ * Certains champs (les noms) peuvent aussi être cherchés à quelques fautes de
+ * frappe près (rechercherApproche) : leurs mots sont alors rangés dans un
+ * dictionnaire trié, chacun menant à la liste des numéros qui le contiennent.
+ *
+ * Comme les listes des services, l'index n'est pas synchronisé.
+ *
+ * @param <T> Type des éléments indexés
+ */
+public class IndexTrigrammes<T> {
+
+    private static final Pattern SEPARATEURS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Liste triée de numéros d'éléments */
+    private static class Liste {
+        int[] numeros = new int[2];
+        int taille;
+
+        void inserer(int numero) {
+            int i = taille == 0 || numeros[taille - 1] < numero
+                ? taille : Arrays.binarySearch(numeros, 0, taille, numero);
+            if (i >= 0 && i < taille) {
+                return; // déjà présent
+            }
+            if (i < 0) {
+                i = -i - 1;
+            }
+            if (taille == numeros.length) {
+                numeros = Arrays.copyOf(numeros, taille * 2);
+            }
+            System.arraycopy(numeros, i, numeros, i + 1, taille - i);
+            numeros[i] = numero;
+            taille++;
+        }
+
+        void retirer(int numero) {
+            int i = Arrays.binarySearch(numeros, 0, taille, numero);
+            if (i >= 0) {
+                System.arraycopy(numeros, i + 1, numeros, i, taille - i - 1);
+                taille--;
+            }
+        }
+    }
+
+    private final List<T> elements;
+    private final List<String> nomsChamps;
+    private final List<Function<T, String>> champs;
+
+    /** Listes de chaque trigramme, par champ */
+    private final List<Map<Long, Liste>> trigrammes = new ArrayList<>();
+
+    /** Listes de chaque mot, par champ à recherche approchée (null pour les autres) */
+    private final List<TreeMap<String, Liste>> dictionnaires = new ArrayList<>();
+
+    /** Élément et valeurs normalisées de chaque numéro, null une fois retiré */
+    private final List<T> parNumero = new ArrayList<>();
+    private final List<String[]> valeurs = new ArrayList<>();
+    private final Map<T, Integer> numeros = new IdentityHashMap<>();
+
+    /** Nombre d'éléments en tête de liste déjà indexés */
+    private int suivis;
+    private int libres;
+
+    /**
+     * @param elements Liste indexée, partagée avec le service
+     * @param champs Champs indexés par nom ; une fonction renvoie null quand
+     *               l'élément n'a pas ce champ (domaine d'une offre qui n'est
+     *               pas un stage, par exemple)
+     */
+    public IndexTrigrammes(List<T> elements, LinkedHashMap<String, Function<T, String>> champs) {
+        this(elements, champs, new String[0]);
+    }
+
+    /**
+     * @param elements Liste indexée, partagée avec le service
+     * @param champs Champs indexés par nom
+     * @param approches Champs aussi cherchés à quelques fautes près
+     */
+    public IndexTrigrammes(List<T> elements, LinkedHashMap<String, Function<T, String>> champs,
+                           String... approches) {
+        this.elements = elements;
+        this.nomsChamps = new ArrayList<>(champs.keySet());
+        this.champs = new ArrayList<>(champs.values());
+        List<String> avecDictionnaire = Arrays.asList(approches);
+        for (String nom : nomsChamps) {
+            trigrammes.add(new HashMap<>());
+            dictionnaires.add(avecDictionnaire.contains(nom) ? new TreeMap<>() : null);
+        }
+    }
+
+    /**
+     * Recherche les éléments dont l'un des champs contient la valeur, sans
+     * tenir compte de la casse ni des accents.
+     *
+     * @param valeur Sous-chaîne recherchée
+     * @param noms Champs où chercher
+     * @return Les éléments correspondants, dans l'ordre de la liste
+     */
+    public List<T> rechercher(String valeur, String... noms) {
+        rattraper();
+        String cherche = AnalyseurTexte.normaliser(valeur);
+        int[] champsCherches = new int[noms.length];
+        for (int i = 0; i < noms.length; i++) {
+            champsCherches[i] = nomsChamps.indexOf(noms[i]);
+            if (champsCherches[i] < 0) {
+                throw new IllegalArgumentException("Champ non indexé: " + noms[i]);
+            }
+        }
+
+        List<T> resultats = new ArrayList<>();
+        if (cherche.length() < 3) {
+            for (int numero = 0; numero < parNumero.size(); numero++) {
+                if (parNumero.get(numero) != null && correspond(numero, cherche, champsCherches)) {
+                    resultats.add(parNumero.get(numero));
+                }
+            }
+            return resultats;
+        }
+        int[] candidats = null;
+        for (int c : champsCherches) {
+            int[] duChamp = candidats(trigrammes.get(c), cherche);
+            candidats = candidats == null ? duChamp : union(candidats, duChamp);
+        }
+        for (int numero : candidats) {
+            if (parNumero.get(numero) != null && correspond(numero, cherche, champsCherches)) {
+                resultats.add(parNumero.get(numero));
+            }
+        }
+        return resultats;
+    }
+
+    /**
+     * Recherche à quelques fautes de frappe près : chaque mot de la valeur doit
+     * être à une distance d'édition (Levenshtein) d'au plus 1 (mots de 3 à 5
+     * lettres) ou 2 (à partir de 6 lettres) d'un mot du champ ; les mots plus
+     * courts doivent être exacts.
+     *
+     * Les mots proches sont trouvés en parcourant le dictionnaire trié comme un
+     * arbre de préfixes, une ligne de distances par lettre : dès qu'un préfixe
+     * est trop éloigné du mot cherché, tous les mots qui le prolongent sont
+     * sautés sans être comparés.
+     *
+     * @param valeur Nom saisi, éventuellement mal orthographié
+     * @param nom Champ où chercher (déclaré à recherche approchée)
+     * @param popularite Départage les éléments à même distance, le plus grand d'abord
+     * @return Les éléments par distance totale croissante, puis popularité
+     *         décroissante, puis dans l'ordre de la liste
+     */
+    public List<T> rechercherApproche(String valeur, String nom, ToIntFunction<T> popularite) {
+        rattraper();
+        int champ = nomsChamps.indexOf(nom);
+        if (champ < 0 || dictionnaires.get(champ) == null) {
+            throw new IllegalArgumentException("Champ sans recherche approchée: " + nom);
+        }
+        TreeMap<String, Liste> dictionnaire = dictionnaires.get(champ);
+
+        // Somme des distances de chaque élément qui contient tous les mots
+        Map<Integer, Integer> distances = null;
+        for (String mot : decouperMots(AnalyseurTexte.normaliser(valeur))) {
+            int max = mot.length() < 3 ? 0 : mot.length() < 6 ? 1 : 2;
+            Map<Integer, Integer> duMot = new HashMap<>();
+            for (Map.Entry<String, Integer> proche : proches(dictionnaire, mot, max).entrySet()) {
+                Liste liste = dictionnaire.get(proche.getKey());
+                for (int i = 0; i < liste.taille; i++) {
+                    duMot.merge(liste.numeros[i], proche.getValue(), Math::min);
+                }
+            }
+            if (distances == null) {
+                distances = duMot;
+            } else {
+                Map<Integer, Integer> communs = new HashMap<>();
+                for (Map.Entry<Integer, Integer> e : distances.entrySet()) {
+                    Integer d = duMot.get(e.getKey());
+                    if (d != null) {
+                        communs.put(e.getKey(), e.getValue() + d);
+                    }
+                }
+                distances = communs;
+            }
+            if (distances.isEmpty()) {
+                break;
+            }
+        }
+
+        List<T> resultats = new ArrayList<>();
+        if (distances == null) {
+            return resultats;
+        }
+        Map<Integer, Integer> populaires = new HashMap<>();
+        for (Integer numero : distances.keySet()) {
+            populaires.put(numero, popularite.applyAsInt(parNumero.get(numero)));
+        }
+        final Map<Integer, Integer> d = distances;
+        List<Integer> tries = new ArrayList<>(distances.keySet());
+        tries.sort((a, b) -> {
+            if (!d.get(a).equals(d.get(b))) {
+                return Integer.compare(d.get(a), d.get(b));
+            }
+            if (!populaires.get(a).equals(populaires.get(b))) {
+                return Integer.compare(populaires.get(b), populaires.get(a));
+            }
+            return Integer.compare(a, b);
+        });
+        for (Integer numero : tries) {
+            resultats.add(parNumero.get(numero));
+        }
+        return resultats;
+    }
+
+    /**
+     * Signale un élément retiré de la liste.
+     */
+    public void retirer(T element) {
+        Integer numero = numeros.remove(element);
+        if (numero == null) {
+            return; // pas encore indexé
+        }
+        String[] anciennes = valeurs.get(numero);
+        for (int c = 0; c < champs.size(); c++) {
+            modifier(c, anciennes[c], null, numero);
+        }
+        parNumero.set(numero, null);
+        valeurs.set(numero, null);
+        suivis--;
+        libres++;
+        if (libres > 64 && libres * 2 > parNumero.size()) {
+            reconstruire();
+        }
+    }
+
+    /**
+     * Signale des champs modifiés : l'élément garde son numéro.
+     */
+    public void actualiser(T element) {
+        Integer numero = numeros.get(element);
+        if (numero == null) {
+            return; // sera indexé avec ses nouvelles valeurs
+        }
+        String[] anciennes = valeurs.get(numero);
+        for (int c = 0; c < champs.size(); c++) {
+            String nouvelle = valeur(element, c);
+            if (!Objects.equals(anciennes[c], nouvelle)) {
+                modifier(c, anciennes[c], nouvelle, numero);
+                anciennes[c] = nouvelle;
+            }
+        }
+    }
+
+    /**
+     * Oublie l'index, reconstruit à la recherche suivante (après un
+     * rechargement qui a pu modifier, ajouter ou retirer des éléments).
+     */
+    public void reconstruire() {
+        for (Map<Long, Liste> listes : trigrammes) {
+            listes.clear();
+        }
+        for (TreeMap<String, Liste> dictionnaire : dictionnaires) {
+            if (dictionnaire != null) {
+                dictionnaire.clear();
+            }
+        }
+        parNumero.clear();
+        valeurs.clear();
+        numeros.clear();
+        suivis = 0;
+        libres = 0;
+    }
+
+    // ========== INDEXATION ==========
+
+    /**
+     * Indexe les éléments ajoutés en fin de liste depuis la dernière recherche.
+     */
+    private void rattraper() {
+        if (elements.size() < suivis) {
+            reconstruire(); // retrait non signalé
+        }
+        while (suivis < elements.size()) {
+            T e = elements.get(suivis++);
+            int numero = parNumero.size();
+            String[] indexees = new String[champs.size()];
+            for (int c = 0; c < champs.size(); c++) {
+                indexees[c] = valeur(e, c);
+                modifier(c, null, indexees[c], numero);
+            }
+            parNumero.add(e);
+            valeurs.add(indexees);
+            numeros.put(e, numero);
+        }
+    }
+
+    private String valeur(T element, int champ) {
+        String v = champs.get(champ).apply(element);
+        return v == null ? null : AnalyseurTexte.normaliser(v);
+    }
+
+    private void modifier(int champ, String ancienne, String nouvelle, int numero) {
+        Map<Long, Liste> listes = trigrammes.get(champ);
+        if (ancienne != null) {
+            for (long t : trigrammes(ancienne)) {
+                Liste liste = listes.get(t);
+                if (liste != null) {
+                    liste.retirer(numero);
+                    if (liste.taille == 0) {
+                        listes.remove(t);
+                    }
+                }
+            }
+        }
+        if (nouvelle != null) {
+            for (long t : trigrammes(nouvelle)) {
+                listes.computeIfAbsent(t, k -> new Liste()).inserer(numero);
+            }
+        }
+
+        TreeMap<String, Liste> dictionnaire = dictionnaires.get(champ);
+        if (dictionnaire == null) {
+            return;
+        }
+        if (ancienne != null) {
+            for (String mot : decouperMots(ancienne)) {
+                Liste liste = dictionnaire.get(mot);
+                if (liste != null) {
+                    liste.retirer(numero);
+                    if (liste.taille == 0) {
+                        dictionnaire.remove(mot);
+                    }
+                }
+            }
+        }
+        if (nouvelle != null) {
+            for (String mot : decouperMots(nouvelle)) {
+                dictionnaire.computeIfAbsent(mot, k -> new Liste()).inserer(numero);
+            }
+        }
+    }
+
+    private boolean correspond(int numero, String cherche, int[] champsCherches) {
+        String[] indexees = valeurs.get(numero);
+        for (int c : champsCherches) {
+            String v = indexees[c];
+            if (v != null && v.contains(cherche)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ========== LISTES ==========
+
+    /**
+     * Trigrammes distincts d'un texte, trois caractères UTF-16 par long.
+     */
+    private static long[] trigrammes(String texte) {
+        if (texte.length() < 3) {
+            return new long[0];
+        }
+        long[] t = new long[texte.length() - 2];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = ((long) texte.charAt(i) << 32) | ((long) texte.charAt(i + 1) << 16) | texte.charAt(i + 2);
+        }
+        return Arrays.stream(t).distinct().toArray();
+    }
+
+    /**
+     * Numéros des éléments dont le champ contient tous les trigrammes de la valeur.
+     */
+    private static int[] candidats(Map<Long, Liste> listes, String cherche) {
+        List<Liste> trouvees = new ArrayList<>();
+        for (long t : trigrammes(cherche)) {
+            Liste liste = listes.get(t);
+            if (liste == null) {
+                return new int[0];
+            }
+            trouvees.add(liste);
+        }
+        trouvees.sort(Comparator.comparingInt(l -> l.taille));
+        Liste premiere = trouvees.get(0);
+        int[] resultat = Arrays.copyOf(premiere.numeros, premiere.taille);
+        int taille = resultat.length;
+        for (int k = 1; k < trouvees.size() && taille > 0; k++) {
+            Liste autre = trouvees.get(k);
+            int n = 0;
+            if (autre.taille > taille * 8) {
+                // Liste beaucoup plus longue : recherche dichotomique de chaque numéro
+                for (int i = 0; i < taille; i++) {
+                    if (Arrays.binarySearch(autre.numeros, 0, autre.taille, resultat[i]) >= 0) {
+                        resultat[n++] = resultat[i];
+                    }
+                }
+            } else {
+                int j = 0;
+                for (int i = 0; i < taille && j < autre.taille; ) {
+                    if (resultat[i] < autre.numeros[j]) {
+                        i++;
+                    } else if (resultat[i] > autre.numeros[j]) {
+                        j++;
+                    } else {
+                        resultat[n++] = resultat[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            taille = n;
+        }
+        return Arrays.copyOf(resultat, taille);
+    }
+
+    /**
+     * Mots distincts d'une valeur déjà normalisée.
+     */
+    private static Set<String> decouperMots(String normalisee) {
+        Set<String> mots = new LinkedHashSet<>();
+        for (String mot : SEPARATEURS.split(normalisee)) {
+            if (!mot.isEmpty()) {
+                mots.add(mot);
+            }
+        }
+        return mots;
+    }
+
+    /**
+     * Mots du dictionnaire à distance d'édition au plus max du mot, avec leur distance.
+     */
+    private static Map<String, Integer> proches(TreeMap<String, Liste> dictionnaire, String mot, int max) {
+        Map<String, Integer> trouves = new HashMap<>();
+        if (max == 0) {
+            if (dictionnaire.containsKey(mot)) {
+                trouves.put(mot, 0);
+            }
+            return trouves;
+        }
+        int q = mot.length();
+
+        // lignes.get(i) : distances entre les i premières lettres du mot du
+        // dictionnaire et chaque préfixe du mot cherché
+        List<int[]> lignes = new ArrayList<>();
+        int[] premiere = new int[q + 1];
+        for (int j = 0; j <= q; j++) {
+            premiere[j] = j;
+        }
+        lignes.add(premiere);
+
+        String precedent = "";
+        int valides = 0;
+        String terme = dictionnaire.isEmpty() ? null : dictionnaire.firstKey();
+        while (terme != null) {
+            // Les lignes du préfixe commun avec le mot précédent restent valables
+            int profondeur = Math.min(valides, prefixeCommun(precedent, terme));
+            boolean elague = false;
+            while (profondeur < terme.length()) {
+                if (lignes.size() <= profondeur + 1) {
+                    lignes.add(new int[q + 1]);
+                }
+                int[] haut = lignes.get(profondeur);
+                int[] ligne = lignes.get(profondeur + 1);
+                char c = terme.charAt(profondeur);
+                ligne[0] = profondeur + 1;
+                int minimum = ligne[0];
+                for (int j = 1; j <= q; j++) {
+                    int substitution = haut[j - 1] + (mot.charAt(j - 1) == c ? 0 : 1);
+                    ligne[j] = Math.min(substitution, Math.min(haut[j], ligne[j - 1]) + 1);
+                    minimum = Math.min(minimum, ligne[j]);
+                }
+                profondeur++;
+                if (minimum > max) {
+                    elague = true;
+                    break;
+                }
+            }
+            precedent = terme;
+            valides = profondeur;
+            if (elague) {
+                // Aucun mot commençant par ce préfixe ne peut convenir
+                String suivant = successeur(terme.substring(0, profondeur));
+                terme = suivant == null ? null : dictionnaire.ceilingKey(suivant);
+            } else {
+                int distance = lignes.get(terme.length())[q];
+                if (distance <= max) {
+                    trouves.put(terme, distance);
+                }
+                terme = dictionnaire.higherKey(terme);
+            }
+        }
+        return trouves;
+    }
+
+    private static int prefixeCommun(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Première chaîne qui suit toutes celles commençant par le préfixe.
+     */
+    private static String successeur(String prefixe) {
+        int n = prefixe.length();
+        while (n > 0 && prefixe.charAt(n - 1) == Character.MAX_VALUE) {
+            n--;
+        }
+        if (n == 0) {
+            return null;
+        }
+        return prefixe.substring(0, n - 1) + (char) (prefixe.charAt(n - 1) + 1);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] resultat = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                resultat[n++] = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                resultat[n++] = b[j++];
+            } else {
+                resultat[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(resultat, n);
+    }
+}
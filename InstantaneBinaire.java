@@ -0,0 +1,334 @@
+package service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32C;
+import models.*;
+
+/**
+ * Cache binaire des entités et de leurs identifiants.
+ * Les candidatures et wishlists sont lues depuis le stockage des relations,
+ * et le forum depuis ses segments (StockageForum).
+ *
+ * Le fichier enregistre la taille, la date de modification et l'empreinte CRC32C
+ * des fichiers .txt dont il est issu. Au démarrage, il n'est utilisé que si ces
+ * fichiers n'ont pas changé ; sinon on revient aux chargeurs texte.
+ *
+ * Format (version 3), entiers en big-endian, chaînes = longueur (int) + octets UTF-8 :
+ *   "HECR" | version | nb sources | (chemin, taille, mtime, crc)*
+ *   entreprises | candidats | offres
+ */
+public class InstantaneBinaire {
+
+    private static final int MAGIC = 0x48454352; // "HECR"
+    private static final int VERSION = 3;
+
+    private static final byte TYPE_SIMPLE = 0;
+    private static final byte TYPE_ETUDIANT = 1;
+    private static final byte TYPE_ALUMNI = 2;
+
+    private static final byte OFFRE_GENERIQUE = 0;
+    private static final byte OFFRE_STAGE = 1;
+    private static final byte OFFRE_ALTERNANCE = 2;
+    private static final byte OFFRE_PFE = 3;
+
+    private final Path chemin;
+    private final List<Path> sources;
+
+    /** Données lues depuis le cache */
+    public static class Contenu {
+        public List<Entreprise> entreprises = new ArrayList<>();
+        public List<Candidat> candidats = new ArrayList<>();
+        public List<Offre> offres = new ArrayList<>();
+    }
+
+    /**
+     * @param chemin Fichier du cache binaire
+     * @param sources Fichiers texte dont le cache dépend
+     */
+    public InstantaneBinaire(Path chemin, List<Path> sources) {
+        this.chemin = chemin;
+        this.sources = sources;
+    }
+
+    /**
+     * @return Le fichier du cache binaire
+     */
+    public Path getChemin() {
+        return chemin;
+    }
+
+    // ========== ÉCRITURE ==========
+
+    /**
+     * Écrit le cache à partir des données en mémoire.
+     * Doit être appelé quand les fichiers .txt sont à jour (après une compaction).
+     */
+    public void ecrire(List<Entreprise> entreprises, List<Candidat> candidats,
+                       List<Offre> offres) {
+        Path tmp = chemin.resolveSibling(chemin.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            // Empreintes des sources
+            out.writeInt(sources.size());
+            for (Path p : sources) {
+                ecrireChaine(out, p.toString());
+                if (Files.exists(p)) {
+                    out.writeLong(Files.size(p));
+                    out.writeLong(Files.getLastModifiedTime(p).toMillis());
+                    out.writeLong(empreinte(p));
+                } else {
+                    out.writeLong(-1);
+                    out.writeLong(-1);
+                    out.writeLong(-1);
+                }
+            }
+
+            // Index des entreprises pour encoder la référence des offres
+            Map<Entreprise, Integer> indexEntreprises = new IdentityHashMap<>();
+
+            out.writeInt(entreprises.size());
+            for (Entreprise e : entreprises) {
+                indexEntreprises.put(e, indexEntreprises.size());
+                ecrireUuid(out, e.getId());
+                ecrireChaine(out, e.getNom());
+                ecrireChaine(out, e.getSecteur());
+                ecrireChaine(out, e.getAdresse());
+                ecrireChaine(out, e.getEmail());
+                ecrireChaine(out, e.getTelephone());
+                ecrireChaine(out, e.getMdp());
+            }
+
+            out.writeInt(candidats.size());
+            for (Candidat c : candidats) {
+                if (c instanceof Etudiant) {
+                    out.writeByte(TYPE_ETUDIANT);
+                } else if (c instanceof Alumni) {
+                    out.writeByte(TYPE_ALUMNI);
+                } else {
+                    out.writeByte(TYPE_SIMPLE);
+                }
+                out.writeInt(c.getId());
+                ecrireChaine(out, c.getNom());
+                ecrireChaine(out, c.getPrenom());
+                ecrireChaine(out, c.getEmail());
+                ecrireChaine(out, c.getTelephone());
+                ecrireChaine(out, c.getMdp());
+                if (c instanceof Etudiant) {
+                    Etudiant etud = (Etudiant) c;
+                    ecrireChaine(out, etud.getNiveau());
+                    ecrireChaine(out, etud.getFiliere());
+                    ecrireChaine(out, etud.getEtablissement());
+                } else if (c instanceof Alumni) {
+                    Alumni alumni = (Alumni) c;
+                    out.writeInt(alumni.getAnneeDiplome());
+                    ecrireChaine(out, alumni.getPosteActuel());
+                    ecrireChaine(out, alumni.getEntrepriseActuelle());
+                }
+            }
+
+            out.writeInt(offres.size());
+            for (Offre o : offres) {
+                if (o instanceof Stage) {
+                    out.writeByte(OFFRE_STAGE);
+                } else if (o instanceof Alternance) {
+                    out.writeByte(OFFRE_ALTERNANCE);
+                } else if (o instanceof ProjetFinEtudes) {
+                    out.writeByte(OFFRE_PFE);
+                } else {
+                    out.writeByte(OFFRE_GENERIQUE);
+                }
+                ecrireUuid(out, o.getId());
+                out.writeInt(indexEntreprises.get(o.getEntreprise()));
+                ecrireChaine(out, o.getTitre());
+                ecrireChaine(out, o.getDescription());
+                out.writeLong(o.getDatePublication().toEpochDay());
+                out.writeLong(o.getDateExpiration() != null ? o.getDateExpiration().toEpochDay() : Long.MIN_VALUE);
+                if (o instanceof Stage) {
+                    Stage s = (Stage) o;
+                    out.writeInt(s.getDureeEnMois());
+                    ecrireChaine(out, s.getDomaine());
+                } else if (o instanceof Alternance) {
+                    Alternance a = (Alternance) o;
+                    ecrireChaine(out, a.getRythme());
+                    out.writeInt(a.getDureeEnMois());
+                } else if (o instanceof ProjetFinEtudes) {
+                    ProjetFinEtudes p = (ProjetFinEtudes) o;
+                    ecrireChaine(out, p.getSujet());
+                    ecrireChaine(out, p.getTechnologies());
+                } else {
+                    ecrireChaine(out, o.getTypeOffre());
+                }
+            }
+
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Erreur écriture cache binaire: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(tmp, chemin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Erreur écriture cache binaire: " + e.getMessage());
+        }
+    }
+
+    // ========== LECTURE ==========
+
+    /**
+     * Charge le cache s'il existe, est de la bonne version et correspond
+     * aux fichiers .txt actuels.
+     *
+     * @return Les données, ou null si le cache est absent ou périmé
+     */
+    public Contenu charger() {
+        if (!Files.exists(chemin)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(chemin), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.out.println("Cache binaire d'une autre version, ignoré");
+                return null;
+            }
+            if (!sourcesInchangees(in)) {
+                System.out.println("Fichiers modifiés depuis le cache binaire, relecture du texte");
+                return null;
+            }
+
+            Contenu contenu = new Contenu();
+
+            int nbEntreprises = in.readInt();
+            for (int i = 0; i < nbEntreprises; i++) {
+                UUID id = lireUuid(in);
+                Entreprise e = new Entreprise(lireChaine(in), lireChaine(in), lireChaine(in),
+                        lireChaine(in), lireChaine(in), lireChaine(in));
+                e.setId(id);
+                contenu.entreprises.add(e);
+            }
+
+            // Les données ont été validées à l'écriture : pas de contrôle d'unicité (liste null)
+            int nbCandidats = in.readInt();
+            for (int i = 0; i < nbCandidats; i++) {
+                byte type = in.readByte();
+                int id = in.readInt();
+                String nom = lireChaine(in), prenom = lireChaine(in), email = lireChaine(in);
+                String telephone = lireChaine(in), mdp = lireChaine(in);
+                Candidat c;
+                if (type == TYPE_ETUDIANT) {
+                    c = new Etudiant(id, nom, prenom, email, telephone, mdp,
+                            lireChaine(in), lireChaine(in), lireChaine(in), null);
+                } else if (type == TYPE_ALUMNI) {
+                    c = new Alumni(id, nom, prenom, email, telephone, mdp,
+                            in.readInt(), lireChaine(in), lireChaine(in), null);
+                } else {
+                    c = new Candidat(id, nom, prenom, email, telephone, mdp, null);
+                }
+                contenu.candidats.add(c);
+            }
+
+            int nbOffres = in.readInt();
+            for (int i = 0; i < nbOffres; i++) {
+                byte type = in.readByte();
+                UUID id = lireUuid(in);
+                Entreprise entreprise = contenu.entreprises.get(in.readInt());
+                String titre = lireChaine(in), description = lireChaine(in);
+                LocalDate publication = LocalDate.ofEpochDay(in.readLong());
+                long expiration = in.readLong();
+
+                Offre o;
+                if (type == OFFRE_STAGE) {
+                    o = new Stage(titre, description, entreprise, in.readInt(), lireChaine(in));
+                } else if (type == OFFRE_ALTERNANCE) {
+                    o = new Alternance(titre, description, entreprise, lireChaine(in), in.readInt());
+                } else if (type == OFFRE_PFE) {
+                    o = new ProjetFinEtudes(titre, description, entreprise, lireChaine(in), lireChaine(in));
+                } else {
+                    o = new Offre(titre, description, lireChaine(in), entreprise);
+                }
+                o.setId(id);
+                o.setDatePublication(publication);
+                if (expiration != Long.MIN_VALUE) {
+                    o.setDateExpiration(LocalDate.ofEpochDay(expiration));
+                }
+                contenu.offres.add(o);
+                entreprise.getOffresPubliees().add(o);
+            }
+
+            return contenu;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Cache binaire illisible, relecture du texte: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Compare les empreintes enregistrées aux fichiers actuels.
+     * Taille et date sont vérifiées d'abord ; l'empreinte seulement si elles concordent.
+     */
+    private boolean sourcesInchangees(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n != sources.size()) {
+            return false;
+        }
+        for (Path p : sources) {
+            String nom = lireChaine(in);
+            long taille = in.readLong(), mtime = in.readLong(), crc = in.readLong();
+            if (!nom.equals(p.toString())) {
+                return false;
+            }
+            if (!Files.exists(p)) {
+                if (taille != -1) return false;
+                continue;
+            }
+            if (Files.size(p) != taille
+                    || Files.getLastModifiedTime(p).toMillis() != mtime
+                    || empreinte(p) != crc) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ========== MÉTHODES UTILITAIRES PRIVÉES ==========
+
+    private static long empreinte(Path p) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(p)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void ecrireChaine(DataOutputStream out, String s) throws IOException {
+        byte[] octets = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(octets.length);
+        out.write(octets);
+    }
+
+    private static String lireChaine(DataInputStream in) throws IOException {
+        byte[] octets = new byte[in.readInt()];
+        in.readFully(octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    private static void ecrireUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID lireUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
@@ -0,0 +1,786 @@
+package service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.*;
+import models.*;
+
+/**
+ * Journal des mutations (write-ahead log).
+ *
+ * Chaque opération métier ajoute une ligne typée à la fin de data/journal.txt
+ * et attend qu'elle soit forcée sur disque (fsync, groupé entre les écritures
+ * concurrentes par CommitGroupe). Les fichiers .txt ne sont donc plus
+ * réécrits à chaque action : ils servent d'instantané, et le journal est rejoué
+ * par-dessus au démarrage. La compaction réécrit l'instantané puis vide le journal.
+ *
+ * Format d'une ligne : TYPE@horodatage|champs... (horodatage en ms depuis
+ * l'époque, pris sous le verrou ; les champs reprennent le format des fichiers
+ * .txt). Les lignes écrites avant l'horodatage (TYPE|champs...) restent lues.
+ *
+ * Si un dossier d'archives est configuré et existe (voir SauvegardeIncrementale),
+ * les lignes retirées par une compaction y sont d'abord recopiées : avec une
+ * sauvegarde antérieure, elles permettent une restauration à une date précise.
+ *
+ * Plusieurs instances peuvent partager le journal : chaque ajout se fait sous le
+ * verrou du dossier (VerrouDonnees), et rejouerExternes() applique les lignes
+ * ajoutées par les autres depuis la dernière lecture.
+ */
+public class Journal {
+
+    /** Types de mutations enregistrées dans le journal */
+    public enum TypeMutation {
+        ENTREPRISE_INSCRITE,    // ligne entreprise complète
+        ENTREPRISE_MODIFIEE,    // ligne entreprise complète
+        CANDIDAT_INSCRIT,       // ligne candidat complète
+        CANDIDAT_MODIFIE,       // ligne candidat complète
+        OFFRE_CREEE,            // ligne offre complète
+        OFFRE_SUPPRIMEE,        // id (ancien format : emailEntreprise|titre)
+        OFFRE_EXPIRATION,       // id|date (ancien format : emailEntreprise|titre|date)
+        // Les liens sont désormais dans StockageRelations : ces types ne sont
+        // plus écrits, mais restent rejoués pour les anciens journaux
+        CANDIDATURE_AJOUTEE,    // cin|emailEntreprise|titre
+        CANDIDATURE_RETIREE,    // cin|emailEntreprise|titre
+        WISHLIST_AJOUT,         // emailEntreprise|cin
+        WISHLIST_RETRAIT,       // emailEntreprise|cin
+        COMMENTAIRE_PUBLIE      // ligne commentaire complète
+    }
+
+    private static final String JOURNAL_FILE = "data/journal.txt";
+
+    private static final String PREFIXE_ARCHIVE = "journal-";
+
+    private final FileManager fileManager;
+    private final VerrouDonnees verrou;
+    private final Path chemin;
+    private Path archives;
+    private FileChannel canal;
+    private int nombreEntrees;
+
+    /** Fin de la dernière ligne appliquée en mémoire */
+    private long positionAppliquee;
+
+    /** Identité du fichier lu (null si le système ne la fournit pas) */
+    private Object cleFichier;
+
+    /** Le fichier a été remplacé par une autre instance (compaction) depuis la dernière lecture */
+    private boolean remplace;
+
+    /** Nombre de remplacements détectés, et sa valeur au dernier marquer() */
+    private int generation;
+    private int generationMarquee;
+    private final CommitGroupe commit =
+        new CommitGroupe(this::canalCourant, new MesuresDurabilite("journal"));
+
+    public Journal(FileManager fileManager) {
+        this(fileManager, Paths.get(JOURNAL_FILE));
+    }
+
+    public Journal(FileManager fileManager, Path chemin) {
+        this.fileManager = fileManager;
+        this.verrou = fileManager.getVerrou();
+        this.chemin = chemin;
+        this.nombreEntrees = 0;
+    }
+
+    // ========== ÉCRITURE ==========
+
+    /**
+     * Ajoute une mutation à la fin du journal et la force sur disque.
+     * La méthode ne retourne qu'une fois la ligne durable ; le fsync se fait
+     * hors du verrou pour que les écritures concurrentes le partagent.
+     *
+     * @return false si la ligne n'a pas pu être écrite : la mutation n'est pas
+     *         durable et l'appelant doit annuler sa modification en mémoire
+     */
+    public boolean enregistrer(TypeMutation type, String... champs) {
+        long debut = System.nanoTime();
+        StringBuilder suite = new StringBuilder();
+        for (String champ : champs) {
+            suite.append('|').append(champ);
+        }
+        suite.append('\n');
+
+        try {
+            long numero;
+            verrou.prendre();
+            try {
+                synchronized (this) {
+                    ouvrir();
+                    long taille = canal.size();
+                    // Horodatage pris sous le verrou : les lignes du fichier sont dans l'ordre des dates
+                    String ligne = type.name() + '@' + System.currentTimeMillis() + suite;
+                    ByteBuffer buffer = ByteBuffer.wrap(ligne.getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        canal.write(buffer);
+                    }
+                    // Sans ligne externe en attente, notre ligne est déjà appliquée
+                    if (!remplace && taille == positionAppliquee) {
+                        positionAppliquee = canal.size();
+                    }
+                    nombreEntrees++;
+                    numero = commit.noterEcrit();
+                }
+            } finally {
+                verrou.liberer();
+            }
+            commit.attendre(numero, debut);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Erreur écriture journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return La date d'écriture d'une ligne du journal (ms), ou -1 pour une ligne sans horodatage
+     */
+    public static long horodatage(String ligne) {
+        int sep = ligne.indexOf('|');
+        String type = sep < 0 ? ligne : ligne.substring(0, sep);
+        int arobase = type.indexOf('@');
+        if (arobase < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(type.substring(arobase + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Active la recopie des lignes compactées dans le dossier, s'il existe,
+     * un fichier journal-AAAA-MM-JJ.txt par jour de compaction.
+     */
+    public synchronized void setArchives(Path dossier) {
+        this.archives = dossier;
+    }
+
+    /**
+     * @return Les fichiers d'archives du journal, dans l'ordre chronologique
+     */
+    public static List<Path> listerArchives(Path dossier) throws IOException {
+        List<Path> fichiers = new ArrayList<>();
+        if (!Files.isDirectory(dossier)) {
+            return fichiers;
+        }
+        try (DirectoryStream<Path> contenu = Files.newDirectoryStream(dossier, PREFIXE_ARCHIVE + "*.txt")) {
+            for (Path p : contenu) {
+                fichiers.add(p);
+            }
+        }
+        fichiers.sort(Comparator.comparing(p -> p.getFileName().toString()));
+        return fichiers;
+    }
+
+    /**
+     * @return Le jour d'archivage d'un fichier de listerArchives()
+     */
+    public static LocalDate jourArchive(Path archive) {
+        String nom = archive.getFileName().toString();
+        return LocalDate.parse(nom.substring(PREFIXE_ARCHIVE.length(), nom.length() - ".txt".length()));
+    }
+
+    /**
+     * Recopie les lignes qui vont être retirées du journal à la fin de
+     * l'archive du jour, forcée sur disque avant la réécriture du journal.
+     * En cas d'arrêt entre les deux, des lignes sont archivées en double :
+     * leur rejeu est sans effet (mutations idempotentes).
+     */
+    private void archiver(byte[] lignes) throws IOException {
+        if (archives == null || lignes.length == 0 || !Files.isDirectory(archives)) {
+            return;
+        }
+        Path archive = archives.resolve(PREFIXE_ARCHIVE + LocalDate.now() + ".txt");
+        try (FileChannel c = FileChannel.open(archive, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lignes);
+            while (buffer.hasRemaining()) {
+                c.write(buffer);
+            }
+            c.force(true);
+        }
+    }
+
+    // Raccourcis typés utilisés par les services (false si la ligne n'est pas écrite)
+
+    public boolean entrepriseInscrite(Entreprise e) {
+        return enregistrer(TypeMutation.ENTREPRISE_INSCRITE, fileManager.formaterEntreprise(e));
+    }
+
+    public boolean entrepriseModifiee(Entreprise e) {
+        return enregistrer(TypeMutation.ENTREPRISE_MODIFIEE, fileManager.formaterEntreprise(e));
+    }
+
+    public boolean candidatInscrit(Candidat c) {
+        return enregistrer(TypeMutation.CANDIDAT_INSCRIT, fileManager.formaterCandidat(c));
+    }
+
+    public boolean candidatModifie(Candidat c) {
+        return enregistrer(TypeMutation.CANDIDAT_MODIFIE, fileManager.formaterCandidat(c));
+    }
+
+    public boolean offreCreee(Offre o) {
+        return enregistrer(TypeMutation.OFFRE_CREEE, fileManager.formaterOffre(o));
+    }
+
+    public boolean offreSupprimee(Offre o) {
+        return enregistrer(TypeMutation.OFFRE_SUPPRIMEE, FileManager.cleOffre(o));
+    }
+
+    public boolean expirationModifiee(Offre o) {
+        return enregistrer(TypeMutation.OFFRE_EXPIRATION, FileManager.cleOffre(o),
+                String.valueOf(o.getDateExpiration()));
+    }
+
+    public boolean commentairePublie(Forum f) {
+        return enregistrer(TypeMutation.COMMENTAIRE_PUBLIE, fileManager.formaterCommentaire(f));
+    }
+
+    /**
+     * Retourne la position de la dernière ligne appliquée en mémoire.
+     * Un instantané pris à ce moment contient toutes les mutations avant cette position.
+     */
+    public synchronized long marquer() {
+        generationMarquee = generation;
+        // Fichier remplacé pas encore relu : aucune ligne n'est couverte
+        return remplace ? 0 : positionAppliquee;
+    }
+
+    /**
+     * Remplace le contenu du journal après une compaction par les mutations
+     * ajoutées après la position marquée (non couvertes par l'instantané).
+     * Le nouveau contenu est écrit dans un fichier temporaire puis renommé.
+     *
+     * @param depuis Position renvoyée par marquer() au moment de l'instantané
+     * @return La taille du nouveau journal en octets, ou -1 en cas d'erreur
+     */
+    public long reinitialiser(long depuis) {
+        verrou.prendre();
+        try {
+            return reinitialiserVerrouille(depuis);
+        } finally {
+            verrou.liberer();
+        }
+    }
+
+    private synchronized long reinitialiserVerrouille(long depuis) {
+        try {
+            verifierFichier();
+            if (remplace || generation != generationMarquee) {
+                // Une autre instance a compacté le journal depuis l'instantané :
+                // la position marquée ne désigne plus rien, on garde tout
+                System.out.println("Journal compacté par une autre instance, conservé tel quel");
+                return Files.exists(chemin) ? Files.size(chemin) : 0;
+            }
+            fermer();
+
+            // Mutations arrivées pendant l'écriture de l'instantané
+            byte[] suite = new byte[0];
+            if (Files.exists(chemin)) {
+                byte[] tout = Files.readAllBytes(chemin);
+                archiver(Arrays.copyOf(tout, (int) Math.min(depuis, tout.length)));
+                if (depuis < tout.length) {
+                    suite = Arrays.copyOfRange(tout, (int) depuis, tout.length);
+                }
+            }
+
+            Path tmp = chemin.resolveSibling(chemin.getFileName() + ".tmp");
+            try (FileChannel c = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(suite);
+                while (buffer.hasRemaining()) {
+                    c.write(buffer);
+                }
+                c.force(true);
+            }
+            Files.move(tmp, chemin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileManager.synchroniserDossier(chemin);
+            cleFichier = lireCle();
+            positionAppliquee = Math.max(0, positionAppliquee - depuis);
+
+            // Seules les mutations non compactées comptent pour la prochaine compaction
+            int restantes = 0;
+            for (byte b : suite) {
+                if (b == '\n') {
+                    restantes++;
+                }
+            }
+            nombreEntrees = restantes;
+            return Files.size(chemin);
+        } catch (IOException e) {
+            System.out.println("Erreur réinitialisation journal: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Ferme le canal d'écriture (il sera rouvert à la prochaine mutation).
+     */
+    public synchronized void fermer() {
+        if (canal != null) {
+            try {
+                // Les écritures en attente de fsync sont couvertes ici
+                canal.force(false);
+                commit.noterToutDurable();
+                canal.close();
+            } catch (IOException e) {
+                System.out.println("Erreur fermeture journal: " + e.getMessage());
+            }
+            canal = null;
+        }
+    }
+
+    private synchronized FileChannel canalCourant() {
+        return canal;
+    }
+
+    private void ouvrir() throws IOException {
+        verifierFichier();
+        if (canal == null) {
+            Files.createDirectories(chemin.toAbsolutePath().getParent());
+            canal = FileChannel.open(chemin, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (cleFichier == null) {
+                cleFichier = lireCle();
+            }
+        }
+    }
+
+    /**
+     * Détecte un journal remplacé par une autre instance (compaction) : le
+     * canal ouvert désigne alors l'ancien fichier et doit être rouvert.
+     */
+    private void verifierFichier() throws IOException {
+        Object cle = lireCle();
+        long taille = Files.exists(chemin) ? Files.size(chemin) : 0;
+        boolean different = cle != null && cleFichier != null ? !cle.equals(cleFichier)
+            : taille < positionAppliquee;
+        if (different) {
+            fermer();
+            cleFichier = cle;
+            remplace = true;
+            generation++;
+        }
+    }
+
+    private Object lireCle() {
+        try {
+            return Files.readAttributes(chemin, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return Le nombre de mutations en attente de compaction
+     */
+    public int getNombreEntrees() {
+        return nombreEntrees;
+    }
+
+    /**
+     * @return Les mesures de durabilité des écritures du journal
+     */
+    public MesuresDurabilite getMesures() {
+        return commit.getMesures();
+    }
+
+    // ========== REJEU ==========
+
+    /**
+     * Rejoue le journal sur l'état chargé depuis les fichiers .txt.
+     * Les mutations sont idempotentes : rejouer deux fois une même ligne
+     * (par exemple après une compaction interrompue) ne crée pas de doublon.
+     *
+     * @return Le nombre de mutations rejouées
+     */
+    public synchronized int rejouer(List<Entreprise> entreprises, List<Candidat> candidats,
+                                    List<Offre> offres, List<Forum> commentaires) {
+        nombreEntrees = 0;
+        positionAppliquee = 0;
+        remplace = false;
+        cleFichier = lireCle();
+        return rejouerDepuis(entreprises, candidats, offres, commentaires);
+    }
+
+    /**
+     * Applique les lignes ajoutées par d'autres instances depuis la dernière
+     * lecture, ou tout le journal s'il a été remplacé par une compaction.
+     * Les lignes déjà appliquées sont sans effet (mutations idempotentes).
+     *
+     * @return Le nombre de mutations appliquées
+     */
+    public int rejouerExternes(List<Entreprise> entreprises, List<Candidat> candidats,
+                               List<Offre> offres, List<Forum> commentaires) {
+        verrou.prendre();
+        try {
+            synchronized (this) {
+                verifierFichier();
+                if (remplace) {
+                    remplace = false;
+                    positionAppliquee = 0;
+                    nombreEntrees = 0;
+                }
+                return rejouerDepuis(entreprises, candidats, offres, commentaires);
+            }
+        } catch (IOException e) {
+            System.out.println("Erreur lecture journal: " + e.getMessage());
+            return 0;
+        } finally {
+            verrou.liberer();
+        }
+    }
+
+    /**
+     * Applique les lignes complètes situées après positionAppliquee. Une fin
+     * de ligne absente (ajout en cours ou interrompu) est relue la fois suivante.
+     */
+    private int rejouerDepuis(List<Entreprise> entreprises, List<Candidat> candidats,
+                              List<Offre> offres, List<Forum> commentaires) {
+        int rejouees = 0;
+        byte[] octets;
+        try (FileChannel lecture = FileChannel.open(chemin, StandardOpenOption.READ)) {
+            long taille = lecture.size();
+            if (taille <= positionAppliquee) {
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) (taille - positionAppliquee));
+            while (buffer.hasRemaining()) {
+                if (lecture.read(buffer, positionAppliquee + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            octets = Arrays.copyOf(buffer.array(), buffer.position());
+        } catch (NoSuchFileException e) {
+            // Pas de journal : rien à rejouer
+            return 0;
+        } catch (IOException e) {
+            System.out.println("Erreur lecture journal: " + e.getMessage());
+            return 0;
+        }
+
+        Index index = null;
+        int debut = 0;
+        for (int i = 0; i < octets.length; i++) {
+            if (octets[i] != '\n') {
+                continue;
+            }
+            String line = new String(octets, debut, i - debut, StandardCharsets.UTF_8);
+            debut = i + 1;
+            if (line.isEmpty()) {
+                continue;
+            }
+            nombreEntrees++;
+            if (index == null) {
+                // Construit une seule fois, au premier enregistrement à appliquer
+                index = new Index(entreprises, candidats, offres, commentaires);
+            }
+            try {
+                appliquer(line, index);
+                rejouees++;
+            } catch (RuntimeException e) {
+                // Ligne corrompue (écriture interrompue) : on l'ignore
+                System.out.println("Entrée de journal ignorée: " + e.getMessage());
+            }
+        }
+        positionAppliquee += debut;
+        return rejouees;
+    }
+
+    /**
+     * Applique une ligne du journal sur les listes en mémoire.
+     */
+    private void appliquer(String line, Index index) {
+        int sep = line.indexOf('|');
+        String nomType = sep < 0 ? line : line.substring(0, sep);
+        int arobase = nomType.indexOf('@');
+        TypeMutation type = TypeMutation.valueOf(arobase < 0 ? nomType : nomType.substring(0, arobase));
+        String[] parts = sep < 0 ? new String[0] : line.substring(sep + 1).split("\\|");
+
+        switch (type) {
+            case ENTREPRISE_INSCRITE:
+            case ENTREPRISE_MODIFIEE: {
+                Entreprise lue = fileManager.parserEntreprise(parts);
+                Entreprise existante = index.entreprise(lue.getEmail());
+                if (existante == null) {
+                    index.ajouter(lue);
+                } else {
+                    mettreAJourEntreprise(existante, lue);
+                }
+                break;
+            }
+
+            case CANDIDAT_INSCRIT:
+            case CANDIDAT_MODIFIE: {
+                Candidat existant = index.candidat(Integer.parseInt(parts[0]));
+                // Lecture hors liste : l'unicité est contrôlée sur l'index
+                Candidat lu = fileManager.parserCandidat(parts, null);
+                if (existant == null) {
+                    if (lu != null) {
+                        index.ajouter(lu);
+                    }
+                } else {
+                    index.mettreAJour(existant, lu);
+                }
+                break;
+            }
+
+            case OFFRE_CREEE: {
+                Offre lue = fileManager.parserOffre(ChampsLigne.de(parts), index.entreprisesParEmail);
+                // Une ligne sans id (ancien format) est reconnue par email et titre
+                if (lue != null && index.offre(FileManager.cleOffre(lue)) == null
+                        && (FileManager.estIdentifiant(parts[0])
+                            || index.offreAncienne(FileManager.cleOffreAncienne(lue)) == null)) {
+                    index.ajouter(lue);
+                    lue.getEntreprise().getOffresPubliees().add(lue);
+                }
+                break;
+            }
+
+            case OFFRE_SUPPRIMEE: {
+                Offre offre = index.offre(parts, 0, parts.length);
+                if (offre != null) {
+                    for (Candidat c : offre.getCandidatures()) {
+                        c.getCandidaturesEnCours().remove(offre);
+                    }
+                    offre.getEntreprise().getOffresPubliees().remove(offre);
+                    index.retirer(offre);
+                }
+                break;
+            }
+
+            case OFFRE_EXPIRATION: {
+                int n = parts.length - 1;
+                Offre offre = index.offre(parts, 0, n);
+                if (offre != null) {
+                    offre.setDateExpiration(parts[n].equals("null") ? null : LocalDate.parse(parts[n]));
+                }
+                break;
+            }
+
+            case CANDIDATURE_AJOUTEE: {
+                Candidat candidat = index.candidat(Integer.parseInt(parts[0]));
+                Offre offre = index.offre(parts, 1, 3);
+                // Lien direct : l'offre a pu expirer depuis la candidature
+                if (candidat != null && offre != null && !offre.getCandidatures().contains(candidat)) {
+                    offre.getCandidatures().add(candidat);
+                    candidat.getCandidaturesEnCours().add(offre);
+                }
+                break;
+            }
+
+            case CANDIDATURE_RETIREE: {
+                Candidat candidat = index.candidat(Integer.parseInt(parts[0]));
+                Offre offre = index.offre(parts, 1, 3);
+                if (candidat != null && offre != null) {
+                    offre.getCandidatures().remove(candidat);
+                    candidat.getCandidaturesEnCours().remove(offre);
+                }
+                break;
+            }
+
+            case WISHLIST_AJOUT: {
+                Entreprise entreprise = index.entreprise(parts[0]);
+                Candidat candidat = index.candidat(Integer.parseInt(parts[1]));
+                if (entreprise != null && candidat != null && !entreprise.getWishlist().contains(candidat)) {
+                    entreprise.getWishlist().add(candidat);
+                }
+                break;
+            }
+
+            case WISHLIST_RETRAIT: {
+                Entreprise entreprise = index.entreprise(parts[0]);
+                Candidat candidat = index.candidat(Integer.parseInt(parts[1]));
+                if (entreprise != null && candidat != null) {
+                    entreprise.getWishlist().remove(candidat);
+                }
+                break;
+            }
+
+            case COMMENTAIRE_PUBLIE: {
+                Forum lu = fileManager.parserCommentaire(parts);
+                index.ajouter(lu);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Recopie les champs modifiables d'une entreprise relue sur l'entreprise
+     * en mémoire, afin de conserver ses offres et sa wishlist.
+     */
+    static void mettreAJourEntreprise(Entreprise existante, Entreprise lue) {
+        existante.setNom(lue.getNom());
+        existante.setSecteur(lue.getSecteur());
+        existante.setAdresse(lue.getAdresse());
+        existante.setTelephone(lue.getTelephone());
+        existante.setMdp(lue.getMdp());
+    }
+
+    /**
+     * Recopie les champs modifiables d'un candidat relu sur le candidat en mémoire,
+     * afin de conserver ses liens (candidatures, wishlists).
+     */
+    static void mettreAJourCandidat(Candidat existant, Candidat lu) {
+        existant.setNom(lu.getNom());
+        existant.setPrenom(lu.getPrenom());
+        existant.setEmail(lu.getEmail());
+        existant.setTelephone(lu.getTelephone());
+        existant.setMdp(lu.getMdp());
+
+        if (existant instanceof Etudiant && lu instanceof Etudiant) {
+            Etudiant etud = (Etudiant) existant;
+            etud.setNiveau(((Etudiant) lu).getNiveau());
+            etud.setFiliere(((Etudiant) lu).getFiliere());
+            etud.setEtablissement(((Etudiant) lu).getEtablissement());
+        } else if (existant instanceof Alumni && lu instanceof Alumni) {
+            Alumni alumni = (Alumni) existant;
+            alumni.setPosteActuel(((Alumni) lu).getPosteActuel());
+            alumni.setEntrepriseActuelle(((Alumni) lu).getEntrepriseActuelle());
+        }
+    }
+
+    // ========== INDEX DU REJEU ==========
+
+    /**
+     * Listes en mémoire indexées pour le rejeu : chaque enregistrement désigne
+     * son entité par CIN, email ou id, retrouvée sans parcourir les listes.
+     * Construit une fois par rejeu et tenu à jour par les mutations appliquées.
+     */
+    private static class Index {
+        private final List<Entreprise> entreprises;
+        private final List<Candidat> candidats;
+        private final List<Offre> offres;
+        private final List<Forum> commentaires;
+
+        /** Entreprises par email en minuscules */
+        private final Map<String, Entreprise> parEmail = new HashMap<>();
+        /** Entreprises par email exact, pour résoudre l'entreprise d'une offre */
+        final Map<String, Entreprise> entreprisesParEmail;
+        private final Map<Integer, Candidat> parCin = new HashMap<>();
+        /** Candidats par email en minuscules (unicité à l'inscription) */
+        private final Map<String, Candidat> parEmailCandidat = new HashMap<>();
+        private final Map<String, Offre> parId = new HashMap<>();
+        /** Offres par emailEntreprise|titre, construit au premier ancien enregistrement */
+        private Map<String, Offre> parCleAncienne;
+        private final Set<String> clesCommentaires = new HashSet<>();
+
+        Index(List<Entreprise> entreprises, List<Candidat> candidats,
+              List<Offre> offres, List<Forum> commentaires) {
+            this.entreprises = entreprises;
+            this.candidats = candidats;
+            this.offres = offres;
+            this.commentaires = commentaires;
+            this.entreprisesParEmail = FileManager.indexerParEmail(entreprises);
+            for (Entreprise e : entreprises) {
+                parEmail.putIfAbsent(e.getEmail().toLowerCase(Locale.ROOT), e);
+            }
+            for (Candidat c : candidats) {
+                parCin.putIfAbsent(c.getId(), c);
+                parEmailCandidat.putIfAbsent(c.getEmail().toLowerCase(Locale.ROOT), c);
+            }
+            for (Offre o : offres) {
+                parId.putIfAbsent(FileManager.cleOffre(o), o);
+            }
+            for (Forum f : commentaires) {
+                clesCommentaires.add(cle(f));
+            }
+        }
+
+        Entreprise entreprise(String email) {
+            return parEmail.get(email.toLowerCase(Locale.ROOT));
+        }
+
+        Candidat candidat(int cin) {
+            return parCin.get(cin);
+        }
+
+        Offre offre(String id) {
+            return parId.get(id);
+        }
+
+        Offre offreAncienne(String cle) {
+            if (parCleAncienne == null) {
+                parCleAncienne = new HashMap<>();
+                for (Offre o : offres) {
+                    parCleAncienne.putIfAbsent(FileManager.cleOffreAncienne(o), o);
+                }
+            }
+            return parCleAncienne.get(cle);
+        }
+
+        /**
+         * Retrouve l'offre désignée par les champs [debut, fin[ : un id, ou
+         * emailEntreprise|titre dans les lignes écrites avant les identifiants.
+         */
+        Offre offre(String[] parts, int debut, int fin) {
+            if (fin - debut == 1) {
+                return offre(parts[debut]);
+            }
+            return offreAncienne(parts[debut] + "|" + parts[debut + 1]);
+        }
+
+        void ajouter(Entreprise e) {
+            entreprises.add(e);
+            parEmail.put(e.getEmail().toLowerCase(Locale.ROOT), e);
+            entreprisesParEmail.putIfAbsent(e.getEmail(), e);
+        }
+
+        /**
+         * Ajoute un candidat lu sans contrôle d'unicité, comme l'aurait fait son
+         * constructeur avec la liste : un email déjà pris rejette l'enregistrement.
+         */
+        void ajouter(Candidat c) {
+            String email = c.getEmail().toLowerCase(Locale.ROOT);
+            if (parEmailCandidat.containsKey(email)) {
+                throw new IllegalArgumentException("Un candidat avec cet email existe déjà");
+            }
+            candidats.add(c);
+            parCin.put(c.getId(), c);
+            parEmailCandidat.put(email, c);
+        }
+
+        void mettreAJour(Candidat existant, Candidat lu) {
+            String ancien = existant.getEmail().toLowerCase(Locale.ROOT);
+            mettreAJourCandidat(existant, lu);
+            String nouveau = existant.getEmail().toLowerCase(Locale.ROOT);
+            if (!nouveau.equals(ancien)) {
+                parEmailCandidat.remove(ancien, existant);
+                parEmailCandidat.put(nouveau, existant);
+            }
+        }
+
+        void ajouter(Offre o) {
+            offres.add(o);
+            parId.put(FileManager.cleOffre(o), o);
+            if (parCleAncienne != null) {
+                parCleAncienne.putIfAbsent(FileManager.cleOffreAncienne(o), o);
+            }
+        }
+
+        void retirer(Offre o) {
+            offres.remove(o);
+            parId.remove(FileManager.cleOffre(o), o);
+            if (parCleAncienne != null) {
+                parCleAncienne.remove(FileManager.cleOffreAncienne(o), o);
+            }
+        }
+
+        void ajouter(Forum f) {
+            if (clesCommentaires.add(cle(f))) {
+                commentaires.add(f);
+            }
+        }
+
+        private static String cle(Forum f) {
+            return f.getId().toString();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+/**
+ * Lecture des fichiers de données par projection mémoire (FileChannel.map).
+ *
+ * Les octets sont parcourus directement à la recherche des '|' et des fins de
+ * ligne ; les entiers et les dates sont décodés depuis les octets. Une chaîne
+ * n'est créée que lorsque le chargeur demande le texte d'un champ.
+ *
+ * Les fins de ligne et les champs suivent BufferedReader.readLine() et
+ * String.split("\\|") : "\n", "\r" et "\r\n" terminent une ligne, et les
+ * champs vides en fin de ligne sont ignorés.
+ */
+public class LecteurMappe {
+
+    /** Taille maximale d'une fenêtre de projection */
+    private static final long FENETRE = 256L << 20;
+
+    /** Nombre maximal de champs par ligne suivis sans réallocation */
+    private static final int CHAMPS_INITIAUX = 16;
+
+    private LecteurMappe() {
+    }
+
+    /**
+     * Parcourt les lignes du fichier et appelle le traitement pour chacune.
+     * L'objet ChampsLigne transmis est réutilisé : il n'est valide que pendant l'appel.
+     *
+     * @param fichier Fichier à lire
+     * @param charset Encodage des chaînes (celui utilisé à l'écriture)
+     * @param traitement Traitement appliqué à chaque ligne
+     * @throws NoSuchFileException si le fichier n'existe pas
+     */
+    public static void lire(Path fichier, Charset charset, Consumer<ChampsLigne> traitement)
+            throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            long taille = canal.size();
+            long position = 0;
+            Ligne ligne = new Ligne(charset);
+
+            while (position < taille) {
+                long longueur = Math.min(FENETRE, taille - position);
+                MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, position, longueur);
+                boolean derniere = position + longueur == taille;
+                int lim = (int) longueur;
+
+                int debut = 0;
+                int i = 0;
+                while (i < lim) {
+                    byte b = buffer.get(i);
+                    if (b == '\n' || b == '\r') {
+                        ligne.decouper(buffer, debut, i);
+                        traitement.accept(ligne);
+                        // "\r\n" compte pour une seule fin de ligne
+                        if (b == '\r' && i + 1 < lim && buffer.get(i + 1) == '\n') {
+                            i++;
+                        } else if (b == '\r' && i + 1 == lim && !derniere) {
+                            // Le '\n' éventuel est dans la fenêtre suivante
+                            debut = i + 1;
+                            if (canal.map(FileChannel.MapMode.READ_ONLY, position + lim, 1).get(0) == '\n') {
+                                debut++;
+                            }
+                            i = lim;
+                            break;
+                        }
+                        debut = i + 1;
+                    }
+                    i++;
+                }
+
+                if (derniere) {
+                    // Dernière ligne sans fin de ligne
+                    if (debut < lim) {
+                        ligne.decouper(buffer, debut, lim);
+                        traitement.accept(ligne);
+                    }
+                    position = taille;
+                } else {
+                    if (debut == 0) {
+                        throw new IOException("Ligne plus longue que la fenêtre de lecture: " + fichier);
+                    }
+                    // Reprendre à la ligne incomplète dans la fenêtre suivante
+                    position += debut;
+                }
+            }
+        }
+    }
+
+    /**
+     * Vue sur une ligne de la projection : positions de début et de fin de chaque champ.
+     */
+    private static class Ligne implements ChampsLigne {
+
+        private final Charset charset;
+        private MappedByteBuffer buffer;
+        private int[] debuts = new int[CHAMPS_INITIAUX];
+        private int[] fins = new int[CHAMPS_INITIAUX];
+        private int nombre;
+
+        Ligne(Charset charset) {
+            this.charset = charset;
+        }
+
+        void decouper(MappedByteBuffer buffer, int debut, int fin) {
+            this.buffer = buffer;
+            nombre = 0;
+            int d = debut;
+            for (int i = debut; i < fin; i++) {
+                if (buffer.get(i) == '|') {
+                    ajouter(d, i);
+                    d = i + 1;
+                }
+            }
+            ajouter(d, fin);
+
+            // Comme split() : retirer les champs vides finaux, sauf si la ligne est vide
+            if (fin > debut) {
+                while (nombre > 0 && debuts[nombre - 1] == fins[nombre - 1]) {
+                    nombre--;
+                }
+            }
+        }
+
+        private void ajouter(int debut, int fin) {
+            if (nombre == debuts.length) {
+                debuts = java.util.Arrays.copyOf(debuts, nombre * 2);
+                fins = java.util.Arrays.copyOf(fins, nombre * 2);
+            }
+            debuts[nombre] = debut;
+            fins[nombre] = fin;
+            nombre++;
+        }
+
+        private void verifier(int i) {
+            if (i < 0 || i >= nombre) {
+                throw new ArrayIndexOutOfBoundsException(i);
+            }
+        }
+
+        @Override
+        public int taille() {
+            return nombre;
+        }
+
+        @Override
+        public String texte(int i) {
+            verifier(i);
+            byte[] octets = new byte[fins[i] - debuts[i]];
+            buffer.get(debuts[i], octets);
+            return new String(octets, charset);
+        }
+
+        @Override
+        public int entier(int i) {
+            verifier(i);
+            int d = debuts[i], f = fins[i];
+            // Cas courant : chiffres ASCII avec signe optionnel, sans dépassement
+            if (f > d && f - d <= 10) {
+                boolean negatif = false;
+                int p = d;
+                byte premier = buffer.get(p);
+                if (premier == '-' || premier == '+') {
+                    negatif = premier == '-';
+                    p++;
+                }
+                if (p < f) {
+                    long valeur = 0;
+                    for (; p < f; p++) {
+                        int chiffre = buffer.get(p) - '0';
+                        if (chiffre < 0 || chiffre > 9) {
+                            return Integer.parseInt(texte(i));
+                        }
+                        valeur = valeur * 10 + chiffre;
+                    }
+                    valeur = negatif ? -valeur : valeur;
+                    if (valeur >= Integer.MIN_VALUE && valeur <= Integer.MAX_VALUE) {
+                        return (int) valeur;
+                    }
+                }
+            }
+            // Tout autre cas : même résultat (ou même exception) que le chargeur texte
+            return Integer.parseInt(texte(i));
+        }
+
+        @Override
+        public LocalDate date(int i) {
+            verifier(i);
+            int d = debuts[i];
+            // Cas courant : aaaa-mm-jj
+            if (fins[i] - d == 10 && buffer.get(d + 4) == '-' && buffer.get(d + 7) == '-') {
+                int annee = chiffres(d, 4), mois = chiffres(d + 5, 2), jour = chiffres(d + 8, 2);
+                if (annee >= 0 && mois >= 0 && jour >= 0) {
+                    try {
+                        return LocalDate.of(annee, mois, jour);
+                    } catch (DateTimeException e) {
+                        // Date invalide : laisser LocalDate.parse lever son exception
+                    }
+                }
+            }
+            return LocalDate.parse(texte(i));
+        }
+
+        private int chiffres(int debut, int n) {
+            int valeur = 0;
+            for (int p = debut; p < debut + n; p++) {
+                int chiffre = buffer.get(p) - '0';
+                if (chiffre < 0 || chiffre > 9) {
+                    return -1;
+                }
+                valeur = valeur * 10 + chiffre;
+            }
+            return valeur;
+        }
+
+        @Override
+        public boolean booleen(int i) {
+            verifier(i);
+            if (fins[i] - debuts[i] != 4) {
+                return false;
+            }
+            return egalSansCasse(debuts[i], "true");
+        }
+
+        @Override
+        public boolean egal(int i, String valeur) {
+            verifier(i);
+            if (!estAscii(valeur)) {
+                return texte(i).equals(valeur);
+            }
+            int d = debuts[i];
+            if (fins[i] - d != valeur.length()) {
+                return false;
+            }
+            for (int k = 0; k < valeur.length(); k++) {
+                if (buffer.get(d + k) != valeur.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean egalSansCasse(int debut, String valeur) {
+            for (int k = 0; k < valeur.length(); k++) {
+                int b = buffer.get(debut + k);
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                if (b != valeur.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean estAscii(String s) {
+            for (int k = 0; k < s.length(); k++) {
+                if (s.charAt(k) >= 0x80) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
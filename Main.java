@@ -1,6 +1,7 @@
 package application;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.layout.VBox;
@@ -15,6 +16,8 @@ public class Main extends Application {
     public void start(Stage primaryStage) {
         try {
             // Initialiser les données au démarrage
+            // (les modifications des autres instances sont appliquées sur le thread JavaFX)
+            DataManager.getInstance().setExecuteurInterface(Platform::runLater);
             DataManager.getInstance().initialiser();
             
             // Charger la vue d'accueil (WelcomeView)
@@ -52,9 +55,12 @@ public class Main extends Application {
     
     @Override
     public void stop() {
-        // Sauvegarder les données avant de quitter
-        DataManager.getInstance().sauvegarder();
-        System.out.println("✅ Application fermée et données sauvegardées !");
+        // Vider la file de sauvegarde et compacter le journal avant de quitter
+        if (DataManager.getInstance().arreter()) {
+            System.out.println("✅ Application fermée et données sauvegardées !");
+        } else {
+            System.out.println("❌ Application fermée sans sauvegarde complète : les modifications seront rejouées depuis le journal au prochain démarrage");
+        }
     }
     
     public static void main(String[] args) {
@@ -208,6 +208,17 @@ public class MesOffresController {
         }
     }
 
+    /**
+     * Exporter les offres de l'entreprise (CSV ou JSON Lines) en arrière-plan
+     */
+    @FXML
+    private void handleExporter() {
+        ExportDonnees export = DataManager.getInstance().getExportDonnees();
+        ExportTache.lancer(tableOffres.getScene().getWindow(), "offres",
+            (canal, format, progression) ->
+                export.exporterOffresEntreprise(entrepriseConnectee, canal, format, progression));
+    }
+
     /**
      * Navigation vers l'écran de création d'offre
      */
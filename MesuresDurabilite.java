@@ -0,0 +1,85 @@
+package service;
+
+/**
+ * Mesures de durabilité d'un fichier : écritures rendues durables, nombre de
+ * synchronisations disque (fsync) et latence entre la demande et le moment
+ * où l'écriture est garantie sur disque.
+ *
+ * Avec la validation groupée (CommitGroupe), un seul fsync couvre plusieurs
+ * écritures : le rapport écritures / fsync en mesure l'efficacité.
+ */
+public class MesuresDurabilite {
+
+    private final String nom;
+    private final long debut = System.nanoTime();
+
+    private long ecritures;
+    private long synchronisations;
+    private long latenceTotale;
+    private long latenceMax;
+
+    public MesuresDurabilite(String nom) {
+        this.nom = nom;
+    }
+
+    /**
+     * Enregistre une écriture devenue durable.
+     *
+     * @param latenceNanos Durée entre la demande et la fin du fsync qui la couvre
+     */
+    public synchronized void noterEcriture(long latenceNanos) {
+        ecritures++;
+        latenceTotale += latenceNanos;
+        latenceMax = Math.max(latenceMax, latenceNanos);
+    }
+
+    /**
+     * Enregistre un fsync.
+     */
+    public synchronized void noterSynchronisation() {
+        synchronisations++;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public synchronized long getEcritures() {
+        return ecritures;
+    }
+
+    public synchronized long getSynchronisations() {
+        return synchronisations;
+    }
+
+    /**
+     * @return La latence moyenne de durabilité en millisecondes
+     */
+    public synchronized double getLatenceMoyenneMs() {
+        return ecritures == 0 ? 0 : latenceTotale / 1e6 / ecritures;
+    }
+
+    /**
+     * @return La plus longue latence de durabilité en millisecondes
+     */
+    public synchronized double getLatenceMaxMs() {
+        return latenceMax / 1e6;
+    }
+
+    /**
+     * @return Le nombre moyen d'écritures durables par seconde depuis la création
+     */
+    public synchronized double getEcrituresParSeconde() {
+        double secondes = (System.nanoTime() - debut) / 1e9;
+        return secondes <= 0 ? 0 : ecritures / secondes;
+    }
+
+    /**
+     * Résumé lisible des mesures.
+     */
+    public synchronized String resume() {
+        return String.format("- %s: %d écriture(s) durable(s), %d fsync, latence moyenne %.2f ms (max %.2f ms), %.1f écriture(s)/s%n",
+                nom, ecritures, synchronisations, getLatenceMoyenneMs(), getLatenceMaxMs(),
+                getEcrituresParSeconde());
+    }
+}
@@ -0,0 +1,397 @@
+package service;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import models.*;
+
+/**
+ * Migration du dossier data vers le format actuel des fichiers texte.
+ *
+ * Versions du format (notée dans data/version.txt) :
+ *   1 : formats historiques mêlés (fichier version.txt absent) : entreprises
+ *       sans mot de passe (5 champs), candidats sans CIN ni mot de passe
+ *       (4 à 7 champs, CIN généré à partir de 10000000), offres sans identifiant
+ *   2 : chaque ligne porte son identifiant et son mot de passe ;
+ *       les chargeurs ne lisent plus que ce format
+ *
+ * Chaque fichier est lu ligne à ligne et réécrit dans un fichier temporaire,
+ * forcé sur disque puis renommé, comme une sauvegarde : seuls les CIN et les
+ * emails des candidats sont gardés en mémoire, pour attribuer les mêmes CIN
+ * que l'ancien chargement. Les fichiers déjà migrés sont notés dans
+ * data/migration.etat : une migration interrompue reprend au fichier suivant.
+ *
+ * Un compte de l'ancien format avait le mot de passe "default123", connu de
+ * tous : il reçoit un mot de passe provisoire aléatoire, consigné avec son
+ * email dans data/mots-de-passe-provisoires.txt pour être transmis au titulaire
+ * (en cas de reprise, la dernière ligne d'un email fait foi).
+ *
+ * Une ligne illisible est recopiée telle quelle : le chargeur la rejettera
+ * et la consignera dans son rapport, comme avant la migration.
+ */
+public class MigrationDonnees {
+
+    public static final int FORMAT_ACTUEL = 2;
+
+    /** Premier CIN attribué aux candidats de l'ancien format */
+    private static final int PREMIER_CIN_GENERE = 10000000;
+
+    private static final String ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz23456789";
+    private static final int LONGUEUR_MDP = 12;
+
+    /**
+     * Lignes traitées d'un fichier.
+     */
+    public static class RapportFichier {
+        private final String fichier;
+        private long lues;
+        private long migrees;
+        private long illisibles;
+        private long identifiantsGeneres;
+        private long motsDePasseGeneres;
+        private boolean dejaMigre;
+
+        RapportFichier(String fichier) {
+            this.fichier = fichier;
+        }
+
+        public String getFichier() { return fichier; }
+        public long getLues() { return lues; }
+        public long getMigrees() { return migrees; }
+        public long getIllisibles() { return illisibles; }
+        public long getIdentifiantsGeneres() { return identifiantsGeneres; }
+        public long getMotsDePasseGeneres() { return motsDePasseGeneres; }
+        public boolean isDejaMigre() { return dejaMigre; }
+
+        @Override
+        public String toString() {
+            if (dejaMigre) {
+                return fichier + ": déjà migré";
+            }
+            return fichier + ": " + lues + " ligne(s), " + migrees + " migrée(s) ("
+                + identifiantsGeneres + " identifiant(s) et " + motsDePasseGeneres
+                + " mot(s) de passe générés), " + illisibles + " illisible(s)";
+        }
+    }
+
+    private final FileManager fileManager;
+    private final Path fichierVersion;
+    private final Path fichierEtat;
+    private final Path fichierMotsDePasse;
+    private final SecureRandom alea = new SecureRandom();
+
+    public MigrationDonnees(FileManager fileManager) {
+        this.fileManager = fileManager;
+        Path dossier = fileManager.getFichierVersion().getParent();
+        this.fichierVersion = fileManager.getFichierVersion();
+        this.fichierEtat = dossier.resolve("migration.etat");
+        this.fichierMotsDePasse = dossier.resolve("mots-de-passe-provisoires.txt");
+    }
+
+    /**
+     * @return La version du format du dossier data : celle de version.txt,
+     *         1 si le fichier est absent alors que des données existent
+     */
+    public int lireVersion() {
+        try {
+            return Integer.parseInt(new String(Files.readAllBytes(fichierVersion), "UTF-8").trim());
+        } catch (NoSuchFileException e) {
+            for (Path fichier : fileManager.getFichiersDonnees()) {
+                if (Files.exists(fichier)) {
+                    return 1;
+                }
+            }
+            return FORMAT_ACTUEL;
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Version illisible dans " + fichierVersion + ": " + e.getMessage());
+        }
+    }
+
+    public boolean estNecessaire() {
+        return lireVersion() < FORMAT_ACTUEL;
+    }
+
+    /**
+     * Migre le dossier data (sous le verrou partagé avec les autres instances),
+     * ou simule la migration sans rien écrire.
+     *
+     * @param simulation true pour seulement compter les lignes à migrer
+     * @return Le rapport de chaque fichier de données
+     * @throws IOException si un fichier n'a pas pu être lu ou écrit ; la
+     *         migration peut être relancée, les fichiers terminés sont conservés
+     */
+    public List<RapportFichier> migrer(boolean simulation) throws IOException {
+        VerrouDonnees verrou = fileManager.getVerrou();
+        verrou.prendre();
+        try {
+            return migrerVerrouille(simulation);
+        } finally {
+            verrou.liberer();
+        }
+    }
+
+    private List<RapportFichier> migrerVerrouille(boolean simulation) throws IOException {
+        List<RapportFichier> rapports = new ArrayList<>();
+        if (lireVersion() >= FORMAT_ACTUEL) {
+            if (!simulation && !Files.exists(fichierVersion)) {
+                // Dossier neuf : les fichiers qui y seront créés sont au format actuel
+                ecrireVersion();
+            }
+            return rapports;
+        }
+        Set<String> termines = new HashSet<>();
+        if (Files.exists(fichierEtat)) {
+            termines.addAll(Files.readAllLines(fichierEtat, Charset.forName("UTF-8")));
+        }
+
+        List<Path> fichiers = fileManager.getFichiersDonnees();
+        // Dans l'ordre de getFichiersDonnees() : entreprises, candidats, offres
+        List<Conversion> conversions = Arrays.asList(
+            new ConversionEntreprises(), new ConversionCandidats(), new ConversionOffres());
+        for (int i = 0; i < fichiers.size(); i++) {
+            Path fichier = fichiers.get(i);
+            RapportFichier rapport = new RapportFichier(fichier.getFileName().toString());
+            rapports.add(rapport);
+            if (termines.contains(rapport.getFichier())) {
+                rapport.dejaMigre = true;
+                continue;
+            }
+            if (Files.exists(fichier)) {
+                migrerFichier(fichier, conversions.get(i), rapport, simulation);
+            }
+            if (!simulation) {
+                noterTermine(rapport.getFichier());
+            }
+        }
+
+        if (!simulation) {
+            ecrireVersion();
+            Files.deleteIfExists(fichierEtat);
+        }
+        return rapports;
+    }
+
+    private void ecrireVersion() throws IOException {
+        Path tmp = fichierVersion.resolveSibling(fichierVersion.getFileName() + ".tmp");
+        Files.write(tmp, (FORMAT_ACTUEL + "\n").getBytes("UTF-8"),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
+        Files.move(tmp, fichierVersion, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileManager.synchroniserDossier(fichierVersion);
+    }
+
+    private void noterTermine(String fichier) throws IOException {
+        Files.write(fichierEtat, (fichier + "\n").getBytes("UTF-8"), StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    /**
+     * Réécrit un fichier ligne à ligne dans un fichier temporaire, forcé sur
+     * disque puis renommé (rien n'est écrit en simulation).
+     */
+    private void migrerFichier(Path fichier, Conversion conversion, RapportFichier rapport,
+                               boolean simulation) throws IOException {
+        Path tmp = fichier.resolveSibling(fichier.getFileName() + ".migration");
+        List<String> motsDePasse = new ArrayList<>();
+        try (BufferedReader entree = Files.newBufferedReader(fichier, Charset.defaultCharset());
+             FileOutputStream flux = simulation ? null : new FileOutputStream(tmp.toFile());
+             BufferedWriter sortie = simulation ? null
+                 : new BufferedWriter(new OutputStreamWriter(flux, Charset.defaultCharset()))) {
+            String ligne;
+            while ((ligne = entree.readLine()) != null) {
+                if (ligne.isEmpty()) {
+                    continue;
+                }
+                rapport.lues++;
+                String migree = conversion.convertir(ligne, rapport, motsDePasse);
+                if (migree == null) {
+                    migree = ligne;
+                } else {
+                    rapport.migrees++;
+                }
+                if (sortie != null) {
+                    sortie.write(migree);
+                    sortie.newLine();
+                    if (!motsDePasse.isEmpty()) {
+                        noterMotsDePasse(motsDePasse);
+                    }
+                }
+                motsDePasse.clear();
+            }
+            if (sortie != null) {
+                sortie.flush();
+                flux.getFD().sync();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        if (!simulation) {
+            Files.move(tmp, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileManager.synchroniserDossier(fichier);
+        }
+    }
+
+    private void noterMotsDePasse(List<String> lignes) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String l : lignes) {
+            sb.append(l).append('\n');
+        }
+        Files.write(fichierMotsDePasse, sb.toString().getBytes("UTF-8"), StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    private String motDePasseProvisoire() {
+        char[] mdp = new char[LONGUEUR_MDP];
+        for (int i = 0; i < mdp.length; i++) {
+            mdp[i] = ALPHABET.charAt(alea.nextInt(ALPHABET.length()));
+        }
+        return new String(mdp);
+    }
+
+    // ========== CONVERSIONS ==========
+
+    private interface Conversion {
+        /**
+         * @param motsDePasse Complétée avec "email|mot de passe provisoire" pour chaque mot de passe généré
+         * @return La ligne au format actuel, ou null si elle est déjà au format actuel ou illisible
+         */
+        String convertir(String ligne, RapportFichier rapport, List<String> motsDePasse);
+    }
+
+    /**
+     * Format actuel : nom|secteur|adresse|email|telephone|mdp
+     * Ancien format : les 5 premiers champs, mot de passe "default123"
+     */
+    private class ConversionEntreprises implements Conversion {
+        @Override
+        public String convertir(String ligne, RapportFichier rapport, List<String> motsDePasse) {
+            String[] parts = ligne.split("\\|");
+            if (parts.length >= 6) {
+                return null;
+            }
+            if (parts.length < 5) {
+                rapport.illisibles++;
+                return null;
+            }
+            String mdp = motDePasseProvisoire();
+            rapport.motsDePasseGeneres++;
+            motsDePasse.add(parts[3] + "|" + mdp);
+            return String.join("|", parts[0], parts[1], parts[2], parts[3], parts[4], mdp);
+        }
+    }
+
+    /**
+     * Format actuel : id|type|nom|prenom|email|telephone|mdp|...infos spécifiques
+     * (7 champs pour un candidat simple, 10 pour un étudiant ou un alumni).
+     *
+     * Anciens formats, sans CIN ni mot de passe :
+     *   nom|prenom|email|telephone|niveau|filiere|etablissement (étudiant)
+     *   nom|prenom|email|telephone|anneeDiplome|posteActuel (alumni)
+     *   nom|prenom|email|telephone (candidat simple)
+     * Le CIN généré est 10000000 + le nombre de candidats acceptés avant la
+     * ligne, comme au chargement : les candidatures déjà enregistrées sous ce
+     * CIN restent valides.
+     */
+    private class ConversionCandidats implements Conversion {
+        private final Set<Integer> cins = new HashSet<>();
+        private final Set<String> emails = new HashSet<>();
+        private int acceptes;
+
+        @Override
+        public String convertir(String ligne, RapportFichier rapport, List<String> motsDePasse) {
+            String[] parts = ligne.split("\\|");
+            boolean actuel = estFormatActuel(parts);
+            Candidat c;
+            try {
+                c = actuel ? fileManager.parserCandidat(parts, null) : parserAncien(parts);
+            } catch (IllegalArgumentException e) {
+                c = null;
+            }
+            if (c == null) {
+                rapport.illisibles++;
+                return null;
+            }
+            // Même contrôle d'unicité que le chargement, pour compter les candidats acceptés
+            String email = Candidat.normaliserEmail(c.getEmail());
+            if (cins.contains(c.getId()) || emails.contains(email)) {
+                return null;
+            }
+            cins.add(c.getId());
+            emails.add(email);
+            acceptes++;
+            if (actuel) {
+                return null;
+            }
+            rapport.identifiantsGeneres++;
+            rapport.motsDePasseGeneres++;
+            motsDePasse.add(c.getEmail() + "|" + c.getMdp());
+            return fileManager.formaterCandidat(c);
+        }
+
+        private Candidat parserAncien(String[] parts) {
+            if (parts.length < 4) {
+                return null;
+            }
+            int id = PREMIER_CIN_GENERE + acceptes;
+            String mdp = motDePasseProvisoire();
+            if (parts.length == 7) {
+                return new Etudiant(id, parts[0], parts[1], parts[2], parts[3], mdp,
+                    parts[4], parts[5], parts[6], null);
+            } else if (parts.length == 6) {
+                return new Alumni(id, parts[0], parts[1], parts[2], parts[3], mdp,
+                    Integer.parseInt(parts[4]), parts[5], "", null);
+            }
+            return new Candidat(id, parts[0], parts[1], parts[2], parts[3], mdp, null);
+        }
+    }
+
+    /**
+     * @return true si la ligne commence par un CIN suivi d'un type de candidat
+     */
+    static boolean estFormatActuel(String[] parts) {
+        if (parts.length < 7 || parts[0].isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < parts[0].length(); i++) {
+            if (!Character.isDigit(parts[0].charAt(i))) {
+                return false;
+            }
+        }
+        return parts[1].equals("etudiant") || parts[1].equals("alumni") || parts[1].equals("simple");
+    }
+
+    /**
+     * Format actuel : id|type|titre|description|emailEntreprise|datePublication|dateExpiration|...
+     * Ancien format : sans id ; l'identifiant est dérivé de la date de
+     * publication, pour garder l'offre à sa place dans l'ordre chronologique.
+     */
+    private class ConversionOffres implements Conversion {
+        @Override
+        public String convertir(String ligne, RapportFichier rapport, List<String> motsDePasse) {
+            String[] parts = ligne.split("\\|");
+            if (parts.length >= 7 && FileManager.estIdentifiant(parts[0])) {
+                return null;
+            }
+            if (parts.length < 6) {
+                rapport.illisibles++;
+                return null;
+            }
+            LocalDate publication;
+            try {
+                publication = LocalDate.parse(parts[4]);
+            } catch (DateTimeParseException e) {
+                rapport.illisibles++;
+                return null;
+            }
+            UUID id = UuidTemporel.pourInstant(
+                publication.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            rapport.identifiantsGeneres++;
+            return id + "|" + ligne;
+        }
+    }
+}
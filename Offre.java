@@ -11,14 +11,15 @@ import java.util.UUID;
  * Une offre peut être un stage, une alternance ou un projet de fin d'études.
  * Cette classe sert de classe parent pour les classes spécialisées (Stage, Alternance, ProjetFinEtudes).
  * 
- * Chaque offre est identifiée par un UUID unique, possède des dates de publication et d'expiration,
+ * Chaque offre est identifiée par un UUID unique ordonné dans le temps (voir UuidTemporel),
+ * possède des dates de publication et d'expiration,
  * est liée à une entreprise et peut recevoir plusieurs candidatures.
  */
 public class Offre {
 
     // ----------------------------- Attributs privés -----------------------------
     
-    /** Identifiant unique de l'offre (généré automatiquement) */
+    /** Identifiant unique de l'offre (généré automatiquement, croissant avec la date de création) */
     private UUID id;
     
     /** Titre de l'offre */
@@ -49,7 +50,7 @@ public class Offre {
      * 
      * Ce constructeur effectue les validations suivantes :
      * - Vérification de la présence de tous les champs obligatoires
-     * - Génération automatique d'un UUID unique
+     * - Génération automatique d'un UUID unique ordonné dans le temps
      * - Initialisation de la date de publication à la date actuelle
      * - Initialisation d'une liste vide pour les candidatures
      * 
@@ -80,8 +81,8 @@ public class Offre {
             throw new IllegalArgumentException("L'entreprise est obligatoire");
         }
         
-        // Génération d'un UUID unique pour l'offre
-        this.id = UUID.randomUUID();
+        // Génération d'un UUID unique pour l'offre (ordonné par date de création)
+        this.id = UuidTemporel.nouveau();
         
         // Initialisation des attributs
         this.titre = titre.trim();
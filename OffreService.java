@@ -1,7 +1,9 @@
 package service;
 
 import java.util.*;
+import java.util.function.Function;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import models.*;
 
 /*Service de gestion des offres (stages, alternances, projets fin d'études).
@@ -12,6 +14,7 @@ import models.*;
  * - Gérer les dates d'expiration
  * - Obtenir des statistiques sur les offres
  * - Supprimer des offres
+ * - Archiver les offres expirées depuis longtemps
  * 
  * Le service utilise la hiérarchie : Offre → OffreSpecialisee → Stage/Alternance/ProjetFinEtudes*/
 public class OffreService {
@@ -20,6 +23,24 @@ public class OffreService {
     
     /** Liste de toutes les offres du système */
     private List<Offre> offres;
+    
+    /** Les mêmes offres triées par identifiant, c'est-à-dire par date de création */
+    private NavigableMap<UUID, Offre> offresParId = new TreeMap<>();
+    
+    /** Index plein texte des mêmes offres (critère "toutes") */
+    private IndexTexteOffres indexTexte;
+    
+    /** Index de trigrammes des mêmes offres (sous-chaînes : titre, entreprise, domaine, toutes) */
+    private IndexTrigrammes<Offre> indexSousChaines;
+    
+    /** Suggestions du champ de recherche, construites à la première demande */
+    private AutocompletionOffres autocompletion;
+    
+    /** Journalisation et suivi des modifications (sans effet si le service est utilisé sans persistance) */
+    private EnregistreurMutations mutations;
+    
+    /** Archives des offres expirées (null si l'archivage n'est pas utilisé) */
+    private ArchiveOffres archive;
 
     // ----------------------------- Constructeur -----------------------------
     
@@ -29,7 +50,42 @@ public class OffreService {
      * @param offres Liste des offres du système
      */
     public OffreService(List<Offre> offres) {
+        this(offres, new EnregistreurMutations());
+    }
+    
+    /**
+     * Construit un nouveau service de gestion des offres journalisé.
+     * 
+     * @param offres Liste des offres du système
+     * @param mutations Enregistreur des modifications (journal et suivi)
+     */
+    public OffreService(List<Offre> offres, EnregistreurMutations mutations) {
+        this(offres, mutations, null);
+    }
+    
+    /**
+     * Construit un nouveau service de gestion des offres journalisé, avec archivage.
+     * 
+     * @param offres Liste des offres du système
+     * @param mutations Enregistreur des modifications (journal et suivi)
+     * @param archive Archives où déplacer les offres expirées
+     */
+    public OffreService(List<Offre> offres, EnregistreurMutations mutations, ArchiveOffres archive) {
         this.offres = offres;
+        this.mutations = mutations;
+        this.archive = archive;
+        for (Offre offre : offres) {
+            offresParId.put(offre.getId(), offre);
+        }
+        this.indexTexte = new IndexTexteOffres(offres);
+        LinkedHashMap<String, Function<Offre, String>> champs = new LinkedHashMap<>();
+        champs.put("titre", Offre::getTitre);
+        champs.put("entreprise", o -> o.getEntreprise().getNom());
+        champs.put("domaine", o -> o instanceof Stage ? ((Stage) o).getDomaine() : null);
+        champs.put("type", Offre::getTypeOffre);
+        champs.put("description", Offre::getDescription);
+        this.indexSousChaines = new IndexTrigrammes<>(offres, champs);
+        this.autocompletion = new AutocompletionOffres(offres);
     }
 
     // ========== CRÉATION ET GESTION DES OFFRES ==========
@@ -103,12 +159,20 @@ public class OffreService {
             
             // Si l'offre a été créée avec succès
             if (nouvelleOffre != null) {
+                // Journaliser avant tout ajout : un échec d'écriture ne laisse rien en mémoire
+                if (!mutations.offreCreee(nouvelleOffre)) {
+                    System.out.println("❌ Offre non enregistrée (écriture impossible)");
+                    return false;
+                }
+                
                 // Ajouter à la liste générale des offres
                 offres.add(nouvelleOffre);
+                offresParId.put(nouvelleOffre.getId(), nouvelleOffre);
+                indexTexte.ajouter(nouvelleOffre);
+                autocompletion.ajouter(nouvelleOffre);
                 
                 // Ajouter à la liste des offres de l'entreprise
                 entreprise.getOffresPubliees().add(nouvelleOffre);
-                
                 return true;
             }
             
@@ -146,6 +210,12 @@ public class OffreService {
             if (offre.getId().toString().equals(idOffre) && 
                 offre.getEntreprise().equals(entreprise)) {
                 
+                // Journaliser avant de retirer quoi que ce soit
+                if (!mutations.offreSupprimee(offre)) {
+                    System.out.println("❌ Offre non supprimée (écriture impossible)");
+                    return false;
+                }
+                
                 // Étape 1 : Retirer l'offre des candidatures de tous les candidats
                 for (Candidat c : offre.getCandidatures()) {
                     c.getCandidaturesEnCours().remove(offre);
@@ -156,6 +226,10 @@ public class OffreService {
                 
                 // Étape 3 : Retirer de la liste générale des offres
                 offres.remove(i);
+                offresParId.remove(offre.getId());
+                indexTexte.retirer(offre);
+                indexSousChaines.retirer(offre);
+                autocompletion.retirer(offre);
                 
                 System.out.println("✅ Offre supprimée avec succès");
                 return true;
@@ -167,6 +241,84 @@ public class OffreService {
         return false;
     }
 
+    /* Ajoute une offre lue par un import en masse (ImportDonnees).
+     *
+     * L'offre n'est pas journalisée : l'import réécrit les offres en une fois
+     * à la fin, au lieu d'une entrée de journal forcée sur disque par ligne
+     * (avec une base, elle est écrite tout de suite, comme une offre créée).
+     *
+     * @param offre Offre construite par FileManager.parserOffre
+     * @return false si une offre de même identifiant existe déjà ou si
+     *         l'offre n'a pas pu être écrite*/
+    public boolean importerOffre(Offre offre) {
+        if (offresParId.containsKey(offre.getId())) {
+            return false;
+        }
+        if (!mutations.offreImportee(offre)) {
+            System.out.println("❌ Offre importée non enregistrée (écriture impossible)");
+            return false;
+        }
+        offres.add(offre);
+        offresParId.put(offre.getId(), offre);
+        indexTexte.ajouter(offre);
+        autocompletion.ajouter(offre);
+        offre.getEntreprise().getOffresPubliees().add(offre);
+        return true;
+    }
+
+    /* Déplace dans les archives les offres expirées depuis plus de delaiJours,
+     * avec leurs candidatures. Les parcours des offres (recherche, offres
+     * disponibles, statistiques, recommandations) ne voient ensuite plus que
+     * les offres vivantes ou récemment expirées ; les offres archivées restent
+     * consultables via HistoriqueService.
+     * 
+     * Les archives sont écrites avant que les offres soient retirées. L'opération
+     * n'est pas journalisée : après un arrêt brutal, une offre archivée encore
+     * présente dans offres.txt est simplement archivée à nouveau (sans doublon).
+     * 
+     * @param delaiJours Délai de grâce après la date d'expiration
+     * @return Le nombre d'offres archivées*/
+    public int archiverOffresExpirees(int delaiJours) {
+        if (archive == null) {
+            return 0;
+        }
+        LocalDate limite = LocalDate.now().minusDays(delaiJours);
+        List<Offre> aArchiver = new ArrayList<>();
+        for (Offre offre : offres) {
+            if (offre.getDateExpiration() != null && offre.getDateExpiration().isBefore(limite)) {
+                aArchiver.add(offre);
+            }
+        }
+        if (aArchiver.isEmpty()) {
+            return 0;
+        }
+        if (!archive.archiver(aArchiver)) {
+            System.out.println("❌ Archivage des offres expirées impossible");
+            return 0;
+        }
+        // Déjà dans les archives : un échec ici les archivera à nouveau (sans doublon)
+        if (!mutations.offresArchivees(aArchiver)) {
+            System.out.println("❌ Offres archivées non retirées (écriture impossible)");
+            return 0;
+        }
+        
+        // Retirer les offres archivées de la liste générale en une passe
+        Set<Offre> archivees = new HashSet<>(aArchiver);
+        offres.removeIf(archivees::contains);
+        for (Offre offre : aArchiver) {
+            offresParId.remove(offre.getId());
+            indexTexte.retirer(offre);
+            indexSousChaines.retirer(offre);
+            autocompletion.retirer(offre);
+            offre.getEntreprise().getOffresPubliees().remove(offre);
+            for (Candidat c : offre.getCandidatures()) {
+                c.getCandidaturesEnCours().remove(offre);
+            }
+        }
+        System.out.println("📦 " + aArchiver.size() + " offre(s) expirée(s) archivée(s)");
+        return aArchiver.size();
+    }
+
     // ========== RECHERCHE D'OFFRES ==========
     
     /* Recherche des offres selon un critère et une valeur.
@@ -176,7 +328,16 @@ public class OffreService {
      * - "type" : recherche par type exact (Stage, Alternance, etc.)
      * - "entreprise" : recherche par nom d'entreprise
      * - "domaine" : recherche le domaine (pour les stages uniquement)
-     * - "toutes" : recherche dans tous les champs
+     *   (ces trois critères cherchent une sous-chaîne, sans tenir compte de la
+     *   casse ni des accents, par l'index de trigrammes)
+     * - "toutes" : d'abord les offres dont le titre, le type, l'entreprise ou la
+     *   description contient la valeur (sous-chaîne, comme les critères
+     *   précédents : "veloppeur" ou "java dev" trouvent ce qu'ils trouvaient),
+     *   puis celles que trouve en plus la recherche plein texte de l'index
+     *   inversé, qui couvre aussi le domaine, le sujet et les technologies :
+     *   tous les mots sont requis, "OU" sépare des alternatives, et un mot
+     *   désigne les mots qui commencent par lui, après analyse (casse,
+     *   accents, pluriels et féminins, synonymes : voir AnalyseurTexte)
      * 
      * Seules les offres non expirées sont retournées.
      * 
@@ -184,56 +345,47 @@ public class OffreService {
      * @param valeur La valeur à rechercher
      * @return Liste des offres correspondantes*/
     public List<Offre> rechercherOffres(String critere, String valeur) {
-        List<Offre> resultats = new ArrayList<>();
+        List<Offre> trouvees;
         
-        // Parcourir toutes les offres
-        for (Offre offre : offres) {
-            // Ignorer les offres expirées
-            if (!offre.estExpiree()) {
-                boolean match = false;
+        switch (critere.toLowerCase()) {
+            case "titre":
+            case "entreprise":
+            case "domaine":
+                // Recherche de sous-chaîne (insensible à la casse et aux accents) par l'index de trigrammes
+                trouvees = indexSousChaines.rechercher(valeur, critere.toLowerCase());
+                break;
                 
-                // Appliquer le critère de recherche
-                switch (critere.toLowerCase()) {
-                    case "titre":
-                        // Recherche dans le titre (insensible à la casse)
-                        match = offre.getTitre().toLowerCase().contains(valeur.toLowerCase());
-                        break;
-                        
-                    case "type":
-                        // Recherche par type exact
-                        match = offre.getTypeOffre().equalsIgnoreCase(valeur);
-                        break;
-                        
-                    case "entreprise":
-                        // Recherche dans le nom de l'entreprise
-                        match = offre.getEntreprise().getNom().toLowerCase()
-                                    .contains(valeur.toLowerCase());
-                        break;
-                        
-                    case "domaine":
-                        // Recherche spécifique pour les stages
-                        // Utilisation de instanceof pour vérifier le type réel
-                        if (offre instanceof Stage) {
-                            Stage stage = (Stage) offre;
-                            match = stage.getDomaine().toLowerCase()
-                                        .contains(valeur.toLowerCase());
-                        }
-                        break;
-                        
-                    case "toutes":
-                        // Recherche globale dans tous les champs
-                        match = offre.getTitre().toLowerCase().contains(valeur.toLowerCase()) ||
-                               offre.getTypeOffre().toLowerCase().contains(valeur.toLowerCase()) ||
-                               offre.getEntreprise().getNom().toLowerCase()
-                                    .contains(valeur.toLowerCase()) ||
-                               offre.getDescription().toLowerCase().contains(valeur.toLowerCase());
-                        break;
+            case "type":
+                // Recherche par type exact
+                trouvees = new ArrayList<>();
+                for (Offre offre : offres) {
+                    if (offre.getTypeOffre().equalsIgnoreCase(valeur)) {
+                        trouvees.add(offre);
+                    }
                 }
+                break;
                 
-                // Si l'offre correspond, l'ajouter aux résultats
-                if (match) {
-                    resultats.add(offre);
+            case "toutes":
+                // Sous-chaîne dans les champs de toujours, puis compléments du plein texte
+                trouvees = indexSousChaines.rechercher(valeur, "titre", "type", "entreprise", "description");
+                Set<Offre> dejaTrouvees = Collections.newSetFromMap(new IdentityHashMap<>());
+                dejaTrouvees.addAll(trouvees);
+                for (Offre offre : indexTexte.rechercher(valeur)) {
+                    if (dejaTrouvees.add(offre)) {
+                        trouvees.add(offre);
+                    }
                 }
+                break;
+                
+            default:
+                trouvees = new ArrayList<>();
+        }
+        
+        // Ignorer les offres expirées
+        List<Offre> resultats = new ArrayList<>();
+        for (Offre offre : trouvees) {
+            if (!offre.estExpiree()) {
+                resultats.add(offre);
             }
         }
         
@@ -241,6 +393,17 @@ public class OffreService {
         return resultats;
     }
 
+    /* Suggestions pour le champ de recherche : titres, entreprises, domaines
+     * et technologies des offres non expirées commençant par le texte saisi
+     * (ou dont l'un des premiers mots commence par lui), les plus portés d'abord.
+     * 
+     * @param debut Le texte saisi
+     * @param nombre Le nombre maximal de suggestions
+     * @return Les textes suggérés*/
+    public List<String> suggererRecherche(String debut, int nombre) {
+        return autocompletion.suggerer(debut, nombre);
+    }
+
     /* Recherche une offre spécifique d'une entreprise par son ID.
      * 
      * @param idOffre ID de l'offre recherchée
@@ -292,6 +455,47 @@ public class OffreService {
         return resultats;
     }
 
+    /* Retourne les offres disponibles les plus récentes, de la plus récente à la plus ancienne.
+     * Les identifiants étant ordonnés dans le temps, il suffit de parcourir
+     * l'index depuis la fin, sans trier.
+     * 
+     * @param nombre Nombre maximal d'offres
+     * @return Les offres non expirées les plus récentes*/
+    public List<Offre> getDernieresOffres(int nombre) {
+        List<Offre> resultats = new ArrayList<>();
+        for (Offre offre : offresParId.descendingMap().values()) {
+            if (resultats.size() >= nombre) {
+                break;
+            }
+            if (!offre.estExpiree()) {
+                resultats.add(offre);
+            }
+        }
+        return resultats;
+    }
+
+    /* Reconstruit l'index par identifiant et l'index plein texte après une
+     * modification des offres hors du service (rechargement des données d'une
+     * autre instance, qui peut aussi changer un titre ou un nom d'entreprise).*/
+    public void reindexer() {
+        offresParId.clear();
+        for (Offre offre : offres) {
+            offresParId.put(offre.getId(), offre);
+        }
+        indexTexte.reconstruire(offres);
+        indexSousChaines.reconstruire();
+        autocompletion.reconstruire();
+    }
+
+    /* Retourne les offres créées depuis une date (parcours par plage de l'index).
+     * 
+     * @param date Première date incluse
+     * @return Les offres créées depuis cette date, de la plus ancienne à la plus récente*/
+    public List<Offre> getOffresPublieesDepuis(LocalDate date) {
+        long debut = date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new ArrayList<>(offresParId.tailMap(UuidTemporel.borneInferieure(debut), true).values());
+    }
+
     /*Retourne les offres d'une entreprise sous forme de tableau formaté.
      * Utilisé pour l'affichage dans les interfaces utilisateur.
      * 
@@ -325,7 +529,14 @@ public class OffreService {
                 
                 // Vérifier que la date est dans le futur
                 if (date.isAfter(LocalDate.now())) {
+                    LocalDate ancienne = offre.getDateExpiration();
                     offre.setDateExpiration(date);
+                    if (!mutations.expirationModifiee(offre)) {
+                        offre.setDateExpiration(ancienne);
+                        System.out.println("❌ Date d'expiration non enregistrée (écriture impossible)");
+                        return false;
+                    }
+                    autocompletion.expirationModifiee(offre);
                     System.out.println("✅ Date d'expiration mise à jour : " + date);
                     return true;
                 } else {
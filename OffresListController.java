@@ -1,5 +1,6 @@
 package controllers;
 
+import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -11,10 +12,13 @@ import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 import javafx.stage.Screen;
 import javafx.geometry.Rectangle2D;
+import javafx.geometry.Side;
+import javafx.util.Duration;
 import models.*;
 import service.*;
 import utils.DataManager;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -65,6 +69,19 @@ public class OffresListController {
     // Données affichées dans la table
     private ObservableList<OffreDisplay> offresData;
 
+    /* ===================== Autocomplétion ===================== */
+
+    // Délai sans frappe avant de proposer des suggestions
+    private static final int DELAI_SUGGESTIONS_MS = 150;
+    private static final int NB_SUGGESTIONS = 8;
+
+    // Menu des suggestions affiché sous le champ de recherche
+    private final ContextMenu menuSuggestions = new ContextMenu();
+
+    // Relancée à chaque frappe : les suggestions ne sont calculées qu'après une pause
+    private final PauseTransition attenteSaisie =
+            new PauseTransition(Duration.millis(DELAI_SUGGESTIONS_MS));
+
     /**
      * Méthode appelée automatiquement après le chargement du FXML.
      * Elle initialise les services, la table et charge les offres.
@@ -95,6 +112,9 @@ public class OffresListController {
         // Chargement initial de toutes les offres disponibles
         loadAllOffres();
 
+        // Suggestions pendant la saisie
+        setupAutocompletion();
+
         // Gestion de l'activation/désactivation des boutons selon la sélection
         tableOffres.getSelectionModel().selectedItemProperty().addListener(
                 (obs, oldSelection, newSelection) -> {
@@ -117,6 +137,56 @@ public class OffresListController {
         colCandidatures.setCellValueFactory(new PropertyValueFactory<>("nbCandidatures"));
     }
 
+    /**
+     * Propose des suggestions sous le champ de recherche après une courte
+     * pause dans la frappe (pas de calcul à chaque touche d'une saisie rapide).
+     */
+    private void setupAutocompletion() {
+        attenteSaisie.setOnFinished(e -> afficherSuggestions());
+        txtRecherche.textProperty().addListener(
+                (obs, ancien, nouveau) -> attenteSaisie.playFromStart());
+        txtRecherche.focusedProperty().addListener((obs, avant, maintenant) -> {
+            if (!maintenant) {
+                menuSuggestions.hide();
+            }
+        });
+    }
+
+    /**
+     * Affiche les suggestions pour le texte saisi (titres, entreprises,
+     * domaines, technologies).
+     */
+    private void afficherSuggestions() {
+        String debut = txtRecherche.getText().trim();
+
+        // Le critère "Type" attend un type exact, sans suggestions
+        if (debut.isEmpty() || "Type".equals(comboCritere.getValue())) {
+            menuSuggestions.hide();
+            return;
+        }
+
+        List<String> suggestions = offreService.suggererRecherche(debut, NB_SUGGESTIONS);
+        if (suggestions.isEmpty()) {
+            menuSuggestions.hide();
+            return;
+        }
+
+        List<MenuItem> items = new ArrayList<>();
+        for (String suggestion : suggestions) {
+            MenuItem item = new MenuItem(suggestion);
+            item.setOnAction(e -> {
+                txtRecherche.setText(suggestion);
+                txtRecherche.positionCaret(suggestion.length());
+                handleRecherche();
+            });
+            items.add(item);
+        }
+        menuSuggestions.getItems().setAll(items);
+        if (!menuSuggestions.isShowing()) {
+            menuSuggestions.show(txtRecherche, Side.BOTTOM, 0, 0);
+        }
+    }
+
     /**
      * Charge toutes les offres disponibles depuis le service.
      */
@@ -157,6 +227,10 @@ public class OffresListController {
     @FXML
     private void handleRecherche() {
 
+        // La recherche lancée remplace les suggestions en attente
+        attenteSaisie.stop();
+        menuSuggestions.hide();
+
         String recherche = txtRecherche.getText().trim();
         String critere = comboCritere.getValue();
 
@@ -0,0 +1,80 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rapport d'un chargement : lignes acceptées et lignes rejetées avec leur motif.
+ *
+ * Une ligne invalide ou en doublon ne fait plus échouer tout le chargement :
+ * elle est ignorée et consignée ici. Les chargements pouvant s'exécuter en
+ * parallèle, les méthodes sont synchronisées.
+ */
+public class RapportChargement {
+
+    /**
+     * Ligne rejetée d'un fichier de données.
+     */
+    public static class Rejet {
+        private final String fichier;
+        private final int ligne;
+        private final String motif;
+
+        public Rejet(String fichier, int ligne, String motif) {
+            this.fichier = fichier;
+            this.ligne = ligne;
+            this.motif = motif;
+        }
+
+        public String getFichier() { return fichier; }
+        public int getLigne() { return ligne; }
+        public String getMotif() { return motif; }
+
+        @Override
+        public String toString() {
+            return fichier + ":" + ligne + " - " + motif;
+        }
+    }
+
+    private final List<Rejet> rejets = new ArrayList<>();
+    private int acceptees;
+    private long dureeMs;
+
+    public synchronized void accepter() {
+        acceptees++;
+    }
+
+    public synchronized void rejeter(String fichier, int ligne, String motif) {
+        rejets.add(new Rejet(fichier, ligne, motif));
+    }
+
+    public synchronized int getAcceptees() {
+        return acceptees;
+    }
+
+    public synchronized List<Rejet> getRejets() {
+        return new ArrayList<>(rejets);
+    }
+
+    public synchronized boolean estComplet() {
+        return rejets.isEmpty();
+    }
+
+    /**
+     * @param dureeMs Durée du traitement des lignes (ms)
+     */
+    public synchronized void setDuree(long dureeMs) {
+        this.dureeMs = dureeMs;
+    }
+
+    public synchronized long getDuree() {
+        return dureeMs;
+    }
+
+    /**
+     * @return Lignes traitées (acceptées ou rejetées) par seconde, 0 si la durée n'est pas connue
+     */
+    public synchronized double getLignesParSeconde() {
+        return dureeMs == 0 ? 0 : (acceptees + rejets.size()) * 1000.0 / dureeMs;
+    }
+}
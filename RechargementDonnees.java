@@ -0,0 +1,648 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import models.*;
+import service.SuiviModifications.Collection;
+
+/**
+ * Rechargement à chaud des données modifiées par d'autres instances de
+ * l'application qui partagent le même dossier data/.
+ *
+ * Un thread surveille data/ et data/forum/ (WatchService). Les événements
+ * rapprochés sont regroupés, puis le rechargement est confié à l'exécuteur de
+ * l'interface (thread JavaFX), seul à modifier les listes en mémoire :
+ *  - le journal, les relations et le forum sont lus de façon incrémentale,
+ *    à partir de la dernière position lue (voir Journal, StockageRelations
+ *    et StockageForum) ;
+ *  - entreprises.txt, candidats.txt et offres.txt ne sont relus que s'ils ont
+ *    changé, puis fusionnés entité par entité (email, CIN ou identifiant
+ *    d'offre) en trois voies, par rapport à la version du dernier chargement
+ *    ou de la dernière écriture : si seul le disque a changé, sa version est
+ *    appliquée en place ; si seule la mémoire a changé, elle est conservée ;
+ *    si les deux ont changé différemment, c'est un conflit : la version en
+ *    mémoire est conservée (et sera réécrite) et le conflit est affiché.
+ *
+ * Nos propres écritures sont reconnues à la signature du fichier (taille, date,
+ * identité) relevée juste après. Avant de réécrire un fichier, la compaction
+ * vérifie qu'il n'a pas changé depuis la capture des données : sinon
+ * l'écriture est reportée, le temps que le rechargement fusionne le disque.
+ *
+ * Chaque rechargement affiche sa durée et ses conflits, par exemple :
+ *   🔄 Rechargement offres.txt: 1 ajout(s), 2 mise(s) à jour, 0 suppression(s), 0 conflit(s) en 4 ms
+ */
+public class RechargementDonnees {
+
+    /** Délai de regroupement des événements de fichiers (ms), configurable */
+    private static final long DELAI_REGROUPEMENT = Long.getLong("hecrecruit.surveillance.delai", 150);
+
+    private static final String JOURNAL = "journal.txt";
+    private static final String RELATIONS = "relations.bin";
+    private static final String FORUM = "forum";
+
+    /** Fichiers d'entités, dans l'ordre de fusion (les offres après les entreprises) */
+    private static final List<Collection> FICHIERS =
+        Arrays.asList(Collection.ENTREPRISES, Collection.CANDIDATS, Collection.OFFRES);
+
+    /**
+     * Signature d'un fichier : taille, date de modification et identité.
+     * Un renommage atomique change l'identité même à taille et date égales.
+     */
+    public static final class Signature {
+        private final long taille;
+        private final long modification;
+        private final Object cle;
+
+        private Signature(long taille, long modification, Object cle) {
+            this.taille = taille;
+            this.modification = modification;
+            this.cle = cle;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Signature)) {
+                return false;
+            }
+            Signature s = (Signature) o;
+            return taille == s.taille && modification == s.modification && Objects.equals(cle, s.cle);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(taille, modification, cle);
+        }
+    }
+
+    private static final Signature ABSENT = new Signature(-1, 0, null);
+
+    private final FileManager fileManager;
+    private final VerrouDonnees verrou;
+    private final Journal journal;
+    private final Stockage stockage;
+    private final SuiviModifications suivi;
+    private final Map<Collection, Path> chemins = new EnumMap<>(Collection.class);
+    private final Map<Collection, Fusion<?>> fusions = new EnumMap<>(Collection.class);
+
+    /** Empreinte de chaque entité à la dernière lecture ou écriture du fichier, par clé */
+    private final Map<Collection, Map<String, Long>> bases = new ConcurrentHashMap<>();
+
+    /** Signature de chaque fichier à la dernière lecture ou écriture */
+    private final Map<Collection, Signature> signatures = new ConcurrentHashMap<>();
+
+    // Données en mémoire, posées au démarrage de la surveillance
+    private List<Entreprise> entreprises;
+    private List<Candidat> candidats;
+    private List<Offre> offres;
+    private List<Forum> commentaires;
+    private Runnable apresChangement = () -> { };
+    private Executor executeur = Runnable::run;
+
+    private WatchService service;
+    private Thread thread;
+    private volatile boolean actif;
+
+    // Mesures des rechargements
+    private long rechargements;
+    private long conflits;
+    private long latenceTotale;
+    private long latenceMax;
+
+    public RechargementDonnees(FileManager fileManager, Journal journal, Stockage stockage,
+                               SuiviModifications suivi) {
+        this.fileManager = fileManager;
+        this.verrou = fileManager.getVerrou();
+        this.journal = journal;
+        this.stockage = stockage;
+        this.suivi = suivi;
+        List<Path> fichiers = fileManager.getFichiersDonnees();
+        for (int i = 0; i < FICHIERS.size(); i++) {
+            chemins.put(FICHIERS.get(i), fichiers.get(i));
+        }
+        fusions.put(Collection.ENTREPRISES, new FusionEntreprises());
+        fusions.put(Collection.CANDIDATS, new FusionCandidats());
+        fusions.put(Collection.OFFRES, new FusionOffres());
+    }
+
+    // ========== ÉTAT DE BASE ==========
+
+    /**
+     * Relève la signature des fichiers. À appeler avant de les charger : une
+     * modification pendant le chargement sera ainsi fusionnée ensuite.
+     */
+    public void releverSignatures() {
+        for (Collection c : FICHIERS) {
+            signatures.put(c, signature(chemins.get(c)));
+        }
+    }
+
+    /**
+     * Enregistre les entités chargées comme version de base de chaque fichier.
+     * À appeler après le chargement, avant le rejeu du journal.
+     */
+    public void noterBases(List<Entreprise> entreprises, List<Candidat> candidats, List<Offre> offres) {
+        bases.put(Collection.ENTREPRISES, empreintes(Collection.ENTREPRISES, entreprises));
+        bases.put(Collection.CANDIDATS, empreintes(Collection.CANDIDATS, candidats));
+        bases.put(Collection.OFFRES, empreintes(Collection.OFFRES, offres));
+    }
+
+    /**
+     * @return La signature de chaque fichier d'entités, à joindre à une capture des données
+     */
+    public Map<Collection, Signature> getSignatures() {
+        return new EnumMap<>(signatures);
+    }
+
+    /**
+     * Réécrit un fichier d'entités sous le verrou du dossier, s'il n'a pas changé
+     * depuis la capture ; la version écrite devient la nouvelle version de base.
+     *
+     * @param capturee Signature du fichier au moment de la capture des données
+     * @return Le volume écrit, ou -1 si le fichier a changé ou n'a pas pu être écrit
+     */
+    public <T> long ecrire(Collection c, Signature capturee, List<T> elements,
+                           ToLongFunction<List<T>> ecriture) {
+        Path chemin = chemins.get(c);
+        verrou.prendre();
+        try {
+            if (capturee != null && !signature(chemin).equals(capturee)) {
+                System.out.println("⚠️ " + chemin.getFileName()
+                    + " modifié par une autre instance: écriture reportée après rechargement");
+                return -1;
+            }
+            long octets = ecriture.applyAsLong(elements);
+            if (octets >= 0) {
+                bases.put(c, empreintes(c, elements));
+                signatures.put(c, signature(chemin));
+            }
+            return octets;
+        } finally {
+            verrou.liberer();
+        }
+    }
+
+    // ========== SURVEILLANCE ==========
+
+    /**
+     * Démarre la surveillance du dossier de données.
+     *
+     * @param apresChangement Appelé après un rechargement qui a modifié les listes
+     * @param executeur Exécuteur des rechargements (thread de l'interface)
+     */
+    public void demarrer(List<Entreprise> entreprises, List<Candidat> candidats, List<Offre> offres,
+                         List<Forum> commentaires, Runnable apresChangement, Executor executeur) {
+        this.entreprises = entreprises;
+        this.candidats = candidats;
+        this.offres = offres;
+        this.commentaires = commentaires;
+        this.apresChangement = apresChangement;
+        this.executeur = executeur;
+
+        Path dossier = chemins.get(Collection.ENTREPRISES).toAbsolutePath().getParent();
+        try {
+            Path forum = dossier.resolve(FORUM);
+            Files.createDirectories(forum);
+            service = FileSystems.getDefault().newWatchService();
+            for (Path p : Arrays.asList(dossier, forum)) {
+                p.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            System.out.println("❌ Surveillance du dossier " + dossier + " indisponible: " + e.getMessage());
+            return;
+        }
+        actif = true;
+        thread = new Thread(this::surveiller, "surveillance");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Arrête la surveillance. Les rechargements déjà confiés à l'exécuteur sont abandonnés.
+     */
+    public void arreter() {
+        actif = false;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                // Le thread s'arrête de toute façon
+            }
+        }
+        if (thread != null) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Recharge tout ce qui a changé, sur le thread appelant (ex: avant la
+     * dernière sauvegarde, pour ne pas écraser les modifications des autres).
+     */
+    public void rechargerTout() {
+        if (entreprises != null) {
+            recharger(EnumSet.copyOf(FICHIERS), System.nanoTime());
+        }
+    }
+
+    private void surveiller() {
+        while (actif) {
+            try {
+                WatchKey cle = service.take();
+                long detection = System.nanoTime();
+                Set<Collection> fichiers = EnumSet.noneOf(Collection.class);
+                boolean pertinent = relever(cle, fichiers);
+                // Regrouper les événements rapprochés (écriture puis renommage, rafales d'ajouts)
+                while ((cle = service.poll(DELAI_REGROUPEMENT, TimeUnit.MILLISECONDS)) != null) {
+                    pertinent |= relever(cle, fichiers);
+                }
+                if (pertinent) {
+                    executeur.execute(() -> {
+                        if (actif) {
+                            recharger(fichiers, detection);
+                        }
+                    });
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            } catch (RuntimeException e) {
+                System.out.println("Erreur surveillance des données: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Relève les fichiers concernés par les événements d'une clé.
+     *
+     * @return true si un fichier de données est concerné
+     */
+    private boolean relever(WatchKey cle, Set<Collection> fichiers) {
+        boolean pertinent = false;
+        boolean forum = ((Path) cle.watchable()).getFileName().toString().equals(FORUM);
+        for (WatchEvent<?> evenement : cle.pollEvents()) {
+            if (evenement.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Événements perdus : tout revérifier
+                fichiers.addAll(FICHIERS);
+                pertinent = true;
+                continue;
+            }
+            String nom = evenement.context().toString();
+            if (forum) {
+                pertinent |= nom.endsWith(".txt");
+                continue;
+            }
+            for (Collection c : FICHIERS) {
+                if (chemins.get(c).getFileName().toString().equals(nom)) {
+                    fichiers.add(c);
+                    pertinent = true;
+                }
+            }
+            pertinent |= nom.equals(JOURNAL) || nom.equals(RELATIONS);
+        }
+        cle.reset();
+        return pertinent;
+    }
+
+    // ========== RECHARGEMENT ==========
+
+    /**
+     * Fusionne les fichiers d'entités modifiés, puis applique les ajouts des
+     * autres instances au journal, aux relations et au forum.
+     */
+    private void recharger(Set<Collection> fichiers, long detection) {
+        boolean modifie = false;
+        int conflitsAvant = (int) getConflits();
+        for (Collection c : FICHIERS) {
+            if (fichiers.contains(c)) {
+                modifie |= fusionner(c, fusions.get(c));
+            }
+        }
+
+        long debut = System.nanoTime();
+        int mutations = journal.rejouerExternes(entreprises, candidats, offres, commentaires);
+        if (mutations > 0) {
+            // Les fichiers ne reflètent pas encore ces mutations
+            suivi.marquerTout();
+            modifie = true;
+            afficher(JOURNAL, mutations + " mutation(s)", debut);
+        }
+
+        debut = System.nanoTime();
+        int liens = stockage.getRelations().synchroniser(entreprises, candidats, offres);
+        if (liens > 0) {
+            modifie = true;
+            afficher(RELATIONS, liens + " lien(s)", debut);
+        }
+
+        debut = System.nanoTime();
+        int publies = ajouterCommentaires(stockage.chargerCommentairesExternes());
+        if (publies > 0) {
+            modifie = true;
+            afficher(FORUM, publies + " commentaire(s)", debut);
+        }
+
+        if (modifie) {
+            apresChangement.run();
+        }
+        if (modifie || getConflits() > conflitsAvant) {
+            noterRechargement(System.nanoTime() - detection);
+        }
+    }
+
+    /**
+     * Fusion en trois voies d'un fichier d'entités avec la mémoire.
+     *
+     * @return true si des entités ont été ajoutées, modifiées ou retirées
+     */
+    private <T> boolean fusionner(Collection c, Fusion<T> fusion) {
+        long debut = System.nanoTime();
+        Path chemin = chemins.get(c);
+        verrou.prendre();
+        try {
+            Signature disque = signature(chemin);
+            if (disque.equals(signatures.get(c))) {
+                // Inchangé, ou modifié par nous-mêmes
+                return false;
+            }
+            if (disque == ABSENT) {
+                // Fichier supprimé : rien à appliquer, il sera réécrit
+                signatures.put(c, disque);
+                return false;
+            }
+
+            // Version du disque, par clé
+            fusion.preparer();
+            Map<String, T> lues = new LinkedHashMap<>();
+            Map<String, Long> empreintesDisque = new HashMap<>();
+            try (BufferedReader br = Files.newBufferedReader(chemin, Charset.defaultCharset())) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    try {
+                        T lue = fusion.parser(ChampsLigne.de(line.split("\\|")));
+                        if (lue != null && lues.putIfAbsent(fusion.cle(lue), lue) == null) {
+                            empreintesDisque.put(fusion.cle(lue), empreinte(fusion.formater(lue)));
+                        }
+                    } catch (RuntimeException e) {
+                        // Ligne illisible : ignorée comme au chargement
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Erreur rechargement " + chemin.getFileName() + ": " + e.getMessage());
+                return false;
+            }
+
+            Map<String, Long> base = bases.getOrDefault(c, new HashMap<>());
+            Map<String, T> enMemoire = new HashMap<>();
+            for (T t : fusion.liste()) {
+                enMemoire.putIfAbsent(fusion.cle(t), t);
+            }
+            Set<String> cles = new LinkedHashSet<>(lues.keySet());
+            cles.addAll(enMemoire.keySet());
+
+            int ajouts = 0, misesAJour = 0, suppressions = 0, conflitsFichier = 0;
+            for (String cle : cles) {
+                Long surDisque = empreintesDisque.get(cle);
+                Long deBase = base.get(cle);
+                if (Objects.equals(surDisque, deBase)) {
+                    continue; // Pas modifiée sur disque
+                }
+                T existante = enMemoire.get(cle);
+                Long enCours = existante == null ? null : empreinte(fusion.formater(existante));
+                if (Objects.equals(enCours, surDisque)) {
+                    continue; // Même modification des deux côtés
+                }
+                if (!Objects.equals(enCours, deBase)) {
+                    conflitsFichier++;
+                    System.out.println("⚠️ Conflit " + chemin.getFileName() + " [" + cle
+                        + "]: modifiée ici et par une autre instance, version locale conservée");
+                    continue;
+                }
+                if (surDisque == null) {
+                    if (fusion.retirer(existante)) {
+                        suppressions++;
+                    }
+                } else if (existante == null) {
+                    fusion.ajouter(lues.get(cle));
+                    ajouts++;
+                } else {
+                    fusion.mettreAJour(existante, lues.get(cle));
+                    misesAJour++;
+                }
+            }
+
+            bases.put(c, empreintesDisque);
+            signatures.put(c, disque);
+            if (conflitsFichier > 0) {
+                // La version locale sera réécrite à la prochaine compaction
+                suivi.marquer(c);
+                synchronized (this) {
+                    conflits += conflitsFichier;
+                }
+            }
+            if (ajouts + misesAJour + suppressions + conflitsFichier > 0) {
+                afficher(chemin.getFileName().toString(), ajouts + " ajout(s), " + misesAJour
+                    + " mise(s) à jour, " + suppressions + " suppression(s), "
+                    + conflitsFichier + " conflit(s)", debut);
+            }
+            return ajouts + misesAJour + suppressions > 0;
+        } finally {
+            verrou.liberer();
+        }
+    }
+
+    /**
+     * Ajoute les commentaires absents de la liste (déjà reçus par le journal sinon).
+     */
+    private int ajouterCommentaires(List<Forum> lus) {
+        if (lus.isEmpty()) {
+            return 0;
+        }
+        Set<UUID> presents = new HashSet<>();
+        for (Forum f : commentaires) {
+            presents.add(f.getId());
+        }
+        int ajoutes = 0;
+        for (Forum f : lus) {
+            if (presents.add(f.getId())) {
+                commentaires.add(f);
+                ajoutes++;
+            }
+        }
+        return ajoutes;
+    }
+
+    private static void afficher(String fichier, String detail, long debut) {
+        System.out.println("🔄 Rechargement " + fichier + ": " + detail + " en "
+            + (System.nanoTime() - debut) / 1_000_000 + " ms");
+    }
+
+    // ========== MESURES ==========
+
+    private synchronized void noterRechargement(long latenceNanos) {
+        rechargements++;
+        latenceTotale += latenceNanos;
+        latenceMax = Math.max(latenceMax, latenceNanos);
+    }
+
+    public synchronized long getRechargements() {
+        return rechargements;
+    }
+
+    public synchronized long getConflits() {
+        return conflits;
+    }
+
+    /**
+     * Résumé lisible : nombre de rechargements, conflits et latence entre la
+     * détection du changement et la fin de son application.
+     */
+    public synchronized String resume() {
+        return String.format("- rechargements: %d, %d conflit(s), latence moyenne %.1f ms (max %.1f ms)%n",
+                rechargements, conflits, rechargements == 0 ? 0 : latenceTotale / 1e6 / rechargements,
+                latenceMax / 1e6);
+    }
+
+    // ========== UTILITAIRES ==========
+
+    private <T> Map<String, Long> empreintes(Collection c, List<T> elements) {
+        @SuppressWarnings("unchecked")
+        Fusion<T> fusion = (Fusion<T>) fusions.get(c);
+        Map<String, Long> empreintes = new HashMap<>(elements.size() * 2);
+        for (T t : elements) {
+            empreintes.putIfAbsent(fusion.cle(t), empreinte(fusion.formater(t)));
+        }
+        return empreintes;
+    }
+
+    /**
+     * Empreinte 64 bits (FNV-1a) d'une ligne formatée.
+     */
+    private static long empreinte(String ligne) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < ligne.length(); i++) {
+            h ^= ligne.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static Signature signature(Path chemin) {
+        try {
+            BasicFileAttributes a = Files.readAttributes(chemin, BasicFileAttributes.class);
+            return new Signature(a.size(), a.lastModifiedTime().toMillis(), a.fileKey());
+        } catch (IOException e) {
+            return ABSENT;
+        }
+    }
+
+    // ========== FUSION PAR TYPE D'ENTITÉ ==========
+
+    /**
+     * Lecture, identification et application en place d'un type d'entité.
+     */
+    private abstract class Fusion<T> {
+        abstract List<T> liste();
+
+        abstract String cle(T t);
+
+        abstract String formater(T t);
+
+        /** Prépare la lecture d'un fichier (index des entités référencées) */
+        void preparer() {
+        }
+
+        abstract T parser(ChampsLigne champs);
+
+        abstract void ajouter(T lue);
+
+        abstract void mettreAJour(T existante, T lue);
+
+        /** @return false si ce type d'entité n'est jamais retiré */
+        boolean retirer(T existante) {
+            return false;
+        }
+    }
+
+    private class FusionEntreprises extends Fusion<Entreprise> {
+        List<Entreprise> liste() { return entreprises; }
+
+        String cle(Entreprise e) { return e.getEmail(); }
+
+        String formater(Entreprise e) { return fileManager.formaterEntreprise(e); }
+
+        Entreprise parser(ChampsLigne champs) { return fileManager.parserEntreprise(champs); }
+
+        void ajouter(Entreprise lue) { entreprises.add(lue); }
+
+        void mettreAJour(Entreprise existante, Entreprise lue) {
+            Journal.mettreAJourEntreprise(existante, lue);
+        }
+    }
+
+    private class FusionCandidats extends Fusion<Candidat> {
+        List<Candidat> liste() { return candidats; }
+
+        String cle(Candidat c) { return String.valueOf(c.getId()); }
+
+        String formater(Candidat c) { return fileManager.formaterCandidat(c); }
+
+        // Lecture hors liste (pas de contrôle d'unicité), comme au rejeu du journal
+        Candidat parser(ChampsLigne champs) { return fileManager.parserCandidat(champs, null); }
+
+        void ajouter(Candidat lu) { candidats.add(lu); }
+
+        void mettreAJour(Candidat existant, Candidat lu) {
+            Journal.mettreAJourCandidat(existant, lu);
+        }
+    }
+
+    private class FusionOffres extends Fusion<Offre> {
+        private Map<String, Entreprise> entreprisesParEmail;
+
+        List<Offre> liste() { return offres; }
+
+        String cle(Offre o) { return FileManager.cleOffre(o); }
+
+        String formater(Offre o) { return fileManager.formaterOffre(o); }
+
+        @Override
+        void preparer() {
+            entreprisesParEmail = FileManager.indexerParEmail(entreprises);
+        }
+
+        Offre parser(ChampsLigne champs) { return fileManager.parserOffre(champs, entreprisesParEmail); }
+
+        void ajouter(Offre lue) {
+            offres.add(lue);
+            lue.getEntreprise().getOffresPubliees().add(lue);
+        }
+
+        // Seuls les champs modifiables d'une offre publiée sont recopiés
+        void mettreAJour(Offre existante, Offre lue) {
+            existante.setTitre(lue.getTitre());
+            existante.setDescription(lue.getDescription());
+            existante.setDateExpiration(lue.getDateExpiration());
+        }
+
+        @Override
+        boolean retirer(Offre existante) {
+            for (Candidat c : existante.getCandidatures()) {
+                c.getCandidaturesEnCours().remove(existante);
+            }
+            existante.getEntreprise().getOffresPubliees().remove(existante);
+            offres.remove(existante);
+            return true;
+        }
+    }
+}
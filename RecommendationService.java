@@ -1,6 +1,7 @@
 package service;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import models.*;
 
 /* Service de recommandation d'offres personnalisées pour les candidats.
@@ -16,8 +17,65 @@ public class RecommendationService {
     private static final double POIDS_POPULARITE = 0.15;   // 15% - Offres populaires
     private static final double POIDS_SECTEUR = 0.10;      // 10% - Correspondance secteur
     
+    // Mots-clés par filière, dans l'ordre où les filières sont reconnues
+    private static final Map<String, List<String>> MOTS_CLES_FILIERE = new LinkedHashMap<>();
+    static {
+        // Informatique
+        MOTS_CLES_FILIERE.put("informatique", Arrays.asList("informatique", "dev", "développement", 
+            "java", "python", "web", "mobile", "data", "ia", "intelligence artificielle", 
+            "machine learning", "réseau", "cybersécurité", "cloud", "software", "logiciel"));
+        
+        // Gestion
+        MOTS_CLES_FILIERE.put("gestion", Arrays.asList("gestion", "management", "administration", 
+            "business", "organisation", "stratégie", "projet"));
+        
+        // Marketing
+        MOTS_CLES_FILIERE.put("marketing", Arrays.asList("marketing", "commercial", "vente", 
+            "communication", "digital", "réseaux sociaux", "publicité", "marque", "seo"));
+        
+        // Finance 
+        MOTS_CLES_FILIERE.put("finance", Arrays.asList("finance", "financier", "banque", "trading", 
+            "investissement", "assurance", "analyse financière", "bourse", "trésorerie", 
+            "crédit", "risque", "portfolio", "hedge fund"));
+        
+        // Comptabilité
+        MOTS_CLES_FILIERE.put("comptabilité", Arrays.asList("comptabilité", "comptable", "audit", 
+            "contrôle", "fiscalité", "bilan", "contrôle de gestion", "consolidation", 
+            "reporting", "expert-comptable", "normes comptables", "ifrs", "gaap"));
+        
+        // Ressources Humaines
+        MOTS_CLES_FILIERE.put("ressources humaines", Arrays.asList("rh", "ressources humaines", 
+            "recrutement", "formation", "paie", "talent", "carrière"));
+    }
+    
+    private final AnalyseurTexte analyseur = AnalyseurTexte.getInstance();
+    
+    /** Mots-clés analysés (un tableau de termes par mot-clé), par filière normalisée */
+    private final Map<String, List<String[]>> motsClesAnalyses = new LinkedHashMap<>();
+    
+    /** Termes analysés de chaque offre, recalculés quand l'un de ses textes change */
+    private final Map<Offre, TermesOffre> termesOffres = new ConcurrentHashMap<>();
+    
+    /* Termes d'une offre et textes dont ils proviennent (comparés par equals).*/
+    private static class TermesOffre {
+        final String[] sources;
+        final Set<String> termes;
+        
+        TermesOffre(String[] sources, Set<String> termes) {
+            this.sources = sources;
+            this.termes = termes;
+        }
+    }
+    
     public RecommendationService(List<Offre> offres) {
         this.offres = offres;
+        for (Map.Entry<String, List<String>> entry : MOTS_CLES_FILIERE.entrySet()) {
+            List<String[]> analyses = new ArrayList<>();
+            for (String motCle : entry.getValue()) {
+                analyses.add(analyseur.analyser(motCle));
+            }
+            motsClesAnalyses.put(AnalyseurTexte.normaliser(entry.getKey()), analyses);
+        }
     }
     
     /* Génère des recommandations personnalisées pour un étudiant.
@@ -25,6 +83,14 @@ public class RecommendationService {
     public List<OffreRecommandee> getRecommandationsEtudiant(Etudiant etudiant, int nbRecommandations) {
         List<OffreRecommandee> recommendations = new ArrayList<>();
         
+        // Analyser le profil une fois pour toutes les offres
+        List<String[]> motsCles = motsClesFiliere(etudiant);
+        
+        // Oublier les offres retirées depuis (le cache est reconstruit au besoin)
+        if (termesOffres.size() > 2 * offres.size() + 1000) {
+            termesOffres.clear();
+        }
+        
         // Parcourir toutes les offres disponibles
         for (Offre offre : offres) {
             // Ignorer les offres expirées
@@ -38,7 +104,7 @@ public class RecommendationService {
             }
             
             // Calculer le score de correspondance (0-100)
-            double score = calculerScore(etudiant, offre);
+            double score = calculerScore(etudiant, motsCles, offre);
             
             // Ajouter à la liste avec son score
             recommendations.add(new OffreRecommandee(offre, score));
@@ -54,11 +120,11 @@ public class RecommendationService {
     
     /* Calcule le score de correspondance entre un étudiant et une offre.
      * Score final entre 0 et 100.*/
-    private double calculerScore(Etudiant etudiant, Offre offre) {
+    private double calculerScore(Etudiant etudiant, List<String[]> motsCles, Offre offre) {
         double scoreTotal = 0.0;
         
         // 1. Score filière (40%) - Le plus important
-        scoreTotal += calculerScoreFiliere(etudiant, offre) * POIDS_FILIERE;
+        scoreTotal += calculerScoreFiliere(motsCles, offre) * POIDS_FILIERE;
         
         // 2. Score niveau (20%) - Type d'offre adapté
         scoreTotal += calculerScoreNiveau(etudiant, offre) * POIDS_NIVEAU;
@@ -76,67 +142,32 @@ public class RecommendationService {
         return scoreTotal * 100;
     }
     
-    /* Calcule le score de correspondance filière/domaine (0 à 1).
-     * Cherche des mots-clés de la filière dans l'offre.*/
-    private double calculerScoreFiliere(Etudiant etudiant, Offre offre) {
-        String filiere = etudiant.getFiliere().toLowerCase();
-        
-        // Mots-clés par filière 
-        Map<String, List<String>> motsClésFiliere = new HashMap<>();
-        
-        // Informatique
-        motsClésFiliere.put("informatique", Arrays.asList("informatique", "dev", "développement", 
-            "java", "python", "web", "mobile", "data", "ia", "intelligence artificielle", 
-            "machine learning", "réseau", "cybersécurité", "cloud", "software", "logiciel"));
-        
-        // Gestion
-        motsClésFiliere.put("gestion", Arrays.asList("gestion", "management", "administration", 
-            "business", "organisation", "stratégie", "projet"));
-        
-        // Marketing
-        motsClésFiliere.put("marketing", Arrays.asList("marketing", "commercial", "vente", 
-            "communication", "digital", "réseaux sociaux", "publicité", "marque", "seo"));
-        
-        // Finance 
-        motsClésFiliere.put("finance", Arrays.asList("finance", "financier", "banque", "trading", 
-            "investissement", "assurance", "analyse financière", "bourse", "trésorerie", 
-            "crédit", "risque", "portfolio", "hedge fund"));
-        
-        // Comptabilité
-        motsClésFiliere.put("comptabilité", Arrays.asList("comptabilité", "comptable", "audit", 
-            "contrôle", "fiscalité", "bilan", "contrôle de gestion", "consolidation", 
-            "reporting", "expert-comptable", "normes comptables", "ifrs", "gaap"));
-        
-        // Ressources Humaines
-        motsClésFiliere.put("ressources humaines", Arrays.asList("rh", "ressources humaines", 
-            "recrutement", "formation", "paie", "talent", "carrière"));
+    /* Mots-clés analysés de la filière de l'étudiant.*/
+    private List<String[]> motsClesFiliere(Etudiant etudiant) {
+        String filiere = AnalyseurTexte.normaliser(etudiant.getFiliere());
         
         // Chercher les mots-clés correspondants à la filière
-        List<String> motsClés = new ArrayList<>();
-        for (Map.Entry<String, List<String>> entry : motsClésFiliere.entrySet()) {
+        for (Map.Entry<String, List<String[]>> entry : motsClesAnalyses.entrySet()) {
             if (filiere.contains(entry.getKey())) {
-                motsClés = entry.getValue();
-                break;
+                return entry.getValue();
             }
         }
         // Si pas de correspondance directe, utiliser la filière comme mot-clé
-        if (motsClés.isEmpty()) {
-            motsClés.add(filiere);
-        }
-        // Construire le contenu à analyser de l'offre
-        String contenuOffre = (offre.getTitre() + " " + offre.getDescription()).toLowerCase();
+        List<String[]> motsCles = new ArrayList<>();
+        motsCles.add(analyseur.analyser(etudiant.getFiliere()));
+        return motsCles;
+    }
+    
+    /* Calcule le score de correspondance filière/domaine (0 à 1).
+     * Cherche des mots-clés de la filière dans l'offre : un mot-clé correspond
+     * quand tous ses termes sont parmi ceux de l'offre.*/
+    private double calculerScoreFiliere(List<String[]> motsCles, Offre offre) {
+        Set<String> contenuOffre = termes(offre);
         
-        // Ajouter les champs spécifiques selon le type d'offre
-        if (offre instanceof Stage) {
-            contenuOffre += " " + ((Stage) offre).getDomaine().toLowerCase();
-        } else if (offre instanceof ProjetFinEtudes) {
-            contenuOffre += " " + ((ProjetFinEtudes) offre).getSujet().toLowerCase();
-            contenuOffre += " " + ((ProjetFinEtudes) offre).getTechnologies().toLowerCase();
-        }
         // Compter les correspondances de mots-clés
         int correspondances = 0;
-        for (String motCle : motsClés) {
-            if (contenuOffre.contains(motCle)) {
+        for (String[] motCle : motsCles) {
+            if (motCle.length > 0 && contenuOffre.containsAll(Arrays.asList(motCle))) {
                 correspondances++;
             }
         }
@@ -145,6 +176,33 @@ public class RecommendationService {
         return Math.min(1.0, correspondances / 3.0);
     }
     
+    /* Termes analysés du contenu de l'offre (titre, description et champs
+     * spécifiques), calculés une fois par version de ses textes.*/
+    private Set<String> termes(Offre offre) {
+        String[] sources;
+        if (offre instanceof Stage) {
+            sources = new String[] { offre.getTitre(), offre.getDescription(), ((Stage) offre).getDomaine() };
+        } else if (offre instanceof ProjetFinEtudes) {
+            ProjetFinEtudes pfe = (ProjetFinEtudes) offre;
+            sources = new String[] { offre.getTitre(), offre.getDescription(), pfe.getSujet(), pfe.getTechnologies() };
+        } else {
+            sources = new String[] { offre.getTitre(), offre.getDescription() };
+        }
+        
+        TermesOffre enCache = termesOffres.get(offre);
+        if (enCache != null && Arrays.equals(enCache.sources, sources)) {
+            return enCache.termes;
+        }
+        Set<String> termes = new HashSet<>();
+        for (String source : sources) {
+            if (source != null) {
+                termes.addAll(Arrays.asList(analyseur.analyser(source)));
+            }
+        }
+        termesOffres.put(offre, new TermesOffre(sources, termes));
+        return termes;
+    }
+    
     /* Calcule le score de correspondance niveau/type d'offre (0 à 1).
      * Certaines combinaisons niveau-type sont plus adaptées.*/
     
@@ -308,6 +366,18 @@ public class RecommendationService {
         return recommendations.subList(0, limit);
     }
     
+    /*Génère des recommandations selon le type de candidat (étudiant ou alumni).
+      Les autres candidats n'en reçoivent pas.*/
+    public List<OffreRecommandee> getRecommandations(Candidat candidat, int nbRecommandations) {
+        if (candidat instanceof Etudiant) {
+            return getRecommandationsEtudiant((Etudiant) candidat, nbRecommandations);
+        }
+        if (candidat instanceof Alumni) {
+            return getRecommandationsAlumni((Alumni) candidat, nbRecommandations);
+        }
+        return new ArrayList<>();
+    }
+
     /*Classe interne représentant une offre avec son score de recommandation.*/
     public static class OffreRecommandee {
         private Offre offre;
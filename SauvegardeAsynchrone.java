@@ -0,0 +1,125 @@
+package service;
+
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Persistance en arrière-plan (write-behind).
+ *
+ * Les demandes de sauvegarde sont acceptées immédiatement et exécutées par un
+ * thread dédié, hors du thread JavaFX. Les demandes rapprochées sont regroupées :
+ * seul le dernier état soumis est écrit, au plus une fois par intervalle.
+ * Chaque demande reçoit un Future qui se termine quand une écriture contenant
+ * cet état a réussi (ou échoué).
+ *
+ * @param <T> Type de l'état à écrire (un instantané des données)
+ */
+public class SauvegardeAsynchrone<T> {
+
+    private final Consumer<T> ecrivain;
+    private final long intervalleMs;
+    private final ScheduledExecutorService executeur;
+
+    /** Dernier état soumis, pas encore écrit */
+    private T etatEnAttente;
+
+    /** Future partagé par toutes les demandes regroupées dans la prochaine écriture */
+    private CompletableFuture<Void> prochaineEcriture;
+
+    /** Instant de fin de la dernière écriture */
+    private long derniereEcriture;
+
+    private boolean arretee;
+
+    /**
+     * @param ecrivain Fonction d'écriture appelée sur le thread de persistance
+     * @param intervalleMs Délai minimal entre deux écritures
+     */
+    public SauvegardeAsynchrone(Consumer<T> ecrivain, long intervalleMs) {
+        this.ecrivain = ecrivain;
+        this.intervalleMs = intervalleMs;
+        ScheduledThreadPoolExecutor executeur = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "persistance");
+            t.setDaemon(true);
+            return t;
+        });
+        // À l'arrêt, l'écriture planifiée est remplacée par une écriture immédiate
+        executeur.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executeur = executeur;
+    }
+
+    /**
+     * Soumet un état à écrire. Si une écriture est déjà planifiée, l'état
+     * remplace le précédent et la demande partage le même Future.
+     *
+     * @param etat Instantané à écrire
+     * @return Un Future terminé lorsque l'état est écrit
+     */
+    public synchronized Future<Void> demander(T etat) {
+        if (arretee) {
+            CompletableFuture<Void> refus = new CompletableFuture<>();
+            refus.completeExceptionally(new IllegalStateException("Persistance arrêtée"));
+            return refus;
+        }
+
+        etatEnAttente = etat;
+        if (prochaineEcriture == null) {
+            prochaineEcriture = new CompletableFuture<>();
+            long delai = Math.max(0, derniereEcriture + intervalleMs - System.currentTimeMillis());
+            executeur.schedule(this::ecrire, delai, TimeUnit.MILLISECONDS);
+        }
+        return prochaineEcriture;
+    }
+
+    /**
+     * Écrit l'état en attente (exécuté sur le thread de persistance).
+     */
+    private void ecrire() {
+        T etat;
+        CompletableFuture<Void> future;
+        synchronized (this) {
+            etat = etatEnAttente;
+            future = prochaineEcriture;
+            etatEnAttente = null;
+            prochaineEcriture = null;
+        }
+        if (future == null) {
+            return; // Déjà écrit par une vidange
+        }
+
+        try {
+            ecrivain.accept(etat);
+            future.complete(null);
+        } catch (Throwable e) {
+            // Erreurs comprises : le Future doit toujours se terminer
+            System.out.println("Erreur sauvegarde en arrière-plan: " + e);
+            future.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                derniereEcriture = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Refuse les nouvelles demandes, écrit immédiatement l'état en attente
+     * et attend la fin de l'écriture dans la limite du délai donné.
+     *
+     * @return true si tout a été écrit dans le délai
+     */
+    public boolean arreter(long delai, TimeUnit unite) {
+        synchronized (this) {
+            arretee = true;
+            if (prochaineEcriture != null) {
+                executeur.execute(this::ecrire);
+            }
+        }
+        executeur.shutdown();
+        try {
+            return executeur.awaitTermination(delai, unite);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
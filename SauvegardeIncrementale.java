@@ -0,0 +1,556 @@
+package service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Sauvegardes incrémentales du dossier data, prises sans arrêter l'application.
+ *
+ * Chaque sauvegarde est un dossier complet sauvegardes/AAAAMMJJ-HHmmss-SSS/
+ * accompagné d'un manifeste. Un fichier inchangé depuis la sauvegarde
+ * précédente (même identité, taille et date de modification) y est un lien
+ * physique vers la copie précédente ; seuls les fichiers modifiés sont copiés.
+ * Supprimer une sauvegarde ne touche donc pas aux autres.
+ *
+ * Cohérence : sous le verrou du dossier (le même que les écritures, autres
+ * instances comprises), chaque fichier est lié dans un dossier de capture et
+ * sa taille est relevée, ce qui ne prend que quelques millisecondes. Les
+ * fichiers réécrits par renommage restent figés dans la capture ; pour ceux
+ * qui grandissent par ajouts (journal, relations, segment actif du forum),
+ * seuls les octets relevés sont copiés. Les copies se font hors du verrou,
+ * puis le dossier est renommé : une sauvegarde interrompue n'est jamais visible.
+ *
+ * Restauration à une date : la dernière sauvegarde antérieure est recopiée
+ * dans data (l'ancien contenu est mis de côté), puis les lignes du journal
+ * horodatées entre la sauvegarde et la date sont ajoutées au journal restauré
+ * (archives des compactions, puis journal courant) : elles seront rejouées au
+ * démarrage. Les liens (relations.bin), le forum et les imports en masse, qui
+ * ne passent pas par le journal, sont restaurés tels qu'à la sauvegarde.
+ *
+ * Le verrou, les fichiers temporaires et le cache binaire (reconstruit au
+ * démarrage) ne sont pas sauvegardés.
+ */
+public class SauvegardeIncrementale {
+
+    private static final String DOSSIER = System.getProperty("hecrecruit.sauvegardes.dossier", "sauvegardes");
+
+    /** Nombre de sauvegardes conservées, configurable */
+    private static final int CONSERVEES = Integer.getInteger("hecrecruit.sauvegardes.conservees", 48);
+
+    private static final String MANIFESTE = "manifeste.txt";
+    private static final String JOURNAUX = "journal";
+    private static final String CAPTURE = ".capture";
+    private static final String PREFIXE_DE_COTE = "avant-restauration-";
+    private static final DateTimeFormatter FORMAT_NOM = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    /**
+     * Fichier d'une sauvegarde, avec l'identité du fichier d'origine au moment de la capture.
+     */
+    private static class Entree {
+        final String chemin;
+        final long taille;
+        final long modification;
+        final String cle;
+        boolean copie;
+
+        Entree(String chemin, long taille, long modification, String cle, boolean copie) {
+            this.chemin = chemin;
+            this.taille = taille;
+            this.modification = modification;
+            this.cle = cle;
+            this.copie = copie;
+        }
+
+        boolean memeSource(Entree autre) {
+            return taille == autre.taille && modification == autre.modification && cle.equals(autre.cle);
+        }
+    }
+
+    /**
+     * Sauvegarde terminée (lue depuis son manifeste).
+     */
+    public static class Sauvegarde {
+        private final String nom;
+        private final long date;
+        private final Map<String, Entree> entrees = new LinkedHashMap<>();
+
+        Sauvegarde(String nom, long date) {
+            this.nom = nom;
+            this.date = date;
+        }
+
+        public String getNom() { return nom; }
+        public long getDate() { return date; }
+        public int getFichiers() { return entrees.size(); }
+
+        public long getTaille() {
+            long taille = 0;
+            for (Entree e : entrees.values()) {
+                taille += e.taille;
+            }
+            return taille;
+        }
+    }
+
+    /**
+     * Durée et volumes d'une sauvegarde, pour la planifier.
+     */
+    public static class RapportSauvegarde {
+        private String nom;
+        private int fichiersLies;
+        private int fichiersCopies;
+        private long octetsLies;
+        private long octetsCopies;
+        private long dureeVerrouMs;
+        private long dureeMs;
+        private int supprimees;
+
+        public String getNom() { return nom; }
+        public int getFichiersLies() { return fichiersLies; }
+        public int getFichiersCopies() { return fichiersCopies; }
+        public long getOctetsLies() { return octetsLies; }
+        public long getOctetsCopies() { return octetsCopies; }
+        /** Temps passé sous le verrou du dossier (écritures de l'application en attente) */
+        public long getDureeVerrou() { return dureeVerrouMs; }
+        public long getDuree() { return dureeMs; }
+        /** Anciennes sauvegardes supprimées (au-delà du nombre conservé) */
+        public int getSupprimees() { return supprimees; }
+
+        @Override
+        public String toString() {
+            return nom + " : " + fichiersCopies + " fichier(s) copié(s) (" + octetsCopies + " octets), "
+                + fichiersLies + " lié(s) (" + octetsLies + " octets), " + dureeMs + " ms dont "
+                + dureeVerrouMs + " ms sous verrou";
+        }
+    }
+
+    /**
+     * Résultat d'une restauration.
+     */
+    public static class RapportRestauration {
+        private String sauvegarde;
+        private int fichiers;
+        private long octets;
+        private int mutations;
+        private Path deCote;
+        private long dureeMs;
+
+        public String getSauvegarde() { return sauvegarde; }
+        public int getFichiers() { return fichiers; }
+        public long getOctets() { return octets; }
+        /** Lignes du journal postérieures à la sauvegarde, ajoutées pour être rejouées */
+        public int getMutations() { return mutations; }
+        /** Dossier où l'ancien contenu de data a été déplacé */
+        public Path getDeCote() { return deCote; }
+        public long getDuree() { return dureeMs; }
+
+        @Override
+        public String toString() {
+            return "sauvegarde " + sauvegarde + " : " + fichiers + " fichier(s), " + octets + " octets, "
+                + mutations + " mutation(s) du journal à rejouer, ancien contenu dans " + deCote
+                + " (" + dureeMs + " ms)";
+        }
+    }
+
+    private final FileManager fileManager;
+    private final Path donnees;
+    private final Path racine;
+
+    public SauvegardeIncrementale(FileManager fileManager) {
+        this(fileManager, Paths.get(DOSSIER));
+    }
+
+    public SauvegardeIncrementale(FileManager fileManager, Path racine) {
+        this.fileManager = fileManager;
+        this.donnees = fileManager.getDossierDonnees();
+        this.racine = racine;
+    }
+
+    /**
+     * @return Le dossier où le journal archive ses lignes compactées (voir Journal.setArchives)
+     */
+    public Path getDossierJournaux() {
+        return racine.resolve(JOURNAUX);
+    }
+
+    // ========== SAUVEGARDE ==========
+
+    /**
+     * Prend une sauvegarde du dossier data, supprime les plus anciennes au-delà
+     * du nombre conservé et les archives du journal qui ne servent plus.
+     */
+    public RapportSauvegarde sauvegarder() throws IOException {
+        long debut = System.currentTimeMillis();
+        RapportSauvegarde rapport = new RapportSauvegarde();
+        // Le dossier des archives existe dès la première sauvegarde : le journal y recopie ses compactions
+        Files.createDirectories(getDossierJournaux());
+        List<Sauvegarde> existantes = lister();
+        Sauvegarde precedente = existantes.isEmpty() ? null : existantes.get(existantes.size() - 1);
+
+        List<Entree> entrees;
+        long date;
+        String nom;
+        Path tmp;
+        VerrouDonnees verrou = fileManager.getVerrou();
+        verrou.prendre();
+        try {
+            long debutVerrou = System.currentTimeMillis();
+            date = debutVerrou;
+            nom = nomLibre(date);
+            tmp = racine.resolve(nom + ".tmp");
+            supprimerArborescence(tmp);
+            entrees = capturer(tmp.resolve(CAPTURE));
+            rapport.dureeVerrouMs = System.currentTimeMillis() - debutVerrou;
+        } finally {
+            verrou.liberer();
+        }
+
+        try {
+            Path capture = tmp.resolve(CAPTURE);
+            for (Entree e : entrees) {
+                Path cible = tmp.resolve(e.chemin);
+                Files.createDirectories(cible.getParent());
+                Entree ancienne = precedente != null ? precedente.entrees.get(e.chemin) : null;
+                if (ancienne != null && ancienne.memeSource(e)
+                        && lier(racine.resolve(precedente.nom).resolve(e.chemin), cible)) {
+                    e.copie = false;
+                    rapport.fichiersLies++;
+                    rapport.octetsLies += e.taille;
+                } else {
+                    copier(capture.resolve(e.chemin), cible, e.taille);
+                    e.copie = true;
+                    rapport.fichiersCopies++;
+                    rapport.octetsCopies += e.taille;
+                }
+            }
+            supprimerArborescence(capture);
+            ecrireManifeste(tmp, date, entrees);
+            Path finale = racine.resolve(nom);
+            Files.move(tmp, finale, StandardCopyOption.ATOMIC_MOVE);
+            FileManager.synchroniserDossier(finale);
+        } catch (IOException | RuntimeException e) {
+            supprimerArborescence(tmp);
+            throw e;
+        }
+        rapport.nom = nom;
+        rapport.supprimees = purger();
+        rapport.dureeMs = System.currentTimeMillis() - debut;
+        return rapport;
+    }
+
+    /**
+     * Lie chaque fichier de data dans le dossier de capture et relève son
+     * identité. À appeler sous le verrou du dossier. Sans liens physiques
+     * (autre système de fichiers), le fichier est copié.
+     */
+    private List<Entree> capturer(Path capture) throws IOException {
+        List<Entree> entrees = new ArrayList<>();
+        if (!Files.isDirectory(donnees)) {
+            return entrees;
+        }
+        List<Path> fichiers = new ArrayList<>();
+        Files.walkFileTree(donnees, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path fichier, BasicFileAttributes attributs) {
+                if (attributs.isRegularFile() && aSauvegarder(fichier)) {
+                    fichiers.add(fichier);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (Path fichier : fichiers) {
+            BasicFileAttributes attributs;
+            try {
+                attributs = Files.readAttributes(fichier, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+            String chemin = relatif(fichier);
+            Path cible = capture.resolve(chemin);
+            Files.createDirectories(cible.getParent());
+            if (!lier(fichier, cible)) {
+                copier(fichier, cible, attributs.size());
+            }
+            entrees.add(new Entree(chemin, attributs.size(), attributs.lastModifiedTime().toMillis(),
+                String.valueOf(attributs.fileKey()), true));
+        }
+        return entrees;
+    }
+
+    private boolean aSauvegarder(Path fichier) {
+        String nom = fichier.getFileName().toString();
+        return !nom.equals(".verrou") && !nom.endsWith(".tmp")
+            && !fichier.equals(fileManager.getInstantaneBinaire().getChemin());
+    }
+
+    private String relatif(Path fichier) {
+        return donnees.relativize(fichier).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * @return false si le système de fichiers ne permet pas le lien physique
+     */
+    private static boolean lier(Path existant, Path lien) {
+        try {
+            Files.createLink(lien, existant);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Copie les premiers octets d'un fichier, forcés sur disque.
+     */
+    private static void copier(Path source, Path cible, long taille) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(cible, StandardOpenOption.CREATE,
+                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            while (position < taille) {
+                long n = in.transferTo(position, taille - position, out);
+                if (n <= 0) {
+                    throw new EOFException(source + " plus court que prévu (" + position + "/" + taille + " octets)");
+                }
+                position += n;
+            }
+            out.force(true);
+        }
+    }
+
+    private void ecrireManifeste(Path dossier, long date, List<Entree> entrees) throws IOException {
+        try (FileOutputStream fichier = new FileOutputStream(dossier.resolve(MANIFESTE).toFile());
+             Writer out = new BufferedWriter(new OutputStreamWriter(fichier, StandardCharsets.UTF_8))) {
+            out.write("date|" + date + "\n");
+            for (Entree e : entrees) {
+                out.write("fichier|" + e.chemin + "|" + e.taille + "|" + e.modification + "|" + e.cle
+                    + "|" + (e.copie ? "copie" : "lien") + "\n");
+            }
+            out.flush();
+            fichier.getFD().sync();
+        }
+    }
+
+    /**
+     * Nom d'après la date, distinct des sauvegardes existantes.
+     */
+    private String nomLibre(long date) {
+        long d = date;
+        String nom;
+        do {
+            nom = FORMAT_NOM.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(d++), ZoneId.systemDefault()));
+        } while (Files.exists(racine.resolve(nom)));
+        return nom;
+    }
+
+    /**
+     * Supprime les sauvegardes au-delà du nombre conservé, puis les archives
+     * du journal antérieures à la plus ancienne sauvegarde restante.
+     *
+     * @return Le nombre de sauvegardes supprimées
+     */
+    private int purger() throws IOException {
+        List<Sauvegarde> sauvegardes = lister();
+        int supprimees = 0;
+        while (sauvegardes.size() > Math.max(1, CONSERVEES)) {
+            supprimerArborescence(racine.resolve(sauvegardes.remove(0).nom));
+            supprimees++;
+        }
+        LocalDate premiere = LocalDate.ofInstant(Instant.ofEpochMilli(sauvegardes.get(0).date), ZoneId.systemDefault());
+        for (Path archive : Journal.listerArchives(getDossierJournaux())) {
+            // Archivée avant le jour de la plus ancienne sauvegarde : toutes ses lignes y sont déjà
+            if (Journal.jourArchive(archive).isBefore(premiere)) {
+                Files.deleteIfExists(archive);
+            }
+        }
+        return supprimees;
+    }
+
+    // ========== LISTE ==========
+
+    /**
+     * @return Les sauvegardes terminées, de la plus ancienne à la plus récente
+     */
+    public List<Sauvegarde> lister() throws IOException {
+        List<Sauvegarde> sauvegardes = new ArrayList<>();
+        if (!Files.isDirectory(racine)) {
+            return sauvegardes;
+        }
+        try (DirectoryStream<Path> contenu = Files.newDirectoryStream(racine)) {
+            for (Path dossier : contenu) {
+                if (Files.isRegularFile(dossier.resolve(MANIFESTE)) && !dossier.getFileName().toString().endsWith(".tmp")) {
+                    sauvegardes.add(lireManifeste(dossier));
+                }
+            }
+        }
+        sauvegardes.sort(Comparator.comparing(Sauvegarde::getNom));
+        return sauvegardes;
+    }
+
+    private static Sauvegarde lireManifeste(Path dossier) throws IOException {
+        Sauvegarde s = null;
+        for (String ligne : Files.readAllLines(dossier.resolve(MANIFESTE), StandardCharsets.UTF_8)) {
+            String[] parts = ligne.split("\\|");
+            if (parts[0].equals("date")) {
+                s = new Sauvegarde(dossier.getFileName().toString(), Long.parseLong(parts[1]));
+            } else if (parts[0].equals("fichier") && s != null && parts.length >= 6) {
+                s.entrees.put(parts[1], new Entree(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]),
+                    parts[4], parts[5].equals("copie")));
+            }
+        }
+        if (s == null) {
+            throw new IOException("Manifeste invalide: " + dossier);
+        }
+        return s;
+    }
+
+    // ========== RESTAURATION ==========
+
+    /**
+     * Restaure l'état du dossier data à une date : dernière sauvegarde prise
+     * avant cette date, suivie des mutations du journal jusqu'à cette date.
+     * À lancer application arrêtée (Batch restaurer) : les données en mémoire
+     * d'une instance en cours ne seraient pas rechargées.
+     *
+     * @param date Date visée (ms)
+     * @throws IllegalArgumentException si aucune sauvegarde n'est antérieure à la date
+     */
+    public RapportRestauration restaurer(long date) throws IOException {
+        Sauvegarde choisie = null;
+        for (Sauvegarde s : lister()) {
+            if (s.date <= date) {
+                choisie = s;
+            }
+        }
+        if (choisie == null) {
+            throw new IllegalArgumentException("Aucune sauvegarde antérieure au "
+                + LocalDateTime.ofInstant(Instant.ofEpochMilli(date), ZoneId.systemDefault()));
+        }
+        return restaurer(choisie, date);
+    }
+
+    /**
+     * Restaure une sauvegarde telle quelle, sans mutation ultérieure.
+     *
+     * @param nom Nom de la sauvegarde, ou null pour la plus récente
+     */
+    public RapportRestauration restaurer(String nom) throws IOException {
+        List<Sauvegarde> sauvegardes = lister();
+        for (int i = sauvegardes.size() - 1; i >= 0; i--) {
+            Sauvegarde s = sauvegardes.get(i);
+            if (nom == null || s.nom.equals(nom)) {
+                return restaurer(s, s.date);
+            }
+        }
+        throw new IllegalArgumentException(nom == null ? "Aucune sauvegarde" : "Sauvegarde inconnue: " + nom);
+    }
+
+    private RapportRestauration restaurer(Sauvegarde sauvegarde, long date) throws IOException {
+        long debut = System.currentTimeMillis();
+        RapportRestauration rapport = new RapportRestauration();
+        rapport.sauvegarde = sauvegarde.nom;
+        Path dossier = racine.resolve(sauvegarde.nom);
+        VerrouDonnees verrou = fileManager.getVerrou();
+        verrou.prendre();
+        try {
+            // Lues avant de mettre le journal courant de côté
+            List<String> mutations = mutationsEntre(sauvegarde.date, date);
+
+            Path deCote = racine.resolve(PREFIXE_DE_COTE + FORMAT_NOM.format(LocalDateTime.now()));
+            Files.createDirectories(deCote);
+            if (Files.isDirectory(donnees)) {
+                try (DirectoryStream<Path> contenu = Files.newDirectoryStream(donnees)) {
+                    for (Path p : contenu) {
+                        if (!p.getFileName().toString().equals(".verrou")) {
+                            Files.move(p, deCote.resolve(p.getFileName().toString()));
+                        }
+                    }
+                }
+            }
+            rapport.deCote = deCote;
+
+            // Copies : les fichiers restaurés seront modifiés sur place (ajouts)
+            for (Entree e : sauvegarde.entrees.values()) {
+                Path cible = donnees.resolve(e.chemin);
+                Files.createDirectories(cible.getParent());
+                copier(dossier.resolve(e.chemin), cible, e.taille);
+                rapport.fichiers++;
+                rapport.octets += e.taille;
+            }
+
+            if (!mutations.isEmpty()) {
+                Path journal = donnees.resolve("journal.txt");
+                try (FileChannel c = FileChannel.open(journal, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    StringBuilder lignes = new StringBuilder();
+                    for (String m : mutations) {
+                        lignes.append(m).append('\n');
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(lignes.toString().getBytes(StandardCharsets.UTF_8));
+                    while (buffer.hasRemaining()) {
+                        c.write(buffer);
+                    }
+                    c.force(true);
+                }
+                rapport.mutations = mutations.size();
+            }
+            FileManager.synchroniserDossier(donnees.resolve("journal.txt"));
+        } finally {
+            verrou.liberer();
+        }
+        rapport.dureeMs = System.currentTimeMillis() - debut;
+        return rapport;
+    }
+
+    /**
+     * Lignes du journal horodatées entre deux dates (incluses), des archives
+     * puis du journal courant, dans l'ordre d'écriture. Une ligne écrite à la
+     * date même de la sauvegarde peut y figurer déjà : son rejeu est sans effet.
+     */
+    private List<String> mutationsEntre(long depuis, long jusqua) throws IOException {
+        List<Path> sources = new ArrayList<>(Journal.listerArchives(getDossierJournaux()));
+        sources.add(donnees.resolve("journal.txt"));
+        List<String> mutations = new ArrayList<>();
+        for (Path source : sources) {
+            if (!Files.exists(source)) {
+                continue;
+            }
+            try (BufferedReader lecteur = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+                String ligne;
+                while ((ligne = lecteur.readLine()) != null) {
+                    long horodatage = Journal.horodatage(ligne);
+                    if (horodatage >= depuis && horodatage <= jusqua) {
+                        mutations.add(ligne);
+                    }
+                }
+            }
+        }
+        return mutations;
+    }
+
+    private static void supprimerArborescence(Path dossier) throws IOException {
+        if (!Files.exists(dossier)) {
+            return;
+        }
+        Files.walkFileTree(dossier, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path fichier, BasicFileAttributes attributs) throws IOException {
+                Files.delete(fichier);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package service;
+
+import java.util.List;
+
+/**
+ * Backend de persistance : regroupe les dépôts de chaque collection.
+ *
+ * Les données restent en mémoire pendant l'exécution ; le backend est lu au
+ * démarrage. Selon le backend, chaque mutation est soit journalisée puis la
+ * collection modifiée réécrite lors des compactions, soit écrite dans le
+ * dépôt dès l'appel du service. Deux implémentations : StockageTexte (fichiers
+ * .txt, par défaut, journalisé) et StockageJdbc (base SQL embarquée, écriture
+ * ligne par ligne).
+ */
+public interface Stockage extends DepotEntreprises, DepotCandidats, DepotOffres, DepotCommentaires {
+
+    /**
+     * @return Le dépôt des candidatures et wishlists
+     */
+    DepotRelations getRelations();
+
+    /**
+     * @return true si chaque mutation d'entité est écrite par les méthodes
+     *         d'écriture unitaire des dépôts (une transaction par appel de
+     *         service), sans journal ni réécriture de la collection
+     */
+    default boolean enregistreChaqueMutation() {
+        return false;
+    }
+
+    /**
+     * @return Le cache binaire de démarrage, ou null si le backend n'en utilise pas
+     */
+    InstantaneBinaire getInstantaneBinaire();
+
+    /**
+     * @return Description courte du backend (affichée au démarrage)
+     */
+    String getDescription();
+
+    /**
+     * @return Les mesures de durabilité des écritures du backend
+     */
+    List<MesuresDurabilite> getMesures();
+
+    void fermer();
+}
@@ -0,0 +1,477 @@
+package service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import models.Forum;
+
+/**
+ * Stockage du forum en segments mensuels dans data/forum/.
+ *
+ * Chaque mois a son segment, au format des lignes de commentaires.txt :
+ *   AAAA-MM.txt      segment actif : les nouveaux commentaires y sont ajoutés
+ *   AAAA-MM.txt.gz   segment scellé : compressé, jamais réécrit
+ * Un segment est scellé à la première sauvegarde qui suit la fin de son mois.
+ * Une sauvegarde n'écrit donc que les commentaires nouveaux, à la fin du
+ * segment actif, au lieu de réécrire tout le forum. Un commentaire dont le
+ * mois est déjà scellé (publié par une autre instance juste avant le
+ * scellement, rejoué depuis le journal) est ajouté au segment du mois courant.
+ *
+ * Les commentaires sont reconnus par leur identifiant, enregistré sur chaque
+ * ligne : deux messages publiés dans la même seconde restent distincts.
+ * Un commentaire inconnu est d'abord cherché dans les segments pas encore lus
+ * de son mois et des mois suivants, pour ne jamais écrire deux fois le même.
+ *
+ * Au démarrage, seuls les segments les plus récents sont lus (3 par défaut,
+ * propriété hecrecruit.forum.segmentsCharges) ; les plus anciens sont lus à la
+ * demande, un par un, quand l'utilisateur remonte dans le forum.
+ * L'ancien fichier data/commentaires.txt est découpé en segments au premier démarrage.
+ *
+ * Les ajouts se font sous le verrou du dossier ; chargerExternes() lit les
+ * lignes ajoutées aux segments actifs par d'autres instances depuis la dernière lecture.
+ */
+public class StockageForum {
+
+    private static final String FORUM_DIR = "data/forum";
+    private static final String ANCIEN_FICHIER = "data/commentaires.txt";
+    private static final String EXTENSION = ".txt";
+    private static final String EXTENSION_SCELLE = ".txt.gz";
+
+    /** Nombre de segments lus au démarrage */
+    private static final int SEGMENTS_CHARGES = Integer.getInteger("hecrecruit.forum.segmentsCharges", 3);
+
+    private final FileManager fileManager;
+    private final VerrouDonnees verrou;
+    private final Path dossier;
+    private final Path ancienFichier;
+
+    /** Segments présents sur disque et pas encore lus, du plus récent au plus ancien */
+    private final Deque<YearMonth> nonCharges = new ArrayDeque<>();
+
+    /** Identifiants des commentaires présents dans les segments lus */
+    private final Set<String> ecrits = new HashSet<>();
+
+    /** Segments dont tous les identifiants sont dans ecrits */
+    private final Set<YearMonth> lus = new HashSet<>();
+
+    /** Fin de la dernière ligne lue dans chaque segment actif */
+    private final Map<YearMonth, Long> positions = new HashMap<>();
+
+    /** Commentaires d'autres instances relevés mais pas encore rendus */
+    private final List<Forum> externes = new ArrayList<>();
+
+    public StockageForum(FileManager fileManager) {
+        this(fileManager, Paths.get(FORUM_DIR), Paths.get(ANCIEN_FICHIER));
+    }
+
+    public StockageForum(FileManager fileManager, Path dossier, Path ancienFichier) {
+        this.fileManager = fileManager;
+        this.verrou = fileManager.getVerrou();
+        this.dossier = dossier;
+        this.ancienFichier = ancienFichier;
+    }
+
+    // ========== LECTURE ==========
+
+    /**
+     * Lit les segments les plus récents.
+     */
+    public List<Forum> charger() {
+        return verrou.executer(this::chargerVerrouille);
+    }
+
+    private synchronized List<Forum> chargerVerrouille() {
+        List<Forum> commentaires = new ArrayList<>();
+        nonCharges.clear();
+        ecrits.clear();
+        lus.clear();
+        positions.clear();
+        externes.clear();
+        try {
+            Files.createDirectories(dossier);
+            if (Files.exists(ancienFichier)) {
+                migrer();
+            }
+            List<YearMonth> segments = new ArrayList<>(listerSegments().keySet());
+            Collections.reverse(segments);
+            nonCharges.addAll(segments);
+            for (int i = 0; i < SEGMENTS_CHARGES && !nonCharges.isEmpty(); i++) {
+                commentaires.addAll(lireSegment(nonCharges.poll()));
+            }
+        } catch (IOException e) {
+            System.out.println("Erreur lecture forum: " + e.getMessage());
+        }
+        return commentaires;
+    }
+
+    /**
+     * Lit le segment précédant les plus anciens déjà chargés
+     * (en sautant les segments vides).
+     *
+     * @return Ses commentaires, ou une liste vide s'il n'y en a plus
+     */
+    public synchronized List<Forum> chargerAnterieurs() {
+        while (!nonCharges.isEmpty()) {
+            YearMonth mois = nonCharges.poll();
+            try {
+                List<Forum> lus = lireSegment(mois);
+                if (!lus.isEmpty()) {
+                    return lus;
+                }
+            } catch (IOException e) {
+                System.out.println("Erreur lecture forum " + mois + ": " + e.getMessage());
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * @return true s'il reste des segments plus anciens à lire
+     */
+    public synchronized boolean aAnterieurs() {
+        return !nonCharges.isEmpty();
+    }
+
+    /**
+     * Lit les commentaires ajoutés aux segments actifs par d'autres instances
+     * depuis la dernière lecture (segments déjà chargés ou créés depuis).
+     */
+    public List<Forum> chargerExternes() {
+        return verrou.executer(() -> {
+            synchronized (this) {
+                try {
+                    relever();
+                } catch (IOException e) {
+                    System.out.println("Erreur lecture forum: " + e.getMessage());
+                }
+                List<Forum> lus = new ArrayList<>(externes);
+                externes.clear();
+                return lus;
+            }
+        });
+    }
+
+    /**
+     * Relève les lignes ajoutées aux segments actifs depuis la dernière lecture.
+     * Les segments pas encore chargés (plus anciens) sont laissés de côté.
+     */
+    private void relever() throws IOException {
+        if (!Files.isDirectory(dossier)) {
+            return;
+        }
+        for (Map.Entry<YearMonth, Boolean> segment : listerSegments().entrySet()) {
+            YearMonth mois = segment.getKey();
+            if (nonCharges.contains(mois)) {
+                continue;
+            }
+            if (segment.getValue()) {
+                // Scellé entre-temps : plus aucun ajout possible, mais la fin
+                // écrite avant le scellement n'a peut-être pas été relevée
+                if (positions.remove(mois) != null) {
+                    lus.remove(mois);
+                }
+                continue;
+            }
+            long depuis = positions.getOrDefault(mois, 0L);
+            if (Files.size(fichier(mois, false)) > depuis) {
+                externes.addAll(lireActif(mois, depuis));
+            }
+        }
+    }
+
+    /**
+     * Lit un segment et relève ses identifiants. Les lignes incomplètes
+     * (ajout interrompu) sont ignorées.
+     */
+    private List<Forum> lireSegment(YearMonth mois) throws IOException {
+        Path scelle = fichier(mois, true);
+        if (!Files.exists(scelle)) {
+            return lireActif(mois, 0);
+        }
+        List<Forum> commentaires = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(scelle), 1 << 16), Charset.defaultCharset()))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Forum f = parser(line);
+                if (f != null) {
+                    ecrits.add(cle(f));
+                    commentaires.add(f);
+                }
+            }
+        }
+        lus.add(mois);
+        return commentaires;
+    }
+
+    /**
+     * Lit les lignes complètes d'un segment actif à partir d'une position et
+     * relève les commentaires qu'il contient. Une lecture partielle (depuis
+     * une position non nulle) ignore ceux déjà relevés.
+     */
+    private List<Forum> lireActif(YearMonth mois, long depuis) throws IOException {
+        List<Forum> commentaires = new ArrayList<>();
+        byte[] octets;
+        try (FileChannel canal = FileChannel.open(fichier(mois, false), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, canal.size() - depuis));
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer, depuis + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            octets = Arrays.copyOf(buffer.array(), buffer.position());
+        }
+
+        int debut = 0;
+        for (int i = 0; i < octets.length; i++) {
+            if (octets[i] != '\n') {
+                continue;
+            }
+            Forum f = parser(new String(octets, debut, i - debut, Charset.defaultCharset()));
+            debut = i + 1;
+            if (f != null && (ecrits.add(cle(f)) || depuis == 0)) {
+                commentaires.add(f);
+            }
+        }
+        // La dernière ligne sans fin (ajout en cours ou interrompu) sera relue
+        positions.put(mois, depuis + debut);
+        lus.add(mois);
+        return commentaires;
+    }
+
+    /**
+     * @return Le commentaire d'une ligne, ou null si elle est incomplète
+     */
+    private Forum parser(String line) {
+        ChampsLigne champs = ChampsLigne.de(line.split("\\|"));
+        if (champs.taille() < 5 || !dateValide(champs.texte(4))) {
+            return null;
+        }
+        return fileManager.parserCommentaire(champs);
+    }
+
+    // ========== ÉCRITURE ==========
+
+    /**
+     * Ajoute les commentaires nouveaux à la fin de leur segment actif (celui
+     * du mois courant si le leur est scellé), puis scelle les segments des
+     * mois terminés. Les commentaires déjà écrits sont ignorés.
+     *
+     * @return Le nombre d'octets ajoutés, ou -1 en cas d'erreur
+     */
+    public long sauvegarder(List<Forum> commentaires) {
+        return verrou.executer(() -> sauvegarderVerrouille(commentaires));
+    }
+
+    private synchronized long sauvegarderVerrouille(List<Forum> commentaires) {
+        try {
+            Files.createDirectories(dossier);
+            // Commentaires déjà écrits par d'autres instances : à ne pas dupliquer
+            relever();
+
+            // Nouveaux commentaires par segment, dans l'ordre de publication
+            YearMonth courant = YearMonth.now();
+            SortedMap<YearMonth, Boolean> segments = listerSegments();
+            Map<YearMonth, List<Forum>> nouveaux = new TreeMap<>();
+            for (Forum f : commentaires) {
+                if (ecrits.contains(cle(f))) {
+                    continue;
+                }
+                YearMonth mois = YearMonth.from(f.getDatePublication());
+                if (releverNonLus(segments, mois) && ecrits.contains(cle(f))) {
+                    continue;
+                }
+                if (segments.getOrDefault(mois, false)) {
+                    // Mois scellé : les segments scellés ne sont jamais réécrits
+                    mois = courant;
+                }
+                nouveaux.computeIfAbsent(mois, m -> new ArrayList<>()).add(f);
+            }
+
+            long octets = 0;
+            for (Map.Entry<YearMonth, List<Forum>> e : nouveaux.entrySet()) {
+                e.getValue().sort(Comparator.comparing(Forum::getDatePublication));
+                octets += ajouter(e.getKey(), e.getValue());
+            }
+
+            sceller(courant);
+            return octets;
+        } catch (IOException e) {
+            System.out.println("Erreur sauvegarde forum: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Ajoute des commentaires à la fin d'un segment actif et les force sur disque.
+     */
+    private long ajouter(YearMonth mois, List<Forum> commentaires) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (Forum f : commentaires) {
+            sb.append(fileManager.formaterCommentaire(f)).append('\n');
+        }
+        byte[] octets = sb.toString().getBytes(Charset.defaultCharset());
+
+        try (FileChannel canal = FileChannel.open(fichier(mois, false), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fin = canal.size();
+            boolean aJour = positions.getOrDefault(mois, 0L) == fin;
+            // Une dernière ligne incomplète (ajout interrompu) est terminée avant d'ajouter
+            if (fin > 0) {
+                ByteBuffer dernier = ByteBuffer.allocate(1);
+                canal.read(dernier, fin - 1);
+                if (dernier.get(0) != '\n') {
+                    canal.write(ByteBuffer.wrap(new byte[] {'\n'}), fin++);
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(octets);
+            while (buffer.hasRemaining()) {
+                fin += canal.write(buffer, fin);
+            }
+            canal.force(false);
+            if (aJour) {
+                positions.put(mois, fin);
+                lus.add(mois);
+            }
+        }
+
+        for (Forum f : commentaires) {
+            ecrits.add(cle(f));
+        }
+        return octets.length;
+    }
+
+    /**
+     * Relève les identifiants des segments pas encore lus à partir d'un mois :
+     * un commentaire y est écrit dans le segment de son mois, ou dans un
+     * segment plus récent s'il est arrivé après le scellement du sien.
+     *
+     * @return true si au moins un segment a été lu
+     */
+    private boolean releverNonLus(SortedMap<YearMonth, Boolean> segments, YearMonth depuis) throws IOException {
+        boolean relu = false;
+        for (YearMonth mois : segments.tailMap(depuis).keySet()) {
+            if (!lus.contains(mois)) {
+                lireSegment(mois);
+                relu = true;
+            }
+        }
+        return relu;
+    }
+
+    /**
+     * Compresse les segments actifs des mois antérieurs au mois courant.
+     * Le segment compressé est forcé sur disque et renommé avant la suppression
+     * du segment texte : une interruption laisse au moins l'un des deux complet.
+     */
+    private void sceller(YearMonth courant) throws IOException {
+        for (Map.Entry<YearMonth, Boolean> segment : listerSegments().entrySet()) {
+            YearMonth mois = segment.getKey();
+            if (segment.getValue() || !mois.isBefore(courant)) {
+                continue;
+            }
+            Path texte = fichier(mois, false);
+            Path scelle = fichier(mois, true);
+            Path tmp = scelle.resolveSibling(scelle.getFileName() + ".tmp");
+            try (FileOutputStream sortie = new FileOutputStream(tmp.toFile())) {
+                try (GZIPOutputStream gz = new GZIPOutputStream(sortie, 1 << 16)) {
+                    Files.copy(texte, gz);
+                    gz.finish();
+                    sortie.getFD().sync();
+                }
+            }
+            Files.move(tmp, scelle, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileManager.synchroniserDossier(scelle);
+            Files.delete(texte);
+            positions.remove(mois);
+        }
+    }
+
+    /**
+     * Découpe l'ancien fichier unique en segments, puis le renomme en .ancien.
+     */
+    private void migrer() throws IOException {
+        List<Forum> anciens = fileManager.chargerCommentaires();
+        Map<YearMonth, List<Forum>> parMois = new TreeMap<>();
+        for (Forum f : anciens) {
+            parMois.computeIfAbsent(YearMonth.from(f.getDatePublication()), m -> new ArrayList<>()).add(f);
+        }
+        for (Map.Entry<YearMonth, List<Forum>> e : parMois.entrySet()) {
+            // Segment éventuellement écrit par une migration interrompue : on repart de zéro
+            Files.deleteIfExists(fichier(e.getKey(), false));
+            Files.deleteIfExists(fichier(e.getKey(), true));
+            positions.remove(e.getKey());
+            ajouter(e.getKey(), e.getValue());
+        }
+        sceller(YearMonth.now());
+        ecrits.clear();
+        lus.clear();
+        positions.clear();
+        Files.move(ancienFichier, ancienFichier.resolveSibling(ancienFichier.getFileName() + ".ancien"),
+                StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Migration de " + anciens.size() + " commentaire(s) vers "
+            + parMois.size() + " segment(s) mensuel(s)");
+    }
+
+    // ========== SEGMENTS ==========
+
+    /**
+     * @return Les mois ayant un segment, triés, avec true si le segment est scellé
+     */
+    private SortedMap<YearMonth, Boolean> listerSegments() throws IOException {
+        SortedMap<YearMonth, Boolean> segments = new TreeMap<>();
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(dossier)) {
+            for (Path p : fichiers) {
+                String nom = p.getFileName().toString();
+                boolean scelle = nom.endsWith(EXTENSION_SCELLE);
+                if (!scelle && !nom.endsWith(EXTENSION)) {
+                    continue;
+                }
+                try {
+                    YearMonth mois = YearMonth.parse(nom.substring(0, nom.indexOf('.')));
+                    // Un segment scellé l'emporte sur un reste de segment texte
+                    segments.merge(mois, scelle, Boolean::logicalOr);
+                } catch (DateTimeParseException e) {
+                    // Fichier étranger au forum
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * @return Les mois de segments présents sur disque, du plus ancien au plus récent
+     */
+    public synchronized List<YearMonth> getSegments() {
+        try {
+            return new ArrayList<>(listerSegments().keySet());
+        } catch (IOException e) {
+            return new ArrayList<>();
+        }
+    }
+
+    private Path fichier(YearMonth mois, boolean scelle) {
+        return dossier.resolve(mois + (scelle ? EXTENSION_SCELLE : EXTENSION));
+    }
+
+    private static String cle(Forum f) {
+        return f.getId().toString();
+    }
+
+    private static boolean dateValide(String texte) {
+        try {
+            LocalDateTime.parse(texte);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,972 @@
+package service;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import models.*;
+
+/**
+ * Backend SQL embarqué (base fichier sans serveur, ex: H2 ou SQLite).
+ *
+ * Le pilote JDBC est choisi par l'URL (ex: "jdbc:h2:./data/hecrecruit" ou
+ * "jdbc:sqlite:data/hecrecruit.db") et doit être présent au classpath.
+ * Chaque mutation d'un service est écrite tout de suite, en une transaction :
+ * insertion, mise à jour ou suppression des seules lignes concernées (une
+ * offre supprimée part avec ses candidatures). Les mutations ne sont donc pas
+ * journalisées et la compaction n'a rien à réécrire ; une collection entière
+ * n'est reportée (lignes absentes, différentes ou en trop) qu'après le rejeu
+ * d'un journal au démarrage. Le SQL utilisé est commun à H2 et SQLite.
+ */
+public class StockageJdbc implements Stockage {
+
+    /** Nombre d'ordres envoyés par lot */
+    private static final int TAILLE_LOT = 500;
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS entreprises (rang INTEGER NOT NULL, id VARCHAR(36) NOT NULL, "
+            + "nom VARCHAR(255), secteur VARCHAR(255), adresse VARCHAR(255), email VARCHAR(255) NOT NULL, "
+            + "telephone VARCHAR(32), mdp VARCHAR(255))",
+
+        "CREATE TABLE IF NOT EXISTS candidats (cin INTEGER PRIMARY KEY, rang INTEGER NOT NULL, "
+            + "type VARCHAR(16) NOT NULL, nom VARCHAR(255), prenom VARCHAR(255), email VARCHAR(255) NOT NULL, "
+            + "telephone VARCHAR(32), mdp VARCHAR(255), niveau VARCHAR(255), filiere VARCHAR(255), "
+            + "etablissement VARCHAR(255), annee_diplome INTEGER, poste_actuel VARCHAR(255), "
+            + "entreprise_actuelle VARCHAR(255))",
+        "CREATE INDEX IF NOT EXISTS idx_candidats_email ON candidats (email)",
+
+        "CREATE TABLE IF NOT EXISTS offres (id VARCHAR(36) PRIMARY KEY, rang INTEGER NOT NULL, "
+            + "type VARCHAR(64) NOT NULL, titre VARCHAR(255), description VARCHAR(4000), "
+            + "email_entreprise VARCHAR(255) NOT NULL, date_publication VARCHAR(10) NOT NULL, "
+            + "date_expiration VARCHAR(10), duree_mois INTEGER, domaine VARCHAR(255), rythme VARCHAR(255), "
+            + "sujet VARCHAR(255), technologies VARCHAR(255))",
+        "CREATE INDEX IF NOT EXISTS idx_offres_expiration ON offres (date_expiration)",
+        "CREATE INDEX IF NOT EXISTS idx_offres_entreprise ON offres (email_entreprise)",
+
+        "CREATE TABLE IF NOT EXISTS commentaires (rang INTEGER NOT NULL, id VARCHAR(36), auteur VARCHAR(255), "
+            + "email_auteur VARCHAR(255), message VARCHAR(4000), est_etudiant INTEGER NOT NULL, "
+            + "date_publication VARCHAR(32) NOT NULL)",
+
+        "CREATE TABLE IF NOT EXISTS candidatures (offre_id VARCHAR(36) NOT NULL, cin INTEGER NOT NULL, "
+            + "horodatage BIGINT NOT NULL, PRIMARY KEY (offre_id, cin))",
+        "CREATE INDEX IF NOT EXISTS idx_candidatures_cin ON candidatures (cin)",
+
+        "CREATE TABLE IF NOT EXISTS wishlists (email_entreprise VARCHAR(255) NOT NULL, cin INTEGER NOT NULL, "
+            + "horodatage BIGINT NOT NULL, PRIMARY KEY (email_entreprise, cin))"
+    };
+
+    /**
+     * Index uniques, créés après la mise à niveau des tables. Une base dont
+     * les lignes existantes les violent reste utilisable, sans l'index.
+     */
+    private static final String[] INDEX_UNIQUES = {
+        // Remplace l'index simple des premières versions
+        "DROP INDEX IF EXISTS idx_entreprises_email",
+        "CREATE UNIQUE INDEX IF NOT EXISTS idx_entreprises_email_unique ON entreprises (email)",
+        "CREATE UNIQUE INDEX IF NOT EXISTS idx_entreprises_id ON entreprises (id)",
+        "CREATE UNIQUE INDEX IF NOT EXISTS idx_commentaires_id ON commentaires (id)"
+    };
+
+    // ========== TABLES DES ENTITÉS ==========
+
+    /**
+     * Table d'une entité : la première colonne est sa clé ; les valeurs d'un
+     * élément sont données dans l'ordre des colonnes (Integer, Long, String
+     * ou null). La colonne rang conserve l'ordre des listes en mémoire.
+     */
+    private static final class Table<T> {
+        final String nom;
+        final String[] colonnes;
+        final Function<T, Object[]> valeurs;
+
+        Table(String nom, Function<T, Object[]> valeurs, String... colonnes) {
+            this.nom = nom;
+            this.colonnes = colonnes;
+            this.valeurs = valeurs;
+        }
+
+        String selection() {
+            return "SELECT " + String.join(", ", colonnes) + " FROM " + nom;
+        }
+
+        String insertion() {
+            return "INSERT INTO " + nom + " (rang, " + String.join(", ", colonnes) + ") VALUES (?"
+                + String.join("", Collections.nCopies(colonnes.length, ", ?")) + ")";
+        }
+
+        /** Colonnes hors clé, puis la clé en dernier paramètre */
+        String miseAJour() {
+            StringBuilder sb = new StringBuilder("UPDATE ").append(nom).append(" SET ");
+            for (int i = 1; i < colonnes.length; i++) {
+                sb.append(i > 1 ? ", " : "").append(colonnes[i]).append(" = ?");
+            }
+            return sb.append(" WHERE ").append(colonnes[0]).append(" = ?").toString();
+        }
+
+        String suppression() {
+            return "DELETE FROM " + nom + " WHERE " + colonnes[0] + " = ?";
+        }
+    }
+
+    private static final Table<Entreprise> ENTREPRISES = new Table<>("entreprises",
+        e -> new Object[] {e.getId().toString(), e.getNom(), e.getSecteur(), e.getAdresse(),
+            e.getEmail(), e.getTelephone(), e.getMdp()},
+        "id", "nom", "secteur", "adresse", "email", "telephone", "mdp");
+
+    private static final Table<Candidat> CANDIDATS = new Table<>("candidats",
+        StockageJdbc::valeursCandidat,
+        "cin", "type", "nom", "prenom", "email", "telephone", "mdp", "niveau", "filiere",
+        "etablissement", "annee_diplome", "poste_actuel", "entreprise_actuelle");
+
+    private static final Table<Offre> OFFRES = new Table<>("offres",
+        StockageJdbc::valeursOffre,
+        "id", "type", "titre", "description", "email_entreprise", "date_publication", "date_expiration",
+        "duree_mois", "domaine", "rythme", "sujet", "technologies");
+
+    private static final Table<Forum> COMMENTAIRES = new Table<>("commentaires",
+        f -> new Object[] {f.getId().toString(), f.getAuteur(), f.getEmailAuteur(), f.getMessage(),
+            f.isEstEtudiant() ? 1 : 0, f.getDatePublication().toString()},
+        "id", "auteur", "email_auteur", "message", "est_etudiant", "date_publication");
+
+    /**
+     * Type "simple" comme dans candidats.txt (les premières versions de la
+     * base écrivaient "candidat", toujours relu).
+     */
+    private static Object[] valeursCandidat(Candidat c) {
+        Object[] v = {c.getId(), "simple", c.getNom(), c.getPrenom(), c.getEmail(), c.getTelephone(),
+            c.getMdp(), null, null, null, null, null, null};
+        if (c instanceof Etudiant) {
+            Etudiant etud = (Etudiant) c;
+            v[1] = "etudiant";
+            v[7] = etud.getNiveau();
+            v[8] = etud.getFiliere();
+            v[9] = etud.getEtablissement();
+        } else if (c instanceof Alumni) {
+            Alumni alumni = (Alumni) c;
+            v[1] = "alumni";
+            v[10] = alumni.getAnneeDiplome();
+            v[11] = alumni.getPosteActuel();
+            v[12] = alumni.getEntrepriseActuelle();
+        }
+        return v;
+    }
+
+    private static Object[] valeursOffre(Offre o) {
+        Object[] v = {o.getId().toString(), o.getTypeOffre(), o.getTitre(), o.getDescription(),
+            o.getEntreprise().getEmail(), o.getDatePublication().toString(),
+            o.getDateExpiration() != null ? o.getDateExpiration().toString() : null,
+            null, null, null, null, null};
+        if (o instanceof Stage) {
+            v[7] = ((Stage) o).getDureeEnMois();
+            v[8] = ((Stage) o).getDomaine();
+        } else if (o instanceof Alternance) {
+            v[7] = ((Alternance) o).getDureeEnMois();
+            v[9] = ((Alternance) o).getRythme();
+        } else if (o instanceof ProjetFinEtudes) {
+            v[10] = ((ProjetFinEtudes) o).getSujet();
+            v[11] = ((ProjetFinEtudes) o).getTechnologies();
+        }
+        return v;
+    }
+
+    private final String url;
+    private final Connection connexion;
+    private final Relations relations = new Relations();
+
+    /** Prochain rang de chaque table, lu au premier ajout */
+    private final Map<String, Integer> rangs = new HashMap<>();
+
+    /**
+     * Ouvre la base et crée les tables et index manquants.
+     *
+     * @throws SQLException si la base est inaccessible ou le pilote absent
+     */
+    public StockageJdbc(String url) throws SQLException {
+        this.url = url;
+        this.connexion = DriverManager.getConnection(url);
+        try (Statement st = connexion.createStatement()) {
+            for (String ordre : SCHEMA) {
+                st.execute(ordre);
+            }
+            // Bases créées avant l'identifiant des commentaires
+            if (!colonneExiste("commentaires", "id")) {
+                st.execute("ALTER TABLE commentaires ADD COLUMN id VARCHAR(36)");
+            }
+            for (String ordre : INDEX_UNIQUES) {
+                try {
+                    st.execute(ordre);
+                } catch (SQLException e) {
+                    System.out.println("⚠️ Index non créé (lignes en double ?): " + ordre
+                        + " (" + e.getMessage() + ")");
+                }
+            }
+        }
+    }
+
+    private boolean colonneExiste(String table, String colonne) throws SQLException {
+        try (Statement st = connexion.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                if (meta.getColumnName(i).equalsIgnoreCase(colonne)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Chaque mutation est écrite par les méthodes unitaires ci-dessous.
+     */
+    @Override
+    public boolean enregistreChaqueMutation() {
+        return true;
+    }
+
+    // ========== ENTREPRISES ==========
+
+    @Override
+    public synchronized List<Entreprise> chargerEntreprises() {
+        List<Entreprise> entreprises = new ArrayList<>();
+        String sql = "SELECT id, nom, secteur, adresse, email, telephone, mdp FROM entreprises ORDER BY rang";
+        try (Statement st = connexion.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                Entreprise e = new Entreprise(rs.getString(2), rs.getString(3), rs.getString(4),
+                        rs.getString(5), rs.getString(6), rs.getString(7));
+                e.setId(UUID.fromString(rs.getString(1)));
+                entreprises.add(e);
+            }
+        } catch (SQLException e) {
+            System.out.println("Erreur lecture entreprises: " + e.getMessage());
+        }
+        return entreprises;
+    }
+
+    @Override
+    public synchronized long sauvegarderEntreprises(List<Entreprise> entreprises) {
+        return synchroniser(ENTREPRISES, entreprises);
+    }
+
+    @Override
+    public synchronized boolean entrepriseAjoutee(Entreprise e) {
+        return inserer(ENTREPRISES, e);
+    }
+
+    @Override
+    public synchronized boolean entrepriseModifiee(Entreprise e) {
+        return mettreAJour(ENTREPRISES, e);
+    }
+
+    // ========== CANDIDATS ==========
+
+    /**
+     * Les lignes ont été validées à l'écriture : les candidats sont construits
+     * sans liste (pas de contrôle d'unicité, le CIN est la clé primaire).
+     */
+    @Override
+    public synchronized List<Candidat> chargerCandidats(RapportChargement rapport) {
+        List<Candidat> candidats = new ArrayList<>();
+        String sql = "SELECT cin, type, nom, prenom, email, telephone, mdp, niveau, filiere, etablissement, "
+            + "annee_diplome, poste_actuel, entreprise_actuelle FROM candidats ORDER BY rang";
+        try (Statement st = connexion.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            int ligne = 0;
+            while (rs.next()) {
+                ligne++;
+                int cin = rs.getInt(1);
+                String type = rs.getString(2);
+                try {
+                    Candidat c;
+                    if (type.equals("etudiant")) {
+                        c = new Etudiant(cin, rs.getString(3), rs.getString(4), rs.getString(5),
+                                rs.getString(6), rs.getString(7), rs.getString(8), rs.getString(9),
+                                rs.getString(10), null);
+                    } else if (type.equals("alumni")) {
+                        c = new Alumni(cin, rs.getString(3), rs.getString(4), rs.getString(5),
+                                rs.getString(6), rs.getString(7), rs.getInt(11), rs.getString(12),
+                                rs.getString(13), null);
+                    } else if (type.equals("simple") || type.equals("candidat")) {
+                        c = new Candidat(cin, rs.getString(3), rs.getString(4), rs.getString(5),
+                                rs.getString(6), rs.getString(7), null);
+                    } else {
+                        rapport.rejeter("table candidats", ligne, "Type de candidat inconnu: " + type);
+                        continue;
+                    }
+                    candidats.add(c);
+                    rapport.accepter();
+                } catch (IllegalArgumentException e) {
+                    rapport.rejeter("table candidats", ligne, e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Erreur lecture candidats: " + e.getMessage());
+        }
+        return candidats;
+    }
+
+    @Override
+    public synchronized long sauvegarderCandidats(List<Candidat> candidats) {
+        return synchroniser(CANDIDATS, candidats);
+    }
+
+    @Override
+    public synchronized boolean candidatAjoute(Candidat c) {
+        return inserer(CANDIDATS, c);
+    }
+
+    @Override
+    public synchronized boolean candidatModifie(Candidat c) {
+        return mettreAJour(CANDIDATS, c);
+    }
+
+    // ========== OFFRES ==========
+
+    @Override
+    public synchronized List<Offre> chargerOffres(List<Entreprise> entreprises, RapportChargement rapport) {
+        List<Offre> offres = new ArrayList<>();
+        Map<String, Entreprise> parEmail = FileManager.indexerParEmail(entreprises);
+        String sql = "SELECT id, type, titre, description, email_entreprise, date_publication, date_expiration, "
+            + "duree_mois, domaine, rythme, sujet, technologies FROM offres ORDER BY rang";
+        try (Statement st = connexion.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            int ligne = 0;
+            while (rs.next()) {
+                ligne++;
+                Entreprise entreprise = parEmail.get(rs.getString(5));
+                if (entreprise == null) {
+                    rapport.rejeter("table offres", ligne, "Entreprise inconnue: " + rs.getString(5));
+                    continue;
+                }
+                String type = rs.getString(2);
+                String titre = rs.getString(3);
+                String description = rs.getString(4);
+
+                Offre offre;
+                switch (type.toLowerCase()) {
+                    case "stage":
+                        offre = new Stage(titre, description, entreprise, rs.getInt(8), rs.getString(9));
+                        break;
+                    case "alternance":
+                        offre = new Alternance(titre, description, entreprise, rs.getString(10), rs.getInt(8));
+                        break;
+                    case "projet fin d'etudes":
+                        offre = new ProjetFinEtudes(titre, description, entreprise, rs.getString(11), rs.getString(12));
+                        break;
+                    default:
+                        offre = new Offre(titre, description, type, entreprise);
+                        break;
+                }
+                offre.setId(UUID.fromString(rs.getString(1)));
+                offre.setDatePublication(LocalDate.parse(rs.getString(6)));
+                String expiration = rs.getString(7);
+                if (expiration != null) {
+                    offre.setDateExpiration(LocalDate.parse(expiration));
+                }
+                offres.add(offre);
+                entreprise.getOffresPubliees().add(offre);
+                rapport.accepter();
+            }
+        } catch (SQLException e) {
+            System.out.println("Erreur lecture offres: " + e.getMessage());
+        }
+        return offres;
+    }
+
+    @Override
+    public synchronized long sauvegarderOffres(List<Offre> offres) {
+        return synchroniser(OFFRES, offres);
+    }
+
+    @Override
+    public synchronized boolean offreAjoutee(Offre o) {
+        return inserer(OFFRES, o);
+    }
+
+    @Override
+    public synchronized boolean offreModifiee(Offre o) {
+        return mettreAJour(OFFRES, o);
+    }
+
+    /**
+     * Supprime les offres et leurs candidatures dans la même transaction.
+     */
+    @Override
+    public synchronized boolean offresSupprimees(List<Offre> offres) {
+        boolean ecrite = transaction("offres", () -> {
+            long lignes = 0;
+            try (PreparedStatement offre = connexion.prepareStatement(OFFRES.suppression());
+                 PreparedStatement liens = connexion.prepareStatement(
+                     "DELETE FROM candidatures WHERE offre_id = ?")) {
+                for (Offre o : offres) {
+                    String cle = FileManager.cleOffre(o);
+                    liens.setString(1, cle);
+                    lignes += liens.executeUpdate();
+                    offre.setString(1, cle);
+                    lignes += offre.executeUpdate();
+                }
+            }
+            return lignes;
+        }) >= 0;
+        if (ecrite) {
+            relations.offresRetirees(offres);
+        }
+        return ecrite;
+    }
+
+    // ========== COMMENTAIRES ==========
+
+    /**
+     * Les lignes écrites avant l'identifiant en reçoivent un tiré de leur
+     * contenu, comme dans le format texte, enregistré dans la base.
+     */
+    @Override
+    public synchronized List<Forum> chargerCommentaires() {
+        List<Forum> commentaires = new ArrayList<>();
+        Map<Integer, Forum> sansIdentifiant = new LinkedHashMap<>();
+        String sql = "SELECT auteur, email_auteur, message, est_etudiant, date_publication, id, rang "
+            + "FROM commentaires ORDER BY rang";
+        try (Statement st = connexion.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                Forum f = new Forum(rs.getString(1), rs.getString(2), rs.getString(3),
+                        rs.getInt(4) != 0, LocalDateTime.parse(rs.getString(5)));
+                String id = rs.getString(6);
+                if (id != null) {
+                    f.setId(UUID.fromString(id));
+                } else {
+                    f.setId(FileManager.idCommentaireAncien(f));
+                    sansIdentifiant.put(rs.getInt(7), f);
+                }
+                commentaires.add(f);
+            }
+        } catch (SQLException e) {
+            System.out.println("Erreur lecture commentaires: " + e.getMessage());
+        }
+        if (!sansIdentifiant.isEmpty()) {
+            transaction("commentaires", () -> {
+                try (PreparedStatement ps = connexion.prepareStatement(
+                        "UPDATE commentaires SET id = ? WHERE rang = ? AND id IS NULL")) {
+                    for (Map.Entry<Integer, Forum> e : sansIdentifiant.entrySet()) {
+                        ps.setString(1, e.getValue().getId().toString());
+                        ps.setInt(2, e.getKey());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                return sansIdentifiant.size();
+            });
+        }
+        return commentaires;
+    }
+
+    @Override
+    public synchronized long sauvegarderCommentaires(List<Forum> commentaires) {
+        return synchroniser(COMMENTAIRES, commentaires);
+    }
+
+    @Override
+    public synchronized boolean commentaireAjoute(Forum f) {
+        return inserer(COMMENTAIRES, f);
+    }
+
+    // ========== ÉCRITURE ==========
+
+    /** Travail exécuté dans une transaction */
+    private interface Travail {
+        /** @return Le nombre de lignes écrites */
+        long executer() throws SQLException;
+    }
+
+    /**
+     * Exécute un travail en une transaction, annulée en cas d'erreur.
+     *
+     * @return Le nombre de lignes écrites, ou -1 en cas d'erreur (base inchangée)
+     */
+    private long transaction(String table, Travail travail) {
+        try {
+            connexion.setAutoCommit(false);
+            try {
+                long lignes = travail.executer();
+                connexion.commit();
+                return lignes;
+            } catch (SQLException e) {
+                connexion.rollback();
+                System.out.println("Erreur écriture " + table + ": " + e.getMessage());
+                return -1;
+            } finally {
+                connexion.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.out.println("Erreur écriture " + table + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private <T> boolean inserer(Table<T> table, T element) {
+        return transaction(table.nom, () -> {
+            try (PreparedStatement ps = connexion.prepareStatement(table.insertion())) {
+                ps.setInt(1, prochainRang(table));
+                lier(ps, 2, table.valeurs.apply(element), 0);
+                return ps.executeUpdate();
+            }
+        }) >= 0;
+    }
+
+    /**
+     * Met à jour la ligne de l'élément, ou l'insère si elle manque.
+     */
+    private <T> boolean mettreAJour(Table<T> table, T element) {
+        return transaction(table.nom, () -> {
+            Object[] valeurs = table.valeurs.apply(element);
+            try (PreparedStatement ps = connexion.prepareStatement(table.miseAJour())) {
+                lierMiseAJour(ps, valeurs);
+                if (ps.executeUpdate() > 0) {
+                    return 1;
+                }
+            }
+            try (PreparedStatement ps = connexion.prepareStatement(table.insertion())) {
+                ps.setInt(1, prochainRang(table));
+                lier(ps, 2, valeurs, 0);
+                return ps.executeUpdate();
+            }
+        }) >= 0;
+    }
+
+    /**
+     * Reporte une collection entière dans sa table en une transaction : seules
+     * les lignes absentes, différentes ou en trop sont écrites, par lots.
+     * Les services écrivant leurs mutations une à une, ce report ne sert
+     * qu'après le rejeu d'un journal au démarrage.
+     *
+     * @return Le nombre de lignes écrites, ou -1 en cas d'erreur (table inchangée)
+     */
+    private <T> long synchroniser(Table<T> table, List<T> elements) {
+        return transaction(table.nom, () -> {
+            Map<String, String[]> lignes = new HashMap<>();
+            try (Statement st = connexion.createStatement(); ResultSet rs = st.executeQuery(table.selection())) {
+                while (rs.next()) {
+                    String[] ligne = new String[table.colonnes.length];
+                    for (int i = 0; i < ligne.length; i++) {
+                        ligne[i] = rs.getString(i + 1);
+                    }
+                    lignes.put(ligne[0], ligne);
+                }
+            }
+            List<Object[]> nouvelles = new ArrayList<>();
+            List<Object[]> modifiees = new ArrayList<>();
+            for (T element : elements) {
+                Object[] valeurs = table.valeurs.apply(element);
+                String[] existante = lignes.remove(texte(valeurs[0]));
+                if (existante == null) {
+                    nouvelles.add(valeurs);
+                } else if (!identiques(existante, valeurs)) {
+                    modifiees.add(valeurs);
+                }
+            }
+            // Suppressions d'abord : une ligne retirée libère son email pour une ligne ajoutée
+            try (PreparedStatement ps = connexion.prepareStatement(table.suppression())) {
+                int n = 0;
+                for (String cle : lignes.keySet()) {
+                    ps.setString(1, cle);
+                    ps.addBatch();
+                    if (++n % TAILLE_LOT == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = connexion.prepareStatement(table.miseAJour())) {
+                int n = 0;
+                for (Object[] valeurs : modifiees) {
+                    lierMiseAJour(ps, valeurs);
+                    ps.addBatch();
+                    if (++n % TAILLE_LOT == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = connexion.prepareStatement(table.insertion())) {
+                int n = 0;
+                for (Object[] valeurs : nouvelles) {
+                    ps.setInt(1, prochainRang(table));
+                    lier(ps, 2, valeurs, 0);
+                    ps.addBatch();
+                    if (++n % TAILLE_LOT == 0) {
+                        ps.executeBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            return lignes.size() + modifiees.size() + nouvelles.size();
+        });
+    }
+
+    private int prochainRang(Table<?> table) throws SQLException {
+        Integer rang = rangs.get(table.nom);
+        if (rang == null) {
+            try (Statement st = connexion.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(rang), -1) + 1 FROM " + table.nom)) {
+                rs.next();
+                rang = rs.getInt(1);
+            }
+        }
+        rangs.put(table.nom, rang + 1);
+        return rang;
+    }
+
+    /**
+     * Lie les valeurs à partir d'un indice, en commençant au paramètre donné.
+     */
+    private static void lier(PreparedStatement ps, int parametre, Object[] valeurs, int debut) throws SQLException {
+        for (int i = debut; i < valeurs.length; i++) {
+            Object v = valeurs[i];
+            int p = parametre + i - debut;
+            if (v == null) {
+                ps.setNull(p, Types.VARCHAR);
+            } else if (v instanceof Integer) {
+                ps.setInt(p, (Integer) v);
+            } else if (v instanceof Long) {
+                ps.setLong(p, (Long) v);
+            } else {
+                ps.setString(p, v.toString());
+            }
+        }
+    }
+
+    private static void lierMiseAJour(PreparedStatement ps, Object[] valeurs) throws SQLException {
+        lier(ps, 1, valeurs, 1);
+        lier(ps, valeurs.length, new Object[] {valeurs[0]}, 0);
+    }
+
+    private static boolean identiques(String[] ligne, Object[] valeurs) {
+        for (int i = 1; i < valeurs.length; i++) {
+            if (!Objects.equals(ligne[i], texte(valeurs[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String texte(Object valeur) {
+        return valeur == null ? null : valeur.toString();
+    }
+
+    // ========== RELATIONS ==========
+
+    /**
+     * Liens candidatures et wishlists : chaque ajout ou retrait est écrit
+     * immédiatement (une transaction par appel).
+     */
+    private class Relations implements DepotRelations {
+
+        /** Date de chaque candidature vivante (id offre + CIN) */
+        private final Map<String, Long> horodatages = new HashMap<>();
+
+        /** Date d'ajout de chaque entrée de wishlist (email entreprise + CIN) */
+        private final Map<String, Long> horodatagesWishlist = new HashMap<>();
+
+        /** Nombre de modifications écrites, pour savoir si une capture est périmée */
+        private long modifications;
+
+        @Override
+        public int charger(List<Entreprise> entreprises, List<Candidat> candidats, List<Offre> offres) {
+            synchronized (StockageJdbc.this) {
+                horodatages.clear();
+                horodatagesWishlist.clear();
+                Map<String, Offre> offresParId = new HashMap<>();
+                for (Offre o : offres) {
+                    offresParId.put(FileManager.cleOffre(o), o);
+                }
+                Map<String, Entreprise> entreprisesParEmail = FileManager.indexerParEmail(entreprises);
+                Map<Integer, Candidat> candidatsParId = new HashMap<>();
+                for (Candidat c : candidats) {
+                    candidatsParId.put(c.getId(), c);
+                }
+
+                int liens = 0;
+                try (Statement st = connexion.createStatement()) {
+                    try (ResultSet rs = st.executeQuery(
+                            "SELECT offre_id, cin, horodatage FROM candidatures ORDER BY horodatage")) {
+                        while (rs.next()) {
+                            Offre offre = offresParId.get(rs.getString(1));
+                            Candidat candidat = candidatsParId.get(rs.getInt(2));
+                            if (offre != null && candidat != null) {
+                                offre.getCandidatures().add(candidat);
+                                candidat.getCandidaturesEnCours().add(offre);
+                                horodatages.put(rs.getString(1) + '|' + rs.getInt(2), rs.getLong(3));
+                                liens++;
+                            }
+                        }
+                    }
+                    try (ResultSet rs = st.executeQuery(
+                            "SELECT email_entreprise, cin, horodatage FROM wishlists ORDER BY horodatage")) {
+                        while (rs.next()) {
+                            Entreprise entreprise = entreprisesParEmail.get(rs.getString(1));
+                            Candidat candidat = candidatsParId.get(rs.getInt(2));
+                            if (entreprise != null && candidat != null) {
+                                entreprise.getWishlist().add(candidat);
+                                horodatagesWishlist.put(rs.getString(1) + '|' + rs.getInt(2), rs.getLong(3));
+                                liens++;
+                            }
+                        }
+                    }
+                } catch (SQLException e) {
+                    System.out.println("Erreur lecture relations: " + e.getMessage());
+                }
+                return liens;
+            }
+        }
+
+        @Override
+        public boolean candidatureAjoutee(Candidat c, Offre o) {
+            long maintenant = System.currentTimeMillis();
+            synchronized (StockageJdbc.this) {
+                if (!executer("INSERT INTO candidatures (offre_id, cin, horodatage) VALUES (?, ?, ?)",
+                        FileManager.cleOffre(o), c.getId(), maintenant)) {
+                    return false;
+                }
+                horodatages.put(FileManager.cleOffre(o) + '|' + c.getId(), maintenant);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean candidatureRetiree(Candidat c, Offre o) {
+            synchronized (StockageJdbc.this) {
+                if (!executer("DELETE FROM candidatures WHERE offre_id = ? AND cin = ?",
+                        FileManager.cleOffre(o), c.getId(), null)) {
+                    return false;
+                }
+                horodatages.remove(FileManager.cleOffre(o) + '|' + c.getId());
+                return true;
+            }
+        }
+
+        @Override
+        public boolean wishlistAjout(Entreprise e, Candidat c) {
+            long maintenant = System.currentTimeMillis();
+            synchronized (StockageJdbc.this) {
+                if (!executer("INSERT INTO wishlists (email_entreprise, cin, horodatage) VALUES (?, ?, ?)",
+                        e.getEmail(), c.getId(), maintenant)) {
+                    return false;
+                }
+                horodatagesWishlist.put(e.getEmail() + '|' + c.getId(), maintenant);
+                return true;
+            }
+        }
+
+        @Override
+        public boolean wishlistRetrait(Entreprise e, Candidat c) {
+            synchronized (StockageJdbc.this) {
+                if (!executer("DELETE FROM wishlists WHERE email_entreprise = ? AND cin = ?",
+                        e.getEmail(), c.getId(), null)) {
+                    return false;
+                }
+                horodatagesWishlist.remove(e.getEmail() + '|' + c.getId());
+                return true;
+            }
+        }
+
+        /**
+         * Candidatures supprimées avec leurs offres (même transaction) : une
+         * capture antérieure est périmée.
+         */
+        void offresRetirees(List<Offre> offres) {
+            for (Offre o : offres) {
+                String cle = FileManager.cleOffre(o);
+                for (Candidat c : o.getCandidatures()) {
+                    horodatages.remove(cle + '|' + c.getId());
+                }
+            }
+            modifications++;
+        }
+
+        /**
+         * Écrit un lien (auto-commit : une transaction par appel).
+         *
+         * @return false si aucune ligne n'a été insérée ou supprimée, ou en cas d'erreur
+         */
+        private boolean executer(String sql, String cle, int cin, Long horodatage) {
+            try (PreparedStatement ps = connexion.prepareStatement(sql)) {
+                ps.setString(1, cle);
+                ps.setInt(2, cin);
+                if (horodatage != null) {
+                    ps.setLong(3, horodatage);
+                }
+                if (ps.executeUpdate() == 0) {
+                    System.out.println("Écriture relations sans effet: lien " + cle + " / " + cin + " introuvable");
+                    return false;
+                }
+                modifications++;
+                return true;
+            } catch (SQLException e) {
+                System.out.println("Erreur écriture relations: " + e.getMessage());
+                return false;
+            }
+        }
+
+        /**
+         * Fige les liens ; la position est le nombre de modifications écrites.
+         * Un lien sans date connue (posé par le rejeu d'un journal) est daté de
+         * la capture ; dans une wishlist, l'ordre est conservé en datant ces
+         * liens de millisecondes successives.
+         */
+        @Override
+        public Liens capturer(List<Entreprise> entreprises, List<Offre> offres) {
+            synchronized (StockageJdbc.this) {
+                Liens liens = new Liens();
+                liens.position = modifications;
+                long maintenant = System.currentTimeMillis();
+                for (Offre o : offres) {
+                    String cle = FileManager.cleOffre(o);
+                    for (Candidat c : o.getCandidatures()) {
+                        Long horodatage = horodatages.get(cle + '|' + c.getId());
+                        liens.candidatures.add(new Arete(cle, c.getId(),
+                                horodatage != null ? horodatage : maintenant));
+                    }
+                }
+                for (Entreprise e : entreprises) {
+                    int rang = 0;
+                    for (Candidat c : e.getWishlist()) {
+                        Long horodatage = horodatagesWishlist.get(e.getEmail() + '|' + c.getId());
+                        liens.wishlists.add(new Arete(e.getEmail(), c.getId(),
+                                horodatage != null ? horodatage : maintenant + rang));
+                        rang++;
+                    }
+                }
+                return liens;
+            }
+        }
+
+        /**
+         * Les ajouts et retraits étant déjà écrits un par un, la base ne diffère
+         * de la mémoire que pour les liens posés hors du dépôt (rejeu d'un ancien
+         * journal) : seuls les liens manquants, en trop ou de date différente
+         * sont écrits. Si des modifications ont eu lieu depuis la capture,
+         * celle-ci est périmée : on ne purge que les liens orphelins.
+         */
+        @Override
+        public long reecrire(Liens liens) {
+            synchronized (StockageJdbc.this) {
+                if (liens.position != modifications) {
+                    return purgerOrphelins();
+                }
+                long candidatures = synchroniserLiens("candidatures", "offre_id", liens.candidatures);
+                long wishlists = synchroniserLiens("wishlists", "email_entreprise", liens.wishlists);
+                if (candidatures >= 0) {
+                    for (Arete a : liens.candidatures) {
+                        horodatages.putIfAbsent(a.valeur + '|' + a.cin, a.horodatage);
+                    }
+                }
+                if (wishlists >= 0) {
+                    for (Arete a : liens.wishlists) {
+                        horodatagesWishlist.putIfAbsent(a.valeur + '|' + a.cin, a.horodatage);
+                    }
+                }
+                return candidatures < 0 || wishlists < 0 ? -1 : candidatures + wishlists;
+            }
+        }
+
+        private long synchroniserLiens(String table, String colonne, List<Arete> aretes) {
+            return transaction(table, () -> {
+                Map<String, Long> presents = new HashMap<>();
+                try (Statement st = connexion.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT " + colonne + ", cin, horodatage FROM " + table)) {
+                    while (rs.next()) {
+                        presents.put(rs.getString(1) + '|' + rs.getInt(2), rs.getLong(3));
+                    }
+                }
+                List<Arete> nouvelles = new ArrayList<>();
+                List<Arete> redatees = new ArrayList<>();
+                for (Arete a : aretes) {
+                    Long horodatage = presents.remove(a.valeur + '|' + a.cin);
+                    if (horodatage == null) {
+                        nouvelles.add(a);
+                    } else if (horodatage != a.horodatage) {
+                        redatees.add(a);
+                    }
+                }
+                try (PreparedStatement ps = connexion.prepareStatement(
+                        "DELETE FROM " + table + " WHERE " + colonne + " = ? AND cin = ?")) {
+                    for (String cle : presents.keySet()) {
+                        int sep = cle.lastIndexOf('|');
+                        ps.setString(1, cle.substring(0, sep));
+                        ps.setInt(2, Integer.parseInt(cle.substring(sep + 1)));
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                try (PreparedStatement ps = connexion.prepareStatement(
+                        "UPDATE " + table + " SET horodatage = ? WHERE " + colonne + " = ? AND cin = ?")) {
+                    for (Arete a : redatees) {
+                        ps.setLong(1, a.horodatage);
+                        ps.setString(2, a.valeur);
+                        ps.setInt(3, a.cin);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                try (PreparedStatement ps = connexion.prepareStatement(
+                        "INSERT INTO " + table + " (" + colonne + ", cin, horodatage) VALUES (?, ?, ?)")) {
+                    for (Arete a : nouvelles) {
+                        ps.setString(1, a.valeur);
+                        ps.setInt(2, a.cin);
+                        ps.setLong(3, a.horodatage);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                return presents.size() + redatees.size() + nouvelles.size();
+            });
+        }
+
+        private long purgerOrphelins() {
+            try (Statement st = connexion.createStatement()) {
+                return st.executeUpdate("DELETE FROM candidatures WHERE offre_id NOT IN (SELECT id FROM offres)");
+            } catch (SQLException e) {
+                System.out.println("Erreur purge relations: " + e.getMessage());
+                return -1;
+            }
+        }
+
+        @Override
+        public void fermer() {
+            // La connexion est fermée avec le stockage
+        }
+    }
+
+    @Override
+    public DepotRelations getRelations() {
+        return relations;
+    }
+
+    /**
+     * Pas de cache binaire : la base se lit directement.
+     */
+    @Override
+    public InstantaneBinaire getInstantaneBinaire() {
+        return null;
+    }
+
+    @Override
+    public String getDescription() {
+        return "base " + url;
+    }
+
+    /**
+     * La durabilité des transactions est assurée par la base.
+     */
+    @Override
+    public List<MesuresDurabilite> getMesures() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public synchronized void fermer() {
+        try {
+            connexion.close();
+        } catch (SQLException e) {
+            System.out.println("Erreur fermeture base: " + e.getMessage());
+        }
+    }
+}
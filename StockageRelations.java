@@ -0,0 +1,1059 @@
+package service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import models.*;
+
+/**
+ * Stockage des liens candidatures et wishlists sous forme de liste d'arêtes.
+ *
+ * Chaque ajout ou retrait est ajouté à la fin de data/relations.bin (un retrait
+ * est une pierre tombale) puis forcé sur disque, avec un fsync groupé entre
+ * les ajouts concurrents (CommitGroupe). Au démarrage, le fichier est
+ * lu en une passe et les liens sont posés directement dans les listes en mémoire.
+ * La compaction réécrit le fichier avec les seules arêtes vivantes.
+ *
+ * Format binaire, entiers en big-endian :
+ *   "HECE" | version
+ *   puis des enregistrements : type (octet) | champs
+ *     DEFINITION            longueur (varint) | octets UTF-8   -> nouvelle référence
+ *     CANDIDATURE           réf. offre (varint) | CIN (int) | horodatage ms (long)
+ *     CANDIDATURE_RETIREE   réf. offre (varint) | CIN (int)
+ *     WISHLIST              réf. email entreprise (varint) | CIN (int)
+ *     WISHLIST_RETIREE      réf. email entreprise (varint) | CIN (int)
+ * Les clés d'offres et emails d'entreprises sont définis une fois par fichier
+ * et désignés ensuite par leur rang de définition.
+ *
+ * Le fichier peut être partagé par plusieurs instances : les ajouts se font sous
+ * le verrou du dossier, après lecture des définitions ajoutées par les autres
+ * (pour que les rangs restent communs), et synchroniser() applique leurs arêtes.
+ */
+public class StockageRelations implements DepotRelations {
+
+    private static final String RELATIONS_FILE = "data/relations.bin";
+
+    private static final int MAGIC = 0x48454345; // "HECE"
+    private static final byte VERSION = 1;
+    private static final int TAILLE_ENTETE = 5;
+
+    private static final byte DEFINITION = 1;
+    private static final byte CANDIDATURE = 2;
+    private static final byte CANDIDATURE_RETIREE = 3;
+    private static final byte WISHLIST = 4;
+    private static final byte WISHLIST_RETIREE = 5;
+
+    /** Taille au-delà de laquelle une fin illisible ne peut pas être un seul ajout interrompu */
+    private static final long TAILLE_MAX_AJOUT = 64 * 1024;
+
+    private final Path chemin;
+    private final VerrouDonnees verrou;
+    private FileChannel canal;
+    private final CommitGroupe commit =
+        new CommitGroupe(this::canalCourant, new MesuresDurabilite("relations"));
+
+    /** Références définies dans le fichier courant */
+    private Map<String, Integer> references = new HashMap<>();
+    private List<String> valeurs = new ArrayList<>();
+
+    /** Date de chaque candidature vivante (clé offre + CIN) */
+    private final Map<String, Long> horodatages = new HashMap<>();
+
+    /** Fin du dernier enregistrement lu : toutes les définitions jusque-là sont connues */
+    private long positionLue;
+
+    /** Fin du dernier enregistrement appliqué en mémoire, et nombre de définitions avant elle */
+    private long positionAppliquee;
+    private int definitionsAppliquees;
+
+    /** Identité du fichier lu (null si le système ne la fournit pas) */
+    private Object cleFichier;
+
+    /** Le fichier a été réécrit par une autre instance et ses liens pas encore rechargés */
+    private boolean remplace;
+
+    /** Nombre de réécritures externes détectées, et sa valeur à la dernière capture */
+    private int generation;
+    private int generationCapturee;
+
+    /** Motif du dernier chargement refusé : le fichier n'est alors ni prolongé ni réécrit */
+    private String corruption;
+
+    public StockageRelations() {
+        this(new VerrouDonnees());
+    }
+
+    public StockageRelations(VerrouDonnees verrou) {
+        this(Paths.get(RELATIONS_FILE), verrou);
+    }
+
+    public StockageRelations(Path chemin) {
+        this(chemin, new VerrouDonnees(chemin.resolveSibling(".verrou")));
+    }
+
+    public StockageRelations(Path chemin, VerrouDonnees verrou) {
+        this.chemin = chemin;
+        this.verrou = verrou;
+    }
+
+    // ========== ÉCRITURE ==========
+
+    @Override
+    public boolean candidatureAjoutee(Candidat c, Offre o) {
+        long debut = System.nanoTime();
+        long numero;
+        verrou.prendre();
+        try {
+            synchronized (this) {
+                String cle = FileManager.cleOffre(o);
+                long maintenant = System.currentTimeMillis();
+                numero = ajouter(CANDIDATURE, new Arete(cle, c.getId(), maintenant));
+                if (numero >= 0) {
+                    horodatages.put(cle + '|' + c.getId(), maintenant);
+                }
+            }
+        } finally {
+            verrou.liberer();
+        }
+        return attendre(numero, debut);
+    }
+
+    @Override
+    public boolean candidatureRetiree(Candidat c, Offre o) {
+        long debut = System.nanoTime();
+        long numero;
+        verrou.prendre();
+        try {
+            synchronized (this) {
+                String cle = FileManager.cleOffre(o);
+                numero = ajouter(CANDIDATURE_RETIREE, new Arete(cle, c.getId(), 0));
+                if (numero >= 0) {
+                    horodatages.remove(cle + '|' + c.getId());
+                }
+            }
+        } finally {
+            verrou.liberer();
+        }
+        return attendre(numero, debut);
+    }
+
+    @Override
+    public boolean wishlistAjout(Entreprise e, Candidat c) {
+        long debut = System.nanoTime();
+        long numero;
+        verrou.prendre();
+        try {
+            synchronized (this) {
+                numero = ajouter(WISHLIST, new Arete(e.getEmail(), c.getId(), 0));
+            }
+        } finally {
+            verrou.liberer();
+        }
+        return attendre(numero, debut);
+    }
+
+    @Override
+    public boolean wishlistRetrait(Entreprise e, Candidat c) {
+        long debut = System.nanoTime();
+        long numero;
+        verrou.prendre();
+        try {
+            synchronized (this) {
+                numero = ajouter(WISHLIST_RETIREE, new Arete(e.getEmail(), c.getId(), 0));
+            }
+        } finally {
+            verrou.liberer();
+        }
+        return attendre(numero, debut);
+    }
+
+    /**
+     * Encode une arête, précédée de la définition de sa référence si elle est nouvelle.
+     */
+    private void ecrireArete(DataOutputStream out, byte type, Arete a) throws IOException {
+        int ref = reference(out, a.valeur);
+        out.writeByte(type);
+        ecrireVarint(out, ref);
+        out.writeInt(a.cin);
+        if (type == CANDIDATURE) {
+            out.writeLong(a.horodatage);
+        }
+    }
+
+    /**
+     * Retourne la référence d'une valeur, en écrivant sa définition si elle est nouvelle.
+     */
+    private int reference(DataOutputStream out, String valeur) throws IOException {
+        Integer ref = references.get(valeur);
+        if (ref == null) {
+            byte[] utf8 = valeur.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(DEFINITION);
+            ecrireVarint(out, utf8.length);
+            out.write(utf8);
+            ref = valeurs.size();
+            references.put(valeur, ref);
+            valeurs.add(valeur);
+        }
+        return ref;
+    }
+
+    /**
+     * Ajoute une arête à la fin du fichier (sans la forcer sur disque).
+     * À appeler sous le verrou du dossier.
+     *
+     * @return Le numéro de l'ajout pour le CommitGroupe, ou -1 en cas d'erreur
+     */
+    private long ajouter(byte type, Arete a) {
+        if (corruption != null) {
+            System.out.println("Écriture relations refusée (fichier corrompu): " + corruption);
+            return -1;
+        }
+        try {
+            absorber();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Erreur écriture relations: " + e.getMessage());
+            return -1;
+        }
+        int definies = valeurs.size();
+        try {
+            ByteArrayOutputStream octets = new ByteArrayOutputStream();
+            ecrireArete(new DataOutputStream(octets), type, a);
+            ouvrir();
+            long taille = canal.size();
+            ByteBuffer buffer = ByteBuffer.wrap(octets.toByteArray());
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            positionLue = canal.size();
+            // Sans enregistrement externe en attente, notre arête est déjà appliquée
+            if (!remplace && taille == positionAppliquee) {
+                positionAppliquee = positionLue;
+                definitionsAppliquees = valeurs.size();
+            }
+            return commit.noterEcrit();
+        } catch (IOException e) {
+            System.out.println("Erreur écriture relations: " + e.getMessage());
+            // Une définition non écrite ne doit pas être référencée par la suite
+            while (valeurs.size() > definies) {
+                references.remove(valeurs.remove(valeurs.size() - 1));
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Attend que l'ajout soit forcé sur disque (hors du verrou, voir CommitGroupe).
+     *
+     * @return false si l'ajout n'a pas été écrit ou forcé sur disque
+     */
+    private boolean attendre(long numero, long debut) {
+        if (numero < 0) {
+            return false;
+        }
+        try {
+            commit.attendre(numero, debut);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Erreur écriture relations: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized FileChannel canalCourant() {
+        return canal;
+    }
+
+    /**
+     * @return Les mesures de durabilité des ajouts
+     */
+    public MesuresDurabilite getMesures() {
+        return commit.getMesures();
+    }
+
+    private void ouvrir() throws IOException {
+        if (canal == null) {
+            Files.createDirectories(chemin.toAbsolutePath().getParent());
+            canal = FileChannel.open(chemin, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (canal.size() == 0) {
+                ByteBuffer entete = ByteBuffer.allocate(TAILLE_ENTETE).putInt(MAGIC).put(VERSION);
+                entete.flip();
+                while (entete.hasRemaining()) {
+                    canal.write(entete);
+                }
+                positionLue = TAILLE_ENTETE;
+                if (positionAppliquee == 0) {
+                    positionAppliquee = TAILLE_ENTETE;
+                }
+            }
+            if (cleFichier == null) {
+                cleFichier = lireCle();
+            }
+        }
+    }
+
+    /**
+     * Ferme le canal d'écriture (il sera rouvert au prochain ajout).
+     */
+    @Override
+    public synchronized void fermer() {
+        if (canal != null) {
+            try {
+                // Les ajouts en attente de fsync sont couverts ici
+                canal.force(false);
+                commit.noterToutDurable();
+                canal.close();
+            } catch (IOException e) {
+                System.out.println("Erreur fermeture relations: " + e.getMessage());
+            }
+            canal = null;
+        }
+    }
+
+    /**
+     * @return Le fichier des relations
+     */
+    public Path getChemin() {
+        return chemin;
+    }
+
+    // ========== LECTURE ==========
+
+    /**
+     * Lit le fichier en une passe et pose les liens dans les listes en mémoire.
+     * Les arêtes vers une offre, une entreprise ou un candidat inconnus sont ignorées.
+     * Un enregistrement final incomplet (écriture interrompue) est retiré du fichier.
+     *
+     * Toute autre anomalie (autre version, type ou référence inconnus, fin
+     * illisible trop longue pour un ajout interrompu) laisse le fichier en
+     * place : une copie est faite à côté et le chargement échoue, pour que
+     * les liens ne disparaissent pas en silence. Batch verifier-reparer
+     * retire ensuite les enregistrements illisibles.
+     *
+     * @return Le nombre de liens chargés
+     * @throws IllegalStateException si le fichier est d'une autre version ou corrompu
+     */
+    @Override
+    public int charger(List<Entreprise> entreprises, List<Candidat> candidats, List<Offre> offres) {
+        verrou.prendre();
+        try {
+            return chargerVerrouille(entreprises, candidats, offres);
+        } finally {
+            verrou.liberer();
+        }
+    }
+
+    private synchronized int chargerVerrouille(List<Entreprise> entreprises, List<Candidat> candidats,
+                                               List<Offre> offres) {
+        references = new HashMap<>();
+        valeurs = new ArrayList<>();
+        horodatages.clear();
+        cleFichier = lireCle();
+        remplace = false;
+        positionLue = 0;
+        positionAppliquee = 0;
+        definitionsAppliquees = 0;
+        if (!Files.exists(chemin)) {
+            return 0;
+        }
+
+        corruption = null;
+        Lecture lecture = new Lecture(0, 0);
+        try {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(chemin))) {
+                if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                    throw new IOException("fichier d'une autre version");
+                }
+            }
+            lecture.fin = TAILLE_ENTETE;
+            lire(lecture, new Index(entreprises, candidats, offres));
+            if (lecture.incomplet) {
+                throw new EOFException();
+            }
+        } catch (EOFException e) {
+            long reste = tailleFichier() - lecture.fin;
+            if (reste > TAILLE_MAX_AJOUT) {
+                refuser("fin illisible de " + reste + " octets après " + lecture.fin + " octets", e);
+            }
+            // Seul le dernier ajout a pu être interrompu : on le retire
+            System.out.println("Fin du fichier relations incomplète, tronquée à " + lecture.fin + " octets");
+            tronquer(lecture.fin);
+        } catch (IOException | RuntimeException e) {
+            refuser(lecture.fin == 0 ? e.getMessage()
+                : "enregistrement illisible après " + lecture.fin + " octets (" + e.getMessage() + ")", e);
+        }
+        positionLue = lecture.fin;
+        positionAppliquee = lecture.fin;
+        definitionsAppliquees = lecture.definitions;
+        return lecture.liens;
+    }
+
+    /**
+     * Applique les enregistrements ajoutés par d'autres instances depuis la
+     * dernière lecture. Si une autre instance a réécrit le fichier (compaction),
+     * tous les liens en mémoire sont retirés puis rechargés.
+     *
+     * @return Le nombre de liens posés ou retirés
+     */
+    @Override
+    public int synchroniser(List<Entreprise> entreprises, List<Candidat> candidats, List<Offre> offres) {
+        verrou.prendre();
+        try {
+            synchronized (this) {
+                verifierFichier();
+                if (remplace) {
+                    Set<String> avant = liensEnMemoire(entreprises, offres);
+                    for (Offre o : offres) {
+                        o.getCandidatures().clear();
+                    }
+                    for (Candidat c : candidats) {
+                        c.getCandidaturesEnCours().clear();
+                    }
+                    for (Entreprise e : entreprises) {
+                        e.getWishlist().clear();
+                    }
+                    chargerVerrouille(entreprises, candidats, offres);
+                    // Seuls les liens qui diffèrent de la mémoire comptent comme des changements
+                    Set<String> apres = liensEnMemoire(entreprises, offres);
+                    int changements = 0;
+                    for (String lien : avant) {
+                        if (!apres.contains(lien)) {
+                            changements++;
+                        }
+                    }
+                    for (String lien : apres) {
+                        if (!avant.contains(lien)) {
+                            changements++;
+                        }
+                    }
+                    return changements;
+                }
+                if (!Files.exists(chemin) || Files.size(chemin) <= positionAppliquee) {
+                    return 0;
+                }
+                Lecture lecture = new Lecture(positionAppliquee, definitionsAppliquees);
+                try {
+                    lire(lecture, new Index(entreprises, candidats, offres));
+                } finally {
+                    positionAppliquee = lecture.fin;
+                    definitionsAppliquees = lecture.definitions;
+                    positionLue = Math.max(positionLue, lecture.fin);
+                }
+                return lecture.changements;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Erreur lecture relations: " + e.getMessage());
+            return 0;
+        } finally {
+            verrou.liberer();
+        }
+    }
+
+    private static Set<String> liensEnMemoire(List<Entreprise> entreprises, List<Offre> offres) {
+        Set<String> liens = new HashSet<>();
+        for (Offre o : offres) {
+            for (Candidat c : o.getCandidatures()) {
+                liens.add(FileManager.cleOffre(o) + '|' + c.getId());
+            }
+        }
+        for (Entreprise e : entreprises) {
+            for (Candidat c : e.getWishlist()) {
+                liens.add(e.getEmail() + '#' + c.getId());
+            }
+        }
+        return liens;
+    }
+
+    /**
+     * Lit les enregistrements à partir de lecture.fin, en posant les liens
+     * dans les listes si un index est fourni. Les définitions de rang
+     * supérieur aux références connues sont ajoutées au dictionnaire.
+     * À la sortie, lecture.fin est la fin du dernier enregistrement complet.
+     */
+    private void lire(Lecture lecture, Index index) throws IOException {
+        try (FileChannel fichier = FileChannel.open(chemin, StandardOpenOption.READ)) {
+            fichier.position(lecture.fin);
+            Compteur compteur = new Compteur(new BufferedInputStream(Channels.newInputStream(fichier), 1 << 16));
+            compteur.position = lecture.fin;
+            DataInputStream in = new DataInputStream(compteur);
+            try {
+                while (true) {
+                    int type = in.read();
+                    if (type < 0) {
+                        break;
+                    }
+                    if (type == DEFINITION) {
+                        byte[] utf8 = lireDefinition(in);
+                        if (lecture.definitions == valeurs.size()) {
+                            String valeur = new String(utf8, StandardCharsets.UTF_8);
+                            references.put(valeur, valeurs.size());
+                            valeurs.add(valeur);
+                        }
+                        lecture.definitions++;
+                    } else if (type == CANDIDATURE || type == CANDIDATURE_RETIREE
+                            || type == WISHLIST || type == WISHLIST_RETIREE) {
+                        String valeur = valeurs.get(lireVarint(in));
+                        int cin = in.readInt();
+                        long horodatage = type == CANDIDATURE ? in.readLong() : 0;
+                        if (index != null) {
+                            appliquer(type, valeur, cin, horodatage, index, lecture);
+                        }
+                    } else {
+                        throw new EnregistrementIllisible("Type d'enregistrement inconnu: " + type);
+                    }
+                    lecture.fin = compteur.position;
+                }
+            } catch (EOFException e) {
+                lecture.incomplet = true;
+            }
+        }
+    }
+
+    /**
+     * Pose ou retire un lien lu. Une candidature déjà présente n'est pas dupliquée.
+     */
+    private void appliquer(int type, String valeur, int cin, long horodatage, Index index, Lecture lecture) {
+        Candidat candidat = index.candidatsParId.get(cin);
+        if (type == CANDIDATURE || type == CANDIDATURE_RETIREE) {
+            Offre offre = index.offresParCle.get(valeur);
+            if (offre == null || candidat == null) {
+                return;
+            }
+            String lien = FileManager.cleOffre(offre) + '|' + cin;
+            boolean present = horodatages.containsKey(lien);
+            if (type == CANDIDATURE && !present) {
+                // Lien direct : l'offre a pu expirer depuis la candidature
+                offre.getCandidatures().add(candidat);
+                candidat.getCandidaturesEnCours().add(offre);
+                horodatages.put(lien, horodatage);
+                lecture.liens++;
+                lecture.changements++;
+            } else if (type == CANDIDATURE_RETIREE && present) {
+                offre.getCandidatures().remove(candidat);
+                candidat.getCandidaturesEnCours().remove(offre);
+                horodatages.remove(lien);
+                lecture.liens--;
+                lecture.changements++;
+            }
+        } else {
+            Entreprise entreprise = index.entreprisesParEmail.get(valeur);
+            if (entreprise == null || candidat == null) {
+                return;
+            }
+            boolean present = entreprise.getWishlist().contains(candidat);
+            if (type == WISHLIST && !present) {
+                entreprise.getWishlist().add(candidat);
+                lecture.liens++;
+                lecture.changements++;
+            } else if (type == WISHLIST_RETIREE && present) {
+                entreprise.getWishlist().remove(candidat);
+                lecture.liens--;
+                lecture.changements++;
+            }
+        }
+    }
+
+    /**
+     * Lit les définitions ajoutées par d'autres instances depuis la dernière
+     * lecture, pour que les références écrites ensuite désignent les bonnes
+     * valeurs. À appeler sous le verrou du dossier, avant tout ajout.
+     */
+    private void absorber() throws IOException {
+        verifierFichier();
+        if (!Files.exists(chemin) || Files.size(chemin) <= positionLue) {
+            return;
+        }
+        Lecture lecture = new Lecture(positionLue, valeurs.size());
+        lire(lecture, null);
+        if (lecture.incomplet) {
+            // Ajout interrompu d'une autre instance : nos ajouts ne doivent pas le prolonger
+            tronquer(lecture.fin);
+        }
+        positionLue = lecture.fin;
+    }
+
+    /**
+     * Détecte un fichier réécrit par une autre instance (compaction) : ses
+     * références ne sont plus les nôtres, le dictionnaire est relu depuis le
+     * début et les liens le seront au prochain synchroniser().
+     */
+    private void verifierFichier() throws IOException {
+        Object cle = lireCle();
+        long taille = Files.exists(chemin) ? Files.size(chemin) : 0;
+        boolean different = cle != null && cleFichier != null ? !cle.equals(cleFichier)
+            : taille < positionLue;
+        if (!different) {
+            return;
+        }
+        fermer();
+        cleFichier = cle;
+        remplace = true;
+        generation++;
+        references = new HashMap<>();
+        valeurs = new ArrayList<>();
+        positionLue = taille >= TAILLE_ENTETE ? TAILLE_ENTETE : 0;
+    }
+
+    private Object lireCle() {
+        try {
+            return Files.readAttributes(chemin, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Met le fichier corrompu de côté (copie, l'original reste en place) et
+     * interrompt le chargement. Les ajouts et la compaction sont refusés
+     * ensuite pour que le fichier ne soit ni prolongé ni écrasé.
+     */
+    private void refuser(String motif, Exception cause) {
+        corruption = motif;
+        String copie;
+        try {
+            Path deCote = chemin.resolveSibling(chemin.getFileName() + ".corrompu-" + System.currentTimeMillis());
+            Files.copy(chemin, deCote, StandardCopyOption.COPY_ATTRIBUTES);
+            copie = "copie dans " + deCote;
+        } catch (IOException e) {
+            copie = "copie impossible: " + e.getMessage();
+        }
+        throw new IllegalStateException("Fichier relations " + chemin + " refusé, " + motif + " ; " + copie
+            + ". Lancer Batch verifier-reparer ou restaurer une sauvegarde.", cause);
+    }
+
+    private long tailleFichier() {
+        try {
+            return Files.size(chemin);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Retire la fin illisible du fichier pour que les ajouts suivants restent lisibles.
+     */
+    private void tronquer(long taille) {
+        try (FileChannel c = FileChannel.open(chemin, StandardOpenOption.WRITE)) {
+            c.truncate(taille);
+            c.force(true);
+        } catch (IOException e) {
+            System.out.println("Erreur troncature relations: " + e.getMessage());
+        }
+    }
+
+    // ========== COMPACTION ==========
+
+    /**
+     * Fige les liens actuels ; la position est la fin du dernier enregistrement
+     * appliqué en mémoire (les suivants seront recopiés par reecrire()).
+     */
+    @Override
+    public synchronized Liens capturer(List<Entreprise> entreprises, List<Offre> offres) {
+        Liens i = new Liens();
+        i.position = positionAppliquee;
+        generationCapturee = generation;
+        long maintenant = System.currentTimeMillis();
+        for (Offre o : offres) {
+            String cle = FileManager.cleOffre(o);
+            for (Candidat c : o.getCandidatures()) {
+                Long horodatage = horodatages.get(cle + '|' + c.getId());
+                i.candidatures.add(new Arete(cle, c.getId(), horodatage != null ? horodatage : maintenant));
+            }
+        }
+        for (Entreprise e : entreprises) {
+            for (Candidat c : e.getWishlist()) {
+                i.wishlists.add(new Arete(e.getEmail(), c.getId(), 0));
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Réécrit le fichier avec les liens figés, suivis des enregistrements
+     * ajoutés depuis la capture (réencodés avec les nouvelles références).
+     * Le contenu est écrit dans un fichier temporaire puis renommé.
+     *
+     * @return La taille du nouveau fichier en octets, ou -1 en cas d'erreur
+     */
+    @Override
+    public long reecrire(Liens liens) {
+        verrou.prendre();
+        try {
+            return reecrireVerrouille(liens);
+        } finally {
+            verrou.liberer();
+        }
+    }
+
+    private synchronized long reecrireVerrouille(Liens liens) {
+        if (corruption != null) {
+            // Les liens en mémoire sont incomplets : le fichier ne doit pas être écrasé
+            System.out.println("Compaction des relations refusée (fichier corrompu): " + corruption);
+            return -1;
+        }
+        try {
+            // Dictionnaire complet pour réencoder les ajouts des autres instances
+            absorber();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Erreur réécriture relations: " + e.getMessage());
+            return -1;
+        }
+        if (remplace || generation != generationCapturee) {
+            System.out.println("Relations réécrites par une autre instance, compaction reportée");
+            return -1;
+        }
+        Map<String, Integer> anciennesReferences = references;
+        List<String> anciennesValeurs = valeurs;
+        try {
+            // Sans enregistrement externe en attente, la mémoire contient tout le fichier
+            boolean aJour = positionAppliquee == positionLue;
+            fermer();
+
+            // Enregistrements arrivés pendant la compaction
+            byte[] suite = new byte[0];
+            if (Files.exists(chemin)) {
+                byte[] tout = Files.readAllBytes(chemin);
+                if (liens.position < tout.length) {
+                    suite = Arrays.copyOfRange(tout, (int) Math.max(liens.position, TAILLE_ENTETE), tout.length);
+                }
+            }
+
+            references = new HashMap<>();
+            valeurs = new ArrayList<>();
+            long debutSuite;
+            int definitionsSuite;
+            Path tmp = chemin.resolveSibling(chemin.getFileName() + ".tmp");
+            try (FileOutputStream fichier = new FileOutputStream(tmp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fichier, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                for (Arete a : liens.candidatures) {
+                    ecrireArete(out, CANDIDATURE, a);
+                }
+                for (Arete a : liens.wishlists) {
+                    ecrireArete(out, WISHLIST, a);
+                }
+                debutSuite = out.size();
+                definitionsSuite = valeurs.size();
+                reencoder(suite, anciennesValeurs, out);
+                out.flush();
+                fichier.getFD().sync();
+            }
+            Files.move(tmp, chemin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            FileManager.synchroniserDossier(chemin);
+            cleFichier = lireCle();
+            positionLue = Files.size(chemin);
+            if (aJour) {
+                positionAppliquee = positionLue;
+                definitionsAppliquees = valeurs.size();
+            } else {
+                // La suite recopiée contient des ajouts externes pas encore appliqués
+                positionAppliquee = debutSuite;
+                definitionsAppliquees = definitionsSuite;
+            }
+            return positionLue;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Erreur réécriture relations: " + e.getMessage());
+            references = anciennesReferences;
+            valeurs = anciennesValeurs;
+            return -1;
+        }
+    }
+
+    /**
+     * Recopie des enregistrements en remplaçant les références de l'ancien
+     * fichier par celles du nouveau.
+     */
+    private void reencoder(byte[] suite, List<String> anciennesValeurs, DataOutputStream out)
+            throws IOException {
+        List<String> definies = new ArrayList<>(anciennesValeurs);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(suite));
+        int type;
+        while ((type = in.read()) >= 0) {
+            if (type == DEFINITION) {
+                // Déjà présente dans anciennesValeurs (ajoutée à l'écriture)
+                in.skipBytes(lireVarint(in));
+                continue;
+            }
+            String valeur = definies.get(lireVarint(in));
+            int cin = in.readInt();
+            long horodatage = type == CANDIDATURE ? in.readLong() : 0;
+            ecrireArete(out, (byte) type, new Arete(valeur, cin, horodatage));
+        }
+    }
+
+    // ========== VÉRIFICATION ==========
+
+    /**
+     * Arête lue par verifier() : une candidature désigne une clé d'offre,
+     * une wishlist l'email d'une entreprise.
+     */
+    public interface ControleArete {
+        /**
+         * @param position Début de l'enregistrement dans le fichier, en octets
+         * @return false si l'arête désigne une offre, une entreprise ou un candidat inconnus
+         */
+        boolean accepter(boolean candidature, String valeur, int cin, long position);
+    }
+
+    /**
+     * Parcourt le fichier en une passe, sans rien poser en mémoire : seules les
+     * arêtes qui ajoutent un lien sont contrôlées (une pierre tombale vers une
+     * entité inconnue est sans effet). Avec réparation, le fichier est réécrit
+     * sans les arêtes refusées ni la fin incomplète ; toutes les définitions
+     * sont conservées pour que les rangs restent valides. Un enregistrement
+     * illisible y met fin : la suite est abandonnée et le fichier d'origine
+     * est d'abord copié à côté.
+     * À appeler avant le chargement (les liens en mémoire ne sont pas relus).
+     *
+     * @return La fin du dernier enregistrement complet, en octets (0 sans fichier)
+     * @throws IOException si le fichier est d'une autre version, ou corrompu sans réparation
+     */
+    public long verifier(ControleArete controle, boolean reparer) throws IOException {
+        verrou.prendre();
+        try {
+            synchronized (this) {
+                return verifierVerrouille(controle, reparer);
+            }
+        } finally {
+            verrou.liberer();
+        }
+    }
+
+    private long verifierVerrouille(ControleArete controle, boolean reparer) throws IOException {
+        if (!Files.exists(chemin)) {
+            return 0;
+        }
+        List<String> definies = new ArrayList<>();
+        long fin = TAILLE_ENTETE;
+        boolean modifie = false;
+        boolean illisible = false;
+        Path tmp = chemin.resolveSibling(chemin.getFileName() + ".tmp");
+        try (InputStream fichierLu = Files.newInputStream(chemin);
+             FileOutputStream fichier = reparer ? new FileOutputStream(tmp.toFile()) : null) {
+            Compteur compteur = new Compteur(new BufferedInputStream(fichierLu, 1 << 16));
+            DataInputStream in = new DataInputStream(compteur);
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Fichier relations d'une autre version");
+            }
+            DataOutputStream out = null;
+            if (fichier != null) {
+                out = new DataOutputStream(new BufferedOutputStream(fichier, 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+            }
+            try {
+                while (true) {
+                    long debut = compteur.position;
+                    int type = in.read();
+                    if (type < 0) {
+                        break;
+                    }
+                    if (type == DEFINITION) {
+                        byte[] utf8 = lireDefinition(in);
+                        definies.add(new String(utf8, StandardCharsets.UTF_8));
+                        if (out != null) {
+                            out.writeByte(DEFINITION);
+                            ecrireVarint(out, utf8.length);
+                            out.write(utf8);
+                        }
+                    } else if (type == CANDIDATURE || type == CANDIDATURE_RETIREE
+                            || type == WISHLIST || type == WISHLIST_RETIREE) {
+                        int ref = lireVarint(in);
+                        if (ref < 0 || ref >= definies.size()) {
+                            throw new EnregistrementIllisible("Référence non définie (" + ref + ") à l'octet " + debut);
+                        }
+                        int cin = in.readInt();
+                        long horodatage = type == CANDIDATURE ? in.readLong() : 0;
+                        fin = compteur.position;
+                        if ((type == CANDIDATURE || type == WISHLIST)
+                                && !controle.accepter(type == CANDIDATURE, definies.get(ref), cin, debut)) {
+                            modifie = true;
+                            continue;
+                        }
+                        if (out != null) {
+                            out.writeByte(type);
+                            ecrireVarint(out, ref);
+                            out.writeInt(cin);
+                            if (type == CANDIDATURE) {
+                                out.writeLong(horodatage);
+                            }
+                        }
+                    } else {
+                        throw new EnregistrementIllisible("Type d'enregistrement inconnu (" + type + ") à l'octet " + debut);
+                    }
+                    fin = compteur.position;
+                }
+            } catch (EOFException e) {
+                // Écriture interrompue : la fin incomplète n'est pas recopiée
+                modifie = true;
+            } catch (EnregistrementIllisible e) {
+                if (!reparer) {
+                    throw e;
+                }
+                System.out.println("Relations illisibles après " + fin + " octets (" + e.getMessage()
+                    + "), suite abandonnée");
+                illisible = true;
+                modifie = true;
+            }
+            if (out != null) {
+                out.flush();
+                fichier.getFD().sync();
+            }
+        } catch (IOException | RuntimeException e) {
+            if (reparer) {
+                Files.deleteIfExists(tmp);
+            }
+            throw e;
+        }
+        if (reparer) {
+            if (modifie) {
+                fermer();
+                if (illisible) {
+                    Path deCote = chemin.resolveSibling(chemin.getFileName() + ".corrompu-" + System.currentTimeMillis());
+                    Files.copy(chemin, deCote, StandardCopyOption.COPY_ATTRIBUTES);
+                    System.out.println("Fichier relations d'origine copié dans " + deCote);
+                }
+                Files.move(tmp, chemin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                FileManager.synchroniserDossier(chemin);
+            } else {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return fin;
+    }
+
+    // ========== ENCODAGE ==========
+
+    private static void ecrireVarint(DataOutputStream out, int valeur) throws IOException {
+        while ((valeur & ~0x7F) != 0) {
+            out.writeByte((valeur & 0x7F) | 0x80);
+            valeur >>>= 7;
+        }
+        out.writeByte(valeur);
+    }
+
+    /**
+     * Octets d'une définition ; une longueur hors de proportion avec un ajout
+     * est une corruption, pas une fin incomplète.
+     */
+    private static byte[] lireDefinition(DataInputStream in) throws IOException {
+        int longueur = lireVarint(in);
+        if (longueur > TAILLE_MAX_AJOUT) {
+            throw new EnregistrementIllisible("Définition trop longue (" + longueur + " octets)");
+        }
+        byte[] utf8 = new byte[longueur];
+        in.readFully(utf8);
+        return utf8;
+    }
+
+    private static int lireVarint(DataInputStream in) throws IOException {
+        int valeur = 0;
+        for (int decalage = 0; decalage < 35; decalage += 7) {
+            int b = in.readUnsignedByte();
+            valeur |= (b & 0x7F) << decalage;
+            if ((b & 0x80) == 0) {
+                if (valeur < 0) {
+                    // Longueurs et références sont positives
+                    throw new EnregistrementIllisible("Entier variable négatif");
+                }
+                return valeur;
+            }
+        }
+        throw new EnregistrementIllisible("Entier variable trop long");
+    }
+
+    /**
+     * Enregistrement mal formé (type, référence ou entier invalides), à
+     * distinguer d'une fin incomplète (EOFException) et d'une erreur d'accès au fichier.
+     */
+    private static class EnregistrementIllisible extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        EnregistrementIllisible(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Avancement d'une lecture : fin du dernier enregistrement complet,
+     * définitions rencontrées et liens posés ou retirés.
+     */
+    private static class Lecture {
+        long fin;
+        int definitions;
+        int liens;
+        int changements;
+        boolean incomplet;
+
+        Lecture(long fin, int definitions) {
+            this.fin = fin;
+            this.definitions = definitions;
+        }
+    }
+
+    /**
+     * Entités en mémoire, par clé, pour poser les liens lus.
+     */
+    private static class Index {
+        final Map<String, Offre> offresParCle = new HashMap<>();
+        final Map<String, Entreprise> entreprisesParEmail;
+        final Map<Integer, Candidat> candidatsParId = new HashMap<>();
+
+        Index(List<Entreprise> entreprises, List<Candidat> candidats, List<Offre> offres) {
+            for (Offre o : offres) {
+                offresParCle.put(FileManager.cleOffre(o), o);
+            }
+            // Fichiers écrits avant la persistance des identifiants d'offres
+            for (Offre o : offres) {
+                offresParCle.putIfAbsent(FileManager.cleOffreAncienne(o), o);
+            }
+            entreprisesParEmail = FileManager.indexerParEmail(entreprises);
+            for (Candidat c : candidats) {
+                candidatsParId.put(c.getId(), c);
+            }
+        }
+    }
+
+    /**
+     * Flux qui tient le compte des octets lus, pour connaître la fin
+     * du dernier enregistrement complet.
+     */
+    private static class Compteur extends FilterInputStream {
+        long position;
+
+        Compteur(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long sautes = in.skip(n);
+            position += sautes;
+            return sautes;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package service;
+
+import java.util.Arrays;
+import java.util.List;
+import models.*;
+
+/**
+ * Backend par défaut : fichiers .txt séparés par '|' (FileManager), forum
+ * en segments mensuels (StockageForum) et fichier binaire des relations
+ * (StockageRelations).
+ */
+public class StockageTexte implements Stockage {
+
+    private final FileManager fileManager;
+    private final StockageForum forum;
+    private final StockageRelations relations;
+
+    public StockageTexte(FileManager fileManager) {
+        this.fileManager = fileManager;
+        this.forum = new StockageForum(fileManager);
+        this.relations = new StockageRelations(fileManager.getVerrou());
+    }
+
+    @Override
+    public List<Entreprise> chargerEntreprises() {
+        return fileManager.chargerEntreprises();
+    }
+
+    @Override
+    public long sauvegarderEntreprises(List<Entreprise> entreprises) {
+        return fileManager.sauvegarderEntreprises(entreprises);
+    }
+
+    @Override
+    public List<Candidat> chargerCandidats(RapportChargement rapport) {
+        return fileManager.chargerCandidats(rapport);
+    }
+
+    @Override
+    public long sauvegarderCandidats(List<Candidat> candidats) {
+        return fileManager.sauvegarderCandidats(candidats);
+    }
+
+    @Override
+    public List<Offre> chargerOffres(List<Entreprise> entreprises, RapportChargement rapport) {
+        return fileManager.chargerOffres(entreprises, rapport);
+    }
+
+    @Override
+    public long sauvegarderOffres(List<Offre> offres) {
+        return fileManager.sauvegarderOffres(offres);
+    }
+
+    @Override
+    public List<Forum> chargerCommentaires() {
+        return forum.charger();
+    }
+
+    @Override
+    public List<Forum> chargerCommentairesAnterieurs() {
+        return forum.chargerAnterieurs();
+    }
+
+    @Override
+    public boolean aCommentairesAnterieurs() {
+        return forum.aAnterieurs();
+    }
+
+    @Override
+    public List<Forum> chargerCommentairesExternes() {
+        return forum.chargerExternes();
+    }
+
+    @Override
+    public long sauvegarderCommentaires(List<Forum> commentaires) {
+        return forum.sauvegarder(commentaires);
+    }
+
+    @Override
+    public DepotRelations getRelations() {
+        return relations;
+    }
+
+    @Override
+    public InstantaneBinaire getInstantaneBinaire() {
+        return fileManager.getInstantaneBinaire();
+    }
+
+    @Override
+    public String getDescription() {
+        return "fichiers texte";
+    }
+
+    @Override
+    public List<MesuresDurabilite> getMesures() {
+        return Arrays.asList(fileManager.getMesures(), relations.getMesures());
+    }
+
+    @Override
+    public void fermer() {
+        relations.fermer();
+    }
+}
@@ -0,0 +1,97 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Suivi des collections modifiées depuis leur dernière écriture.
+ *
+ * Chaque collection possède un compteur de version incrémenté par les services
+ * à chaque modification. La persistance compare ce compteur à la version
+ * écrite pour ne réécrire que les fichiers réellement modifiés, et tient le
+ * compte des écritures effectuées par fichier.
+ */
+public class SuiviModifications {
+
+    /** Collections persistées séparément */
+    public enum Collection {
+        ENTREPRISES,
+        CANDIDATS,
+        OFFRES,
+        COMMENTAIRES,
+        RELATIONS   // candidatures et wishlists
+    }
+
+    private final int n = Collection.values().length;
+    private final AtomicLongArray versions = new AtomicLongArray(n);
+    private final AtomicLongArray versionsEcrites = new AtomicLongArray(n);
+    private final AtomicLongArray nombreEcritures = new AtomicLongArray(n);
+    private final AtomicLongArray octetsEcrits = new AtomicLongArray(n);
+
+    // ========== MARQUAGE ==========
+
+    /**
+     * Signale une modification des collections données.
+     */
+    public void marquer(Collection... collections) {
+        for (Collection c : collections) {
+            versions.incrementAndGet(c.ordinal());
+        }
+    }
+
+    /**
+     * Signale une modification de toutes les collections (ex: après un rejeu du journal).
+     */
+    public void marquerTout() {
+        marquer(Collection.values());
+    }
+
+    /**
+     * @return La version courante de la collection
+     */
+    public long getVersion(Collection c) {
+        return versions.get(c.ordinal());
+    }
+
+    /**
+     * @return true si la collection a changé depuis sa dernière écriture
+     */
+    public boolean estModifiee(Collection c) {
+        return versions.get(c.ordinal()) != versionsEcrites.get(c.ordinal());
+    }
+
+    /**
+     * Enregistre l'écriture réussie d'une version de la collection.
+     *
+     * @param c Collection écrite
+     * @param version Version capturée avant l'écriture
+     * @param octets Taille écrite en octets
+     */
+    public void marquerEcrite(Collection c, long version, long octets) {
+        versionsEcrites.accumulateAndGet(c.ordinal(), version, Math::max);
+        nombreEcritures.incrementAndGet(c.ordinal());
+        octetsEcrits.addAndGet(c.ordinal(), octets);
+    }
+
+    // ========== STATISTIQUES ==========
+
+    public long getNombreEcritures(Collection c) {
+        return nombreEcritures.get(c.ordinal());
+    }
+
+    public long getOctetsEcrits(Collection c) {
+        return octetsEcrits.get(c.ordinal());
+    }
+
+    /**
+     * Résumé lisible des écritures par fichier.
+     */
+    public String resume() {
+        StringBuilder sb = new StringBuilder();
+        for (Collection c : Collection.values()) {
+            sb.append("- ").append(c.name().toLowerCase())
+              .append(": ").append(getNombreEcritures(c)).append(" écriture(s), ")
+              .append(getOctetsEcrits(c)).append(" octets\n");
+        }
+        return sb.toString();
+    }
+}
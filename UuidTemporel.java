@@ -0,0 +1,77 @@
+package models;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Génération d'identifiants ordonnés dans le temps (format UUID version 7).
+ *
+ * Les 48 bits de poids fort contiennent l'instant de création en millisecondes :
+ * l'ordre naturel des UUID (UUID.compareTo) suit donc l'ordre de création, et
+ * les offres les plus récentes se trouvent en fin d'index trié.
+ *
+ * Dans une même milliseconde, les 12 bits suivants servent de compteur pour
+ * que les identifiants générés restent strictement croissants.
+ */
+public final class UuidTemporel {
+
+    private static final SecureRandom ALEA = new SecureRandom();
+
+    /** Dernier instant utilisé et compteur associé */
+    private static long dernierInstant = -1;
+    private static int compteur;
+
+    private UuidTemporel() {
+    }
+
+    /**
+     * @return Un nouvel identifiant, supérieur à tous ceux générés avant lui
+     */
+    public static synchronized UUID nouveau() {
+        long instant = System.currentTimeMillis();
+        if (instant <= dernierInstant) {
+            // Même milliseconde (ou horloge reculée) : incrémenter le compteur
+            instant = dernierInstant;
+            compteur++;
+            if (compteur > 0xFFF) {
+                instant++;
+                compteur = 0;
+            }
+        } else {
+            // Départ aléatoire dans la première moitié pour laisser de la marge
+            compteur = ALEA.nextInt(0x800);
+        }
+        dernierInstant = instant;
+        return construire(instant, compteur);
+    }
+
+    /**
+     * Identifiant pour un instant donné (ex: date de publication d'une offre
+     * enregistrée avant l'introduction des identifiants).
+     */
+    public static UUID pourInstant(long instantMs) {
+        return construire(instantMs, ALEA.nextInt(0x1000));
+    }
+
+    /**
+     * Plus petit identifiant possible pour un instant : borne inférieure
+     * d'un parcours par plage (tous les identifiants créés à partir de cet instant).
+     */
+    public static UUID borneInferieure(long instantMs) {
+        long msb = (instantMs << 16) | 0x7000L;
+        return new UUID(msb, 0x8000000000000000L);
+    }
+
+    /**
+     * @return L'instant de création (ms) contenu dans l'identifiant
+     */
+    public static long instant(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+
+    private static UUID construire(long instantMs, int compteur) {
+        long msb = (instantMs << 16) | 0x7000L | (compteur & 0xFFF);
+        long lsb = (ALEA.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
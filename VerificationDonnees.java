@@ -0,0 +1,561 @@
+package service;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import models.*;
+
+/**
+ * Vérification d'intégrité du dossier data (fsck), sans charger les données.
+ *
+ * Les fichiers texte sont découpés en morceaux (64 Mo par défaut), alignés
+ * sur les fins de ligne et lus en parallèle sur tous les cœurs : la mémoire
+ * utilisée dépend du nombre de clés distinctes (CIN, emails, identifiants
+ * d'offres), pas de la taille des fichiers. Chaque morceau numérote ses
+ * lignes ; les numéros sont rendus absolus une fois tous les morceaux comptés.
+ *
+ * Les lignes sont construites avec les méthodes de FileManager : une ligne
+ * signalée ici est une ligne que le chargement ignorerait. Ordre :
+ *   1. entreprises et candidats (lignes illisibles, emails et CIN en double)
+ *   2. offres (entreprise inconnue, dates et nombres illisibles, identifiants en double)
+ *   3. relations.bin, en une passe (candidatures et wishlists vers une offre,
+ *      une entreprise ou un candidat inconnus), repérées par leur position en octets
+ *
+ * En réparation, les lignes signalées sont retirées de leur fichier et
+ * ajoutées à <fichier>.rejets, et les arêtes orphelines sont retirées de
+ * relations.bin. Chaque fichier est réécrit à côté puis renommé, sous le
+ * verrou du dossier. À lancer avant le chargement (Batch verifier).
+ */
+public class VerificationDonnees {
+
+    /** Taille des morceaux lus en parallèle (octets), configurable */
+    private static final long TAILLE_MORCEAU = Long.getLong("hecrecruit.verification.morceau", 64L << 20);
+
+    /** Bits de la position codée réservés au numéro de ligne dans le morceau */
+    private static final int BITS_LIGNE = 40;
+
+    /**
+     * Nature d'une anomalie.
+     */
+    public enum Categorie {
+        LIGNE_INVALIDE("ligne invalide"),
+        DATE_INVALIDE("date illisible"),
+        NOMBRE_INVALIDE("nombre illisible"),
+        OFFRE_ORPHELINE("offre orpheline"),
+        DOUBLON_CIN("CIN en double"),
+        DOUBLON_EMAIL("email en double"),
+        DOUBLON_IDENTIFIANT("identifiant en double"),
+        LIEN_ORPHELIN("lien orphelin");
+
+        private final String libelle;
+
+        Categorie(String libelle) {
+            this.libelle = libelle;
+        }
+
+        public String getLibelle() {
+            return libelle;
+        }
+    }
+
+    /**
+     * Ligne (ou enregistrement de relations.bin) en défaut.
+     */
+    public static class Anomalie {
+        private final String fichier;
+        private final long position;
+        private final Categorie categorie;
+        private final String motif;
+
+        public Anomalie(String fichier, long position, Categorie categorie, String motif) {
+            this.fichier = fichier;
+            this.position = position;
+            this.categorie = categorie;
+            this.motif = motif;
+        }
+
+        public String getFichier() { return fichier; }
+        /** Numéro de ligne, ou position en octets pour relations.bin */
+        public long getPosition() { return position; }
+        public Categorie getCategorie() { return categorie; }
+        public String getMotif() { return motif; }
+
+        @Override
+        public String toString() {
+            return fichier + (categorie == Categorie.LIEN_ORPHELIN ? "@" : ":") + position
+                + " - [" + categorie.getLibelle() + "] " + motif;
+        }
+    }
+
+    /**
+     * Résultat d'une vérification.
+     */
+    public static class RapportVerification {
+        private final List<Anomalie> anomalies = new ArrayList<>();
+        private final Map<String, Long> lignes = new LinkedHashMap<>();
+        private long octets;
+        private long reparees;
+        private long dureeMs;
+
+        public List<Anomalie> getAnomalies() { return anomalies; }
+        /** Lignes lues par fichier (arêtes pour relations.bin) */
+        public Map<String, Long> getLignes() { return lignes; }
+        public long getOctets() { return octets; }
+        /** Lignes et arêtes retirées en réparation */
+        public long getReparees() { return reparees; }
+        public long getDuree() { return dureeMs; }
+
+        public boolean estSain() {
+            return anomalies.isEmpty();
+        }
+
+        public Map<Categorie, Integer> getParCategorie() {
+            Map<Categorie, Integer> parCategorie = new EnumMap<>(Categorie.class);
+            for (Anomalie a : anomalies) {
+                parCategorie.merge(a.categorie, 1, Integer::sum);
+            }
+            return parCategorie;
+        }
+
+        /**
+         * @return Octets lus par seconde, 0 si la durée n'est pas connue
+         */
+        public double getOctetsParSeconde() {
+            return dureeMs == 0 ? 0 : octets * 1000.0 / dureeMs;
+        }
+    }
+
+    private final FileManager fileManager;
+    private final MigrationDonnees migration;
+
+    public VerificationDonnees(FileManager fileManager, MigrationDonnees migration) {
+        this.fileManager = fileManager;
+        this.migration = migration;
+    }
+
+    /**
+     * @param reparer Retire les lignes et arêtes signalées (voir la description de la classe)
+     * @throws IllegalStateException si le dossier doit d'abord être migré
+     */
+    public RapportVerification verifier(boolean reparer) throws IOException {
+        if (migration.estNecessaire()) {
+            // Les lignes d'un ancien format seraient toutes signalées
+            throw new IllegalStateException("Format " + migration.lireVersion()
+                + " : migrer le dossier avant de le vérifier (Batch migrer)");
+        }
+        long debut = System.currentTimeMillis();
+        List<Path> fichiers = fileManager.getFichiersDonnees();
+        Path fichierEntreprises = fichiers.get(0);
+        Path fichierCandidats = fichiers.get(1);
+        Path fichierOffres = fichiers.get(2);
+
+        ExecutorService executeur = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread t = new Thread(r, "verification");
+                t.setDaemon(true);
+                return t;
+            });
+        RapportVerification rapport = new RapportVerification();
+        try {
+            // 1. Entreprises et candidats, indépendants
+            Map<String, Entreprise> entreprisesParEmail = new ConcurrentHashMap<>();
+            Unicite emailsEntreprises = new Unicite(Categorie.DOUBLON_EMAIL, "Email d'entreprise déjà utilisé");
+            Unicite cins = new Unicite(Categorie.DOUBLON_CIN, "Ce CIN est déjà utilisé par un autre candidat");
+            Unicite emailsCandidats = new Unicite(Categorie.DOUBLON_EMAIL, "Un candidat avec cet email existe déjà");
+
+            Lecture entreprises = new Lecture(fichierEntreprises, (ligne, morceau, numero) -> {
+                Entreprise e = fileManager.parserEntreprise(ligne.split("\\|"));
+                if (e == null) {
+                    morceau.signaler(numero, Categorie.LIGNE_INVALIDE, "Ligne incomplète");
+                    return;
+                }
+                emailsEntreprises.noter(e.getEmail(), morceau.position(numero));
+                entreprisesParEmail.putIfAbsent(e.getEmail(), e);
+            }, emailsEntreprises);
+            Lecture candidats = new Lecture(fichierCandidats, (ligne, morceau, numero) -> {
+                // Liste nulle : l'unicité est contrôlée par les index
+                Candidat c = fileManager.parserCandidat(ligne.split("\\|"), null);
+                if (c == null) {
+                    morceau.signaler(numero, Categorie.LIGNE_INVALIDE, "Ligne incomplète");
+                    return;
+                }
+                cins.noter(c.getId(), morceau.position(numero));
+                emailsCandidats.noter(Candidat.normaliserEmail(c.getEmail()), morceau.position(numero));
+            }, cins, emailsCandidats);
+            attendre(entreprises.lancer(executeur), candidats.lancer(executeur));
+
+            // 2. Offres, une fois les entreprises connues
+            Unicite identifiants = new Unicite(Categorie.DOUBLON_IDENTIFIANT, "Identifiant d'offre déjà utilisé");
+            Set<String> clesAnciennes = ConcurrentHashMap.newKeySet();
+            Lecture offres = new Lecture(fichierOffres, (ligne, morceau, numero) -> {
+                ChampsLigne champs = ChampsLigne.de(ligne.split("\\|"));
+                boolean avecId = champs.taille() >= 7 && FileManager.estIdentifiant(champs.texte(0));
+                int champEmail = avecId ? 4 : 3;
+                if (champs.taille() > champEmail && !entreprisesParEmail.containsKey(champs.texte(champEmail))) {
+                    morceau.signaler(numero, Categorie.OFFRE_ORPHELINE,
+                        "Entreprise inconnue: " + champs.texte(champEmail));
+                    return;
+                }
+                Offre o = fileManager.parserOffre(champs, entreprisesParEmail);
+                if (o == null) {
+                    morceau.signaler(numero, Categorie.LIGNE_INVALIDE, "Ligne incomplète");
+                    return;
+                }
+                if (avecId) {
+                    identifiants.noter(FileManager.cleOffre(o), morceau.position(numero));
+                }
+                clesAnciennes.add(FileManager.cleOffreAncienne(o));
+            }, identifiants);
+            attendre(offres.lancer(executeur));
+
+            for (Lecture l : Arrays.asList(entreprises, candidats, offres)) {
+                l.terminer(rapport);
+            }
+
+            // 3. Arêtes de relations.bin
+            StockageRelations relations = new StockageRelations(fileManager.getVerrou());
+            Path fichierRelations = relations.getChemin();
+            String nomRelations = fichierRelations.toString();
+            long tailleRelations = Files.exists(fichierRelations) ? Files.size(fichierRelations) : 0;
+            long[] aretes = {0};
+            long anomaliesTexte = rapport.anomalies.size();
+            long fin = relations.verifier((candidature, valeur, cin, position) -> {
+                aretes[0]++;
+                String motif = null;
+                if (candidature && !identifiants.premieres.containsKey(valeur) && !clesAnciennes.contains(valeur)) {
+                    motif = "Candidature vers une offre inconnue: " + valeur;
+                } else if (!candidature && !entreprisesParEmail.containsKey(valeur)) {
+                    motif = "Wishlist d'une entreprise inconnue: " + valeur;
+                } else if (!cins.premieres.containsKey(cin)) {
+                    motif = (candidature ? "Candidature" : "Wishlist") + " d'un candidat inconnu: " + cin;
+                }
+                if (motif != null) {
+                    rapport.anomalies.add(new Anomalie(nomRelations, position, Categorie.LIEN_ORPHELIN, motif));
+                    return false;
+                }
+                return true;
+            }, reparer);
+            if (fin < tailleRelations) {
+                rapport.anomalies.add(new Anomalie(nomRelations, fin, Categorie.LIGNE_INVALIDE,
+                    "Fin incomplète ou illisible (" + (tailleRelations - fin) + " octet(s))"));
+            }
+            rapport.lignes.put(nomRelations, aretes[0]);
+            rapport.octets += tailleRelations;
+
+            if (reparer) {
+                for (Lecture l : Arrays.asList(entreprises, candidats, offres)) {
+                    rapport.reparees += l.reparer();
+                }
+                rapport.reparees += rapport.anomalies.size() - anomaliesTexte;
+            }
+        } finally {
+            executeur.shutdownNow();
+        }
+        rapport.dureeMs = System.currentTimeMillis() - debut;
+        return rapport;
+    }
+
+    // ========== LECTURE PAR MORCEAUX ==========
+
+    /**
+     * Traitement d'une ligne non vide, appelé en parallèle. Une exception
+     * est consignée comme anomalie de la ligne, classée selon son type.
+     */
+    private interface TraitementLigne {
+        void traiter(String ligne, Morceau morceau, long numero);
+    }
+
+    /**
+     * Portion d'un fichier lue par un seul thread : les lignes qui y commencent.
+     */
+    private static class Morceau {
+        final int indice;
+        final long debut;
+        final long fin;
+        long lignes;
+        final List<long[]> signalees = new ArrayList<>();
+        final List<Anomalie> anomalies = new ArrayList<>();
+
+        Morceau(int indice, long debut, long fin) {
+            this.indice = indice;
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        /** Position codée (morceau, ligne), ordonnée comme les lignes du fichier */
+        long position(long numero) {
+            return ((long) indice << BITS_LIGNE) | numero;
+        }
+
+        /** Anomalie numérotée dans le morceau, renumérotée par Lecture.terminer() */
+        void signaler(long numero, Categorie categorie, String motif) {
+            anomalies.add(new Anomalie(null, numero, categorie, motif));
+        }
+    }
+
+    /**
+     * Première occurrence de chaque clé et occurrences suivantes, notées en
+     * parallèle par positions codées : la première est celle de plus petite
+     * position, quel que soit l'ordre de traitement des morceaux.
+     */
+    private static class Unicite {
+        final Categorie categorie;
+        final String motif;
+        final ConcurrentHashMap<Object, Long> premieres = new ConcurrentHashMap<>();
+        final Queue<Object[]> collisions = new ConcurrentLinkedQueue<>();
+
+        Unicite(Categorie categorie, String motif) {
+            this.categorie = categorie;
+            this.motif = motif;
+        }
+
+        void noter(Object cle, long position) {
+            Long avant = premieres.putIfAbsent(cle, position);
+            if (avant != null) {
+                premieres.merge(cle, position, Math::min);
+                collisions.add(new Object[] {cle, avant, position});
+            }
+        }
+
+        /** Positions codées des occurrences qui ne sont pas les premières */
+        Set<Long> doublons() {
+            Set<Long> doublons = new HashSet<>();
+            for (Object[] c : collisions) {
+                long premiere = premieres.get(c[0]);
+                for (int i = 1; i <= 2; i++) {
+                    if ((Long) c[i] != premiere) {
+                        doublons.add((Long) c[i]);
+                    }
+                }
+            }
+            return doublons;
+        }
+    }
+
+    /**
+     * Lecture parallèle d'un fichier texte et ses anomalies, par numéro de ligne.
+     */
+    private class Lecture {
+        final Path fichier;
+        final TraitementLigne traitement;
+        final List<Unicite> unicites;
+        final List<Morceau> morceaux = new ArrayList<>();
+        final TreeMap<Long, Anomalie> anomalies = new TreeMap<>();
+
+        Lecture(Path fichier, TraitementLigne traitement, Unicite... unicites) {
+            this.fichier = fichier;
+            this.traitement = traitement;
+            this.unicites = Arrays.asList(unicites);
+        }
+
+        List<Future<?>> lancer(ExecutorService executeur) throws IOException {
+            long taille = Files.exists(fichier) ? Files.size(fichier) : 0;
+            List<Future<?>> taches = new ArrayList<>();
+            for (long debut = 0; debut < taille; debut += TAILLE_MORCEAU) {
+                Morceau m = new Morceau(morceaux.size(), debut, Math.min(taille, debut + TAILLE_MORCEAU));
+                morceaux.add(m);
+                taches.add(executeur.submit(() -> {
+                    parcourir(fichier, m, (ligne, numero) -> {
+                        if (ligne.isEmpty()) {
+                            return;
+                        }
+                        try {
+                            traitement.traiter(ligne, m, numero);
+                        } catch (RuntimeException e) {
+                            m.signaler(numero, classer(e), e.getMessage());
+                        }
+                    });
+                    return null;
+                }));
+            }
+            return taches;
+        }
+
+        /**
+         * Numérote les anomalies depuis le début du fichier et les ajoute au rapport.
+         */
+        void terminer(RapportVerification rapport) throws IOException {
+            long[] premiereLigne = new long[morceaux.size()];
+            long lignes = 0;
+            for (Morceau m : morceaux) {
+                premiereLigne[m.indice] = lignes;
+                lignes += m.lignes;
+            }
+            String nom = fichier.toString();
+            for (Morceau m : morceaux) {
+                for (Anomalie a : m.anomalies) {
+                    long ligne = premiereLigne[m.indice] + a.position;
+                    anomalies.putIfAbsent(ligne, new Anomalie(nom, ligne, a.categorie, a.motif));
+                }
+            }
+            for (Unicite u : unicites) {
+                for (long position : u.doublons()) {
+                    long ligne = premiereLigne[(int) (position >>> BITS_LIGNE)]
+                        + (position & ((1L << BITS_LIGNE) - 1));
+                    anomalies.putIfAbsent(ligne, new Anomalie(nom, ligne, u.categorie, u.motif));
+                }
+            }
+            rapport.anomalies.addAll(anomalies.values());
+            rapport.lignes.put(nom, lignes);
+            rapport.octets += Files.exists(fichier) ? Files.size(fichier) : 0;
+        }
+
+        /**
+         * Réécrit le fichier sans les lignes signalées, qui sont ajoutées à
+         * <fichier>.rejets, sous le verrou du dossier.
+         *
+         * @return Le nombre de lignes retirées
+         */
+        long reparer() throws IOException {
+            if (anomalies.isEmpty()) {
+                return 0;
+            }
+            Path tmp = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+            Path rejets = fichier.resolveSibling(fichier.getFileName() + ".rejets");
+            Charset charset = Charset.defaultCharset();
+            VerrouDonnees verrou = fileManager.getVerrou();
+            verrou.prendre();
+            try {
+                try (FileOutputStream sortie = new FileOutputStream(tmp.toFile());
+                     FileOutputStream quarantaine = new FileOutputStream(rejets.toFile(), true);
+                     Writer conservees = new BufferedWriter(new OutputStreamWriter(sortie, charset), 1 << 16);
+                     Writer retirees = new BufferedWriter(new OutputStreamWriter(quarantaine, charset))) {
+                    Morceau tout = new Morceau(0, 0, Files.size(fichier));
+                    parcourir(fichier, tout, (ligne, numero) -> {
+                        try {
+                            (anomalies.containsKey(numero) ? retirees : conservees).write(ligne + "\n");
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    conservees.flush();
+                    retirees.flush();
+                    sortie.getFD().sync();
+                    quarantaine.getFD().sync();
+                } catch (UncheckedIOException e) {
+                    Files.deleteIfExists(tmp);
+                    throw e.getCause();
+                } catch (IOException e) {
+                    Files.deleteIfExists(tmp);
+                    throw e;
+                }
+                Files.move(tmp, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                FileManager.synchroniserDossier(fichier);
+            } finally {
+                verrou.liberer();
+            }
+            return anomalies.size();
+        }
+    }
+
+    /**
+     * Parcourt les lignes qui commencent dans le morceau, en les découpant
+     * comme le chargement (fin de ligne '\n', '\r' final retiré). La ligne
+     * entamée au début du morceau appartient au morceau précédent.
+     */
+    private static void parcourir(Path fichier, Morceau m, LigneLue traitement) throws IOException {
+        Charset charset = Charset.defaultCharset();
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            long position = Math.max(0, m.debut - 1);
+            LecteurOctets in = new LecteurOctets(canal, position);
+            if (m.debut > 0) {
+                int b;
+                while ((b = in.lire()) >= 0) {
+                    position++;
+                    if (b == '\n') {
+                        break;
+                    }
+                }
+            }
+            ByteArrayOutputStream ligne = new ByteArrayOutputStream(256);
+            while (position < m.fin) {
+                ligne.reset();
+                int b;
+                while ((b = in.lire()) >= 0) {
+                    position++;
+                    if (b == '\n') {
+                        break;
+                    }
+                    ligne.write(b);
+                }
+                if (b < 0 && ligne.size() == 0) {
+                    break;
+                }
+                byte[] octets = ligne.toByteArray();
+                int longueur = octets.length > 0 && octets[octets.length - 1] == '\r' ? octets.length - 1 : octets.length;
+                m.lignes++;
+                traitement.lue(new String(octets, 0, longueur, charset), m.lignes);
+            }
+        }
+    }
+
+    private interface LigneLue {
+        void lue(String ligne, long numero);
+    }
+
+    /**
+     * Lecture octet par octet d'un canal, avec un tampon non synchronisé.
+     */
+    private static class LecteurOctets {
+        private final FileChannel canal;
+        private final ByteBuffer tampon = ByteBuffer.allocate(1 << 16);
+
+        LecteurOctets(FileChannel canal, long position) throws IOException {
+            this.canal = canal;
+            canal.position(position);
+            tampon.limit(0);
+        }
+
+        int lire() throws IOException {
+            if (!tampon.hasRemaining()) {
+                tampon.clear();
+                if (canal.read(tampon) <= 0) {
+                    tampon.limit(0);
+                    return -1;
+                }
+                tampon.flip();
+            }
+            return tampon.get() & 0xFF;
+        }
+    }
+
+    /**
+     * Catégorie d'une erreur de construction d'une ligne.
+     */
+    private static Categorie classer(RuntimeException e) {
+        if (e instanceof DateTimeParseException) {
+            return Categorie.DATE_INVALIDE;
+        }
+        if (e instanceof NumberFormatException) {
+            return Categorie.NOMBRE_INVALIDE;
+        }
+        return Categorie.LIGNE_INVALIDE;
+    }
+
+    @SafeVarargs
+    private static void attendre(List<Future<?>>... taches) throws IOException {
+        try {
+            for (List<Future<?>> liste : taches) {
+                for (Future<?> f : liste) {
+                    f.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Vérification interrompue");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Verrou consultatif (advisory lock) sur le dossier de données, partagé par
+ * toutes les instances de l'application qui utilisent le même dossier.
+ *
+ * Il s'agit d'un verrou exclusif sur data/.verrou, pris autour de chaque
+ * écriture (ajout au journal ou aux relations, réécriture d'un fichier,
+ * compaction) : deux instances n'écrivent jamais en même temps, et une
+ * instance qui relit un fichier modifié par une autre le voit complet.
+ *
+ * Dans une même instance, le verrou est réentrant : le verrou fichier n'est
+ * pris qu'au premier niveau et libéré au dernier. S'il ne peut pas être posé
+ * (système de fichiers sans verrous), seul le verrou interne protège les écritures.
+ */
+public class VerrouDonnees {
+
+    private static final String VERROU_FILE = "data/.verrou";
+
+    private final Path chemin;
+    private final ReentrantLock verrou = new ReentrantLock();
+    private FileChannel canal;
+    private FileLock verrouFichier;
+
+    public VerrouDonnees() {
+        this(Paths.get(VERROU_FILE));
+    }
+
+    public VerrouDonnees(Path chemin) {
+        this.chemin = chemin;
+    }
+
+    /**
+     * Prend le verrou, en attendant que les autres instances le libèrent.
+     * Chaque appel doit être suivi d'un appel à liberer().
+     */
+    public void prendre() {
+        verrou.lock();
+        if (verrou.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            if (canal == null) {
+                Files.createDirectories(chemin.toAbsolutePath().getParent());
+                canal = FileChannel.open(chemin, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            verrouFichier = canal.lock();
+        } catch (IOException | UnsupportedOperationException | OverlappingFileLockException e) {
+            System.out.println("Verrou " + chemin + " indisponible: " + e.getMessage());
+            verrouFichier = null;
+        }
+    }
+
+    /**
+     * Libère le verrou (le verrou fichier n'est rendu qu'au dernier niveau).
+     */
+    public void liberer() {
+        try {
+            if (verrou.getHoldCount() == 1 && verrouFichier != null) {
+                verrouFichier.release();
+                verrouFichier = null;
+            }
+        } catch (IOException e) {
+            System.out.println("Erreur libération verrou: " + e.getMessage());
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Exécute une opération sous le verrou.
+     */
+    public <T> T executer(Supplier<T> operation) {
+        prendre();
+        try {
+            return operation.get();
+        } finally {
+            liberer();
+        }
+    }
+
+    public void executer(Runnable operation) {
+        prendre();
+        try {
+            operation.run();
+        } finally {
+            liberer();
+        }
+    }
+}
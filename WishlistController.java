@@ -143,6 +143,17 @@ public class WishlistController {
         }
     }
 
+    /**
+     * Exporte la wishlist (CSV ou JSON Lines) en arrière-plan.
+     */
+    @FXML
+    private void handleExporter() {
+        ExportDonnees export = DataManager.getInstance().getExportDonnees();
+        ExportTache.lancer(tableWishlist.getScene().getWindow(), "wishlist",
+                (canal, format, progression) ->
+                        export.exporterWishlist(entreprise, canal, format, progression));
+    }
+
     /**
      * Retour au dashboard de l'entreprise.
      */